@@ -16,6 +16,9 @@
  */
 package com.github.braisdom.objsql;
 
+import java.time.Duration;
+import java.util.Objects;
+
 /**
  * The class provides default implementations of structure of SQL
  * @param <T>
@@ -34,6 +37,9 @@ public abstract class AbstractQuery<T> implements Query<T> {
     protected String orderBy;
     protected String groupBy;
     protected String having;
+    protected Duration cacheTimeToLive;
+    protected boolean hedged;
+    protected Object shardValue;
 
     public AbstractQuery(Class<T> domainModelClass) {
         this(new BeanModelDescriptor<>(domainModelClass));
@@ -93,6 +99,30 @@ public abstract class AbstractQuery<T> implements Query<T> {
         return this;
     }
     
+    @Override
+    public Query cached(Duration timeToLive) {
+        this.cacheTimeToLive = timeToLive;
+        return this;
+    }
+
+    @Override
+    public Query hedged() {
+        this.hedged = true;
+        return this;
+    }
+
+    @Override
+    public Query shard(Object shardValue) {
+        Objects.requireNonNull(shardValue, "The shardValue cannot be null");
+        this.shardValue = shardValue;
+        return this;
+    }
+
+    @Override
+    public Object[] getQueryParams() {
+        return params == null ? new Object[0] : params;
+    }
+
     protected String getTableName(Class tableClass) {
         return Tables.getTableName(tableClass);
     }
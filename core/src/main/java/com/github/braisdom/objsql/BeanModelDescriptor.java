@@ -55,6 +55,7 @@ public class BeanModelDescriptor<T> implements DomainModelDescriptor<T> {
     private final Map<String, ColumnTransition> columnTransitionMap;
     private final Map<String, Field> columnToField;
     private final DomainModel domainModel;
+    private final TimePartitioning timePartitioning;
 
     private class DefaultFieldValue implements FieldValue {
 
@@ -112,6 +113,10 @@ public class BeanModelDescriptor<T> implements DomainModelDescriptor<T> {
         this.columnTransitionMap = new HashMap<>();
         this.columnToField = new HashMap<>();
 
+        this.timePartitioning = StringUtil.isBlank(domainModel.partitionField()) ? null
+                : new TimePartitioning(domainModel.partitionField(),
+                Tables.getColumnName(domainModelClass, domainModel.partitionField()), domainModel.partitionInterval());
+
         prepareColumnToPropertyOverrides(domainModelClass);
         instantiateColumnTransitionMap(domainModelClass.getDeclaredFields());
     }
@@ -152,6 +157,26 @@ public class BeanModelDescriptor<T> implements DomainModelDescriptor<T> {
                 .map(field -> getColumnName(field)).toArray(String[]::new);
     }
 
+    @Override
+    public boolean isExplicitProjection() {
+        return domainModel.explicitProjection();
+    }
+
+    @Override
+    public boolean isCacheable() {
+        return domainModel.cacheable();
+    }
+
+    @Override
+    public TimePartitioning getTimePartitioning() {
+        return timePartitioning;
+    }
+
+    @Override
+    public String getShardKey() {
+        return StringUtil.isBlank(domainModel.shardKey()) ? null : domainModel.shardKey();
+    }
+
     @Override
     public String getTableName() {
         return Tables.getTableName(domainModelClass);
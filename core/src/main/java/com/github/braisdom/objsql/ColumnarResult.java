@@ -0,0 +1,489 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.*;
+
+/**
+ * The result of query stored by column, the numeric columns are filled into primitive
+ * arrays by <code>ResultSet.getLong/getInt/getDouble</code>, and the string columns are
+ * dictionary-encoded, the null values are marked in a bitmap of each column. It is
+ * designed for the analytic queries returning plenty of narrow rows, which can be
+ * computed on the arrays directly.
+ * <pre>
+ *     ColumnarResult result = select.executeColumnar();
+ *     ColumnarResult.LongColumn amounts = result.getLongColumn("amount");
+ *     for (int i = 0; i &lt; result.getRowCount(); i++) {
+ *         if (!amounts.isNull(i)) {
+ *             total += amounts.getLong(i);
+ *         }
+ *     }
+ * </pre>
+ *
+ * The <code>DECIMAL</code> and <code>NUMERIC</code> columns without scale are read as long
+ * if they fit, the others, such as the columns with scale or the <code>NUMBER</code> of
+ * Oracle without precision, are stored as <code>BigDecimal</code> objects for keeping the
+ * exact values, and the columns of other types are stored as objects.
+ */
+public final class ColumnarResult {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Column[] columns;
+    private final int rowCount;
+
+    private ColumnarResult(Column[] columns, int rowCount) {
+        this.columns = columns;
+        this.rowCount = rowCount;
+    }
+
+    /**
+     * Reads all rows of the result set by column.
+     */
+    public static ColumnarResult create(ResultSet resultSet) throws SQLException {
+        ResultSetMetaData metaData = resultSet.getMetaData();
+        ColumnBuilder[] columnBuilders = new ColumnBuilder[metaData.getColumnCount()];
+        for (int i = 0; i < columnBuilders.length; i++) {
+            columnBuilders[i] = createColumnBuilder(metaData, i + 1);
+        }
+
+        int rowCount = 0;
+        while (resultSet.next()) {
+            for (int i = 0; i < columnBuilders.length; i++) {
+                columnBuilders[i].read(resultSet, i + 1, rowCount);
+            }
+            rowCount++;
+        }
+
+        Column[] columns = new Column[columnBuilders.length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = columnBuilders[i].build(rowCount);
+        }
+        return new ColumnarResult(columns, rowCount);
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    public String[] getColumnNames() {
+        return Arrays.stream(columns).map(Column::getName).toArray(String[]::new);
+    }
+
+    public Column getColumn(int index) {
+        return columns[index];
+    }
+
+    /**
+     * Returns the column by the label of column, ignoring case.
+     *
+     * @throws IllegalArgumentException if the column is absent
+     */
+    public Column getColumn(String name) {
+        for (Column column : columns) {
+            if (column.getName().equalsIgnoreCase(name)) {
+                return column;
+            }
+        }
+        throw new IllegalArgumentException(String.format("The column '%s' is absent", name));
+    }
+
+    public LongColumn getLongColumn(String name) {
+        return getColumn(name, LongColumn.class);
+    }
+
+    public IntColumn getIntColumn(String name) {
+        return getColumn(name, IntColumn.class);
+    }
+
+    public DoubleColumn getDoubleColumn(String name) {
+        return getColumn(name, DoubleColumn.class);
+    }
+
+    public StringColumn getStringColumn(String name) {
+        return getColumn(name, StringColumn.class);
+    }
+
+    private <C extends Column> C getColumn(String name, Class<C> columnClass) {
+        Column column = getColumn(name);
+        if (!columnClass.isInstance(column)) {
+            throw new ClassCastException(String.format("The column '%s' is a %s, not a %s", name,
+                    column.getClass().getSimpleName(), columnClass.getSimpleName()));
+        }
+        return columnClass.cast(column);
+    }
+
+    private static ColumnBuilder createColumnBuilder(ResultSetMetaData metaData, int columnIndex) throws SQLException {
+        String name = metaData.getColumnLabel(columnIndex);
+        switch (metaData.getColumnType(columnIndex)) {
+            case Types.BIGINT:
+                // The unsigned BIGINT of MySQL may overflow the long
+                return metaData.isSigned(columnIndex) ? new LongColumnBuilder(name) : new ObjectColumnBuilder(name);
+            case Types.INTEGER:
+                // The unsigned INT of MySQL may overflow the int
+                return metaData.isSigned(columnIndex) ? new IntColumnBuilder(name) : new LongColumnBuilder(name);
+            case Types.SMALLINT:
+            case Types.TINYINT:
+                return new IntColumnBuilder(name);
+            case Types.DOUBLE:
+            case Types.FLOAT:
+            case Types.REAL:
+                return new DoubleColumnBuilder(name);
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                int precision = metaData.getPrecision(columnIndex);
+                return metaData.getScale(columnIndex) == 0 && precision > 0 && precision <= 18
+                        ? new LongColumnBuilder(name) : new ObjectColumnBuilder(name);
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.LONGVARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+            case Types.LONGNVARCHAR:
+                return new StringColumnBuilder(name);
+            default:
+                return new ObjectColumnBuilder(name);
+        }
+    }
+
+    public abstract static class Column {
+
+        private final String name;
+        private final BitSet nulls;
+
+        private Column(String name, BitSet nulls) {
+            this.name = name;
+            this.nulls = nulls;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isNull(int row) {
+            return nulls.get(row);
+        }
+
+        /**
+         * Returns the bitmap of null values, whose bit is set for the null row.
+         */
+        public BitSet getNulls() {
+            return nulls;
+        }
+
+        /**
+         * Returns the value of row as an object, or null.
+         */
+        public abstract Object getObject(int row);
+    }
+
+    public static final class LongColumn extends Column {
+
+        private final long[] values;
+
+        private LongColumn(String name, BitSet nulls, long[] values) {
+            super(name, nulls);
+            this.values = values;
+        }
+
+        public long getLong(int row) {
+            return values[row];
+        }
+
+        /**
+         * Returns the values of all rows, the values of null rows are zero.
+         */
+        public long[] getValues() {
+            return values;
+        }
+
+        @Override
+        public Object getObject(int row) {
+            return isNull(row) ? null : values[row];
+        }
+    }
+
+    public static final class IntColumn extends Column {
+
+        private final int[] values;
+
+        private IntColumn(String name, BitSet nulls, int[] values) {
+            super(name, nulls);
+            this.values = values;
+        }
+
+        public int getInt(int row) {
+            return values[row];
+        }
+
+        /**
+         * Returns the values of all rows, the values of null rows are zero.
+         */
+        public int[] getValues() {
+            return values;
+        }
+
+        @Override
+        public Object getObject(int row) {
+            return isNull(row) ? null : values[row];
+        }
+    }
+
+    public static final class DoubleColumn extends Column {
+
+        private final double[] values;
+
+        private DoubleColumn(String name, BitSet nulls, double[] values) {
+            super(name, nulls);
+            this.values = values;
+        }
+
+        public double getDouble(int row) {
+            return values[row];
+        }
+
+        /**
+         * Returns the values of all rows, the values of null rows are zero.
+         */
+        public double[] getValues() {
+            return values;
+        }
+
+        @Override
+        public Object getObject(int row) {
+            return isNull(row) ? null : values[row];
+        }
+    }
+
+    /**
+     * The strings encoded by the codes indexing a dictionary of distinct values.
+     */
+    public static final class StringColumn extends Column {
+
+        private final String[] dictionary;
+        private final int[] codes;
+
+        private StringColumn(String name, BitSet nulls, String[] dictionary, int[] codes) {
+            super(name, nulls);
+            this.dictionary = dictionary;
+            this.codes = codes;
+        }
+
+        public String getString(int row) {
+            return isNull(row) ? null : dictionary[codes[row]];
+        }
+
+        /**
+         * Returns the code of row in dictionary, the codes of null rows are -1.
+         */
+        public int getCode(int row) {
+            return codes[row];
+        }
+
+        public int[] getCodes() {
+            return codes;
+        }
+
+        public String[] getDictionary() {
+            return dictionary;
+        }
+
+        @Override
+        public Object getObject(int row) {
+            return getString(row);
+        }
+    }
+
+    public static final class ObjectColumn extends Column {
+
+        private final Object[] values;
+
+        private ObjectColumn(String name, BitSet nulls, Object[] values) {
+            super(name, nulls);
+            this.values = values;
+        }
+
+        public Object[] getValues() {
+            return values;
+        }
+
+        @Override
+        public Object getObject(int row) {
+            return values[row];
+        }
+    }
+
+    private abstract static class ColumnBuilder {
+
+        protected final String name;
+        protected final BitSet nulls = new BitSet();
+
+        private ColumnBuilder(String name) {
+            this.name = name;
+        }
+
+        abstract void read(ResultSet resultSet, int columnIndex, int row) throws SQLException;
+
+        abstract Column build(int rowCount);
+    }
+
+    private static class LongColumnBuilder extends ColumnBuilder {
+
+        private long[] values = new long[INITIAL_CAPACITY];
+
+        private LongColumnBuilder(String name) {
+            super(name);
+        }
+
+        @Override
+        void read(ResultSet resultSet, int columnIndex, int row) throws SQLException {
+            if (row == values.length) {
+                values = Arrays.copyOf(values, values.length * 2);
+            }
+            values[row] = resultSet.getLong(columnIndex);
+            if (resultSet.wasNull()) {
+                nulls.set(row);
+            }
+        }
+
+        @Override
+        Column build(int rowCount) {
+            return new LongColumn(name, nulls, Arrays.copyOf(values, rowCount));
+        }
+    }
+
+    private static class IntColumnBuilder extends ColumnBuilder {
+
+        private int[] values = new int[INITIAL_CAPACITY];
+
+        private IntColumnBuilder(String name) {
+            super(name);
+        }
+
+        @Override
+        void read(ResultSet resultSet, int columnIndex, int row) throws SQLException {
+            if (row == values.length) {
+                values = Arrays.copyOf(values, values.length * 2);
+            }
+            values[row] = resultSet.getInt(columnIndex);
+            if (resultSet.wasNull()) {
+                nulls.set(row);
+            }
+        }
+
+        @Override
+        Column build(int rowCount) {
+            return new IntColumn(name, nulls, Arrays.copyOf(values, rowCount));
+        }
+    }
+
+    private static class DoubleColumnBuilder extends ColumnBuilder {
+
+        private double[] values = new double[INITIAL_CAPACITY];
+
+        private DoubleColumnBuilder(String name) {
+            super(name);
+        }
+
+        @Override
+        void read(ResultSet resultSet, int columnIndex, int row) throws SQLException {
+            if (row == values.length) {
+                values = Arrays.copyOf(values, values.length * 2);
+            }
+            values[row] = resultSet.getDouble(columnIndex);
+            if (resultSet.wasNull()) {
+                nulls.set(row);
+            }
+        }
+
+        @Override
+        Column build(int rowCount) {
+            return new DoubleColumn(name, nulls, Arrays.copyOf(values, rowCount));
+        }
+    }
+
+    private static class StringColumnBuilder extends ColumnBuilder {
+
+        private final Map<String, Integer> codesByValue = new HashMap<>();
+        private final List<String> dictionary = new ArrayList<>();
+        private int[] codes = new int[INITIAL_CAPACITY];
+
+        private StringColumnBuilder(String name) {
+            super(name);
+        }
+
+        @Override
+        void read(ResultSet resultSet, int columnIndex, int row) throws SQLException {
+            if (row == codes.length) {
+                codes = Arrays.copyOf(codes, codes.length * 2);
+            }
+
+            String value = resultSet.getString(columnIndex);
+            if (value == null) {
+                codes[row] = -1;
+                nulls.set(row);
+            } else {
+                Integer code = codesByValue.get(value);
+                if (code == null) {
+                    code = dictionary.size();
+                    dictionary.add(value);
+                    codesByValue.put(value, code);
+                }
+                codes[row] = code;
+            }
+        }
+
+        @Override
+        Column build(int rowCount) {
+            return new StringColumn(name, nulls, dictionary.toArray(new String[dictionary.size()]),
+                    Arrays.copyOf(codes, rowCount));
+        }
+    }
+
+    private static class ObjectColumnBuilder extends ColumnBuilder {
+
+        private Object[] values = new Object[INITIAL_CAPACITY];
+
+        private ObjectColumnBuilder(String name) {
+            super(name);
+        }
+
+        @Override
+        void read(ResultSet resultSet, int columnIndex, int row) throws SQLException {
+            if (row == values.length) {
+                values = Arrays.copyOf(values, values.length * 2);
+            }
+            values[row] = resultSet.getObject(columnIndex);
+            if (values[row] == null) {
+                nulls.set(row);
+            }
+        }
+
+        @Override
+        Column build(int rowCount) {
+            return new ObjectColumn(name, nulls, Arrays.copyOf(values, rowCount));
+        }
+    }
+}
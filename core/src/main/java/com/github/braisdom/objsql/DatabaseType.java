@@ -61,6 +61,35 @@ public class DatabaseType {
         return majorVersion;
     }
 
+    /**
+     * Returns true if the database supports window functions, such as
+     * <code>ROW_NUMBER() OVER (...)</code> or <code>COUNT(*) OVER ()</code>.
+     */
+    public boolean isWindowFunctionSupported() {
+        if (MySQL.getDatabaseProductName().equals(databaseProductName)) {
+            return majorVersion >= 8;
+        } else if (SQLite.getDatabaseProductName().equals(databaseProductName)) {
+            // The SQLite supports window functions since 3.25, but the minor
+            // version cannot be carried
+            return false;
+        }
+        return PostgreSQL.getDatabaseProductName().equals(databaseProductName)
+                || Oracle.getDatabaseProductName().equals(databaseProductName)
+                || Oracle12c.getDatabaseProductName().equals(databaseProductName)
+                || MsSqlServer.getDatabaseProductName().equals(databaseProductName)
+                || HSQLDB.getDatabaseProductName().equals(databaseProductName);
+    }
+
+    /**
+     * Returns true if the database supports the row value comparison,
+     * such as <code>(k1, k2) &gt; (?, ?)</code>.
+     */
+    public boolean isRowValueComparisonSupported() {
+        return PostgreSQL.getDatabaseProductName().equals(databaseProductName)
+                || MySQL.getDatabaseProductName().equals(databaseProductName)
+                || HSQLDB.getDatabaseProductName().equals(databaseProductName);
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (obj instanceof DatabaseType) {
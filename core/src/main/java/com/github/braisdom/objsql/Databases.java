@@ -16,11 +16,16 @@
  */
 package com.github.braisdom.objsql;
 
+import com.github.braisdom.objsql.cache.EntityCache;
+import com.github.braisdom.objsql.cache.QueryCache;
+import com.github.braisdom.objsql.cache.ReplicatedTable;
 import com.github.braisdom.objsql.jdbc.DbUtils;
+import com.github.braisdom.objsql.pagination.CachedPagedSQLBuilder;
 import com.github.braisdom.objsql.pagination.DefaultPaginator;
 import com.github.braisdom.objsql.pagination.PagedSQLBuilder;
 import com.github.braisdom.objsql.pagination.PagedSQLBuilderFactory;
 import com.github.braisdom.objsql.pagination.Paginator;
+import com.github.braisdom.objsql.pagination.impl.AnsiPagedSQLBuilder;
 import com.github.braisdom.objsql.pagination.impl.MsSQLServerPagedSQLBuilder;
 import com.github.braisdom.objsql.pagination.impl.MySQLPagedSQLBuilder;
 import com.github.braisdom.objsql.pagination.impl.OraclePagedSQLBuilder;
@@ -30,7 +35,10 @@ import com.github.braisdom.objsql.util.StringUtil;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 
 import static com.github.braisdom.objsql.DatabaseType.*;
@@ -59,6 +67,17 @@ public final class Databases {
      */
     private static ThreadLocal<Connection> connectionThreadLocal = new ThreadLocal<>();
 
+    /**
+     * Holds the objects loaded by primary key in the transaction, it lives and dies
+     * with the connection of transaction.
+     */
+    private static ThreadLocal<IdentityMap> identityMapThreadLocal = new ThreadLocal<>();
+
+    /**
+     * Holds the data source name of the connection bound by <code>executeTransactionally</code>.
+     */
+    private static ThreadLocal<String> dataSourceNameThreadLocal = new ThreadLocal<>();
+
     /**
      * Quoting name of table or column by various database type.
      */
@@ -78,6 +97,21 @@ public final class Databases {
 
     private static Paginator paginator;
 
+    /**
+     * The second-level cache of domain objects, it is disabled if not installed.
+     */
+    private static EntityCache entityCache;
+
+    private static QueryCache queryCache;
+
+    /**
+     * Routes the read-only operations to the replicas, all operations go to the
+     * primary data source if not installed.
+     */
+    private static ReplicaRouter replicaRouter;
+
+    private static HedgingPolicy hedgingPolicy;
+
     /**
      * Represents a logic of data process, it will provide the connection and sql
      * executor of database, and the concrete logic will be ignored the behavior
@@ -115,6 +149,30 @@ public final class Databases {
         connectionThreadLocal.remove();
     }
 
+    /**
+     * Returns the connection bound to current thread, such as the connection of
+     * <code>executeTransactionally</code>, or null if there's no connection bound.
+     */
+    public static Connection getCurrentThreadConnection() {
+        return connectionThreadLocal.get();
+    }
+
+    /**
+     * Returns the data source name of the connection bound by <code>executeTransactionally</code>,
+     * or null if there's no connection bound, or the connection is bound by others.
+     */
+    public static String getCurrentThreadDataSourceName() {
+        return connectionThreadLocal.get() == null ? null : dataSourceNameThreadLocal.get();
+    }
+
+    /**
+     * Returns the identity map of the transaction in current thread, or null if
+     * there's no transaction.
+     */
+    public static IdentityMap getCurrentIdentityMap() {
+        return identityMapThreadLocal.get();
+    }
+
     public static void installConnectionFactory(ConnectionFactory connectionFactory) {
         Objects.requireNonNull(connectionFactory, "The connectionFactory cannot be null");
         Databases.connectionFactory = connectionFactory;
@@ -155,6 +213,26 @@ public final class Databases {
         Databases.paginator = paginator;
     }
 
+    public static void installEntityCache(EntityCache entityCache) {
+        Objects.requireNonNull(entityCache, "The entityCache cannot be null");
+        Databases.entityCache = entityCache;
+    }
+
+    public static void installQueryCache(QueryCache queryCache) {
+        Objects.requireNonNull(queryCache, "The queryCache cannot be null");
+        Databases.queryCache = queryCache;
+    }
+
+    public static void installReplicaRouter(ReplicaRouter replicaRouter) {
+        Objects.requireNonNull(replicaRouter, "The replicaRouter cannot be null");
+        Databases.replicaRouter = replicaRouter;
+    }
+
+    public static void installHedgingPolicy(HedgingPolicy hedgingPolicy) {
+        Objects.requireNonNull(hedgingPolicy, "The hedgingPolicy cannot be null");
+        Databases.hedgingPolicy = hedgingPolicy;
+    }
+
     public static <R> R executeTransactionally(TransactionalExecutor<R> executor) throws SQLException {
         return executeTransactionally(ConnectionFactory.DEFAULT_DATA_SOURCE_NAME, executor);
     }
@@ -165,6 +243,8 @@ public final class Databases {
             connection = Databases.getConnectionFactory().getConnection(dataSourceName);
             connection.setAutoCommit(false);
             connectionThreadLocal.set(connection);
+            dataSourceNameThreadLocal.set(dataSourceName);
+            identityMapThreadLocal.set(new IdentityMap());
             SQLExecutor sqlExecutor = getSqlExecutor();
 
             R result = executor.apply(connection, sqlExecutor);
@@ -177,8 +257,32 @@ public final class Databases {
             DbUtils.rollback(connection);
             throw new RollbackCauseException(ex.getMessage(), ex);
         } finally {
+            IdentityMap identityMap = identityMapThreadLocal.get();
             connectionThreadLocal.remove();
+            dataSourceNameThreadLocal.remove();
+            identityMapThreadLocal.remove();
             DbUtils.close(connection);
+
+            if (identityMap != null) {
+                invalidateWrittenCaches(identityMap);
+            }
+            if (replicaRouter != null) {
+                replicaRouter.markWritten(dataSourceName);
+            }
+        }
+    }
+
+    /**
+     * Invalidates the caches of the models written in transaction again, because
+     * the objects may be cached by other threads before the transaction completed.
+     */
+    private static void invalidateWrittenCaches(IdentityMap identityMap) {
+        for (Class writtenClass : identityMap.getWrittenClasses()) {
+            Tables.invalidateEntityCache(writtenClass, null);
+            if (queryCache != null) {
+                queryCache.invalidateTable(Tables.getTableName(writtenClass));
+            }
+            ReplicatedTable.invalidate(writtenClass);
         }
     }
 
@@ -187,7 +291,7 @@ public final class Databases {
     }
 
     public static void truncateTable(String dataSourceName, String tableName) throws SQLException {
-        execute(dataSourceName, (connection, sqlExecutor) -> {
+        executeWrite(dataSourceName, (connection, sqlExecutor) -> {
             String databaseProductName = connection.getMetaData().getDatabaseProductName();
             String quotedTableName = getQuoter().quoteTableName(databaseProductName, tableName);
             connection.createStatement().execute(String.format("TRUNCATE TABLE %s", quotedTableName));
@@ -200,7 +304,7 @@ public final class Databases {
     }
 
     public static void execute(String dataSourceName, String sql) throws SQLException {
-        execute(dataSourceName, (connection, sqlExecutor) -> {
+        executeWrite(dataSourceName, (connection, sqlExecutor) -> {
             connection.createStatement().execute(sql);
             return null;
         });
@@ -218,17 +322,89 @@ public final class Databases {
         SQLExecutor<T> sqlExecutor = getSqlExecutor();
 
         if (connection == null) {
-            try {
-                connection = getConnectionFactory().getConnection(dataSourceName);
-                return databaseInvoke.apply(connection, sqlExecutor);
-            } finally {
-                DbUtils.close(connection);
-            }
+            return executeOnNewConnection(dataSourceName, databaseInvoke);
         } else {
             return databaseInvoke.apply(connection, sqlExecutor);
         }
     }
 
+    /**
+     * Executes the write on the primary data source, the same as <code>execute</code>, and
+     * records the write for the read-your-writes of current thread.
+     *
+     * @see ReplicaRouter#readYourWrites(long, java.util.concurrent.TimeUnit)
+     */
+    public static <T, R> R executeWrite(String dataSourceName, DatabaseInvoke<T, R> databaseInvoke) throws SQLException {
+        try {
+            return execute(dataSourceName, databaseInvoke);
+        } finally {
+            if (replicaRouter != null) {
+                replicaRouter.markWritten(dataSourceName);
+            }
+        }
+    }
+
+    public static <T, R> R executeReadOnly(DatabaseInvoke<T, R> databaseInvoke) throws SQLException {
+        return executeReadOnly(ConnectionFactory.DEFAULT_DATA_SOURCE_NAME, databaseInvoke);
+    }
+
+    /**
+     * Executes the read-only operation, which is routed to a replica of the data source
+     * if the <code>ReplicaRouter</code> is installed and no connection is bound to current
+     * thread, otherwise, it is the same as <code>execute</code>.
+     *
+     * @see ReplicaRouter
+     */
+    public static <T, R> R executeReadOnly(String dataSourceName, DatabaseInvoke<T, R> databaseInvoke) throws SQLException {
+        Objects.requireNonNull(dataSourceName, "The datasourceName cannot be null");
+        Objects.requireNonNull(databaseInvoke, "The databaseInvoke cannot be null");
+
+        Connection connection = connectionThreadLocal.get();
+        if (connection != null) {
+            SQLExecutor<T> sqlExecutor = getSqlExecutor();
+            return databaseInvoke.apply(connection, sqlExecutor);
+        } else if (replicaRouter == null) {
+            return executeOnNewConnection(dataSourceName, databaseInvoke);
+        }
+
+        String routedDataSourceName = replicaRouter.acquire(dataSourceName);
+        try {
+            return executeOnNewConnection(routedDataSourceName, databaseInvoke);
+        } finally {
+            replicaRouter.release(routedDataSourceName);
+        }
+    }
+
+    /**
+     * Executes the idempotent read, which is duplicated to another replica if it is not
+     * answered in time, and the result answered first is returned. It is the same as
+     * <code>executeReadOnly</code> if the data source has less than two replicas.
+     *
+     * @see HedgingPolicy
+     */
+    public static <T, R> R executeHedged(String dataSourceName, DatabaseInvoke<T, R> databaseInvoke) throws SQLException {
+        Objects.requireNonNull(dataSourceName, "The datasourceName cannot be null");
+        Objects.requireNonNull(databaseInvoke, "The databaseInvoke cannot be null");
+
+        if (connectionThreadLocal.get() != null || replicaRouter == null
+                || replicaRouter.getReplicaNames(dataSourceName).size() < 2) {
+            return executeReadOnly(dataSourceName, databaseInvoke);
+        }
+        return getHedgingPolicy().execute(dataSourceName, replicaRouter, databaseInvoke);
+    }
+
+    private static <T, R> R executeOnNewConnection(String dataSourceName,
+                                                   DatabaseInvoke<T, R> databaseInvoke) throws SQLException {
+        Connection connection = null;
+        SQLExecutor<T> sqlExecutor = getSqlExecutor();
+        try {
+            connection = getConnectionFactory().getConnection(dataSourceName);
+            return databaseInvoke.apply(connection, sqlExecutor);
+        } finally {
+            DbUtils.close(connection);
+        }
+    }
+
     public static <R> R sqlBenchmarking(Benchmarkable<R> benchmarkable, Logger logger,
                                         String message, Object... params) throws SQLException {
         try {
@@ -302,8 +478,20 @@ public final class Databases {
     public static PagedSQLBuilderFactory getPagedSQLBuilderFactory() {
         if (pagedSQLBuilderFactory == null) {
             pagedSQLBuilderFactory = new PagedSQLBuilderFactory() {
+
+                // The rewritten SQL are cached in the builder of each database and major version,
+                // because the dialect may differ among the versions of same database
+                private final Map<List<Object>, PagedSQLBuilder> pagedSQLBuilders = new ConcurrentHashMap<>();
+
                 @Override
                 public PagedSQLBuilder createPagedSQLBuilder(DatabaseType databaseType) {
+                    List<Object> databaseKey = Arrays.asList(databaseType.getDatabaseProductName(),
+                            databaseType.getMajorVersion());
+                    return pagedSQLBuilders.computeIfAbsent(databaseKey,
+                            key -> new CachedPagedSQLBuilder(createDialectBuilder(databaseType)));
+                }
+
+                private PagedSQLBuilder createDialectBuilder(DatabaseType databaseType) {
                     if (MySQL.equals(databaseType) || SQLite.equals(databaseType)) {
                         return new MySQLPagedSQLBuilder();
                     } else if (MsSqlServer.equals(databaseType)) {
@@ -311,7 +499,7 @@ public final class Databases {
                     } else if (Oracle.equals(databaseType)) {
                         return new OraclePagedSQLBuilder();
                     } else {
-                        return new PagedSQLBuilder() {};
+                        return new AnsiPagedSQLBuilder();
                     }
                 }
             };
@@ -320,6 +508,58 @@ public final class Databases {
         return pagedSQLBuilderFactory;
     }
 
+    /**
+     * Returns the entity cache installed, or null if it is not installed.
+     */
+    public static EntityCache getEntityCache() {
+        return entityCache;
+    }
+
+    /**
+     * Returns the replica router installed, or null if it is not installed.
+     */
+    public static ReplicaRouter getReplicaRouter() {
+        return replicaRouter;
+    }
+
+    /**
+     * Returns the <code>ShardedConnectionFactory</code> installed if the data source is
+     * sharded, otherwise null.
+     */
+    public static ShardedConnectionFactory getShardedConnectionFactory(String dataSourceName) {
+        ConnectionFactory connectionFactory = getConnectionFactory();
+        if (connectionFactory instanceof ShardedConnectionFactory
+                && ((ShardedConnectionFactory) connectionFactory).isSharded(dataSourceName)) {
+            return (ShardedConnectionFactory) connectionFactory;
+        }
+        return null;
+    }
+
+    public static HedgingPolicy getHedgingPolicy() {
+        if (hedgingPolicy == null) {
+            hedgingPolicy = new HedgingPolicy();
+        }
+        return hedgingPolicy;
+    }
+
+    public static QueryCache getQueryCache() {
+        if (queryCache == null) {
+            queryCache = new QueryCache();
+        }
+        return queryCache;
+    }
+
+    /**
+     * Invalidates the cached queries touched the table, the <code>QueryCache</code> will
+     * not be created if no query has been cached.
+     */
+    public static void invalidateQueryCache(String tableName) {
+        QueryCache currentQueryCache = queryCache;
+        if (currentQueryCache != null) {
+            currentQueryCache.invalidateTable(tableName);
+        }
+    }
+
     public static Paginator getPaginator() {
         if (paginator == null) {
             paginator = new DefaultPaginator();
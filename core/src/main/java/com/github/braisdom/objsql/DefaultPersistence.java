@@ -17,14 +17,16 @@
 package com.github.braisdom.objsql;
 
 import com.github.braisdom.objsql.annotations.PrimaryKey;
+import com.github.braisdom.objsql.cache.ReplicatedTable;
 import com.github.braisdom.objsql.transition.ColumnTransition;
 import com.github.braisdom.objsql.util.ArrayUtil;
 import com.github.braisdom.objsql.util.StringUtil;
 
+import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.SQLException;
-import java.util.Arrays;
-import java.util.Objects;
+import java.util.*;
+import java.util.stream.Collectors;
 
 import static com.github.braisdom.objsql.util.FunctionWithThrowable.castFunctionWithThrowable;
 
@@ -66,13 +68,14 @@ public class DefaultPersistence<T> extends AbstractPersistence<T> {
             }
         }
 
-        String dataSourceName = domainModelDescriptor.getDataSourceName();
-        return Databases.execute(dataSourceName, (connection, sqlExecutor) -> {
+        String dataSourceName = routeInsertion(dirtyObject);
+        String partitionName = routeTable(dirtyObject);
+        return Databases.executeWrite(dataSourceName, (connection, sqlExecutor) -> {
             DatabaseMetaData metaData = connection.getMetaData();
             Quoter quoter = Databases.getQuoter();
 
             String databaseProductName = metaData.getDatabaseProductName();
-            String tableName = quoter.quoteTableName(databaseProductName, domainModelDescriptor.getTableName());
+            String tableName = quoter.quoteTableName(databaseProductName, partitionName);
             String[] columnNames = domainModelDescriptor.getInsertableColumns();
             String[] quotedColumnNames = quoter.quoteColumnNames(databaseProductName, columnNames);
 
@@ -85,6 +88,8 @@ public class DefaultPersistence<T> extends AbstractPersistence<T> {
             if (primaryValue != null) {
                 Tables.writePrimaryValue(dirtyObject, primaryValue);
             }
+            // Evicts the absence cached before, and the cached queries
+            invalidateCaches(primaryValue);
 
             return dirtyObject;
         });
@@ -102,25 +107,54 @@ public class DefaultPersistence<T> extends AbstractPersistence<T> {
         }
 
         String dataSourceName = domainModelDescriptor.getDataSourceName();
-        return Databases.execute(dataSourceName, (connection, sqlExecutor) -> {
+        if (Databases.getShardedConnectionFactory(dataSourceName) == null
+                && domainModelDescriptor.getTimePartitioning() == null) {
+            return insert(dataSourceName, domainModelDescriptor.getTableName(), Arrays.asList(dirtyObjects));
+        }
+
+        // The objects are inserted by shards and partitions, and the results are in the original order
+        Map<List<String>, List<Integer>> destinationIndexes = new LinkedHashMap<>();
+        for (int i = 0; i < dirtyObjects.length; i++) {
+            List<String> destination = Arrays.asList(routeInsertion(dirtyObjects[i]), routeTable(dirtyObjects[i]));
+            destinationIndexes.computeIfAbsent(destination, key -> new ArrayList<>()).add(i);
+        }
+
+        int[] results = new int[dirtyObjects.length];
+        for (Map.Entry<List<String>, List<Integer>> entry : destinationIndexes.entrySet()) {
+            List<Integer> indexes = entry.getValue();
+            int[] destinationResults = insert(entry.getKey().get(0), entry.getKey().get(1), indexes.stream()
+                    .map(index -> dirtyObjects[index]).collect(Collectors.toList()));
+            for (int i = 0; i < indexes.size() && i < destinationResults.length; i++) {
+                results[indexes.get(i)] = destinationResults[i];
+            }
+        }
+        return results;
+    }
+
+    private int[] insert(String dataSourceName, String partitionName, List<T> dirtyObjects) throws SQLException {
+        return Databases.executeWrite(dataSourceName, (connection, sqlExecutor) -> {
             DatabaseMetaData metaData = connection.getMetaData();
             Quoter quoter = Databases.getQuoter();
 
             String databaseProductName = metaData.getDatabaseProductName();
-            String tableName = quoter.quoteTableName(databaseProductName, domainModelDescriptor.getTableName());
+            String tableName = quoter.quoteTableName(databaseProductName, partitionName);
             String[] columnNames = domainModelDescriptor.getInsertableColumns();
             String[] quotedColumnNames = quoter.quoteColumnNames(databaseProductName, columnNames);
             String sql = formatInsertSql(tableName, columnNames, quotedColumnNames);
 
-            Object[][] values = new Object[dirtyObjects.length][];
-            for (int i = 0; i < dirtyObjects.length; i++) {
-                Object[] rowValues = filterValues(metaData, dirtyObjects[i], columnNames);
+            Object[][] values = new Object[dirtyObjects.size()][];
+            for (int i = 0; i < dirtyObjects.size(); i++) {
+                Object[] rowValues = filterValues(metaData, dirtyObjects.get(i), columnNames);
                 values[i] = new Object[rowValues.length];
                 for (int t = 0; t < rowValues.length; t++) {
                     values[i][t] = rowValues[t];
                 }
             }
-            return sqlExecutor.insert(connection, sql, domainModelDescriptor, values);
+            try {
+                return sqlExecutor.insert(connection, sql, domainModelDescriptor, values);
+            } finally {
+                invalidateCaches(null);
+            }
         });
     }
 
@@ -161,12 +195,17 @@ public class DefaultPersistence<T> extends AbstractPersistence<T> {
         ensurePrimaryKeyNotNull(primaryKey);
 
         Quoter quoter = Databases.getQuoter();
-        String dataSourceName = domainModelDescriptor.getDataSourceName();
-        return Databases.execute(dataSourceName, (connection, sqlExecutor) -> {
+        TimePartitioning timePartitioning = domainModelDescriptor.getTimePartitioning();
+        boolean timeAbsent = timePartitioning != null && domainModelDescriptor.getFieldValue(dirtyObject,
+                timePartitioning.getFieldName()).isNull();
+        Databases.DatabaseInvoke<T, Integer> updateInvoke = (connection, sqlExecutor) -> {
             DatabaseMetaData metaData = connection.getMetaData();
             String[] rawColumnNames = domainModelDescriptor.getUpdatableColumns();
 
+            // The absent time is not updated, the row stays in its partition
             String[] columnNames = Arrays.stream(rawColumnNames)
+                    .filter(rawColumnName -> !timeAbsent
+                            || !timePartitioning.getColumnName().equalsIgnoreCase(rawColumnName))
                     .filter(rawColumnName -> {
                         if (domainModelDescriptor.skipNullOnUpdate()) {
                             String fieldName = domainModelDescriptor.getFieldName(rawColumnName);
@@ -199,14 +238,44 @@ public class DefaultPersistence<T> extends AbstractPersistence<T> {
             ensureNotBlank(updatesSql.toString(), "updates");
             updatesSql.delete(updatesSql.length() - 1, updatesSql.length());
 
-            String tableName = quoter.quoteTableName(databaseProductName, domainModelDescriptor.getTableName());
-            String sql = formatUpdateSql(tableName, updatesSql.toString(), String.format("%s = ?",
-                    quoter.quoteColumnName(databaseProductName, primaryKey.name())));
+            String predication = String.format("%s = ?", quoter.quoteColumnName(databaseProductName,
+                    primaryKey.name()));
+            Object[] params = ArrayUtil.appendElement(Object.class, values, id);
+
+            try {
+                // The object without time is updated in all partitions, like the deletion by id
+                if (timeAbsent) {
+                    int updatedCount = 0;
+                    for (String partitionName : getTableNames(connection, null)) {
+                        String tableName = quoter.quoteTableName(databaseProductName, partitionName);
+                        updatedCount += sqlExecutor.execute(connection,
+                                formatUpdateSql(tableName, updatesSql.toString(), predication), params);
+                    }
+                    return updatedCount;
+                }
 
-            sqlExecutor.execute(connection, sql, ArrayUtil.appendElement(Object.class, values, id));
+                String partitionName = routeTable(dirtyObject);
+                String tableName = quoter.quoteTableName(databaseProductName, partitionName);
+                int updatedCount = sqlExecutor.execute(connection,
+                        formatUpdateSql(tableName, updatesSql.toString(), predication), params);
+                if (updatedCount == 0 && timePartitioning != null) {
+                    ensurePartitionUnchanged(connection, sqlExecutor, partitionName, predication, id);
+                }
+                return updatedCount;
+            } finally {
+                invalidateCaches(id);
+            }
+        };
 
-            return dirtyObject;
-        });
+        // The object without shard value is updated on all shards, the others have no rows updated
+        String shardName = routeShard(dirtyObject);
+        if (shardName == null) {
+            executeOnShards(updateInvoke);
+        } else {
+            ensureShardWritable(shardName);
+            Databases.executeWrite(shardName, updateInvoke);
+        }
+        return dirtyObject;
     }
 
     @Override
@@ -218,13 +287,19 @@ public class DefaultPersistence<T> extends AbstractPersistence<T> {
         ensureNotBlank(updates, "predication");
 
         Quoter quoter = Databases.getQuoter();
-        String dataSourceName = domainModelDescriptor.getDataSourceName();
 
-        return Databases.execute(dataSourceName, (connection, sqlExecutor) -> {
+        return executeOnShards((connection, sqlExecutor) -> {
             String databaseProductName = connection.getMetaData().getDatabaseProductName();
-            String tableName = quoter.quoteTableName(databaseProductName, domainModelDescriptor.getTableName());
-            String sql = formatUpdateSql(tableName, updates, predication);
-            return sqlExecutor.execute(connection, sql, args);
+            try {
+                int updatedCount = 0;
+                for (String partitionName : getTableNames(connection, predication, args)) {
+                    String tableName = quoter.quoteTableName(databaseProductName, partitionName);
+                    updatedCount += sqlExecutor.execute(connection, formatUpdateSql(tableName, updates, predication), args);
+                }
+                return updatedCount;
+            } finally {
+                invalidateCaches(null);
+            }
         });
     }
 
@@ -234,13 +309,19 @@ public class DefaultPersistence<T> extends AbstractPersistence<T> {
         ensureNotBlank(predication, "predication");
 
         Quoter quoter = Databases.getQuoter();
-        String dataSourceName = domainModelDescriptor.getDataSourceName();
 
-        return Databases.execute(dataSourceName, (connection, sqlExecutor) -> {
+        return executeOnShards((connection, sqlExecutor) -> {
             String databaseProductName = connection.getMetaData().getDatabaseProductName();
-            String tableName = quoter.quoteTableName(databaseProductName, domainModelDescriptor.getTableName());
-            String sql = formatDeleteSql(tableName, predication);
-            return sqlExecutor.execute(connection, sql, args);
+            try {
+                int deletedCount = 0;
+                for (String partitionName : getTableNames(connection, predication, args)) {
+                    String tableName = quoter.quoteTableName(databaseProductName, partitionName);
+                    deletedCount += sqlExecutor.execute(connection, formatDeleteSql(tableName, predication), args);
+                }
+                return deletedCount;
+            } finally {
+                invalidateCaches(null);
+            }
         });
     }
 
@@ -252,15 +333,22 @@ public class DefaultPersistence<T> extends AbstractPersistence<T> {
         ensurePrimaryKeyNotNull(primaryKey);
 
         Quoter quoter = Databases.getQuoter();
-        String dataSourceName = domainModelDescriptor.getDataSourceName();
 
-        return Databases.execute(dataSourceName, (connection, sqlExecutor) -> {
+        return executeOnShards((connection, sqlExecutor) -> {
             String databaseProductName = connection.getMetaData().getDatabaseProductName();
-            String tableName = quoter.quoteTableName(databaseProductName, domainModelDescriptor.getTableName());
             String quotedPrimaryName = quoter.quoteColumnName(databaseProductName, primaryKey.name());
-            String sql = formatDeleteSql(tableName, String.format("%s = %s", quotedPrimaryName, quoter.quoteValue(id)));
+            String predication = String.format("%s = %s", quotedPrimaryName, quoter.quoteValue(id));
 
-            return sqlExecutor.execute(connection, sql);
+            try {
+                int deletedCount = 0;
+                for (String partitionName : getTableNames(connection, null)) {
+                    String tableName = quoter.quoteTableName(databaseProductName, partitionName);
+                    deletedCount += sqlExecutor.execute(connection, formatDeleteSql(tableName, predication));
+                }
+                return deletedCount;
+            } finally {
+                invalidateCaches(id);
+            }
         });
     }
 
@@ -268,9 +356,160 @@ public class DefaultPersistence<T> extends AbstractPersistence<T> {
     public int execute(final String sql, Object... args) throws SQLException {
         Objects.requireNonNull(sql, "The sql cannot be null");
 
+        return executeOnShards((connection, sqlExecutor) -> {
+            try {
+                return sqlExecutor.execute(connection, sql, args);
+            } finally {
+                invalidateCaches(null);
+            }
+        });
+    }
+
+    /**
+     * Returns the shard of the domain object, or the data source of domain model if it is
+     * not sharded, or null if the shard value is absent.
+     */
+    private String routeShard(T domainObject) {
+        String dataSourceName = domainModelDescriptor.getDataSourceName();
+        ShardedConnectionFactory shardedConnectionFactory = Databases.getShardedConnectionFactory(dataSourceName);
+        if (shardedConnectionFactory == null) {
+            return dataSourceName;
+        }
+
+        String shardKey = domainModelDescriptor.getShardKey();
+        Object shardValue = shardKey == null ? null
+                : domainModelDescriptor.getFieldValue(domainObject, shardKey).getValue();
+        return shardValue == null ? null : shardedConnectionFactory.route(dataSourceName, shardValue);
+    }
+
+    private String routeInsertion(T dirtyObject) throws PersistenceException {
+        String shardName = routeShard(dirtyObject);
+        if (shardName == null) {
+            throw new PersistenceException(String.format("The shard key of %s is required for inserting",
+                    domainModelDescriptor.getTableName()));
+        }
+        ensureShardWritable(shardName);
+        return shardName;
+    }
+
+    /**
+     * Ensures the connection bound to current thread belongs to the shard, because the
+     * writes use the bound connection whichever shard they are routed to.
+     */
+    private void ensureShardWritable(String shardName) throws PersistenceException {
         String dataSourceName = domainModelDescriptor.getDataSourceName();
-        return Databases.execute(dataSourceName, (connection, sqlExecutor) ->
-                sqlExecutor.execute(connection, sql, args));
+        if (Databases.getCurrentThreadConnection() == null
+                || Databases.getShardedConnectionFactory(dataSourceName) == null) {
+            return;
+        }
+
+        String boundDataSourceName = Databases.getCurrentThreadDataSourceName();
+        if (!shardName.equals(boundDataSourceName)) {
+            throw new PersistenceException(String.format("The shard %s cannot be written by the connection "
+                    + "bound to %s, the transaction must be executed on the shard", shardName,
+                    boundDataSourceName == null ? "an unknown data source" : boundDataSourceName));
+        }
+    }
+
+    /**
+     * Returns the table of the domain object, which is the partition of its time if the
+     * table is partitioned by time.
+     */
+    private String routeTable(T domainObject) throws PersistenceException {
+        TimePartitioning timePartitioning = domainModelDescriptor.getTimePartitioning();
+        if (timePartitioning == null) {
+            return domainModelDescriptor.getTableName();
+        }
+
+        Object time = domainModelDescriptor.getFieldValue(domainObject, timePartitioning.getFieldName()).getValue();
+        if (time == null) {
+            throw new PersistenceException(String.format("The %s of %s is required for partitioning",
+                    timePartitioning.getFieldName(), domainModelDescriptor.getTableName()));
+        }
+        return timePartitioning.getPartitionName(domainModelDescriptor.getTableName(), time);
+    }
+
+    /**
+     * Ensures the row is absent from the other partitions when it is not updated in the
+     * partition of its time, because the row cannot be moved to another partition by updating
+     * the time, it has to be deleted and inserted again.
+     */
+    private void ensurePartitionUnchanged(Connection connection, SQLExecutor sqlExecutor, String partitionName,
+                                          String predication, Object id) throws SQLException {
+        Quoter quoter = Databases.getQuoter();
+        String databaseProductName = connection.getMetaData().getDatabaseProductName();
+        String primaryKeyName = quoter.quoteColumnName(databaseProductName,
+                domainModelDescriptor.getPrimaryKey().name());
+
+        for (String otherPartitionName : getTableNames(connection, null)) {
+            if (otherPartitionName.equalsIgnoreCase(partitionName)) {
+                continue;
+            }
+
+            String sql = String.format("SELECT %s FROM %s WHERE %s", primaryKeyName,
+                    quoter.quoteTableName(databaseProductName, otherPartitionName), predication);
+            if (!sqlExecutor.query(connection, sql, domainModelDescriptor, id).isEmpty()) {
+                TimePartitioning timePartitioning = domainModelDescriptor.getTimePartitioning();
+                throw new PersistenceException(String.format("The %s of %s cannot be changed to another "
+                        + "partition, the row %s is in %s", timePartitioning.getFieldName(),
+                        domainModelDescriptor.getTableName(), id, otherPartitionName));
+            }
+        }
+    }
+
+    /**
+     * Returns the tables written by the predication, which are the partitions pruned by the
+     * predication if the table is partitioned by time.
+     */
+    private List<String> getTableNames(Connection connection, String predication, Object... args) throws SQLException {
+        TimePartitioning timePartitioning = domainModelDescriptor.getTimePartitioning();
+        if (timePartitioning == null) {
+            return Collections.singletonList(domainModelDescriptor.getTableName());
+        }
+        return timePartitioning.prune(timePartitioning.listPartitions(connection,
+                domainModelDescriptor.getTableName()), predication, args);
+    }
+
+    /**
+     * Executes the write on all shards one by one if the domain model is sharded, and
+     * returns the sum of rows affected.
+     */
+    private int executeOnShards(Databases.DatabaseInvoke<T, Integer> databaseInvoke) throws SQLException {
+        String dataSourceName = domainModelDescriptor.getDataSourceName();
+        ShardedConnectionFactory shardedConnectionFactory = Databases.getShardedConnectionFactory(dataSourceName);
+        if (shardedConnectionFactory == null) {
+            return Databases.executeWrite(dataSourceName, databaseInvoke);
+        }
+
+        List<String> shardNames = shardedConnectionFactory.getShardNames(dataSourceName);
+        for (String shardName : shardNames) {
+            ensureShardWritable(shardName);
+        }
+
+        int affectedCount = 0;
+        for (String shardName : shardNames) {
+            affectedCount += Databases.executeWrite(shardName, databaseInvoke);
+        }
+        return affectedCount;
+    }
+
+    /**
+     * Invalidates the cached domain object with given primary value, or all cached objects
+     * of the domain model if the primary value is null. The cached queries touched the table
+     * are invalidated and the replicated table will be reloaded as well. The objects are not
+     * written through, because the dirty object may be partial or transited.
+     */
+    private void invalidateCaches(Object primaryValue) {
+        Class domainModelClass = domainModelDescriptor.getDomainModelClass();
+
+        if (primaryValue == null) {
+            IdentityMap.evictCurrent(domainModelClass);
+        } else {
+            IdentityMap.evictCurrent(domainModelClass, primaryValue);
+        }
+        Tables.invalidateEntityCache(domainModelClass, primaryValue);
+        Databases.invalidateQueryCache(domainModelDescriptor.getTableName());
+        ReplicatedTable.invalidate(domainModelClass);
     }
 
     private void ensurePrimaryKeyNotNull(PrimaryKey primaryKey) throws PersistenceException {
@@ -20,7 +20,9 @@ import com.github.braisdom.objsql.relation.Relationship;
 import com.github.braisdom.objsql.relation.RelationshipNetwork;
 import com.github.braisdom.objsql.util.StringUtil;
 
+import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
@@ -37,11 +39,25 @@ public class DefaultQuery<T> extends AbstractQuery<T> {
     @Override
     public List<T> execute(Relationship... relationships) throws SQLException {
         String dataSourceName = domainModelDescriptor.getDataSourceName();
-        return Databases.execute(dataSourceName, (connection, sqlExecutor) -> {
-            Quoter quoter = Databases.getQuoter();
+        ShardedConnectionFactory shardedConnectionFactory = Databases.getShardedConnectionFactory(dataSourceName);
+        if (shardedConnectionFactory != null) {
+            if (shardValue == null) {
+                return executeOnShards(shardedConnectionFactory, dataSourceName, relationships);
+            }
+            dataSourceName = shardedConnectionFactory.route(dataSourceName, shardValue);
+        }
+
+        if (cacheTimeToLive != null && relationships.length == 0
+                && Databases.getCurrentThreadConnection() == null) {
+            return Databases.getQueryCache().execute(dataSourceName, domainModelDescriptor,
+                    databaseType -> getQuerySQL(databaseType), getQueryParams(),
+                    Collections.singleton(domainModelDescriptor.getTableName()), cacheTimeToLive);
+        }
+
+        Databases.DatabaseInvoke<T, List<T>> queryInvoke = (connection, sqlExecutor) -> {
             String databaseProductName = connection.getMetaData().getDatabaseProductName();
-            String tableName = quoter.quoteTableName(databaseProductName, domainModelDescriptor.getTableName());
-            String sql = createQuerySQL(tableName);
+            String tableName = getTableExpression(connection, databaseProductName);
+            String sql = createQuerySQL(databaseProductName, tableName);
             List rows = sqlExecutor.query(connection, sql, domainModelDescriptor, params);
 
             if (relationships.length > 0 && rows.size() > 0) {
@@ -49,6 +65,62 @@ public class DefaultQuery<T> extends AbstractQuery<T> {
             }
 
             return rows;
+        };
+
+        return hedged ? Databases.executeHedged(dataSourceName, queryInvoke)
+                : Databases.executeReadOnly(dataSourceName, queryInvoke);
+    }
+
+    /**
+     * Executes the query on all shards in parallel, the rows are merged by the ORDER BY,
+     * GROUP BY and aggregations of query, and each shard returns the rows until the
+     * global offset and row count only.
+     *
+     * @see ShardedResultMerger
+     */
+    protected List<T> executeOnShards(ShardedConnectionFactory shardedConnectionFactory, String dataSourceName,
+                                      Relationship... relationships) throws SQLException {
+        if (!StringUtil.isBlank(having)) {
+            throw new UnsupportedOperationException("The HAVING cannot be merged across shards");
+        }
+
+        ShardedResultMerger<T> resultMerger = new ShardedResultMerger<>(domainModelDescriptor)
+                .project(projections).orderBy(orderBy).limit(offset, rowCount);
+        if (!StringUtil.isBlank(groupBy)) {
+            resultMerger.groupBy(ShardedResultMerger.splitTopLevel(groupBy).toArray(new String[0]));
+        }
+
+        long shardRowCount = resultMerger.getShardRowCount();
+        List<List<T>> shardRows = shardedConnectionFactory.executeOnShards(dataSourceName,
+                (Databases.DatabaseInvoke<T, List<T>>) (connection, sqlExecutor) -> {
+                    String databaseProductName = connection.getMetaData().getDatabaseProductName();
+                    String tableName = getTableExpression(connection, databaseProductName);
+                    String sql = createQuerySQL(databaseProductName, tableName, -1, shardRowCount);
+                    return (List<T>) sqlExecutor.query(connection, sql, domainModelDescriptor, params);
+                });
+
+        // The relationships are loaded for the rows kept by the merge only
+        List<T> rows = resultMerger.merge(shardRows);
+        shardedConnectionFactory.processRelationships(dataSourceName, shardRows, rows, domainModelDescriptor,
+                relationships);
+        return rows;
+    }
+
+    @Override
+    public ColumnarResult executeColumnar() throws SQLException {
+        String dataSourceName = domainModelDescriptor.getDataSourceName();
+        ShardedConnectionFactory shardedConnectionFactory = Databases.getShardedConnectionFactory(dataSourceName);
+        if (shardedConnectionFactory != null) {
+            if (shardValue == null) {
+                throw new UnsupportedOperationException("The columnar result cannot be merged across shards");
+            }
+            dataSourceName = shardedConnectionFactory.route(dataSourceName, shardValue);
+        }
+        return Databases.executeReadOnly(dataSourceName, (connection, sqlExecutor) -> {
+            String databaseProductName = connection.getMetaData().getDatabaseProductName();
+            String tableName = getTableExpression(connection, databaseProductName);
+            return sqlExecutor.queryColumnar(connection, createQuerySQL(databaseProductName, tableName),
+                    getQueryParams());
         });
     }
 
@@ -63,19 +135,62 @@ public class DefaultQuery<T> extends AbstractQuery<T> {
 
     @Override
     public String getQuerySQL(DatabaseType databaseType) {
-        Quoter quoter = Databases.getQuoter();
-        String tableName = quoter.quoteTableName(databaseType.getDatabaseProductName(),
-                domainModelDescriptor.getTableName());
+        String databaseProductName = databaseType.getDatabaseProductName();
+        if (domainModelDescriptor.getTimePartitioning() == null) {
+            Quoter quoter = Databases.getQuoter();
+            return createQuerySQL(databaseProductName, quoter.quoteTableName(databaseProductName,
+                    domainModelDescriptor.getTableName()));
+        }
 
-        return createQuerySQL(tableName);
+        try {
+            // The partitions are discovered on the connection of data source
+            return Databases.executeReadOnly(domainModelDescriptor.getDataSourceName(),
+                    (connection, sqlExecutor) -> getQuerySQL(connection, databaseType));
+        } catch (SQLException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
     }
 
+    @Override
+    public String getQuerySQL(Connection connection, DatabaseType databaseType) throws SQLException {
+        String databaseProductName = databaseType.getDatabaseProductName();
+        return createQuerySQL(databaseProductName, getTableExpression(connection, databaseProductName));
+    }
+
+    /**
+     * Returns the table queried, or the partitions of table pruned by the filter if the table is
+     * partitioned by time.
+     *
+     * @see TimePartitioning#getTableExpression(Connection, String, String, String, Object...)
+     */
+    protected String getTableExpression(Connection connection, String databaseProductName) throws SQLException {
+        String tableName = domainModelDescriptor.getTableName();
+        TimePartitioning timePartitioning = domainModelDescriptor.getTimePartitioning();
+        if (timePartitioning == null) {
+            return Databases.getQuoter().quoteTableName(databaseProductName, tableName);
+        }
+        return timePartitioning.getTableExpression(connection, tableName, null, filter, getQueryParams());
+    }
+
+    /**
+     * Creates the query SQL without knowing the database, the explicit projection
+     * is quoted in the ANSI way.
+     */
     protected String createQuerySQL(String tableName) {
+        return createQuerySQL(DatabaseType.Ansi.getDatabaseProductName(), tableName);
+    }
+
+    protected String createQuerySQL(String databaseProductName, String tableName) {
+        return createQuerySQL(databaseProductName, tableName, offset, rowCount);
+    }
+
+    protected String createQuerySQL(String databaseProductName, String tableName, long offset, long rowCount) {
         Objects.requireNonNull(tableName, "The tableName cannot be null");
 
         StringBuilder sql = new StringBuilder();
 
-        projections = (projections == null || projections.length() < 0) ? "*" : projections;
+        String projections = StringUtil.isBlank(this.projections)
+                ? Tables.getProjection(domainModelDescriptor, databaseProductName, null) : this.projections;
 
         sql.append("SELECT ").append(projections).append(" FROM ").append(tableName);
 
@@ -20,6 +20,8 @@ import com.github.braisdom.objsql.jdbc.QueryRunner;
 import com.github.braisdom.objsql.jdbc.ResultSetHandler;
 import com.github.braisdom.objsql.reflection.PropertyUtils;
 import com.github.braisdom.objsql.transition.ColumnTransition;
+import com.github.braisdom.objsql.util.ColumnDictionary;
+import com.github.braisdom.objsql.util.CompactMap;
 
 import java.sql.*;
 import java.util.ArrayList;
@@ -43,6 +45,12 @@ public class DefaultSQLExecutor<T> implements SQLExecutor<T> {
                         new DomainModelListHandler(tableRowAdapter, connection.getMetaData()), params), logger, sql, params);
     }
 
+    @Override
+    public ColumnarResult queryColumnar(Connection connection, String sql, Object... params) throws SQLException {
+        return Databases.sqlBenchmarking(() ->
+                queryRunner.query(connection, sql, ColumnarResult::create, params), logger, sql, params);
+    }
+
     @Override
     public T insert(Connection connection, String sql, TableRowAdapter tableRowAdapter,
                     Object... params) throws SQLException {
@@ -84,15 +92,20 @@ class DomainModelListHandler implements ResultSetHandler<List> {
             return results;
         }
 
+        // The rows of compact map share the column names of the result set
+        ColumnDictionary dictionary = new ColumnDictionary();
         do {
-            results.add(createBean(rs));
+            results.add(createBean(rs, dictionary));
         } while (rs.next());
 
         return results;
     }
 
-    private Object createBean(ResultSet rs) throws SQLException {
+    private Object createBean(ResultSet rs, ColumnDictionary dictionary) throws SQLException {
         Object bean = tableRowDescriptor.newInstance();
+        if (bean instanceof CompactMap && ((CompactMap) bean).isEmpty()) {
+            ((CompactMap) bean).shareDictionary(dictionary);
+        }
         ResultSetMetaData metaData = rs.getMetaData();
         int columnCount = metaData.getColumnCount();
 
@@ -40,6 +40,36 @@ public interface DomainModelDescriptor<T> extends TableRowAdapter<T> {
 
     String[] getColumns();
 
+    /**
+     * Returns true if the columns returned by <code>getColumns</code> are selected
+     * instead of '*' when querying the domain model.
+     */
+    default boolean isExplicitProjection() {
+        return false;
+    }
+
+    /**
+     * Returns true if the domain objects can be cached in the <code>EntityCache</code>.
+     */
+    default boolean isCacheable() {
+        return false;
+    }
+
+    /**
+     * Returns the name of field deciding the shard of domain object, or null if the
+     * domain model is not sharded.
+     */
+    default String getShardKey() {
+        return null;
+    }
+
+    /**
+     * Returns the partitioning of the table by time, or null if the table is not partitioned.
+     */
+    default TimePartitioning getTimePartitioning() {
+        return null;
+    }
+
     String[] getInsertableColumns();
 
     String[] getUpdatableColumns();
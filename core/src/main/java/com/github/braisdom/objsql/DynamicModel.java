@@ -1,6 +1,10 @@
 package com.github.braisdom.objsql;
 
-import java.util.HashMap;
+import com.github.braisdom.objsql.util.CompactMap;
 
-public class DynamicModel extends HashMap {
+/**
+ * A domain model whose columns are kept as a map, the rows queried together share
+ * the column names and store the values in arrays.
+ */
+public class DynamicModel extends CompactMap {
 }
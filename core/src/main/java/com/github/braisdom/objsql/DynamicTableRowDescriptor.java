@@ -40,6 +40,11 @@ public class DynamicTableRowDescriptor<T extends DynamicModel> implements TableR
         }
     }
 
+    @Override
+    public boolean isTransitable(String fieldName) {
+        return false;
+    }
+
     @Override
     public void setFieldValue(Object modelObject, String fieldName, Object fieldValue) {
         ((DynamicModel)modelObject).put(fieldName, fieldValue);
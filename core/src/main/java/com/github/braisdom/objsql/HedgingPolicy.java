@@ -0,0 +1,336 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql;
+
+import com.github.braisdom.objsql.jdbc.DbUtils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends a duplicate of the slow read to another replica, and takes the result answered
+ * first, which cuts the tail latency caused by the occasional slow replica. The read is
+ * duplicated once it has not been answered within a percentile of the recent latencies
+ * of the data source, such as p95, so about 5 percent of reads are duplicated. The statements
+ * of the loser are cancelled by <code>Statement.cancel()</code>.
+ * <pre>
+ *     Databases.installHedgingPolicy(new HedgingPolicy(0.95, 5, 500, TimeUnit.MILLISECONDS));
+ *     List&lt;Member&gt; members = Member.createQuery().where("name = ?", "Jack").hedged().execute();
+ * </pre>
+ *
+ * Only the idempotent reads opted in by <code>Query.hedged()</code> or <code>Select.hedged()</code>
+ * are hedged, and they are hedged only if the data source has two replicas at least and
+ * no connection is bound to current thread.
+ *
+ * The first read runs on the calling thread, and the duplicates run on a bounded pool,
+ * the read is not duplicated if the pool is exhausted.
+ *
+ * @see ReplicaRouter
+ * @see Databases#executeHedged(String, Databases.DatabaseInvoke)
+ */
+public class HedgingPolicy {
+
+    public static final double DEFAULT_PERCENTILE = 0.95;
+    public static final long DEFAULT_MIN_DELAY_MILLIS = 5;
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 1000;
+    public static final int DEFAULT_MAX_CONCURRENT_HEDGES = 16;
+
+    private static final int SAMPLE_SIZE = 1024;
+    private static final int MIN_SAMPLES = 32;
+    private static final int RECALCULATE_INTERVAL = 64;
+    private static final AtomicInteger threadNumber = new AtomicInteger();
+    private static final Attempt CLOSED = new Attempt<>();
+
+    private final double percentile;
+    private final long minDelayNanos;
+    private final long maxDelayNanos;
+    private final Map<String, LatencyRecorder> latencyRecorders = new ConcurrentHashMap<>();
+    private final LongAdder hedgedCount = new LongAdder();
+    private final LongAdder hedgeWinCount = new LongAdder();
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService executor;
+
+    public HedgingPolicy() {
+        this(DEFAULT_PERCENTILE, DEFAULT_MIN_DELAY_MILLIS, DEFAULT_MAX_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param percentile the percentile of recent latencies for delaying the duplicate
+     * @param minDelay   the lower bound of delay, avoiding the duplicates when the reads are fast
+     * @param maxDelay   the upper bound of delay, which is the delay before enough latencies recorded
+     */
+    public HedgingPolicy(double percentile, long minDelay, long maxDelay, TimeUnit timeUnit) {
+        this(percentile, minDelay, maxDelay, timeUnit, DEFAULT_MAX_CONCURRENT_HEDGES);
+    }
+
+    /**
+     * @param maxConcurrentHedges the maximum number of duplicates in flight
+     */
+    public HedgingPolicy(double percentile, long minDelay, long maxDelay, TimeUnit timeUnit,
+                         int maxConcurrentHedges) {
+        Objects.requireNonNull(timeUnit, "The timeUnit cannot be null");
+        if (percentile <= 0 || percentile >= 1) {
+            throw new IllegalArgumentException("The percentile must be between 0 and 1");
+        }
+        if (minDelay < 0 || maxDelay < minDelay) {
+            throw new IllegalArgumentException("The delays must be 0 <= minDelay <= maxDelay");
+        }
+        if (maxConcurrentHedges <= 0) {
+            throw new IllegalArgumentException("The maxConcurrentHedges must be positive");
+        }
+
+        this.percentile = percentile;
+        this.minDelayNanos = timeUnit.toNanos(minDelay);
+        this.maxDelayNanos = timeUnit.toNanos(maxDelay);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable ->
+                createThread(runnable, "objsql-hedge-timer-"));
+        this.executor = new ThreadPoolExecutor(0, maxConcurrentHedges, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), runnable -> createThread(runnable, "objsql-hedged-read-"));
+    }
+
+    /**
+     * Returns the delay before duplicating the read of data source.
+     */
+    public long getDelayNanos(String dataSourceName) {
+        LatencyRecorder latencyRecorder = latencyRecorders.get(dataSourceName);
+        long delayNanos = latencyRecorder == null ? maxDelayNanos : latencyRecorder.percentileNanos;
+        return Math.max(minDelayNanos, Math.min(maxDelayNanos, delayNanos));
+    }
+
+    public void recordLatency(String dataSourceName, long latencyNanos) {
+        latencyRecorders.computeIfAbsent(dataSourceName, name -> new LatencyRecorder())
+                .record(latencyNanos, percentile, maxDelayNanos);
+    }
+
+    public long getHedgedCount() {
+        return hedgedCount.sum();
+    }
+
+    /**
+     * Returns the number of reads answered by the duplicate first.
+     */
+    public long getHedgeWinCount() {
+        return hedgeWinCount.sum();
+    }
+
+    /**
+     * Reads on the calling thread, and sends the duplicate to another replica once the
+     * read has not been answered in time. The read answered first cancels the other one.
+     */
+    public <T, R> R execute(String dataSourceName, ReplicaRouter replicaRouter,
+                            Databases.DatabaseInvoke<T, R> databaseInvoke) throws SQLException {
+        Objects.requireNonNull(replicaRouter, "The replicaRouter cannot be null");
+
+        SQLExecutor<T> sqlExecutor = Databases.getSqlExecutor();
+        String firstReplicaName = replicaRouter.acquire(dataSourceName);
+        Attempt<R> firstAttempt = new Attempt<>();
+        // The primary data source is read for the writes of current thread, it is not hedged
+        if (firstReplicaName.equals(dataSourceName)) {
+            run(dataSourceName, firstReplicaName, replicaRouter, databaseInvoke, sqlExecutor, firstAttempt);
+            return await(firstAttempt);
+        }
+
+        AtomicReference<Attempt<R>> hedgeAttempt = new AtomicReference<>();
+        ScheduledFuture<?> hedgeTrigger = scheduler.schedule(() -> hedge(dataSourceName, firstReplicaName,
+                replicaRouter, databaseInvoke, sqlExecutor, firstAttempt, hedgeAttempt),
+                getDelayNanos(dataSourceName), TimeUnit.NANOSECONDS);
+        run(dataSourceName, firstReplicaName, replicaRouter, databaseInvoke, sqlExecutor, firstAttempt);
+        hedgeTrigger.cancel(false);
+
+        Attempt<R> secondAttempt = hedgeAttempt.getAndSet(CLOSED);
+        if (secondAttempt == null) {
+            return await(firstAttempt);
+        }
+
+        // The first read is cancelled only if the duplicate has answered
+        if (!firstAttempt.cancelled && !firstAttempt.future.isCompletedExceptionally()) {
+            secondAttempt.cancel();
+            return await(firstAttempt);
+        }
+
+        try {
+            R result = await(secondAttempt);
+            hedgeWinCount.increment();
+            return result;
+        } catch (SQLException | RuntimeException ex) {
+            // The duplicate fails as well, the failure of first read is thrown
+            return await(firstAttempt);
+        }
+    }
+
+    /**
+     * Sends the duplicate unless the first read has completed, the duplicate answered
+     * cancels the statements of the first read, which then returns to the calling thread.
+     */
+    private <T, R> void hedge(String dataSourceName, String firstReplicaName, ReplicaRouter replicaRouter,
+                              Databases.DatabaseInvoke<T, R> databaseInvoke, SQLExecutor<T> sqlExecutor,
+                              Attempt<R> firstAttempt, AtomicReference<Attempt<R>> hedgeAttempt) {
+        String secondReplicaName = replicaRouter.acquireExcept(dataSourceName, firstReplicaName);
+        if (secondReplicaName == null) {
+            return;
+        }
+
+        Attempt<R> secondAttempt = new Attempt<>();
+        if (!hedgeAttempt.compareAndSet(null, secondAttempt)) {
+            replicaRouter.release(secondReplicaName);
+            return;
+        }
+
+        hedgedCount.increment();
+        secondAttempt.future.whenComplete((result, ex) -> {
+            if (ex == null && !secondAttempt.cancelled) {
+                firstAttempt.cancel();
+            }
+        });
+        try {
+            executor.execute(() -> run(dataSourceName, secondReplicaName, replicaRouter,
+                    databaseInvoke, sqlExecutor, secondAttempt));
+        } catch (RejectedExecutionException ex) {
+            replicaRouter.release(secondReplicaName);
+            secondAttempt.future.completeExceptionally(ex);
+        }
+    }
+
+    private <T, R> void run(String dataSourceName, String routedDataSourceName, ReplicaRouter replicaRouter,
+                            Databases.DatabaseInvoke<T, R> databaseInvoke, SQLExecutor<T> sqlExecutor,
+                            Attempt<R> attempt) {
+        long startNanos = System.nanoTime();
+        Connection connection = null;
+        R result = null;
+        Throwable failure = null;
+        try {
+            connection = Databases.getConnectionFactory().getConnection(routedDataSourceName);
+            result = databaseInvoke.apply(attempt.record(connection), sqlExecutor);
+            if (!attempt.cancelled) {
+                recordLatency(dataSourceName, System.nanoTime() - startNanos);
+            }
+        } catch (Throwable ex) {
+            failure = ex;
+        } finally {
+            DbUtils.closeQuietly(connection);
+            replicaRouter.release(routedDataSourceName);
+        }
+
+        // Completes after releasing, so the replica is not in flight once the read returns
+        if (failure == null) {
+            attempt.future.complete(result);
+        } else {
+            attempt.future.completeExceptionally(failure);
+        }
+    }
+
+    private <R> R await(Attempt<R> attempt) throws SQLException {
+        try {
+            return attempt.future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            attempt.cancel();
+            throw new SQLException("Interrupted while reading", ex);
+        } catch (ExecutionException ex) {
+            throw unwrap(ex.getCause());
+        }
+    }
+
+    private static Thread createThread(Runnable runnable, String namePrefix) {
+        Thread thread = new Thread(runnable, namePrefix + threadNumber.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    private SQLException unwrap(Throwable cause) {
+        if (cause instanceof SQLException) {
+            return (SQLException) cause;
+        } else if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        } else if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new SQLException(cause.getMessage(), cause);
+    }
+
+    /**
+     * A read sent to a data source, the statements created are recorded for cancelling.
+     */
+    private static final class Attempt<R> {
+        private final CompletableFuture<R> future = new CompletableFuture<>();
+        private final List<Statement> statements = new CopyOnWriteArrayList<>();
+        private volatile boolean cancelled;
+
+        private Connection record(Connection connection) {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class[]{Connection.class}, (proxy, method, args) -> {
+                        try {
+                            Object result = method.invoke(connection, args);
+                            if (result instanceof Statement) {
+                                statements.add((Statement) result);
+                                if (cancelled) {
+                                    cancelQuietly((Statement) result);
+                                }
+                            }
+                            return result;
+                        } catch (InvocationTargetException ex) {
+                            throw ex.getCause();
+                        }
+                    });
+        }
+
+        private void cancel() {
+            cancelled = true;
+            statements.forEach(Attempt::cancelQuietly);
+        }
+
+        private static void cancelQuietly(Statement statement) {
+            try {
+                statement.cancel();
+            } catch (SQLException | RuntimeException ex) {
+                // The statement may be completed or closed already
+            }
+        }
+    }
+
+    /**
+     * The recent latencies of a data source, the percentile is recalculated periodically.
+     */
+    private static final class LatencyRecorder {
+        private final long[] samples = new long[SAMPLE_SIZE];
+        private long count;
+        private volatile long percentileNanos = Long.MAX_VALUE;
+
+        private synchronized void record(long latencyNanos, double percentile, long defaultNanos) {
+            samples[(int) (count++ % SAMPLE_SIZE)] = latencyNanos;
+            if (count < MIN_SAMPLES) {
+                percentileNanos = defaultNanos;
+            } else if (count == MIN_SAMPLES || count % RECALCULATE_INTERVAL == 0) {
+                long[] sortedSamples = Arrays.copyOf(samples, (int) Math.min(count, SAMPLE_SIZE));
+                Arrays.sort(sortedSamples);
+                percentileNanos = sortedSamples[(int) Math.min(sortedSamples.length - 1,
+                        Math.floor(sortedSamples.length * percentile))];
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql;
+
+import com.github.braisdom.objsql.relation.AggregateProcessor;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The objects loaded by primary key in a transaction, which is bound to the thread with
+ * the connection of <code>Databases.executeTransactionally</code>, so the repeated lookups
+ * of the same primary value return the instance loaded already without querying again.
+ * <pre>
+ *     Databases.executeTransactionally((connection, sqlExecutor) -> {
+ *         Member member = Member.queryByPrimaryKey(1);
+ *         // No query for the same member
+ *         Member sameMember = Member.queryByPrimaryKey(1);
+ *         return null;
+ *     });
+ * </pre>
+ *
+ * The objects written by <code>DefaultPersistence</code> will be evicted, and the map
+ * will be discarded when the transaction is committed or rolled back. It is accessed
+ * by the thread of transaction only, so it is not thread-safe.
+ *
+ * @see Databases#getCurrentIdentityMap()
+ */
+public final class IdentityMap {
+
+    private final Map<Class, Map<Object, Object>> objects = new HashMap<>();
+    private final Set<Class> writtenClasses = new HashSet<>();
+
+    /**
+     * Returns the object loaded with given primary value, or null if absent.
+     */
+    public Object get(Class domainModelClass, Object primaryValue) {
+        Map<Object, Object> classObjects = objects.get(domainModelClass);
+        if (classObjects == null || primaryValue == null) {
+            return null;
+        }
+        return classObjects.get(AggregateProcessor.normalizeKey(primaryValue));
+    }
+
+    public void put(Class domainModelClass, Object primaryValue, Object domainObject) {
+        Objects.requireNonNull(domainModelClass, "The domainModelClass cannot be null");
+        Objects.requireNonNull(primaryValue, "The primaryValue cannot be null");
+        Objects.requireNonNull(domainObject, "The domainObject cannot be null");
+
+        objects.computeIfAbsent(domainModelClass, clazz -> new HashMap<>())
+                .put(AggregateProcessor.normalizeKey(primaryValue), domainObject);
+    }
+
+    /**
+     * Evicts the object of the domain model with given primary value.
+     */
+    public void evict(Class domainModelClass, Object primaryValue) {
+        Map<Object, Object> classObjects = objects.get(domainModelClass);
+        if (classObjects != null && primaryValue != null) {
+            classObjects.remove(AggregateProcessor.normalizeKey(primaryValue));
+        }
+    }
+
+    /**
+     * Evicts all objects of the domain model.
+     */
+    public void evict(Class domainModelClass) {
+        objects.remove(domainModelClass);
+    }
+
+    /**
+     * Records the domain model written in the transaction, the shared caches will not
+     * be read for it until the transaction completes.
+     */
+    public void markWritten(Class domainModelClass) {
+        writtenClasses.add(domainModelClass);
+    }
+
+    public boolean isWritten(Class domainModelClass) {
+        return writtenClasses.contains(domainModelClass);
+    }
+
+    public Set<Class> getWrittenClasses() {
+        return Collections.unmodifiableSet(writtenClasses);
+    }
+
+    public void clear() {
+        objects.clear();
+    }
+
+    public int size() {
+        int size = 0;
+        for (Map<Object, Object> classObjects : objects.values()) {
+            size += classObjects.size();
+        }
+        return size;
+    }
+
+    /**
+     * Evicts the object from the identity map of current transaction if present.
+     */
+    static void evictCurrent(Class domainModelClass, Object primaryValue) {
+        IdentityMap identityMap = Databases.getCurrentIdentityMap();
+        if (identityMap != null) {
+            identityMap.evict(domainModelClass, primaryValue);
+            identityMap.markWritten(domainModelClass);
+        }
+    }
+
+    static void evictCurrent(Class domainModelClass) {
+        IdentityMap identityMap = Databases.getCurrentIdentityMap();
+        if (identityMap != null) {
+            identityMap.evict(domainModelClass);
+            identityMap.markWritten(domainModelClass);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Adapts a row to a map whose keys are the lower case column names, it is used
+ * for the rows which are not domain models, such as aggregated values or query plans.
+ */
+public class MapRowAdapter implements TableRowAdapter<Map<String, Object>> {
+
+    @Override
+    public String getTableName() {
+        return null;
+    }
+
+    @Override
+    public Class getDomainModelClass() {
+        return Map.class;
+    }
+
+    @Override
+    public Map<String, Object> newInstance() {
+        return new HashMap<>();
+    }
+
+    @Override
+    public String getFieldName(String columnName) {
+        return columnName.toLowerCase();
+    }
+
+    @Override
+    public Class getFieldType(String fieldName) {
+        return null;
+    }
+
+    @Override
+    public boolean isTransitable(String fieldName) {
+        return false;
+    }
+
+    @Override
+    public void setFieldValue(Map<String, Object> row, String fieldName, Object fieldValue) {
+        row.put(fieldName, fieldValue);
+    }
+}
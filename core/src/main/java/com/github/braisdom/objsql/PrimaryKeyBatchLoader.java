@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql;
+
+import com.github.braisdom.objsql.annotations.DomainModel;
+import com.github.braisdom.objsql.reflection.PropertyUtils;
+import com.github.braisdom.objsql.relation.AggregateProcessor;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Coalesces the lookups by primary key from concurrent threads into one <code>IN</code>
+ * query. The first lookup of a batch waits for a short window, the lookups arrived in
+ * the window join the batch, then the first thread queries all of them and completes
+ * the others. The batch is queried at once if it is full, so the lookups are delayed
+ * at most one window:
+ * <pre>
+ *     PrimaryKeyBatchLoader.enable(Member.class, 64, 1, TimeUnit.MILLISECONDS);
+ * </pre>
+ *
+ * The generated <code>queryByPrimaryKey</code> of the model annotated with
+ * <code>@DomainModel(batchLoading = true)</code> is batched with default settings. The lookups
+ * in a transaction or requiring relationships are not batched, since they must be queried
+ * with the connection of transaction.
+ *
+ * @see Tables#queryByPrimaryKeys(Class, Object...)
+ */
+public final class PrimaryKeyBatchLoader<T> {
+
+    public static final int DEFAULT_MAX_BATCH_SIZE = 64;
+    public static final long DEFAULT_WINDOW_MICROS = 1000;
+
+    private static final Map<Class, PrimaryKeyBatchLoader> loaders = new ConcurrentHashMap<>();
+
+    private final Class<T> domainModelClass;
+    private final int maxBatchSize;
+    private final long windowNanos;
+    private final LongAdder loadCount = new LongAdder();
+    private final LongAdder batchCount = new LongAdder();
+    private Batch<T> currentBatch;
+
+    private PrimaryKeyBatchLoader(Class<T> domainModelClass, int maxBatchSize, long windowNanos) {
+        this.domainModelClass = domainModelClass;
+        this.maxBatchSize = maxBatchSize;
+        this.windowNanos = windowNanos;
+    }
+
+    public static <T> PrimaryKeyBatchLoader<T> enable(Class<T> domainModelClass, int maxBatchSize,
+                                                      long window, TimeUnit timeUnit) {
+        Objects.requireNonNull(domainModelClass, "The domainModelClass cannot be null");
+        Objects.requireNonNull(timeUnit, "The timeUnit cannot be null");
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("The maxBatchSize must be positive");
+        }
+        if (window < 0) {
+            throw new IllegalArgumentException("The window cannot be negative");
+        }
+
+        PrimaryKeyBatchLoader<T> loader = new PrimaryKeyBatchLoader<>(domainModelClass,
+                maxBatchSize, timeUnit.toNanos(window));
+        loaders.put(domainModelClass, loader);
+        return loader;
+    }
+
+    public static void disable(Class domainModelClass) {
+        loaders.remove(domainModelClass);
+    }
+
+    /**
+     * Returns the loader of domain model, it will be enabled with default settings if
+     * the model is annotated with batch loading, or null if not batched.
+     *
+     * @see DomainModel#batchLoading()
+     */
+    public static <T> PrimaryKeyBatchLoader<T> get(Class<T> domainModelClass) {
+        PrimaryKeyBatchLoader<T> loader = loaders.get(domainModelClass);
+        if (loader != null) {
+            return loader;
+        }
+
+        DomainModel domainModel = domainModelClass.getAnnotation(DomainModel.class);
+        if (domainModel == null || !domainModel.batchLoading()) {
+            return null;
+        }
+        return loaders.computeIfAbsent(domainModelClass, clazz -> new PrimaryKeyBatchLoader<>(domainModelClass,
+                DEFAULT_MAX_BATCH_SIZE, TimeUnit.MICROSECONDS.toNanos(DEFAULT_WINDOW_MICROS)));
+    }
+
+    public Class<T> getDomainModelClass() {
+        return domainModelClass;
+    }
+
+    /**
+     * Loads the domain object by primary value with the lookups of other threads,
+     * or returns null if absent.
+     */
+    public T load(Object primaryValue) throws SQLException {
+        Objects.requireNonNull(primaryValue, "The primaryValue cannot be null");
+        loadCount.increment();
+
+        Batch<T> batch;
+        CompletableFuture<T> future;
+        boolean leader = false;
+        boolean shared = false;
+        boolean full = false;
+        synchronized (this) {
+            if (currentBatch == null) {
+                currentBatch = new Batch<>(Thread.currentThread());
+                leader = true;
+            }
+            batch = currentBatch;
+            // The same primary value looked up by many threads is queried once
+            Object key = AggregateProcessor.normalizeKey(primaryValue);
+            future = batch.futures.get(key);
+            if (future == null) {
+                future = new CompletableFuture<>();
+                batch.futures.put(key, future);
+                batch.primaryValues.add(primaryValue);
+            } else {
+                shared = true;
+            }
+            if (batch.futures.size() >= maxBatchSize) {
+                currentBatch = null;
+                batch.sealed = true;
+                full = true;
+            }
+        }
+
+        if (full) {
+            if (!leader) {
+                LockSupport.unpark(batch.leader);
+            }
+            dispatch(batch);
+        } else if (leader) {
+            awaitWindow(batch);
+        }
+
+        // The threads sharing the lookup get their own copies, the domain object is mutable
+        T domainObject = await(future);
+        return shared && domainObject != null ? PropertyUtils.copy(domainObject) : domainObject;
+    }
+
+    public long getLoadCount() {
+        return loadCount.sum();
+    }
+
+    public long getBatchCount() {
+        return batchCount.sum();
+    }
+
+    private void awaitWindow(Batch<T> batch) {
+        long deadline = System.nanoTime() + windowNanos;
+        long remainingNanos = windowNanos;
+        while (remainingNanos > 0 && !isSealed(batch)) {
+            // The parkNanos may return spuriously, so the deadline is checked again
+            LockSupport.parkNanos(this, remainingNanos);
+            remainingNanos = deadline - System.nanoTime();
+        }
+
+        synchronized (this) {
+            if (batch.sealed) {
+                // The batch is full and queried by the thread filled it
+                return;
+            }
+            batch.sealed = true;
+            currentBatch = null;
+        }
+        dispatch(batch);
+    }
+
+    private synchronized boolean isSealed(Batch<T> batch) {
+        return batch.sealed;
+    }
+
+    private void dispatch(Batch<T> batch) {
+        batchCount.increment();
+        try {
+            List<T> domainObjects = Tables.queryByPrimaryKeys(domainModelClass, batch.primaryValues.toArray());
+            Map<Object, T> loadedObjects = new HashMap<>();
+            for (T domainObject : domainObjects) {
+                loadedObjects.put(AggregateProcessor.normalizeKey(Tables.getPrimaryValue(domainObject)), domainObject);
+            }
+            batch.futures.forEach((key, future) -> future.complete(loadedObjects.get(key)));
+        } catch (Throwable ex) {
+            batch.futures.values().forEach(future -> future.completeExceptionally(ex));
+        }
+    }
+
+    private T await(CompletableFuture<T> future) throws SQLException {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new SQLException(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * The lookups collected in a window, it is guarded by the loader.
+     */
+    private static final class Batch<T> {
+        private final Thread leader;
+        private final List<Object> primaryValues = new ArrayList<>();
+        private final Map<Object, CompletableFuture<T>> futures = new HashMap<>();
+        private boolean sealed;
+
+        private Batch(Thread leader) {
+            this.leader = leader;
+        }
+    }
+}
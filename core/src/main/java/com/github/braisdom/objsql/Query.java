@@ -20,6 +20,7 @@ import com.github.braisdom.objsql.pagination.Paginatable;
 import com.github.braisdom.objsql.relation.Relationship;
 
 import java.sql.SQLException;
+import java.time.Duration;
 import java.util.List;
 
 /**
@@ -44,7 +45,50 @@ public interface Query<T> extends Paginatable {
 
     Query orderBy(String orderBy);
 
+    /**
+     * Caches the rows of query in the <code>QueryCache</code> for given duration, the
+     * rows will be invalidated once the table is written. The query with relationships,
+     * or in transaction, is not cached. The query which does not support the cache
+     * is executed as usual.
+     *
+     * @see com.github.braisdom.objsql.cache.QueryCache
+     */
+    default Query cached(Duration timeToLive) {
+        return this;
+    }
+
+    /**
+     * Hedges the query, it is duplicated to another replica if the replica routed has
+     * not answered in time, and the rows answered first are returned. The query must be
+     * idempotent, and it is hedged only if the data source has two replicas at least.
+     * The query which does not support hedging is executed as usual.
+     *
+     * @see HedgingPolicy
+     */
+    default Query hedged() {
+        return this;
+    }
+
+    /**
+     * Pins the query to the shard holding given shard value, otherwise, the query of
+     * sharded domain model is executed on all shards and the rows are merged.
+     *
+     * @see ShardedConnectionFactory
+     */
+    default Query shard(Object shardValue) {
+        throw new UnsupportedOperationException("The shard is unsupported");
+    }
+
     List<T> execute(Relationship... relationships) throws SQLException;
 
     T queryFirst(Relationship... relationships) throws SQLException;
+
+    /**
+     * Executes the query and returns the rows stored by column.
+     *
+     * @see ColumnarResult
+     */
+    default ColumnarResult executeColumnar() throws SQLException {
+        throw new UnsupportedOperationException("The executeColumnar is unsupported");
+    }
 }
@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Routes the read-only operations out of transaction, such as <code>Query.execute</code>,
+ * <code>Select.execute</code>, counting and paging, to the replicas of a data source,
+ * and the writes and the operations in transaction stay on the primary data source:
+ * <pre>
+ *     Databases.installReplicaRouter(new ReplicaRouter(ReplicaRouter.Strategy.LEAST_IN_FLIGHT)
+ *             .addReplicas(ConnectionFactory.DEFAULT_DATA_SOURCE_NAME, "replica1", "replica2")
+ *             .readYourWrites(2, TimeUnit.SECONDS));
+ * </pre>
+ *
+ * The replicas are the data source names resolved by the <code>ConnectionFactory</code>.
+ * Since the replicas lag behind the primary, the reads of a thread can be kept on the
+ * primary for a while after the thread has written, so the thread reads its own writes.
+ * The writes are recorded in a <code>ThreadLocal</code>, so only the writing thread is
+ * covered, the other threads, such as the ones of an executor or the next request of
+ * the same user served by another thread, may still read the stale replicas.
+ * The caches, such as <code>QueryCache</code> and <code>ReplicatedTable</code>, are loaded
+ * from the replicas as well, so they may lag as the replicas do.
+ *
+ * @see Databases#executeReadOnly(String, Databases.DatabaseInvoke)
+ */
+public class ReplicaRouter {
+
+    public enum Strategy {
+        /**
+         * Selects the replicas in turn.
+         */
+        ROUND_ROBIN,
+        /**
+         * Selects the replica with the fewest operations in flight, which avoids the
+         * slow replica in heterogeneous load.
+         */
+        LEAST_IN_FLIGHT
+    }
+
+    private final Strategy strategy;
+    private final Map<String, ReplicaGroup> replicaGroups = new ConcurrentHashMap<>();
+    private final Map<String, Replica> replicas = new ConcurrentHashMap<>();
+    private final ThreadLocal<Map<String, Long>> lastWriteNanos = ThreadLocal.withInitial(HashMap::new);
+    private volatile long readYourWritesNanos;
+
+    public ReplicaRouter() {
+        this(Strategy.ROUND_ROBIN);
+    }
+
+    public ReplicaRouter(Strategy strategy) {
+        Objects.requireNonNull(strategy, "The strategy cannot be null");
+        this.strategy = strategy;
+    }
+
+    public ReplicaRouter addReplicas(String dataSourceName, String... replicaNames) {
+        Objects.requireNonNull(dataSourceName, "The dataSourceName cannot be null");
+        Objects.requireNonNull(replicaNames, "The replicaNames cannot be null");
+
+        List<Replica> groupReplicas = new ArrayList<>();
+        ReplicaGroup previousGroup = replicaGroups.get(dataSourceName);
+        if (previousGroup != null) {
+            groupReplicas.addAll(Arrays.asList(previousGroup.replicas));
+        }
+        for (String replicaName : replicaNames) {
+            groupReplicas.add(replicas.computeIfAbsent(replicaName, Replica::new));
+        }
+        replicaGroups.put(dataSourceName, new ReplicaGroup(groupReplicas.toArray(new Replica[0])));
+        return this;
+    }
+
+    /**
+     * Keeps the reads of a thread on the primary data source within given window after
+     * the thread has written it, zero for disabling. It covers the writing thread only.
+     */
+    public ReplicaRouter readYourWrites(long window, TimeUnit timeUnit) {
+        Objects.requireNonNull(timeUnit, "The timeUnit cannot be null");
+        if (window < 0) {
+            throw new IllegalArgumentException("The window cannot be negative");
+        }
+        this.readYourWritesNanos = timeUnit.toNanos(window);
+        return this;
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Returns the names of replicas of the data source, or an empty list if no replicas.
+     */
+    public List<String> getReplicaNames(String dataSourceName) {
+        ReplicaGroup replicaGroup = replicaGroups.get(dataSourceName);
+        if (replicaGroup == null) {
+            return Collections.emptyList();
+        }
+
+        List<String> replicaNames = new ArrayList<>(replicaGroup.replicas.length);
+        for (Replica replica : replicaGroup.replicas) {
+            replicaNames.add(replica.name);
+        }
+        return replicaNames;
+    }
+
+    /**
+     * Returns the data source name for reading, it is a replica or the primary data source
+     * itself if no replicas or the thread should read its own writes. The name returned must
+     * be released after reading.
+     */
+    public String acquire(String dataSourceName) {
+        ReplicaGroup replicaGroup = replicaGroups.get(dataSourceName);
+        if (replicaGroup == null || replicaGroup.replicas.length == 0 || isReadingOwnWrites(dataSourceName)) {
+            return dataSourceName;
+        }
+
+        Replica replica = strategy == Strategy.LEAST_IN_FLIGHT
+                ? replicaGroup.selectLeastInFlight(null) : replicaGroup.selectNext(null);
+        replica.inFlight.incrementAndGet();
+        return replica.name;
+    }
+
+    /**
+     * Returns another replica than the excluded one for reading, or null if no other
+     * replicas, it is used for sending a duplicate read. The name returned must be
+     * released after reading.
+     *
+     * @see HedgingPolicy
+     */
+    public String acquireExcept(String dataSourceName, String excludedReplicaName) {
+        ReplicaGroup replicaGroup = replicaGroups.get(dataSourceName);
+        if (replicaGroup == null) {
+            return null;
+        }
+
+        Replica replica = strategy == Strategy.LEAST_IN_FLIGHT
+                ? replicaGroup.selectLeastInFlight(excludedReplicaName) : replicaGroup.selectNext(excludedReplicaName);
+        if (replica == null) {
+            return null;
+        }
+        replica.inFlight.incrementAndGet();
+        return replica.name;
+    }
+
+    public void release(String routedDataSourceName) {
+        Replica replica = replicas.get(routedDataSourceName);
+        if (replica != null) {
+            replica.inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Records the data source written by current thread, the reads of the thread will
+     * stay on it within the window of read-your-writes, the reads of other threads are
+     * not affected.
+     */
+    public void markWritten(String dataSourceName) {
+        if (readYourWritesNanos > 0 && replicaGroups.containsKey(dataSourceName)) {
+            lastWriteNanos.get().put(dataSourceName, System.nanoTime());
+        }
+    }
+
+    public int getInFlight(String replicaName) {
+        Replica replica = replicas.get(replicaName);
+        return replica == null ? 0 : replica.inFlight.get();
+    }
+
+    private boolean isReadingOwnWrites(String dataSourceName) {
+        if (readYourWritesNanos <= 0) {
+            return false;
+        }
+
+        Long writtenNanos = lastWriteNanos.get().get(dataSourceName);
+        return writtenNanos != null && System.nanoTime() - writtenNanos < readYourWritesNanos;
+    }
+
+    private static final class Replica {
+        private final String name;
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private Replica(String name) {
+            this.name = name;
+        }
+    }
+
+    private static final class ReplicaGroup {
+        private final Replica[] replicas;
+        private final AtomicInteger cursor = new AtomicInteger();
+
+        private ReplicaGroup(Replica[] replicas) {
+            this.replicas = replicas;
+        }
+
+        private Replica selectNext(String excludedReplicaName) {
+            for (int i = 0; i < replicas.length; i++) {
+                Replica replica = replicas[Math.floorMod(cursor.getAndIncrement(), replicas.length)];
+                if (!replica.name.equals(excludedReplicaName)) {
+                    return replica;
+                }
+            }
+            return null;
+        }
+
+        private Replica selectLeastInFlight(String excludedReplicaName) {
+            // Starts from a rotating position, so the replicas are shared evenly if idle
+            int start = Math.floorMod(cursor.getAndIncrement(), replicas.length);
+            Replica selectedReplica = null;
+            for (int i = 0; i < replicas.length; i++) {
+                Replica replica = replicas[(start + i) % replicas.length];
+                if (replica.name.equals(excludedReplicaName)) {
+                    continue;
+                }
+                if (selectedReplica == null || replica.inFlight.get() < selectedReplica.inFlight.get()) {
+                    selectedReplica = replica;
+                }
+            }
+            return selectedReplica;
+        }
+    }
+}
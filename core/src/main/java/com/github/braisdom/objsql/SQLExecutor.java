@@ -31,6 +31,13 @@ public interface SQLExecutor<T> {
     List<T> query(Connection connection, String sql,
                   TableRowAdapter tableRowAdapter, Object... params) throws SQLException;
 
+    /**
+     * Queries the rows stored by column, which is designed for the analytic queries.
+     */
+    default ColumnarResult queryColumnar(Connection connection, String sql, Object... params) throws SQLException {
+        throw new UnsupportedOperationException("The columnar query is unsupported");
+    }
+
     default T insert(Connection connection, String sql,
              TableRowAdapter tableRowAdapter, Object... params) throws SQLException {
         throw new UnsupportedOperationException("The insert is unsupported");
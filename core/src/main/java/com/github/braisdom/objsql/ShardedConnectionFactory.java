@@ -0,0 +1,284 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql;
+
+import com.github.braisdom.objsql.relation.Relationship;
+import com.github.braisdom.objsql.relation.RelationshipNetwork;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The <code>ConnectionFactory</code> spreads a logical data source over the data sources
+ * named shards, the domain objects are written into the shard routed by the value of
+ * <code>@DomainModel(shardKey = ...)</code>, by hash or by range.
+ * <pre>
+ *     Databases.installConnectionFactory(new ShardedConnectionFactory(connectionFactory)
+ *             .addShards("orders", ShardedConnectionFactory.Strategy.hash(),
+ *                     "orders-0", "orders-1", "orders-2", "orders-3"));
+ * </pre>
+ *
+ * The queries pinned by <code>Query.shard(value)</code> are executed on one shard, and the others
+ * are executed on all shards in parallel, then the rows of shards are merged by
+ * <code>ShardedResultMerger</code>. The writes without shard value, such as updating or
+ * deleting by predication, are executed on all shards one by one.<br/>
+ *
+ * <b>Notice:</b> a transaction is bound to one connection, so it cannot span shards, and the
+ * queries executed on all shards use their own connections even if they are in a transaction.
+ * The related objects are queried on the shard of their owners.
+ *
+ * @see ShardedResultMerger
+ */
+public class ShardedConnectionFactory implements ConnectionFactory {
+
+    /**
+     * Decides the shard of a shard value.
+     */
+    @FunctionalInterface
+    public interface Strategy {
+
+        /**
+         * Returns the index of shard, between 0 and shardCount - 1.
+         */
+        int shardOf(Object shardValue, int shardCount);
+
+        /**
+         * Routes by the hash of shard value, the integral numbers of different types, such as
+         * <code>Integer</code> and <code>Long</code>, are routed to the same shard.
+         */
+        static Strategy hash() {
+            return (shardValue, shardCount) -> {
+                int hashCode = shardValue instanceof Long || shardValue instanceof Integer
+                        || shardValue instanceof Short || shardValue instanceof Byte
+                        ? Long.hashCode(((Number) shardValue).longValue()) : shardValue.hashCode();
+                return Math.floorMod(hashCode, shardCount);
+            };
+        }
+
+        /**
+         * Routes by the ranges of shard value, the shard i holds the values less than
+         * <code>upperBounds[i]</code>, and the last shard holds the rest, so the upper bounds
+         * must be ascending and one less than the shards.
+         */
+        static Strategy range(Comparable... upperBounds) {
+            Objects.requireNonNull(upperBounds, "The upperBounds cannot be null");
+            Comparable[] bounds = upperBounds.clone();
+            return (shardValue, shardCount) -> {
+                if (bounds.length != shardCount - 1) {
+                    throw new IllegalStateException(String.format("The %d upper bounds cannot split %d shards",
+                            bounds.length, shardCount));
+                }
+                for (int i = 0; i < bounds.length; i++) {
+                    if (bounds[i].compareTo(shardValue) > 0) {
+                        return i;
+                    }
+                }
+                return bounds.length;
+            };
+        }
+    }
+
+    private static final AtomicInteger threadNumber = new AtomicInteger();
+
+    private final ConnectionFactory connectionFactory;
+    private final Map<String, ShardGroup> shardGroups = new ConcurrentHashMap<>();
+    private final ExecutorService executor;
+
+    /**
+     * @param connectionFactory the factory creating the connections of shards and the data
+     *                          sources not sharded
+     */
+    public ShardedConnectionFactory(ConnectionFactory connectionFactory) {
+        Objects.requireNonNull(connectionFactory, "The connectionFactory cannot be null");
+
+        this.connectionFactory = connectionFactory;
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "objsql-shard-query-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public ShardedConnectionFactory addShards(String dataSourceName, Strategy strategy, String... shardNames) {
+        Objects.requireNonNull(dataSourceName, "The dataSourceName cannot be null");
+        Objects.requireNonNull(strategy, "The strategy cannot be null");
+        if (shardNames.length == 0) {
+            throw new IllegalArgumentException("The shardNames cannot be empty");
+        }
+
+        shardGroups.put(dataSourceName, new ShardGroup(strategy, shardNames.clone()));
+        return this;
+    }
+
+    @Override
+    public Connection getConnection(String dataSourceName) throws SQLException {
+        return connectionFactory.getConnection(dataSourceName);
+    }
+
+    @Override
+    public boolean isDefaultDataSource(String dataSourceName) {
+        return connectionFactory.isDefaultDataSource(dataSourceName);
+    }
+
+    public boolean isSharded(String dataSourceName) {
+        return shardGroups.containsKey(dataSourceName);
+    }
+
+    /**
+     * Returns the names of shards of the data source, or an empty list if it is not sharded.
+     */
+    public List<String> getShardNames(String dataSourceName) {
+        ShardGroup shardGroup = shardGroups.get(dataSourceName);
+        return shardGroup == null ? Collections.emptyList()
+                : Collections.unmodifiableList(Arrays.asList(shardGroup.shardNames));
+    }
+
+    /**
+     * Returns the name of shard holding the shard value, or the data source itself if
+     * it is not sharded.
+     */
+    public String route(String dataSourceName, Object shardValue) {
+        Objects.requireNonNull(shardValue, "The shardValue cannot be null");
+
+        ShardGroup shardGroup = shardGroups.get(dataSourceName);
+        if (shardGroup == null) {
+            return dataSourceName;
+        }
+
+        int shardIndex = shardGroup.strategy.shardOf(shardValue, shardGroup.shardNames.length);
+        if (shardIndex < 0 || shardIndex >= shardGroup.shardNames.length) {
+            throw new IllegalStateException(String.format("The shard %d of %s is out of range",
+                    shardIndex, shardValue));
+        }
+        return shardGroup.shardNames[shardIndex];
+    }
+
+    /**
+     * Executes the read-only operation on all shards of the data source in parallel, and
+     * returns the results in the order of shards. The first exception thrown is rethrown
+     * after the others are cancelled.
+     */
+    public <T, R> List<R> executeOnShards(String dataSourceName,
+                                          Databases.DatabaseInvoke<T, R> databaseInvoke) throws SQLException {
+        Objects.requireNonNull(databaseInvoke, "The databaseInvoke cannot be null");
+
+        List<String> shardNames = getShardNames(dataSourceName);
+        if (shardNames.isEmpty()) {
+            return Collections.singletonList(Databases.executeReadOnly(dataSourceName, databaseInvoke));
+        }
+
+        List<Future<R>> futures = new ArrayList<>(shardNames.size());
+        for (String shardName : shardNames) {
+            futures.add(executor.submit(() -> Databases.executeReadOnly(shardName, databaseInvoke)));
+        }
+
+        return await(futures);
+    }
+
+    /**
+     * Loads the relationships of the rows merged from the rows of shards, the related objects
+     * are queried on the shard each row came from, in parallel, so only the rows kept by the
+     * merge load their related objects instead of all rows queried from the shards.
+     *
+     * @param shardRows the rows queried by <code>executeOnShards</code>, in the order of shards
+     * @param rows the rows merged from the rows of shards
+     * @see ShardedResultMerger#merge(List)
+     */
+    public void processRelationships(String dataSourceName, List<? extends List> shardRows, List rows,
+                                     DomainModelDescriptor domainModelDescriptor,
+                                     Relationship... relationships) throws SQLException {
+        if (relationships.length == 0 || rows.isEmpty()) {
+            return;
+        }
+
+        Map<Object, Integer> shardIndexes = new IdentityHashMap<>();
+        for (int i = 0; i < shardRows.size(); i++) {
+            for (Object row : shardRows.get(i)) {
+                shardIndexes.putIfAbsent(row, i);
+            }
+        }
+
+        List<List> rowsOfShards = new ArrayList<>(shardRows.size());
+        for (int i = 0; i < shardRows.size(); i++) {
+            rowsOfShards.add(new ArrayList());
+        }
+        for (Object row : rows) {
+            Integer shardIndex = shardIndexes.get(row);
+            if (shardIndex != null) {
+                rowsOfShards.get(shardIndex).add(row);
+            }
+        }
+
+        List<String> shardNames = getShardNames(dataSourceName);
+        List<Future<Object>> futures = new ArrayList<>();
+        for (int i = 0; i < rowsOfShards.size(); i++) {
+            List rowsOfShard = rowsOfShards.get(i);
+            if (rowsOfShard.isEmpty()) {
+                continue;
+            }
+
+            String shardName = shardNames.isEmpty() ? dataSourceName : shardNames.get(i);
+            futures.add(executor.submit(() -> Databases.executeReadOnly(shardName, (connection, sqlExecutor) -> {
+                new RelationshipNetwork(connection, domainModelDescriptor).process(rowsOfShard, relationships);
+                return null;
+            })));
+        }
+        await(futures);
+    }
+
+    /**
+     * Returns the results of futures in order, the first exception thrown is rethrown after
+     * the others are cancelled.
+     */
+    private <R> List<R> await(List<Future<R>> futures) throws SQLException {
+        List<R> results = new ArrayList<>(futures.size());
+        try {
+            for (Future<R> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while querying the shards", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new SQLException(cause.getMessage(), cause);
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private static final class ShardGroup {
+        private final Strategy strategy;
+        private final String[] shardNames;
+
+        private ShardGroup(Strategy strategy, String[] shardNames) {
+            this.strategy = strategy;
+            this.shardNames = shardNames;
+        }
+    }
+}
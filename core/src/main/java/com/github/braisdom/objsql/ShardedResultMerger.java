@@ -0,0 +1,373 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql;
+
+import com.github.braisdom.objsql.reflection.PropertyUtils;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Merges the rows queried from the shards as they are queried from one database. The rows
+ * sorted by shards are merged by a k-way merge, which stops once the offset and row count
+ * are reached, so each shard has to return the first <code>offset + rowCount</code> rows
+ * only. The partial aggregations of shards are re-aggregated by the GROUP BY columns,
+ * <code>COUNT</code> and <code>SUM</code> are summed up, <code>MIN</code> and <code>MAX</code>
+ * are compared, and the aggregated rows are sorted and limited after that.<br/>
+ *
+ * <b>Notice:</b> the aggregations must be aliased, and the <code>AVG</code>,
+ * <code>COUNT(DISTINCT ...)</code> and <code>HAVING</code> cannot be merged, which should
+ * be rewritten by <code>SUM</code> and <code>COUNT</code>. The GROUP BY and ORDER BY
+ * accept the unqualified columns only. The strings are compared by their UTF-16 code
+ * units, which assumes the shards sort them by a binary collation, otherwise, the rows
+ * sorted by a linguistic or case-insensitive collation may be merged out of order.
+ *
+ * @param <T> the class of rows
+ * @see ShardedConnectionFactory
+ */
+public class ShardedResultMerger<T> {
+
+    private static final Pattern AGGREGATE_PATTERN = Pattern.compile(
+            "^(\\w+)\\s*\\((.*)\\)(?:\\s+(?:AS\\s+)?([\\w\"`\\[\\]]+))?$",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final Pattern ORDER_PATTERN = Pattern.compile("^(.+?)(?:\\s+(ASC|DESC))?$",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final Set<String> AGGREGATE_FUNCTIONS = new HashSet<>(Arrays.asList(
+            "COUNT", "SUM", "MIN", "MAX", "AVG"));
+    private static final Pattern COLUMN_PATTERN = Pattern.compile("^(?:\\w+|\"[^\"]+\"|`[^`]+`|\\[[^\\]]+\\])$");
+
+    private final TableRowAdapter<T> rowAdapter;
+    private final List<String> groupByColumns = new ArrayList<>();
+    private final Map<String, String> aggregateFunctions = new LinkedHashMap<>();
+    private Comparator<T> comparator;
+    private long offset = -1;
+    private long rowCount = -1;
+
+    public ShardedResultMerger(TableRowAdapter<T> rowAdapter) {
+        Objects.requireNonNull(rowAdapter, "The rowAdapter cannot be null");
+        this.rowAdapter = rowAdapter;
+    }
+
+    /**
+     * Registers the aggregations in the projections, such as
+     * <code>"name, COUNT(*) AS order_count"</code>, the columns are left as they are.
+     */
+    public ShardedResultMerger<T> project(String projections) {
+        if (projections == null) {
+            return this;
+        }
+
+        for (String projection : splitTopLevel(projections)) {
+            Matcher matcher = AGGREGATE_PATTERN.matcher(projection.trim());
+            if (matcher.matches() && AGGREGATE_FUNCTIONS.contains(matcher.group(1).toUpperCase())) {
+                if (matcher.group(2).trim().toUpperCase().startsWith("DISTINCT ")) {
+                    throw new UnsupportedOperationException(String.format(
+                            "The %s cannot be merged across shards", projection.trim()));
+                }
+                if (matcher.group(3) == null) {
+                    throw new UnsupportedOperationException(String.format(
+                            "The %s must be aliased for merging across shards", projection.trim()));
+                }
+                aggregate(matcher.group(1), unquote(matcher.group(3)));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Registers an aggregation of the rows, which is one of <code>COUNT</code>, <code>SUM</code>,
+     * <code>MIN</code> and <code>MAX</code>.
+     *
+     * @param alias the alias of aggregation in the rows
+     */
+    public ShardedResultMerger<T> aggregate(String function, String alias) {
+        Objects.requireNonNull(function, "The function cannot be null");
+        Objects.requireNonNull(alias, "The alias cannot be null");
+
+        String functionName = function.toUpperCase();
+        if ("AVG".equals(functionName)) {
+            throw new UnsupportedOperationException(String.format("The AVG of %s cannot be merged across "
+                    + "shards, it should be calculated by SUM and COUNT", alias));
+        } else if (!AGGREGATE_FUNCTIONS.contains(functionName)) {
+            throw new UnsupportedOperationException(String.format("The %s cannot be merged across shards", function));
+        }
+
+        aggregateFunctions.put(alias, functionName);
+        return this;
+    }
+
+    /**
+     * Groups the rows by the columns, the expressions and the qualified columns, such as
+     * <code>YEAR(created_at)</code> or <code>o.member_id</code>, cannot be read from the rows.
+     */
+    public ShardedResultMerger<T> groupBy(String... columnNames) {
+        for (String columnName : columnNames) {
+            groupByColumns.add(ensureColumn(columnName.trim(), "GROUP BY"));
+        }
+        return this;
+    }
+
+    /**
+     * Sorts the rows by the ORDER BY clause, such as <code>"created_at DESC, id"</code>,
+     * the columns are read from the fields mapped or the raw attributes.
+     */
+    public ShardedResultMerger<T> orderBy(String orderBy) {
+        if (orderBy == null || orderBy.trim().isEmpty()) {
+            return this;
+        }
+
+        Comparator<T> comparator = null;
+        for (String sortItem : splitTopLevel(orderBy)) {
+            Matcher matcher = ORDER_PATTERN.matcher(sortItem.trim());
+            if (!matcher.matches()) {
+                throw new UnsupportedOperationException(String.format("The %s cannot be merged across shards",
+                        sortItem));
+            }
+
+            String columnName = ensureColumn(matcher.group(1).trim(), "ORDER BY");
+            Comparator<T> columnComparator = Comparator.comparing(row -> normalize(read(row, columnName)),
+                    Comparator.nullsFirst(Comparator.naturalOrder()));
+            if ("DESC".equalsIgnoreCase(matcher.group(2))) {
+                columnComparator = columnComparator.reversed();
+            }
+            comparator = comparator == null ? columnComparator : comparator.thenComparing(columnComparator);
+        }
+        return orderBy(comparator);
+    }
+
+    public ShardedResultMerger<T> orderBy(Comparator<T> comparator) {
+        this.comparator = comparator;
+        return this;
+    }
+
+    /**
+     * @param offset   the global offset of rows, -1 if not offset
+     * @param rowCount the global count of rows, -1 if not limited
+     */
+    public ShardedResultMerger<T> limit(long offset, long rowCount) {
+        this.offset = offset;
+        this.rowCount = rowCount;
+        return this;
+    }
+
+    public boolean isAggregating() {
+        return !aggregateFunctions.isEmpty() || !groupByColumns.isEmpty();
+    }
+
+    /**
+     * Returns the count of rows each shard has to return, or -1 if all rows, because
+     * the rows of a page may come from any shard, and the partial aggregations cannot
+     * be limited before merging.
+     */
+    public long getShardRowCount() {
+        if (rowCount < 0 || isAggregating()) {
+            return -1;
+        }
+        return Math.max(offset, 0) + rowCount;
+    }
+
+    public List<T> merge(List<List<T>> shardRows) {
+        Objects.requireNonNull(shardRows, "The shardRows cannot be null");
+
+        if (isAggregating()) {
+            List<T> rows = reaggregate(shardRows);
+            if (comparator != null) {
+                rows.sort(comparator);
+            }
+            return slice(rows);
+        } else if (comparator == null) {
+            List<T> rows = new ArrayList<>();
+            shardRows.forEach(rows::addAll);
+            return slice(rows);
+        }
+        return mergeSorted(shardRows);
+    }
+
+    private List<T> mergeSorted(List<List<T>> shardRows) {
+        // The cursors are ordered by the current rows, and the shards for the same rows
+        PriorityQueue<int[]> cursors = new PriorityQueue<>((a, b) -> {
+            int result = comparator.compare(shardRows.get(a[0]).get(a[1]), shardRows.get(b[0]).get(b[1]));
+            return result == 0 ? Integer.compare(a[0], b[0]) : result;
+        });
+        for (int i = 0; i < shardRows.size(); i++) {
+            if (!shardRows.get(i).isEmpty()) {
+                cursors.add(new int[]{i, 0});
+            }
+        }
+
+        long skipped = 0;
+        long skipping = Math.max(offset, 0);
+        List<T> rows = new ArrayList<>();
+        while (!cursors.isEmpty() && (rowCount < 0 || rows.size() < rowCount)) {
+            int[] cursor = cursors.poll();
+            List<T> currentRows = shardRows.get(cursor[0]);
+            if (skipped < skipping) {
+                skipped++;
+            } else {
+                rows.add(currentRows.get(cursor[1]));
+            }
+            if (++cursor[1] < currentRows.size()) {
+                cursors.add(cursor);
+            }
+        }
+        return rows;
+    }
+
+    private List<T> reaggregate(List<List<T>> shardRows) {
+        Map<List<Object>, T> groups = new LinkedHashMap<>();
+        for (List<T> rows : shardRows) {
+            for (T row : rows) {
+                List<Object> groupKey = new ArrayList<>(groupByColumns.size());
+                for (String columnName : groupByColumns) {
+                    groupKey.add(read(row, columnName));
+                }
+
+                T group = groups.putIfAbsent(groupKey, row);
+                if (group != null) {
+                    for (Map.Entry<String, String> aggregateFunction : aggregateFunctions.entrySet()) {
+                        String alias = aggregateFunction.getKey();
+                        write(group, alias, combine(aggregateFunction.getValue(),
+                                read(group, alias), read(row, alias)));
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(groups.values());
+    }
+
+    private Object combine(String function, Object value, Object other) {
+        if (value == null) {
+            return other;
+        } else if (other == null) {
+            return value;
+        }
+
+        switch (function) {
+            case "MIN":
+                return normalize(value).compareTo(normalize(other)) <= 0 ? value : other;
+            case "MAX":
+                return normalize(value).compareTo(normalize(other)) >= 0 ? value : other;
+            default:
+                return add((Number) value, (Number) other);
+        }
+    }
+
+    private Number add(Number value, Number other) {
+        if (value instanceof BigDecimal || other instanceof BigDecimal) {
+            return toBigDecimal(value).add(toBigDecimal(other));
+        } else if (value instanceof BigInteger || other instanceof BigInteger) {
+            return new BigInteger(value.toString()).add(new BigInteger(other.toString()));
+        } else if (value instanceof Double || value instanceof Float
+                || other instanceof Double || other instanceof Float) {
+            return value.doubleValue() + other.doubleValue();
+        }
+
+        long sum = value.longValue() + other.longValue();
+        return value instanceof Integer && other instanceof Integer
+                && sum == (int) sum ? Integer.valueOf((int) sum) : Long.valueOf(sum);
+    }
+
+    /**
+     * Returns the comparable value, the numbers of different types, such as the Integer
+     * and Long returned by different shards, are compared as <code>BigDecimal</code>.
+     */
+    private Comparable normalize(Object value) {
+        if (value instanceof Number && !isNonFinite((Number) value)) {
+            return toBigDecimal((Number) value);
+        }
+        return (Comparable) value;
+    }
+
+    private boolean isNonFinite(Number number) {
+        return (number instanceof Double && !Double.isFinite((Double) number))
+                || (number instanceof Float && !Float.isFinite((Float) number));
+    }
+
+    private BigDecimal toBigDecimal(Number number) {
+        return number instanceof BigDecimal ? (BigDecimal) number : new BigDecimal(number.toString());
+    }
+
+    private List<T> slice(List<T> rows) {
+        int fromIndex = (int) Math.min(Math.max(offset, 0), rows.size());
+        int toIndex = rowCount < 0 ? rows.size() : (int) Math.min(fromIndex + rowCount, rows.size());
+        return fromIndex == 0 && toIndex == rows.size() ? rows : new ArrayList<>(rows.subList(fromIndex, toIndex));
+    }
+
+    private Object read(T row, String columnName) {
+        String fieldName = rowAdapter.getFieldName(columnName);
+        if (row instanceof Map) {
+            return ((Map) row).get(fieldName == null ? columnName : fieldName);
+        } else if (fieldName != null) {
+            return PropertyUtils.read(row, fieldName);
+        }
+        return PropertyUtils.supportRawAttribute(row) ? PropertyUtils.getRawAttribute(row, columnName) : null;
+    }
+
+    private void write(T row, String columnName, Object value) {
+        String fieldName = rowAdapter.getFieldName(columnName);
+        if (fieldName != null) {
+            rowAdapter.setFieldValue(row, fieldName, value);
+        } else if (row instanceof Map) {
+            ((Map) row).put(columnName, value);
+        } else {
+            PropertyUtils.writeRawAttribute(row, columnName, value);
+        }
+    }
+
+    private static String unquote(String name) {
+        if (name.length() > 1 && "\"`[".indexOf(name.charAt(0)) >= 0) {
+            return name.substring(1, name.length() - 1);
+        }
+        return name;
+    }
+
+    private static String ensureColumn(String columnName, String clause) {
+        if (!COLUMN_PATTERN.matcher(columnName).matches()) {
+            throw new UnsupportedOperationException(String.format("The %s %s cannot be merged across shards, "
+                    + "only the unqualified columns are supported", clause, columnName));
+        }
+        return unquote(columnName);
+    }
+
+    /**
+     * Splits the clause by the commas out of parentheses and quotes.
+     */
+    static List<String> splitTopLevel(String clause) {
+        List<String> items = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        boolean quoted = false;
+        for (int i = 0; i < clause.length(); i++) {
+            char c = clause.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+            } else if (!quoted && c == '(') {
+                depth++;
+            } else if (!quoted && c == ')') {
+                depth--;
+            } else if (!quoted && depth == 0 && c == ',') {
+                items.add(clause.substring(start, i));
+                start = i + 1;
+            }
+        }
+        items.add(clause.substring(start));
+        return items;
+    }
+}
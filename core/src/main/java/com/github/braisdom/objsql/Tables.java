@@ -19,7 +19,12 @@ package com.github.braisdom.objsql;
 import com.github.braisdom.objsql.annotations.Column;
 import com.github.braisdom.objsql.annotations.DomainModel;
 import com.github.braisdom.objsql.annotations.PrimaryKey;
+import com.github.braisdom.objsql.cache.EntityCache;
+import com.github.braisdom.objsql.cache.ReplicatedTable;
 import com.github.braisdom.objsql.reflection.PropertyUtils;
+import com.github.braisdom.objsql.relation.AggregateProcessor;
+import com.github.braisdom.objsql.relation.RelatedObjectCache;
+import com.github.braisdom.objsql.relation.Relationship;
 import com.github.braisdom.objsql.util.StringUtil;
 import com.github.braisdom.objsql.util.WordUtil;
 
@@ -29,6 +34,7 @@ import java.lang.reflect.Field;
 import java.math.BigDecimal;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.stream.Collectors;
 
 /**
  * Utility methods relates to the database table.
@@ -137,6 +143,26 @@ public final class Tables {
         }
     }
 
+    /**
+     * Returns the projection of querying the domain model, it is '*' or the quoted
+     * columns of domain model if the explicit projection is enabled.
+     *
+     * @param tableAlias the alias qualifying the columns, or null
+     * @see DomainModel#explicitProjection()
+     */
+    public static final String getProjection(DomainModelDescriptor domainModelDescriptor,
+                                             String databaseProductName, String tableAlias) {
+        String qualifier = StringUtil.isBlank(tableAlias) ? "" : tableAlias + ".";
+        if (!domainModelDescriptor.isExplicitProjection()) {
+            return qualifier + "*";
+        }
+
+        String[] quotedColumnNames = Databases.getQuoter().quoteColumnNames(databaseProductName,
+                domainModelDescriptor.getColumns());
+        return Arrays.stream(quotedColumnNames).map(columnName -> qualifier + columnName)
+                .collect(Collectors.joining(", "));
+    }
+
     public static Validator getValidator() {
         return validator;
     }
@@ -171,16 +197,275 @@ public final class Tables {
 
     public static final <T> List<T> query(DomainModelDescriptor<T> domainModelDescriptor, String sql, Object... params) throws SQLException {
         String dataSourceName = domainModelDescriptor.getDataSourceName();
-        return (List<T>) Databases.execute(dataSourceName, (connection, sqlExecutor) ->
+        return (List<T>) Databases.executeReadOnly(dataSourceName, (connection, sqlExecutor) ->
                 sqlExecutor.query(connection, sql, domainModelDescriptor, params));
     }
 
+    /**
+     * Queries the domain object by primary value, if no relationship required, the object
+     * loaded already in current transaction or cached in the <code>EntityCache</code>
+     * will be returned directly, and the lookups of batched model out of transaction are
+     * coalesced with other threads.
+     *
+     * @see IdentityMap
+     * @see EntityCache
+     * @see PrimaryKeyBatchLoader
+     */
+    public static final <T> T queryByPrimaryKey(Class<T> domainModelClass, Object primaryValue,
+                                                Relationship... relationships) throws SQLException {
+        PrimaryKey primaryKey = ensurePrimaryKey(domainModelClass);
+        ReplicatedTable<T> replicatedTable = getReplicatedTable(domainModelClass, relationships);
+        if (replicatedTable != null) {
+            return replicatedTable.findFirst(getPrimaryField(domainModelClass).getName(), primaryValue);
+        }
+
+        IdentityMap identityMap = Databases.getCurrentIdentityMap();
+        EntityCache entityCache = relationships.length == 0 ? getEntityCache(domainModelClass) : null;
+
+        if (identityMap != null && relationships.length == 0) {
+            Object domainObject = identityMap.get(domainModelClass, primaryValue);
+            if (domainObject != null) {
+                return (T) domainObject;
+            }
+        }
+
+        long cacheVersion = 0;
+        if (entityCache != null && primaryValue != null) {
+            cacheVersion = entityCache.getVersion(domainModelClass, primaryValue);
+            Object domainObject = entityCache.get(domainModelClass, primaryValue);
+            if (domainObject == EntityCache.ABSENT) {
+                return null;
+            } else if (domainObject != null) {
+                domainObject = PropertyUtils.copy(domainObject);
+                if (identityMap != null) {
+                    identityMap.put(domainModelClass, primaryValue, domainObject);
+                }
+                return (T) domainObject;
+            }
+        }
+
+        if (relationships.length == 0 && primaryValue != null && Databases.getCurrentThreadConnection() == null) {
+            PrimaryKeyBatchLoader<T> batchLoader = PrimaryKeyBatchLoader.get(domainModelClass);
+            if (batchLoader != null) {
+                return batchLoader.load(primaryValue);
+            }
+        }
+
+        Query<T> query = Databases.getQueryFactory().createQuery(domainModelClass);
+        query.where(String.format("%s = ?", primaryKey.name()), primaryValue);
+        T domainObject = query.queryFirst(relationships);
+        if (primaryValue != null) {
+            if (identityMap != null && domainObject != null) {
+                identityMap.put(domainModelClass, primaryValue, domainObject);
+            }
+            if (entityCache != null && Databases.getCurrentThreadConnection() == null) {
+                if (domainObject == null) {
+                    entityCache.putAbsent(domainModelClass, primaryValue, cacheVersion);
+                } else {
+                    entityCache.put(domainModelClass, primaryValue, PropertyUtils.copy(domainObject), cacheVersion);
+                }
+            }
+        }
+        return domainObject;
+    }
+
+    /**
+     * Queries the domain objects by primary values in one query, the objects loaded
+     * already or cached will not be queried again. The objects are returned in order
+     * of the primary values, and the absent ones are skipped.
+     */
+    public static final <T> List<T> queryByPrimaryKeys(Class<T> domainModelClass,
+                                                       Object... primaryValues) throws SQLException {
+        PrimaryKey primaryKey = ensurePrimaryKey(domainModelClass);
+        IdentityMap identityMap = Databases.getCurrentIdentityMap();
+        EntityCache entityCache = getEntityCache(domainModelClass);
+        boolean cacheWritable = entityCache != null && Databases.getCurrentThreadConnection() == null;
+
+        Map<Object, Object> loadedObjects = new HashMap<>();
+        Map<Object, Long> cacheVersions = new HashMap<>();
+        Set<Object> missingValues = new LinkedHashSet<>();
+        for (Object primaryValue : primaryValues) {
+            Object normalizedValue = AggregateProcessor.normalizeKey(primaryValue);
+            if (normalizedValue == null || loadedObjects.containsKey(normalizedValue)) {
+                continue;
+            }
+
+            Object domainObject = identityMap == null ? null : identityMap.get(domainModelClass, primaryValue);
+            if (domainObject == null && entityCache != null) {
+                cacheVersions.put(normalizedValue, entityCache.getVersion(domainModelClass, primaryValue));
+                domainObject = entityCache.get(domainModelClass, primaryValue);
+                if (domainObject != null && domainObject != EntityCache.ABSENT) {
+                    domainObject = PropertyUtils.copy(domainObject);
+                    if (identityMap != null) {
+                        identityMap.put(domainModelClass, primaryValue, domainObject);
+                    }
+                }
+            }
+
+            if (domainObject == null) {
+                missingValues.add(primaryValue);
+            } else {
+                loadedObjects.put(normalizedValue, domainObject);
+            }
+        }
+
+        if (missingValues.size() > 0) {
+            String placeholders = String.join(", ", Collections.nCopies(missingValues.size(), "?"));
+            Query<T> query = Databases.getQueryFactory().createQuery(domainModelClass);
+            query.where(String.format("%s IN (%s)", primaryKey.name(), placeholders), missingValues.toArray());
+
+            for (T domainObject : query.execute()) {
+                Object primaryValue = getPrimaryValue(domainObject);
+                Object normalizedValue = AggregateProcessor.normalizeKey(primaryValue);
+                loadedObjects.put(normalizedValue, domainObject);
+                if (identityMap != null) {
+                    identityMap.put(domainModelClass, primaryValue, domainObject);
+                }
+                if (cacheWritable && cacheVersions.containsKey(normalizedValue)) {
+                    entityCache.put(domainModelClass, primaryValue, PropertyUtils.copy(domainObject),
+                            cacheVersions.get(normalizedValue));
+                }
+            }
+
+            if (cacheWritable) {
+                for (Object missingValue : missingValues) {
+                    Object normalizedValue = AggregateProcessor.normalizeKey(missingValue);
+                    if (!loadedObjects.containsKey(normalizedValue)) {
+                        entityCache.putAbsent(domainModelClass, missingValue, cacheVersions.get(normalizedValue));
+                    }
+                }
+            }
+        }
+
+        List<T> domainObjects = new ArrayList<>();
+        for (Object primaryValue : primaryValues) {
+            Object domainObject = loadedObjects.get(AggregateProcessor.normalizeKey(primaryValue));
+            if (domainObject != null && domainObject != EntityCache.ABSENT) {
+                domainObjects.add((T) domainObject);
+            }
+        }
+        return domainObjects;
+    }
+
+    /**
+     * Queries the domain objects whose field equals the value, the replicated model
+     * answers from memory if no relationship required.
+     *
+     * @see ReplicatedTable
+     */
+    public static final <T> List<T> queryBy(Class<T> domainModelClass, String fieldName, Object value,
+                                            Relationship... relationships) throws SQLException {
+        ReplicatedTable<T> replicatedTable = getReplicatedTable(domainModelClass, relationships);
+        if (replicatedTable != null) {
+            return replicatedTable.findAll(fieldName, value);
+        }
+        return createFieldQuery(domainModelClass, fieldName, value).execute(relationships);
+    }
+
+    public static final <T> T queryFirstBy(Class<T> domainModelClass, String fieldName, Object value,
+                                           Relationship... relationships) throws SQLException {
+        ReplicatedTable<T> replicatedTable = getReplicatedTable(domainModelClass, relationships);
+        if (replicatedTable != null) {
+            return replicatedTable.findFirst(fieldName, value);
+        }
+        return createFieldQuery(domainModelClass, fieldName, value).queryFirst(relationships);
+    }
+
+    /**
+     * Returns true if the domain model is annotated as cacheable.
+     *
+     * @see DomainModel#cacheable()
+     */
+    public static final boolean isCacheable(Class domainModelClass) {
+        DomainModel domainModel = (DomainModel) domainModelClass.getAnnotation(DomainModel.class);
+        return domainModel != null && domainModel.cacheable();
+    }
+
+    /**
+     * Returns the <code>EntityCache</code> for reading the domain objects, the installed one
+     * if the domain model is cacheable, otherwise the <code>RelatedObjectCache</code> enabled
+     * for the domain model. Returns null if neither of them exists, or the domain model has
+     * been written in current transaction.
+     *
+     * @see RelatedObjectCache
+     */
+    public static final EntityCache getEntityCache(Class domainModelClass) {
+        EntityCache entityCache = resolveEntityCache(domainModelClass);
+        if (entityCache == null) {
+            return null;
+        }
+
+        IdentityMap identityMap = Databases.getCurrentIdentityMap();
+        if (identityMap != null && identityMap.isWritten(domainModelClass)) {
+            return null;
+        }
+        return entityCache;
+    }
+
+    /**
+     * Invalidates the cached domain object with given primary value, or all cached objects
+     * of the domain model if the primary value is null.
+     */
+    static void invalidateEntityCache(Class domainModelClass, Object primaryValue) {
+        EntityCache entityCache = resolveEntityCache(domainModelClass);
+        if (entityCache == null) {
+            return;
+        }
+
+        if (primaryValue == null) {
+            entityCache.invalidate(domainModelClass);
+        } else {
+            entityCache.invalidate(domainModelClass, primaryValue);
+        }
+    }
+
+    private static EntityCache resolveEntityCache(Class domainModelClass) {
+        EntityCache entityCache = Databases.getEntityCache();
+        if (entityCache != null && isCacheable(domainModelClass)) {
+            return entityCache;
+        }
+        return RelatedObjectCache.get(domainModelClass);
+    }
+
+    private static <T> Query<T> createFieldQuery(Class<T> domainModelClass, String fieldName, Object value) {
+        Query<T> query = Databases.getQueryFactory().createQuery(domainModelClass);
+        query.where(String.format("%s = ?", getColumnName(domainModelClass, fieldName)), value);
+        return query;
+    }
+
+    /**
+     * Returns the replicated table for the lookup, or null if the model is not replicated,
+     * the relationships are required, or the model has been written in current transaction.
+     */
+    private static <T> ReplicatedTable<T> getReplicatedTable(Class<T> domainModelClass,
+                                                             Relationship[] relationships) {
+        if (relationships.length > 0) {
+            return null;
+        }
+
+        ReplicatedTable<T> replicatedTable = ReplicatedTable.get(domainModelClass);
+        IdentityMap identityMap = Databases.getCurrentIdentityMap();
+        if (replicatedTable == null || (identityMap != null && identityMap.isWritten(domainModelClass))) {
+            return null;
+        }
+        return replicatedTable;
+    }
+
+    private static PrimaryKey ensurePrimaryKey(Class domainModelClass) throws PersistenceException {
+        PrimaryKey primaryKey = getPrimaryKey(domainModelClass);
+        if (primaryKey == null) {
+            throw new PersistenceException(String.format("The %s has no primary key",
+                    domainModelClass.getSimpleName()));
+        }
+        return primaryKey;
+    }
+
     public static final int execute(Class<?> domainModelClass, String sql, Object... params) throws SQLException {
         return Tables.execute(new BeanModelDescriptor(domainModelClass), sql, params);
     }
 
     public static final <T> int execute(DomainModelDescriptor<T> domainModelDescriptor, String sql, Object... params) throws SQLException {
-        return Databases.execute(domainModelDescriptor.getDataSourceName(), (connection, sqlExecutor) ->
+        return Databases.executeWrite(domainModelDescriptor.getDataSourceName(), (connection, sqlExecutor) ->
                 sqlExecutor.execute(connection, sql, params));
     }
 
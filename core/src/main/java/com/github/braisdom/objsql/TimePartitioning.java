@@ -0,0 +1,408 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql;
+
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.expression.*;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.relational.*;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.schema.Column;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Timestamp;
+import java.time.*;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Splits a table into the physical tables by the time of a field, such as <code>events_202610</code>
+ * and <code>events_202611</code> for the monthly partitions of <code>events</code>, the domain
+ * objects are inserted into the partition of their time, so the hot inserts stay on the small
+ * recent table and the old partitions can be dropped cheaply.
+ * <pre>
+ *     &#64;DomainModel(partitionField = "createdAt", partitionInterval = TimePartitioning.Interval.MONTH)
+ *     public class Event {
+ *         private LocalDateTime createdAt;
+ *     }
+ * </pre>
+ *
+ * The partitions are created by the application, and the existing ones are discovered from the
+ * <code>DatabaseMetaData</code> when querying. The queries constrained on the partition column by
+ * <code>=</code>, <code>&gt;</code>, <code>&lt;</code> or <code>BETWEEN</code> in the top level
+ * <code>AND</code> of filter are pruned to the matching partitions, then one partition is queried
+ * directly, and more partitions are queried as a <code>UNION ALL</code> of them. The domain
+ * object updated without the time is updated in all partitions, and the time cannot be changed
+ * to another partition by updating.<br/>
+ *
+ * <b>Notice:</b> the time is partitioned in the default time zone of JVM.
+ *
+ * @see com.github.braisdom.objsql.annotations.DomainModel#partitionField()
+ */
+public class TimePartitioning {
+
+    public enum Interval {
+        DAY("yyyyMMdd"),
+        MONTH("yyyyMM"),
+        YEAR("yyyy");
+
+        private final DateTimeFormatter formatter;
+        private final int keyLength;
+
+        Interval(String pattern) {
+            this.formatter = DateTimeFormatter.ofPattern(pattern);
+            this.keyLength = pattern.length();
+        }
+    }
+
+    /**
+     * The default time the partitions discovered are cached.
+     */
+    public static final Duration DEFAULT_PARTITIONS_TIME_TO_LIVE = Duration.ofSeconds(5);
+
+    private static final List<UnaryOperator<String>> CASE_CONVERTERS = Arrays.asList(
+            UnaryOperator.identity(), String::toUpperCase, String::toLowerCase);
+    private static final Map<List<Object>, CachedPartitions> partitionsCache = new ConcurrentHashMap<>();
+    private static volatile long partitionsTimeToLive = DEFAULT_PARTITIONS_TIME_TO_LIVE.toNanos();
+
+    private static class CachedPartitions {
+        private final List<String> partitionNames;
+        private final long expiresAt;
+
+        private CachedPartitions(List<String> partitionNames, long expiresAt) {
+            this.partitionNames = partitionNames;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final String fieldName;
+    private final String columnName;
+    private final Interval interval;
+
+    public TimePartitioning(String fieldName, String columnName, Interval interval) {
+        Objects.requireNonNull(fieldName, "The fieldName cannot be null");
+        Objects.requireNonNull(columnName, "The columnName cannot be null");
+        Objects.requireNonNull(interval, "The interval cannot be null");
+
+        this.fieldName = fieldName;
+        this.columnName = columnName;
+        this.interval = interval;
+    }
+
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    public String getColumnName() {
+        return columnName;
+    }
+
+    public Interval getInterval() {
+        return interval;
+    }
+
+    /**
+     * Returns the name of partition holding the time, such as <code>events_202610</code>.
+     */
+    public String getPartitionName(String tableName, Object time) {
+        Objects.requireNonNull(time, "The time cannot be null");
+
+        LocalDateTime dateTime = toDateTime(time);
+        if (dateTime == null) {
+            throw new IllegalArgumentException(String.format("The %s cannot be partitioned by time", time));
+        }
+        return tableName + "_" + interval.formatter.format(dateTime);
+    }
+
+    /**
+     * Returns the names of existing partitions of the table in ascending order of time. The
+     * partitions are looked up in the schema qualifying the table, or the schema of connection,
+     * and they are qualified as the table is. The partitions discovered are cached by the
+     * database for a short time, so the partitions created or dropped are discovered after
+     * the time, or after <code>invalidatePartitions</code>.
+     *
+     * @see #setPartitionsTimeToLive(Duration)
+     */
+    public List<String> listPartitions(Connection connection, String tableName) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        int qualifierIndex = tableName.lastIndexOf('.');
+        String qualifier = qualifierIndex < 0 ? null : tableName.substring(0, qualifierIndex);
+        String simpleTableName = tableName.substring(qualifierIndex + 1);
+
+        // The qualifier is the catalog for the databases without schemas, such as MySQL
+        boolean schemaSupported = metaData.supportsSchemasInTableDefinitions();
+        String catalog = qualifier != null && !schemaSupported ? qualifier : connection.getCatalog();
+        String schema = qualifier != null && schemaSupported ? qualifier : getSchema(connection);
+
+        String url = metaData.getURL();
+        List<Object> cacheKey = Arrays.asList(url, catalog, schema, tableName);
+        CachedPartitions cached = url == null ? null : partitionsCache.get(cacheKey);
+        if (cached != null && System.nanoTime() - cached.expiresAt < 0) {
+            return cached.partitionNames;
+        }
+
+        String escape = metaData.getSearchStringEscape();
+        String namePattern = escape == null || escape.isEmpty() ? simpleTableName + "_%"
+                : simpleTableName.replace("_", escape + "_") + escape + "_%";
+        Pattern partitionPattern = Pattern.compile(Pattern.quote(simpleTableName) + "_\\d{"
+                + interval.keyLength + "}", Pattern.CASE_INSENSITIVE);
+
+        // The names of unquoted tables and schemas are stored in upper or lower case by some databases
+        Set<String> partitionNames = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        Set<List<String>> patterns = new LinkedHashSet<>();
+        for (UnaryOperator<String> caseConverter : CASE_CONVERTERS) {
+            patterns.add(Arrays.asList(schema == null ? null : caseConverter.apply(schema),
+                    caseConverter.apply(namePattern)));
+        }
+        for (List<String> pattern : patterns) {
+            try (ResultSet tables = metaData.getTables(catalog, pattern.get(0), pattern.get(1),
+                    new String[]{"TABLE"})) {
+                while (tables != null && tables.next()) {
+                    String partitionName = tables.getString("TABLE_NAME");
+                    if (partitionName != null && partitionPattern.matcher(partitionName).matches()) {
+                        partitionNames.add(qualifier == null ? partitionName : qualifier + "." + partitionName);
+                    }
+                }
+            }
+        }
+
+        List<String> result = Collections.unmodifiableList(new ArrayList<>(partitionNames));
+        if (url != null) {
+            partitionsCache.put(cacheKey, new CachedPartitions(result, System.nanoTime() + partitionsTimeToLive));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the table expression queried, which is the partitions of table pruned by the
+     * filter, one partition is queried directly, and more partitions are queried as a
+     * <code>UNION ALL</code>, they are aliased by given alias or the table name, so the
+     * filter and projections are unchanged. The table is queried if it has no partitions.
+     *
+     * @param alias the quoted alias of table, or null for the table name
+     */
+    public String getTableExpression(Connection connection, String tableName, String alias,
+                                     String filter, Object... params) throws SQLException {
+        Quoter quoter = Databases.getQuoter();
+        String databaseProductName = connection.getMetaData().getDatabaseProductName();
+        String quotedTableName = quoter.quoteTableName(databaseProductName, tableName);
+        // The alias cannot be qualified by the schema
+        String tableAlias = alias == null ? quoter.quoteTableName(databaseProductName,
+                tableName.substring(tableName.lastIndexOf('.') + 1)) : alias;
+
+        List<String> partitionNames = listPartitions(connection, tableName);
+        if (partitionNames.isEmpty()) {
+            return alias == null ? quotedTableName : String.format("%s %s", quotedTableName, alias);
+        }
+
+        List<String> prunedPartitionNames = prune(partitionNames, filter, params);
+        if (prunedPartitionNames.isEmpty()) {
+            // No partitions matched, an empty relation with the columns of table is queried
+            return String.format("(SELECT * FROM %s WHERE 1 = 0) %s",
+                    quoter.quoteTableName(databaseProductName, partitionNames.get(0)), tableAlias);
+        } else if (prunedPartitionNames.size() == 1) {
+            return String.format("%s %s", quoter.quoteTableName(databaseProductName,
+                    prunedPartitionNames.get(0)), tableAlias);
+        }
+
+        String unionAll = prunedPartitionNames.stream()
+                .map(partitionName -> "SELECT * FROM " + quoter.quoteTableName(databaseProductName, partitionName))
+                .collect(Collectors.joining(" UNION ALL "));
+        return String.format("(%s) %s", unionAll, tableAlias);
+    }
+
+    /**
+     * Changes the time the partitions discovered are cached, zero for discovering the
+     * partitions for every query.
+     */
+    public static void setPartitionsTimeToLive(Duration timeToLive) {
+        Objects.requireNonNull(timeToLive, "The timeToLive cannot be null");
+        if (timeToLive.isNegative()) {
+            throw new IllegalArgumentException("The timeToLive cannot be negative");
+        }
+        partitionsTimeToLive = timeToLive.toNanos();
+    }
+
+    /**
+     * Discards the partitions discovered, it should be invoked after the partitions are
+     * created or dropped if they must be visible at once.
+     */
+    public static void invalidatePartitions() {
+        partitionsCache.clear();
+    }
+
+    /**
+     * Returns the partitions matching the range of partition column constrained by the filter,
+     * or all partitions if the filter is absent or unconstrained on the column.
+     *
+     * @param filter the WHERE clause, whose parameters are marked by '?'
+     */
+    public List<String> prune(List<String> partitionNames, String filter, Object... params) {
+        if (filter == null || filter.trim().isEmpty()) {
+            return partitionNames;
+        }
+
+        Expression where;
+        try {
+            where = CCJSqlParserUtil.parseCondExpression(filter);
+        } catch (JSQLParserException ex) {
+            // The filter out of the grammar of parser, such as vendor functions, is not pruned
+            return partitionNames;
+        }
+
+        List<JdbcParameter> parameters = new ArrayList<>();
+        where.accept(new ExpressionVisitorAdapter() {
+            @Override
+            public void visit(JdbcParameter parameter) {
+                parameters.add(parameter);
+            }
+        });
+
+        String[] range = new String[2];
+        collectRange(where, parameters, params == null ? new Object[0] : params, range);
+        if (range[0] == null && range[1] == null) {
+            return partitionNames;
+        }
+
+        return partitionNames.stream().filter(partitionName -> {
+            String key = partitionName.substring(partitionName.length() - interval.keyLength);
+            return (range[0] == null || key.compareTo(range[0]) >= 0)
+                    && (range[1] == null || key.compareTo(range[1]) <= 0);
+        }).collect(Collectors.toList());
+    }
+
+    private void collectRange(Expression expression, List<JdbcParameter> parameters, Object[] params, String[] range) {
+        if (expression instanceof Parenthesis) {
+            collectRange(((Parenthesis) expression).getExpression(), parameters, params, range);
+        } else if (expression instanceof AndExpression) {
+            collectRange(((AndExpression) expression).getLeftExpression(), parameters, params, range);
+            collectRange(((AndExpression) expression).getRightExpression(), parameters, params, range);
+        } else if (expression instanceof Between && !((Between) expression).isNot()) {
+            Between between = (Between) expression;
+            if (isPartitionColumn(between.getLeftExpression())) {
+                narrowLower(range, toKey(between.getBetweenExpressionStart(), parameters, params));
+                narrowUpper(range, toKey(between.getBetweenExpressionEnd(), parameters, params));
+            }
+        } else if (expression instanceof EqualsTo || expression instanceof GreaterThan
+                || expression instanceof GreaterThanEquals || expression instanceof MinorThan
+                || expression instanceof MinorThanEquals) {
+            BinaryExpression comparison = (BinaryExpression) expression;
+            boolean reversed = isPartitionColumn(comparison.getRightExpression());
+            if (!reversed && !isPartitionColumn(comparison.getLeftExpression())) {
+                return;
+            }
+
+            String key = toKey(reversed ? comparison.getLeftExpression() : comparison.getRightExpression(),
+                    parameters, params);
+            boolean lower = expression instanceof GreaterThan || expression instanceof GreaterThanEquals;
+            boolean upper = expression instanceof MinorThan || expression instanceof MinorThanEquals;
+            if (expression instanceof EqualsTo || (lower != reversed)) {
+                narrowLower(range, key);
+            }
+            if (expression instanceof EqualsTo || (upper != reversed)) {
+                narrowUpper(range, key);
+            }
+        }
+    }
+
+    private void narrowLower(String[] range, String key) {
+        if (key != null && (range[0] == null || key.compareTo(range[0]) > 0)) {
+            range[0] = key;
+        }
+    }
+
+    private void narrowUpper(String[] range, String key) {
+        if (key != null && (range[1] == null || key.compareTo(range[1]) < 0)) {
+            range[1] = key;
+        }
+    }
+
+    private boolean isPartitionColumn(Expression expression) {
+        return expression instanceof Column
+                && columnName.equalsIgnoreCase(((Column) expression).getColumnName().replaceAll("[`\"\\[\\]]", ""));
+    }
+
+    private String toKey(Expression expression, List<JdbcParameter> parameters, Object[] params) {
+        Object value = null;
+        if (expression instanceof JdbcParameter) {
+            JdbcParameter parameter = (JdbcParameter) expression;
+            int index = parameter.isUseFixedIndex() ? parameter.getIndex() - 1 : indexOf(parameters, parameter);
+            value = index >= 0 && index < params.length ? params[index] : null;
+        } else if (expression instanceof StringValue) {
+            value = ((StringValue) expression).getValue();
+        } else if (expression instanceof DateValue) {
+            value = ((DateValue) expression).getValue();
+        } else if (expression instanceof TimestampValue) {
+            value = ((TimestampValue) expression).getValue();
+        }
+
+        LocalDateTime dateTime = value == null ? null : toDateTime(value);
+        return dateTime == null ? null : interval.formatter.format(dateTime);
+    }
+
+    private int indexOf(List<JdbcParameter> parameters, JdbcParameter parameter) {
+        for (int i = 0; i < parameters.size(); i++) {
+            if (parameters.get(i) == parameter) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private String getSchema(Connection connection) throws SQLException {
+        try {
+            return connection.getSchema();
+        } catch (AbstractMethodError | SQLFeatureNotSupportedException ex) {
+            // The drivers before JDBC 4.1 do not know the schema of connection
+            return null;
+        }
+    }
+
+    private LocalDateTime toDateTime(Object time) {
+        if (time instanceof LocalDateTime) {
+            return (LocalDateTime) time;
+        } else if (time instanceof LocalDate) {
+            return ((LocalDate) time).atStartOfDay();
+        } else if (time instanceof Date) {
+            return new Timestamp(((Date) time).getTime()).toLocalDateTime();
+        } else if (time instanceof Instant) {
+            return LocalDateTime.ofInstant((Instant) time, ZoneId.systemDefault());
+        } else if (time instanceof OffsetDateTime) {
+            return ((OffsetDateTime) time).atZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+        } else if (time instanceof ZonedDateTime) {
+            return ((ZonedDateTime) time).withZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+        } else if (time instanceof String) {
+            String text = ((String) time).trim();
+            try {
+                return text.length() <= 10 ? LocalDate.parse(text).atStartOfDay()
+                        : LocalDateTime.parse(text.replace(' ', 'T'));
+            } catch (DateTimeParseException ex) {
+                return null;
+            }
+        }
+        return null;
+    }
+}
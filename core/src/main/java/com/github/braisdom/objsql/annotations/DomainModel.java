@@ -17,6 +17,7 @@
 package com.github.braisdom.objsql.annotations;
 
 import com.github.braisdom.objsql.ConnectionFactory;
+import com.github.braisdom.objsql.TimePartitioning;
 
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
@@ -125,4 +126,64 @@ public @interface DomainModel {
      * @since 1.3.6
      */
     boolean skipPrimaryValueOnInsert() default false;
+
+    /**
+     * Selects the columns mapped by the fields instead of '*' when querying the domain model
+     * and its relations, the unmapped columns of wide table, such as BLOB or JSON, will
+     * not be transferred. The raw attributes can still be queried by
+     * <code>Query.select("*")</code> or the customized projections.
+     *
+     * @see com.github.braisdom.objsql.DomainModelDescriptor#getColumns()
+     */
+    boolean explicitProjection() default false;
+
+    /**
+     * Caches the domain objects by primary key in the <code>EntityCache</code> installed,
+     * it should be enabled for the models which are read frequently and rarely changed.
+     *
+     * @see com.github.braisdom.objsql.cache.EntityCache
+     */
+    boolean cacheable() default false;
+
+    /**
+     * Replicates the whole table in memory and answers the lookups by primary key and
+     * <code>@Queryable</code> fields from the snapshot, it is designed for the small tables
+     * which are queried constantly, such as countries and currencies.
+     *
+     * @see com.github.braisdom.objsql.cache.ReplicatedTable
+     */
+    boolean replicated() default false;
+
+    /**
+     * Coalesces the concurrent lookups by primary key out of transaction into one
+     * <code>IN</code> query, it reduces the connections and statements of the models
+     * which are looked up by plenty of threads at the same time.
+     *
+     * @see com.github.braisdom.objsql.PrimaryKeyBatchLoader
+     */
+    boolean batchLoading() default false;
+
+    /**
+     * Defines the field whose value decides the shard of the domain object, the objects are
+     * written into the shard routed by the <code>ShardedConnectionFactory</code> installed,
+     * and the queries without the shard value are executed on all shards.
+     *
+     * @see com.github.braisdom.objsql.ShardedConnectionFactory
+     */
+    String shardKey() default "";
+
+    /**
+     * Defines the time field partitioning the table, the domain objects are inserted into the
+     * physical tables named by the table name and the period of the time, such as
+     * <code>events_202610</code>, and the queries are pruned to the partitions matching the
+     * filter on the field.
+     *
+     * @see com.github.braisdom.objsql.TimePartitioning
+     */
+    String partitionField() default "";
+
+    /**
+     * Defines the period of each partition.
+     */
+    TimePartitioning.Interval partitionInterval() default TimePartitioning.Interval.MONTH;
 }
@@ -26,7 +26,7 @@ import java.lang.annotation.Target;
  * when the annotation assigned for a Java field
  */
 @Target({ElementType.FIELD})
-@Retention(RetentionPolicy.SOURCE)
+@Retention(RetentionPolicy.RUNTIME)
 public @interface Queryable {
 
     /**
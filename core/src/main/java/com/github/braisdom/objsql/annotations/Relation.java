@@ -93,4 +93,25 @@ public @interface Relation {
     String foreignFieldName() default "";
 
     String condition() default "";
+
+    /**
+     * Returns the maximum count of related rows for each base row, it applies in
+     * HAS_MANY and HAS_ONE, and a negative value means no limit.<br/>
+     *
+     * The rows will be ranked by <code>orderBy</code> in each base row, for example:
+     * the latest 5 orders for each member.
+     *
+     * @return
+     * @since 1.4.3
+     */
+    int limit() default -1;
+
+    /**
+     * Returns the ORDER BY clause for related rows, it decides which rows
+     * will be kept when the <code>limit</code> given.
+     *
+     * @return
+     * @since 1.4.3
+     */
+    String orderBy() default "";
 }
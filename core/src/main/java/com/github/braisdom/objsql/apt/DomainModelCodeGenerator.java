@@ -108,19 +108,12 @@ public class DomainModelCodeGenerator extends DomainModelProcessor {
     }
 
     private JCMethodDecl createQueryByPrimaryKeyMethod(DomainModel domainModel, JCVariableDecl primaryField, APTBuilder aptBuilder) {
-        TreeMaker treeMaker = aptBuilder.getTreeMaker();
         MethodBuilder methodBuilder = aptBuilder.createMethodBuilder();
-        StatementBuilder statementBuilder = aptBuilder.createStatementBuilder();
-
-        statementBuilder.append(aptBuilder.newGenericsType(Query.class,
-                aptBuilder.getClassName()), "query", "createQuery");
-        statementBuilder.append("query", "where",
-                List.of(treeMaker.Literal(String.format("%s = ?", domainModel.primaryColumnName())), aptBuilder.varRef("primaryKey")));
 
-        methodBuilder.setReturnStatement("query", "queryFirst",
+        methodBuilder.setReturnStatement(Tables.class, "queryByPrimaryKey",
+                aptBuilder.classRef(aptBuilder.getClassName()), aptBuilder.varRef("primaryKey"),
                 aptBuilder.varRef("relationships"));
         return methodBuilder
-                .addStatements(statementBuilder.build())
                 .addParameter("primaryKey", primaryField.vartype)
                 .addVarargsParameter("relationships", aptBuilder.typeRef(Relationship.class))
                 .setThrowsClauses(SQLException.class)
@@ -623,16 +616,15 @@ public class DomainModelCodeGenerator extends DomainModelProcessor {
         TreeMaker treeMaker = aptBuilder.getTreeMaker();
         JCExpression rawAttributesType = treeMaker.TypeApply(aptBuilder.typeRef(Map.class),
                 List.of(aptBuilder.typeRef(String.class), aptBuilder.typeRef(Object.class)));
-        JCExpression rawAttributesInit = treeMaker.NewClass(null, List.nil(), aptBuilder.typeRef(HashMap.class.getName()),
-                List.nil(), null);
-        JCModifiers modifiers = treeMaker.Modifiers(Flags.PRIVATE | Flags.FINAL);
+        JCModifiers modifiers = treeMaker.Modifiers(Flags.PRIVATE);
         modifiers.annotations = modifiers.annotations.append(treeMaker.Annotation(aptBuilder.typeRef(Transient.class), List.nil()));
 
-        aptBuilder.inject(treeMaker.VarDef(modifiers, aptBuilder.toName("rawAttributes"), rawAttributesType, rawAttributesInit));
+        // The raw attributes are allocated when an unmapped column appears
+        aptBuilder.inject(treeMaker.VarDef(modifiers, aptBuilder.toName("rawAttributes"), rawAttributesType, null));
 
         MethodBuilder getRawAttributeMethodBuilder = aptBuilder.createMethodBuilder();
-        JCReturn getRawAttributeReturn = treeMaker.Return(aptBuilder
-                .methodCall("rawAttributes", "get", aptBuilder.varRef("name")));
+        JCReturn getRawAttributeReturn = treeMaker.Return(treeMaker.Conditional(createRawAttributesAbsent(aptBuilder),
+                treeMaker.Literal(TypeTag.BOT, null), aptBuilder.methodCall("rawAttributes", "get", aptBuilder.varRef("name"))));
         aptBuilder.inject(getRawAttributeMethodBuilder
                 .addStatement(getRawAttributeReturn)
                 .addParameter("name", String.class)
@@ -643,6 +635,7 @@ public class DomainModelCodeGenerator extends DomainModelProcessor {
         JCExpression setRawAttributeExpression = aptBuilder.methodCall("rawAttributes", "put",
                 aptBuilder.varRef("name"), aptBuilder.varRef("value"));
         aptBuilder.inject(setRawAttributeMethodBuilder
+                .addStatement(createRawAttributesAllocation(aptBuilder))
                 .addStatement(treeMaker.Exec(setRawAttributeExpression))
                 .addParameter("name", String.class)
                 .addParameter("value", Object.class)
@@ -651,11 +644,25 @@ public class DomainModelCodeGenerator extends DomainModelProcessor {
         MethodBuilder getRawAttributesMethodBuilder = aptBuilder.createMethodBuilder();
         JCReturn getRawAttributesReturn = treeMaker.Return(aptBuilder.varRef("rawAttributes"));
         aptBuilder.inject(getRawAttributesMethodBuilder
+                .addStatement(createRawAttributesAllocation(aptBuilder))
                 .addStatement(getRawAttributesReturn)
                 .setReturnType(aptBuilder.newGenericsType(Map.class, String.class, Object.class))
                 .build("getRawAttributes", Flags.PUBLIC | Flags.FINAL));
     }
 
+    private JCExpression createRawAttributesAbsent(APTBuilder aptBuilder) {
+        TreeMaker treeMaker = aptBuilder.getTreeMaker();
+        return treeMaker.Binary(JCTree.Tag.EQ, aptBuilder.varRef("rawAttributes"), treeMaker.Literal(TypeTag.BOT, null));
+    }
+
+    private JCStatement createRawAttributesAllocation(APTBuilder aptBuilder) {
+        TreeMaker treeMaker = aptBuilder.getTreeMaker();
+        JCExpression rawAttributesInit = treeMaker.NewClass(null, List.nil(), aptBuilder.typeRef(HashMap.class.getName()),
+                List.nil(), null);
+        return treeMaker.If(createRawAttributesAbsent(aptBuilder),
+                treeMaker.Exec(treeMaker.Assign(aptBuilder.varRef("rawAttributes"), rawAttributesInit)), null);
+    }
+
     private void handleInnerTableClass(APTBuilder aptBuilder) {
         JCClassDecl classDecl = aptBuilder.classDef(Flags.PUBLIC | Flags.FINAL | Flags.STATIC,
                 "Table", AbstractTable.class);
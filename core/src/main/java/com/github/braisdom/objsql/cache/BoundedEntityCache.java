@@ -0,0 +1,339 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql.cache;
+
+import com.github.braisdom.objsql.relation.AggregateProcessor;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The built-in <code>EntityCache</code> bounded by the number of objects, the lookups
+ * are lock-free and the eviction policy is maintained under a lock. The accesses are
+ * recorded only if the lock is free, so the policy approximates the access order under
+ * contention rather than blocking the readers.
+ *
+ * The versions of primary values are striped, an invalidation advances the version of
+ * its stripe, or all versions if the whole model is invalidated, so the objects queried
+ * before will not be put.
+ * <pre>
+ *     BoundedEntityCache entityCache = new BoundedEntityCache(10000, Eviction.TINY_LFU, 10, TimeUnit.MINUTES)
+ *             .setTimeToLive(Country.class, 1, TimeUnit.HOURS)
+ *             .cacheAbsent(30, TimeUnit.SECONDS);
+ *     Databases.installEntityCache(entityCache);
+ * </pre>
+ */
+public class BoundedEntityCache implements EntityCache {
+
+    private static final int VERSION_STRIPES = 64;
+    private static final long ANY_VERSION = -1;
+
+    private final int maximumSize;
+    private final long timeToLiveNanos;
+    private final Map<Class, Long> modelTimeToLiveNanos = new ConcurrentHashMap<>();
+    private final Map<Class, Map<Object, Entry>> entries = new ConcurrentHashMap<>();
+    private final EvictionPolicy<Key> evictionPolicy;
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+    private final AtomicLong invalidationEpoch = new AtomicLong();
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    private volatile long absentTimeToLiveNanos;
+
+    public BoundedEntityCache(int maximumSize, long timeToLive, TimeUnit timeUnit) {
+        this(maximumSize, Eviction.TINY_LFU, timeToLive, timeUnit);
+    }
+
+    public BoundedEntityCache(int maximumSize, Eviction eviction, long timeToLive, TimeUnit timeUnit) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("The maximumSize must be positive");
+        }
+        Objects.requireNonNull(eviction, "The eviction cannot be null");
+        Objects.requireNonNull(timeUnit, "The timeUnit cannot be null");
+
+        this.maximumSize = maximumSize;
+        this.timeToLiveNanos = timeUnit.toNanos(timeToLive);
+        this.evictionPolicy = EvictionPolicy.create(eviction, maximumSize);
+    }
+
+    /**
+     * Overrides the time to live for the objects of given domain model.
+     */
+    public BoundedEntityCache setTimeToLive(Class domainModelClass, long timeToLive, TimeUnit timeUnit) {
+        Objects.requireNonNull(domainModelClass, "The domainModelClass cannot be null");
+        Objects.requireNonNull(timeUnit, "The timeUnit cannot be null");
+
+        modelTimeToLiveNanos.put(domainModelClass, timeUnit.toNanos(timeToLive));
+        return this;
+    }
+
+    /**
+     * Caches the primary values absent in the database for given time, so the repeated
+     * lookups of missing objects will not hit the database. It is disabled by default.
+     */
+    public BoundedEntityCache cacheAbsent(long timeToLive, TimeUnit timeUnit) {
+        Objects.requireNonNull(timeUnit, "The timeUnit cannot be null");
+
+        this.absentTimeToLiveNanos = timeUnit.toNanos(timeToLive);
+        return this;
+    }
+
+    @Override
+    public Object get(Class domainModelClass, Object primaryValue) {
+        Map<Object, Entry> modelEntries = entries.get(domainModelClass);
+        if (modelEntries == null || primaryValue == null) {
+            missCount.increment();
+            return null;
+        }
+
+        Object normalizedKey = AggregateProcessor.normalizeKey(primaryValue);
+        Entry entry = modelEntries.get(normalizedKey);
+        if (entry == null) {
+            missCount.increment();
+            return null;
+        }
+
+        if (entry.isExpired(System.nanoTime())) {
+            removeEntry(domainModelClass, normalizedKey, entry);
+            missCount.increment();
+            return null;
+        }
+
+        hitCount.increment();
+        if (evictionLock.tryLock()) {
+            try {
+                evictionPolicy.recordAccess(new Key(domainModelClass, normalizedKey));
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+        return entry.value;
+    }
+
+    @Override
+    public void put(Class domainModelClass, Object primaryValue, Object domainObject) {
+        Objects.requireNonNull(domainModelClass, "The domainModelClass cannot be null");
+        Objects.requireNonNull(primaryValue, "The primaryValue cannot be null");
+        Objects.requireNonNull(domainObject, "The domainObject cannot be null");
+
+        put(domainModelClass, primaryValue, domainObject, ANY_VERSION);
+    }
+
+    @Override
+    public void put(Class domainModelClass, Object primaryValue, Object domainObject, long version) {
+        Objects.requireNonNull(domainModelClass, "The domainModelClass cannot be null");
+        Objects.requireNonNull(primaryValue, "The primaryValue cannot be null");
+        Objects.requireNonNull(domainObject, "The domainObject cannot be null");
+
+        long ttlNanos = modelTimeToLiveNanos.getOrDefault(domainModelClass, timeToLiveNanos);
+        putEntry(domainModelClass, primaryValue, domainObject, ttlNanos, version);
+    }
+
+    @Override
+    public void putAbsent(Class domainModelClass, Object primaryValue) {
+        putAbsent(domainModelClass, primaryValue, ANY_VERSION);
+    }
+
+    @Override
+    public void putAbsent(Class domainModelClass, Object primaryValue, long version) {
+        Objects.requireNonNull(domainModelClass, "The domainModelClass cannot be null");
+        Objects.requireNonNull(primaryValue, "The primaryValue cannot be null");
+
+        long ttlNanos = absentTimeToLiveNanos;
+        if (ttlNanos > 0) {
+            putEntry(domainModelClass, primaryValue, ABSENT, ttlNanos, version);
+        }
+    }
+
+    @Override
+    public long getVersion(Class domainModelClass, Object primaryValue) {
+        Object normalizedKey = AggregateProcessor.normalizeKey(primaryValue);
+        return invalidationEpoch.get() + versions.get(versionStripe(domainModelClass, normalizedKey));
+    }
+
+    @Override
+    public void invalidate(Class domainModelClass, Object primaryValue) {
+        if (primaryValue == null) {
+            return;
+        }
+
+        Object normalizedKey = AggregateProcessor.normalizeKey(primaryValue);
+        versions.incrementAndGet(versionStripe(domainModelClass, normalizedKey));
+        if (entries.containsKey(domainModelClass)) {
+            removeEntry(domainModelClass, normalizedKey, null);
+        }
+    }
+
+    @Override
+    public void invalidate(Class domainModelClass) {
+        invalidationEpoch.incrementAndGet();
+        evictionLock.lock();
+        try {
+            Map<Object, Entry> modelEntries = entries.remove(domainModelClass);
+            if (modelEntries == null) {
+                return;
+            }
+            for (Object normalizedKey : modelEntries.keySet()) {
+                evictionPolicy.remove(new Key(domainModelClass, normalizedKey));
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        invalidationEpoch.incrementAndGet();
+        evictionLock.lock();
+        try {
+            entries.clear();
+            evictionPolicy.clear();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Map<Object, Entry> modelEntries : entries.values()) {
+            size += modelEntries.size();
+        }
+        return size;
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * Puts the entry if the version is not changed, the version is checked under the lock,
+     * so an invalidation advanced the version afterwards will remove the entry put.
+     */
+    private void putEntry(Class domainModelClass, Object primaryValue, Object value, long ttlNanos, long version) {
+        Object normalizedKey = AggregateProcessor.normalizeKey(primaryValue);
+        Entry entry = new Entry(value, System.nanoTime() + ttlNanos);
+
+        evictionLock.lock();
+        try {
+            if (version != ANY_VERSION && getVersion(domainModelClass, normalizedKey) != version) {
+                return;
+            }
+            entries.computeIfAbsent(domainModelClass, clazz -> new ConcurrentHashMap<>())
+                    .put(normalizedKey, entry);
+
+            List<Key> evictedKeys = evictionPolicy.admit(new Key(domainModelClass, normalizedKey));
+            for (Key evictedKey : evictedKeys) {
+                Map<Object, Entry> modelEntries = entries.get(evictedKey.domainModelClass);
+                if (modelEntries != null && modelEntries.remove(evictedKey.primaryValue) != null) {
+                    evictionCount.increment();
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Removes the entry and its key in eviction policy, the entry will be removed only
+     * if it is still the expected one, or unconditionally if the expected is null.
+     */
+    private void removeEntry(Class domainModelClass, Object normalizedKey, Entry expectedEntry) {
+        evictionLock.lock();
+        try {
+            Map<Object, Entry> modelEntries = entries.get(domainModelClass);
+            if (modelEntries == null) {
+                return;
+            }
+
+            boolean removed = expectedEntry == null ? modelEntries.remove(normalizedKey) != null
+                    : modelEntries.remove(normalizedKey, expectedEntry);
+            if (removed) {
+                evictionPolicy.remove(new Key(domainModelClass, normalizedKey));
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private int versionStripe(Class domainModelClass, Object normalizedKey) {
+        int hash = 31 * domainModelClass.hashCode() + Objects.hashCode(normalizedKey);
+        return (hash ^ (hash >>> 16)) & (VERSION_STRIPES - 1);
+    }
+
+    private static class Key {
+        private final Class domainModelClass;
+        private final Object primaryValue;
+
+        private Key(Class domainModelClass, Object primaryValue) {
+            this.domainModelClass = domainModelClass;
+            this.primaryValue = primaryValue;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return domainModelClass.equals(key.domainModelClass) && primaryValue.equals(key.primaryValue);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * domainModelClass.hashCode() + primaryValue.hashCode();
+        }
+    }
+
+    private static class Entry {
+        private final Object value;
+        private final long expiresAt;
+
+        private Entry(Object value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now - expiresAt > 0;
+        }
+    }
+}
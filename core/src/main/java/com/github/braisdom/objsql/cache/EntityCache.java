@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql.cache;
+
+/**
+ * The second-level cache of domain objects keyed by primary value, which is shared
+ * across transactions and threads. The domain models are cached only if they are annotated
+ * with <code>@DomainModel(cacheable = true)</code>, and the cache takes effect once installed:
+ * <pre>
+ *     Databases.installEntityCache(new BoundedEntityCache(10000, 10, TimeUnit.MINUTES));
+ * </pre>
+ *
+ * The lookups by primary key and the BELONGS_TO relations read through the cache,
+ * and the objects written by <code>DefaultPersistence</code> will be invalidated.
+ * The objects are copied by the callers when cached and loaded, so the implementation
+ * can keep the objects as they are.
+ *
+ * @see com.github.braisdom.objsql.Databases#installEntityCache(EntityCache)
+ * @see com.github.braisdom.objsql.Tables#queryByPrimaryKey(Class, Object, com.github.braisdom.objsql.relation.Relationship...)
+ */
+public interface EntityCache {
+
+    /**
+     * The marker returned by <code>get</code> if the primary value is known as absent
+     * in the database.
+     */
+    Object ABSENT = new Object();
+
+    /**
+     * Returns the cached object, <code>ABSENT</code> if the object is known as absent,
+     * or null if the object is not cached.
+     */
+    Object get(Class domainModelClass, Object primaryValue);
+
+    void put(Class domainModelClass, Object primaryValue, Object domainObject);
+
+    /**
+     * Records the primary value absent in the database, the implementation which does
+     * not cache the negative results can ignore it.
+     */
+    void putAbsent(Class domainModelClass, Object primaryValue);
+
+    /**
+     * Returns the version of primary value, which changes once the object is invalidated.
+     * The version taken before querying the database is passed to <code>put</code>, so an
+     * object read before a concurrent write will not be cached after the invalidation.
+     */
+    default long getVersion(Class domainModelClass, Object primaryValue) {
+        return 0;
+    }
+
+    /**
+     * Caches the object only if the version of primary value is still the given one.
+     */
+    default void put(Class domainModelClass, Object primaryValue, Object domainObject, long version) {
+        put(domainModelClass, primaryValue, domainObject);
+    }
+
+    /**
+     * Records the primary value absent only if its version is still the given one.
+     */
+    default void putAbsent(Class domainModelClass, Object primaryValue, long version) {
+        putAbsent(domainModelClass, primaryValue);
+    }
+
+    void invalidate(Class domainModelClass, Object primaryValue);
+
+    void invalidate(Class domainModelClass);
+
+    void clear();
+}
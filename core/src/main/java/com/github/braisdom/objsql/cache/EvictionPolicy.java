@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Decides the keys to be evicted when a bounded cache is full, it is not thread-safe
+ * and should be guarded by the lock of cache.
+ */
+abstract class EvictionPolicy<K> {
+
+    /**
+     * Records the key written into the cache and returns the keys evicted.
+     */
+    abstract List<K> admit(K key);
+
+    abstract void recordAccess(K key);
+
+    abstract void remove(K key);
+
+    abstract void clear();
+
+    static <K> EvictionPolicy<K> create(Eviction eviction, int maximumSize) {
+        if (eviction == Eviction.TINY_LFU && maximumSize > 1) {
+            return new TinyLfuPolicy<>(maximumSize);
+        }
+        return new LruPolicy<>(maximumSize);
+    }
+
+    private static <K> LinkedHashMap<K, Boolean> createAccessOrder() {
+        return new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    private static <K> K removeEldest(LinkedHashMap<K, Boolean> accessOrder) {
+        Iterator<K> iterator = accessOrder.keySet().iterator();
+        K eldest = iterator.next();
+        iterator.remove();
+        return eldest;
+    }
+
+    /**
+     * Evicts the least recently used key.
+     */
+    static class LruPolicy<K> extends EvictionPolicy<K> {
+
+        private final int maximumSize;
+        private final LinkedHashMap<K, Boolean> accessOrder = createAccessOrder();
+
+        LruPolicy(int maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+
+        @Override
+        List<K> admit(K key) {
+            accessOrder.put(key, Boolean.TRUE);
+            if (accessOrder.size() <= maximumSize) {
+                return Collections.emptyList();
+            }
+
+            List<K> evictedKeys = new ArrayList<>();
+            while (accessOrder.size() > maximumSize) {
+                evictedKeys.add(removeEldest(accessOrder));
+            }
+            return evictedKeys;
+        }
+
+        @Override
+        void recordAccess(K key) {
+            accessOrder.get(key);
+        }
+
+        @Override
+        void remove(K key) {
+            accessOrder.remove(key);
+        }
+
+        @Override
+        void clear() {
+            accessOrder.clear();
+        }
+    }
+
+    /**
+     * The W-TinyLFU policy, a new key enters a small LRU window first, and the key leaving
+     * the window is admitted into the main space only if it is more frequently used than
+     * the least recently used key of main space. So the keys scanned once, such as a bulk
+     * query of cold rows, cannot flush the hot keys.
+     */
+    static class TinyLfuPolicy<K> extends EvictionPolicy<K> {
+
+        private final int windowSize;
+        private final int mainSize;
+        private final FrequencySketch sketch;
+        private final LinkedHashMap<K, Boolean> window = createAccessOrder();
+        private final LinkedHashMap<K, Boolean> main = createAccessOrder();
+
+        TinyLfuPolicy(int maximumSize) {
+            this.windowSize = Math.max(1, maximumSize / 100);
+            this.mainSize = maximumSize - windowSize;
+            this.sketch = new FrequencySketch(maximumSize);
+        }
+
+        @Override
+        List<K> admit(K key) {
+            sketch.increment(key);
+            if (window.get(key) != null || main.get(key) != null) {
+                return Collections.emptyList();
+            }
+
+            window.put(key, Boolean.TRUE);
+            if (window.size() <= windowSize) {
+                return Collections.emptyList();
+            }
+
+            List<K> evictedKeys = new ArrayList<>();
+            while (window.size() > windowSize) {
+                K candidate = removeEldest(window);
+                if (main.size() < mainSize) {
+                    main.put(candidate, Boolean.TRUE);
+                    continue;
+                }
+
+                K victim = main.keySet().iterator().next();
+                if (sketch.frequency(candidate) > sketch.frequency(victim)) {
+                    main.remove(victim);
+                    main.put(candidate, Boolean.TRUE);
+                    evictedKeys.add(victim);
+                } else {
+                    evictedKeys.add(candidate);
+                }
+            }
+            return evictedKeys;
+        }
+
+        @Override
+        void recordAccess(K key) {
+            sketch.increment(key);
+            if (window.get(key) == null) {
+                main.get(key);
+            }
+        }
+
+        @Override
+        void remove(K key) {
+            if (window.remove(key) == null) {
+                main.remove(key);
+            }
+        }
+
+        @Override
+        void clear() {
+            window.clear();
+            main.clear();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql.cache;
+
+/**
+ * A count-min sketch which estimates the access frequency of keys with small counters,
+ * the counters are halved periodically so that the history fades out. Only the minimal
+ * counters of a key are incremented, which reduces the overestimation by collisions.
+ */
+final class FrequencySketch {
+
+    private static final int DEPTH = 4;
+    private static final int MAXIMUM_FREQUENCY = 15;
+    private static final int COUNTERS_PER_ENTRY = 8;
+    private static final int MAXIMUM_WIDTH = 1 << 24;
+    private static final int[] SEEDS = {0x97cb3127, 0xc3a5c85c, 0xb492b66f, 0x9ae16a3b};
+
+    private final byte[][] counters;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(int maximumSize) {
+        int capacity = Math.min(MAXIMUM_WIDTH / COUNTERS_PER_ENTRY, Math.max(16, maximumSize));
+        int width = (Integer.highestOneBit(capacity - 1) << 1) * COUNTERS_PER_ENTRY;
+
+        this.counters = new byte[DEPTH][width];
+        this.mask = width - 1;
+        this.sampleSize = 10 * Math.max(16, maximumSize);
+    }
+
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int frequency = MAXIMUM_FREQUENCY;
+        for (int i = 0; i < DEPTH; i++) {
+            frequency = Math.min(frequency, counters[i][indexOf(hash, i)]);
+        }
+        return frequency;
+    }
+
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        int frequency = MAXIMUM_FREQUENCY;
+        for (int i = 0; i < DEPTH; i++) {
+            frequency = Math.min(frequency, counters[i][indexOf(hash, i)]);
+        }
+
+        if (frequency == MAXIMUM_FREQUENCY) {
+            return;
+        }
+        for (int i = 0; i < DEPTH; i++) {
+            int index = indexOf(hash, i);
+            if (counters[i][index] == frequency) {
+                counters[i][index]++;
+            }
+        }
+
+        if (++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    private void reset() {
+        for (byte[] row : counters) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] = (byte) (row[i] >>> 1);
+            }
+        }
+        additions /= 2;
+    }
+
+    private int indexOf(int hash, int depth) {
+        int h = (hash ^ SEEDS[depth]) * 0x9e3779b9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private static int spread(int hash) {
+        int h = hash * 0x45d9f3b;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,375 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql.cache;
+
+import com.github.braisdom.objsql.DatabaseType;
+import com.github.braisdom.objsql.Databases;
+import com.github.braisdom.objsql.DomainModelDescriptor;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.statement.Statement;
+import net.sf.jsqlparser.util.TablesNamesFinder;
+
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The bounded cache of query results keyed by the SQL, parameters, data source and the
+ * result class, which is used by the queries marked as cached:
+ * <pre>
+ *     List&lt;Country&gt; countries = Country.createQuery()
+ *             .where("region = ?", "EU")
+ *             .cached(Duration.ofMinutes(5))
+ *             .execute();
+ * </pre>
+ *
+ * Each entry records the tables touched by the SQL, including the tables of subqueries,
+ * and it will be invalidated when the tables are written by <code>DefaultPersistence</code>.
+ * The cache is bypassed in transaction, and the cached rows are shared among threads,
+ * so they should be treated as read-only.
+ *
+ * @see Databases#installQueryCache(QueryCache)
+ */
+public class QueryCache {
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 1024;
+
+    private static final long ANY_GENERATION = -1;
+
+    /**
+     * Renders the SQL for the database, the SQL is rendered before connecting to the
+     * database if the database type of data source is known.
+     */
+    @FunctionalInterface
+    public interface SQLRenderer {
+        String render(DatabaseType databaseType) throws SQLException;
+    }
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Set<Key>> tableKeys = new HashMap<>();
+    private final Map<String, Long> tableGenerations = new HashMap<>();
+    private final Map<String, DatabaseType> databaseTypes = new ConcurrentHashMap<>();
+    private final EvictionPolicy<Key> evictionPolicy;
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    private long clearGeneration;
+
+    public QueryCache() {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    public QueryCache(int maximumSize) {
+        this(maximumSize, Eviction.TINY_LFU);
+    }
+
+    public QueryCache(int maximumSize, Eviction eviction) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("The maximumSize must be positive");
+        }
+        Objects.requireNonNull(eviction, "The eviction cannot be null");
+
+        this.evictionPolicy = EvictionPolicy.create(eviction, maximumSize);
+    }
+
+    /**
+     * Returns the cached rows, or queries the rows and caches them for given duration.
+     *
+     * @param tableNames the tables known as touched, the tables parsed from SQL will be added
+     */
+    public <T> List<T> execute(String dataSourceName, DomainModelDescriptor<T> domainModelDescriptor,
+                               SQLRenderer sqlRenderer, Object[] params, Set<String> tableNames,
+                               Duration timeToLive) throws SQLException {
+        Objects.requireNonNull(dataSourceName, "The dataSourceName cannot be null");
+        Objects.requireNonNull(timeToLive, "The timeToLive cannot be null");
+
+        Class resultClass = domainModelDescriptor.getDomainModelClass();
+        DatabaseType knownDatabaseType = databaseTypes.get(dataSourceName);
+        String checkedSQL = knownDatabaseType == null ? null : sqlRenderer.render(knownDatabaseType);
+        if (checkedSQL != null) {
+            List<T> rows = get(dataSourceName, resultClass, checkedSQL, params);
+            if (rows != null) {
+                return rows;
+            }
+        }
+
+        return Databases.executeReadOnly(dataSourceName, (connection, sqlExecutor) -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            DatabaseType databaseType = DatabaseType.create(metaData.getDatabaseProductName(),
+                    metaData.getDatabaseMajorVersion());
+            databaseTypes.put(dataSourceName, databaseType);
+
+            String sql = sqlRenderer.render(databaseType);
+            if (!sql.equals(checkedSQL)) {
+                List<T> cachedRows = get(dataSourceName, resultClass, sql, params);
+                if (cachedRows != null) {
+                    return cachedRows;
+                }
+            }
+
+            Set<String> touchedTableNames = new HashSet<>(tableNames);
+            boolean cacheable = parseTableNames(sql, touchedTableNames) || !tableNames.isEmpty();
+            long generation = getGeneration(touchedTableNames);
+
+            List rows = sqlExecutor.query(connection, sql, domainModelDescriptor, params);
+            if (cacheable) {
+                put(dataSourceName, resultClass, sql, params, rows, touchedTableNames, timeToLive, generation);
+            }
+            return (List<T>) rows;
+        });
+    }
+
+    /**
+     * Returns a copy of the cached rows, or null if absent or expired.
+     */
+    public <T> List<T> get(String dataSourceName, Class resultClass, String sql, Object[] params) {
+        Key key = new Key(dataSourceName, resultClass, sql, params);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            missCount.increment();
+            return null;
+        }
+
+        if (System.nanoTime() - entry.expiresAt > 0) {
+            evictionLock.lock();
+            try {
+                if (entries.remove(key, entry)) {
+                    evictionPolicy.remove(key);
+                    unindex(key, entry);
+                }
+            } finally {
+                evictionLock.unlock();
+            }
+            missCount.increment();
+            return null;
+        }
+
+        hitCount.increment();
+        if (evictionLock.tryLock()) {
+            try {
+                evictionPolicy.recordAccess(key);
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+        return new ArrayList<>((List<T>) entry.rows);
+    }
+
+    public void put(String dataSourceName, Class resultClass, String sql, Object[] params,
+                    List<?> rows, Set<String> tableNames, Duration timeToLive) {
+        put(dataSourceName, resultClass, sql, params, rows, tableNames, timeToLive, ANY_GENERATION);
+    }
+
+    /**
+     * Caches the rows only if the generation of tables is still the given one, so the rows
+     * queried before the tables written will not be cached after the invalidation.
+     *
+     * @see #getGeneration(Set)
+     */
+    public void put(String dataSourceName, Class resultClass, String sql, Object[] params,
+                    List<?> rows, Set<String> tableNames, Duration timeToLive, long generation) {
+        Key key = new Key(dataSourceName, resultClass, sql, params);
+        Set<String> normalizedTableNames = new HashSet<>();
+        for (String tableName : tableNames) {
+            normalizedTableNames.add(normalizeTableName(tableName));
+        }
+        Entry entry = new Entry(new ArrayList<>(rows), normalizedTableNames,
+                System.nanoTime() + timeToLive.toNanos());
+
+        evictionLock.lock();
+        try {
+            if (generation != ANY_GENERATION && getGeneration(tableNames) != generation) {
+                return;
+            }
+            Entry previousEntry = entries.put(key, entry);
+            if (previousEntry != null) {
+                unindex(key, previousEntry);
+            }
+            for (String tableName : normalizedTableNames) {
+                tableKeys.computeIfAbsent(tableName, name -> new HashSet<>()).add(key);
+            }
+
+            for (Key evictedKey : evictionPolicy.admit(key)) {
+                Entry evictedEntry = entries.remove(evictedKey);
+                if (evictedEntry != null) {
+                    unindex(evictedKey, evictedEntry);
+                    evictionCount.increment();
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the generation of the tables, which changes once any of the tables is
+     * invalidated. The generation taken before querying is passed to <code>put</code>.
+     */
+    public long getGeneration(Set<String> tableNames) {
+        evictionLock.lock();
+        try {
+            long generation = clearGeneration;
+            for (String tableName : tableNames) {
+                generation += tableGenerations.getOrDefault(normalizeTableName(tableName), 0L);
+            }
+            return generation;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Invalidates the results which touched the table.
+     */
+    public void invalidateTable(String tableName) {
+        evictionLock.lock();
+        try {
+            String normalizedTableName = normalizeTableName(tableName);
+            tableGenerations.merge(normalizedTableName, 1L, Long::sum);
+            Set<Key> keys = tableKeys.remove(normalizedTableName);
+            if (keys == null) {
+                return;
+            }
+            for (Key key : keys) {
+                Entry entry = entries.remove(key);
+                if (entry != null) {
+                    evictionPolicy.remove(key);
+                    unindex(key, entry);
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public void clear() {
+        evictionLock.lock();
+        try {
+            clearGeneration++;
+            entries.clear();
+            tableKeys.clear();
+            evictionPolicy.clear();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    /**
+     * Adds the tables touched by the SQL, returns false if the SQL cannot be parsed.
+     */
+    protected boolean parseTableNames(String sql, Set<String> tableNames) {
+        try {
+            Statement statement = CCJSqlParserUtil.parse(sql);
+            tableNames.addAll(new TablesNamesFinder().getTableList(statement));
+            return true;
+        } catch (JSQLParserException | UnsupportedOperationException ex) {
+            return false;
+        }
+    }
+
+    private void unindex(Key key, Entry entry) {
+        for (String tableName : entry.tableNames) {
+            Set<Key> keys = tableKeys.get(tableName);
+            if (keys != null) {
+                keys.remove(key);
+                if (keys.isEmpty()) {
+                    tableKeys.remove(tableName);
+                }
+            }
+        }
+    }
+
+    /**
+     * Strips the quotes and schema of table name, so the quoted and unquoted names
+     * of a table are the same.
+     */
+    private static String normalizeTableName(String tableName) {
+        String unquotedName = tableName.replaceAll("[`\"\\[\\]]", "");
+        int schemaIndex = unquotedName.lastIndexOf('.');
+        return unquotedName.substring(schemaIndex + 1).toLowerCase(Locale.ROOT);
+    }
+
+    private static class Key {
+        private final String dataSourceName;
+        private final Class resultClass;
+        private final String sql;
+        private final Object[] params;
+        private final int hashCode;
+
+        private Key(String dataSourceName, Class resultClass, String sql, Object[] params) {
+            this.dataSourceName = dataSourceName;
+            this.resultClass = resultClass;
+            this.sql = sql;
+            this.params = params == null ? new Object[0] : params;
+            this.hashCode = Objects.hash(dataSourceName, resultClass, sql, Arrays.deepHashCode(this.params));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return dataSourceName.equals(key.dataSourceName) && Objects.equals(resultClass, key.resultClass)
+                    && sql.equals(key.sql) && Arrays.deepEquals(params, key.params);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private static class Entry {
+        private final List<?> rows;
+        private final Set<String> tableNames;
+        private final long expiresAt;
+
+        private Entry(List<?> rows, Set<String> tableNames, long expiresAt) {
+            this.rows = rows;
+            this.tableNames = tableNames;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,318 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql.cache;
+
+import com.github.braisdom.objsql.BeanModelDescriptor;
+import com.github.braisdom.objsql.Databases;
+import com.github.braisdom.objsql.MapRowAdapter;
+import com.github.braisdom.objsql.Quoter;
+import com.github.braisdom.objsql.TableRowAdapter;
+import com.github.braisdom.objsql.Tables;
+import com.github.braisdom.objsql.annotations.DomainModel;
+import com.github.braisdom.objsql.annotations.PrimaryKey;
+import com.github.braisdom.objsql.annotations.Queryable;
+import com.github.braisdom.objsql.reflection.PropertyAccessor;
+import com.github.braisdom.objsql.relation.AggregateProcessor;
+import com.github.braisdom.objsql.sql.Select;
+
+import java.lang.reflect.Field;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An immutable in-memory snapshot of a small table, such as countries, currencies or
+ * feature flags, which is loaded entirely at the first lookup and indexed by the primary
+ * key and the <code>@Queryable</code> fields. The generated <code>queryByPrimaryKey</code>
+ * and <code>queryBy...</code> methods of the model annotated with
+ * <code>@DomainModel(replicated = true)</code> answer from the snapshot.
+ *
+ * The snapshot is reloaded in background and swapped atomically, by default, it is reloaded
+ * every minute. It can be reloaded only if the maximal value of a column, such as
+ * <code>updated_at</code>, has changed:
+ * <pre>
+ *     ReplicatedTable.enable(Country.class, 10, TimeUnit.SECONDS, "updated_at");
+ * </pre>
+ *
+ * The snapshot is reloaded at the next lookup once the model is written by
+ * <code>DefaultPersistence</code>. The values are compared in Java, so the collation
+ * of database is not applied, and the replicated objects are shared among threads,
+ * they should be treated as read-only.
+ */
+public final class ReplicatedTable<T> {
+
+    public static final long DEFAULT_REFRESH_INTERVAL_SECONDS = 60;
+
+    private static final String PROBE_ALIAS = "probe_value";
+    private static final Map<Class, ReplicatedTable> tables = new ConcurrentHashMap<>();
+    private static volatile ScheduledExecutorService refresher;
+
+    private final Class<T> domainModelClass;
+    private final String dataSourceName;
+    private final String probeColumn;
+    private final List<PropertyAccessor> indexedAccessors;
+    private final AtomicLong invalidations = new AtomicLong();
+    private volatile Snapshot<T> snapshot;
+    private volatile ScheduledFuture<?> refreshFuture;
+
+    private ReplicatedTable(Class<T> domainModelClass, String probeColumn) {
+        this.domainModelClass = domainModelClass;
+        this.dataSourceName = new BeanModelDescriptor<>(domainModelClass).getDataSourceName();
+        this.probeColumn = probeColumn;
+        this.indexedAccessors = resolveIndexedAccessors(domainModelClass);
+    }
+
+    /**
+     * Replicates the table of domain model and reloads it with given interval, the
+     * probe column can be null if the table should be reloaded anyway.
+     */
+    public static <T> ReplicatedTable<T> enable(Class<T> domainModelClass, long refreshInterval,
+                                                TimeUnit timeUnit, String probeColumn) {
+        Objects.requireNonNull(domainModelClass, "The domainModelClass cannot be null");
+        Objects.requireNonNull(timeUnit, "The timeUnit cannot be null");
+        if (refreshInterval <= 0) {
+            throw new IllegalArgumentException("The refreshInterval must be positive");
+        }
+
+        ReplicatedTable<T> replicatedTable = new ReplicatedTable<>(domainModelClass, probeColumn);
+        replicatedTable.refreshFuture = getRefresher().scheduleWithFixedDelay(replicatedTable::refreshQuietly,
+                refreshInterval, refreshInterval, timeUnit);
+
+        ReplicatedTable previousTable = tables.put(domainModelClass, replicatedTable);
+        if (previousTable != null) {
+            previousTable.refreshFuture.cancel(false);
+        }
+        return replicatedTable;
+    }
+
+    public static void disable(Class domainModelClass) {
+        ReplicatedTable replicatedTable = tables.remove(domainModelClass);
+        if (replicatedTable != null) {
+            replicatedTable.refreshFuture.cancel(false);
+        }
+    }
+
+    /**
+     * Returns the replicated table of domain model, it will be enabled with default
+     * settings if the model is annotated as replicated, or null if not replicated.
+     *
+     * @see DomainModel#replicated()
+     */
+    public static <T> ReplicatedTable<T> get(Class<T> domainModelClass) {
+        ReplicatedTable<T> replicatedTable = tables.get(domainModelClass);
+        if (replicatedTable != null) {
+            return replicatedTable;
+        }
+
+        DomainModel domainModel = domainModelClass.getAnnotation(DomainModel.class);
+        if (domainModel == null || !domainModel.replicated()) {
+            return null;
+        }
+
+        synchronized (tables) {
+            replicatedTable = tables.get(domainModelClass);
+            if (replicatedTable == null) {
+                replicatedTable = enable(domainModelClass, DEFAULT_REFRESH_INTERVAL_SECONDS, TimeUnit.SECONDS, null);
+            }
+            return replicatedTable;
+        }
+    }
+
+    /**
+     * Makes the snapshot of domain model reloaded at the next lookup.
+     */
+    public static void invalidate(Class domainModelClass) {
+        ReplicatedTable replicatedTable = tables.get(domainModelClass);
+        if (replicatedTable != null) {
+            replicatedTable.invalidations.incrementAndGet();
+        }
+    }
+
+    public Class<T> getDomainModelClass() {
+        return domainModelClass;
+    }
+
+    /**
+     * Returns the objects whose field equals the value, the indexed fields are looked up
+     * by hash, and the others are scanned.
+     */
+    public List<T> findAll(String fieldName, Object value) throws SQLException {
+        return new ArrayList<>(getSnapshot().find(fieldName, value));
+    }
+
+    public T findFirst(String fieldName, Object value) throws SQLException {
+        List<T> objects = getSnapshot().find(fieldName, value);
+        return objects.isEmpty() ? null : objects.get(0);
+    }
+
+    public List<T> getRows() throws SQLException {
+        return getSnapshot().rows;
+    }
+
+    /**
+     * Executes the SELECT statement against the snapshot instead of the database.
+     *
+     * @see Select#executeInMemory(Collection, TableRowAdapter)
+     */
+    public List<T> select(Select<T> select) throws SQLException {
+        return select.executeInMemory(getSnapshot().rows, new BeanModelDescriptor<>(domainModelClass));
+    }
+
+    /**
+     * Reloads the snapshot if it has been loaded, and the probe value has changed.
+     */
+    public void refresh() throws SQLException {
+        Snapshot<T> currentSnapshot = snapshot;
+        if (currentSnapshot == null) {
+            return;
+        }
+
+        if (probeColumn != null) {
+            Object probeValue = queryProbeValue();
+            if (Objects.equals(probeValue, currentSnapshot.probeValue)
+                    && currentSnapshot.version == invalidations.get()) {
+                return;
+            }
+        }
+        reload();
+    }
+
+    private Snapshot<T> getSnapshot() throws SQLException {
+        Snapshot<T> currentSnapshot = snapshot;
+        if (currentSnapshot != null && currentSnapshot.version == invalidations.get()) {
+            return currentSnapshot;
+        }
+
+        synchronized (this) {
+            currentSnapshot = snapshot;
+            if (currentSnapshot != null && currentSnapshot.version == invalidations.get()) {
+                return currentSnapshot;
+            }
+            return reload();
+        }
+    }
+
+    private synchronized Snapshot<T> reload() throws SQLException {
+        long version = invalidations.get();
+        // The probe value is queried before the rows, so the changes during loading are not missed
+        Object probeValue = probeColumn == null ? null : queryProbeValue();
+        List<T> rows = Databases.getQueryFactory().createQuery(domainModelClass).execute();
+
+        Snapshot<T> newSnapshot = new Snapshot<>(rows, indexedAccessors, probeValue, version);
+        snapshot = newSnapshot;
+        return newSnapshot;
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (Throwable ex) {
+            Databases.getLoggerFactory().create(ReplicatedTable.class)
+                    .error(String.format("Cannot refresh the replicated %s", domainModelClass.getSimpleName()), ex);
+        }
+    }
+
+    private Object queryProbeValue() throws SQLException {
+        return Databases.executeReadOnly(dataSourceName, (connection, sqlExecutor) -> {
+            Quoter quoter = Databases.getQuoter();
+            String databaseProductName = connection.getMetaData().getDatabaseProductName();
+            String sql = String.format("SELECT MAX(%s) AS %s FROM %s",
+                    quoter.quoteColumnName(databaseProductName, probeColumn), PROBE_ALIAS,
+                    quoter.quoteTableName(databaseProductName, Tables.getTableName(domainModelClass)));
+
+            List rows = sqlExecutor.query(connection, sql, new MapRowAdapter());
+            return rows.isEmpty() ? null : ((Map<String, Object>) rows.get(0)).get(PROBE_ALIAS);
+        });
+    }
+
+    private static List<PropertyAccessor> resolveIndexedAccessors(Class domainModelClass) {
+        List<PropertyAccessor> accessors = new ArrayList<>();
+        for (Field field : domainModelClass.getDeclaredFields()) {
+            if (field.isAnnotationPresent(PrimaryKey.class) || field.isAnnotationPresent(Queryable.class)) {
+                accessors.add(PropertyAccessor.of(domainModelClass, field.getName()));
+            }
+        }
+        return accessors;
+    }
+
+    private static ScheduledExecutorService getRefresher() {
+        if (refresher == null) {
+            synchronized (ReplicatedTable.class) {
+                if (refresher == null) {
+                    AtomicInteger threadNumber = new AtomicInteger();
+                    refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                        Thread thread = new Thread(runnable, "objsql-replica-refresh-" + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+            }
+        }
+        return refresher;
+    }
+
+    /**
+     * The immutable rows and indexes loaded at a time.
+     */
+    private static final class Snapshot<T> {
+        private final List<T> rows;
+        private final Map<String, Map<Object, List<T>>> indexes = new HashMap<>();
+        private final Object probeValue;
+        private final long version;
+
+        private Snapshot(List<T> rows, List<PropertyAccessor> indexedAccessors, Object probeValue, long version) {
+            this.rows = Collections.unmodifiableList(new ArrayList<>(rows));
+            this.probeValue = probeValue;
+            this.version = version;
+
+            for (PropertyAccessor accessor : indexedAccessors) {
+                Map<Object, List<T>> index = new HashMap<>();
+                for (T row : this.rows) {
+                    Object value = accessor.read(row);
+                    if (value != null) {
+                        index.computeIfAbsent(AggregateProcessor.normalizeKey(value), key -> new ArrayList<>(1))
+                                .add(row);
+                    }
+                }
+                indexes.put(accessor.getName(), index);
+            }
+        }
+
+        private List<T> find(String fieldName, Object value) {
+            if (value == null) {
+                return Collections.emptyList();
+            }
+
+            Object normalizedValue = AggregateProcessor.normalizeKey(value);
+            Map<Object, List<T>> index = indexes.get(fieldName);
+            if (index != null) {
+                return index.getOrDefault(normalizedValue, Collections.emptyList());
+            }
+
+            List<T> objects = new ArrayList<>();
+            PropertyAccessor accessor = rows.isEmpty() ? null : PropertyAccessor.of(rows.get(0).getClass(), fieldName);
+            for (T row : rows) {
+                if (normalizedValue.equals(AggregateProcessor.normalizeKey(accessor.read(row)))) {
+                    objects.add(row);
+                }
+            }
+            return objects;
+        }
+    }
+}
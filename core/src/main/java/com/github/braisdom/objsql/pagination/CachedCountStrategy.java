@@ -0,0 +1,93 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql.pagination;
+
+import com.github.braisdom.objsql.DatabaseType;
+import com.github.braisdom.objsql.DomainModelDescriptor;
+import com.github.braisdom.objsql.SQLExecutor;
+import com.github.braisdom.objsql.util.LRUCache;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the counts of delegated strategy for a while, keyed by the query SQL and its
+ * parameters, so the later pages of a query need not count again. The cached count
+ * may be stale within the TTL, and it is reported as <code>TotalCount.Source.CACHED</code>.
+ */
+public class CachedCountStrategy implements CountStrategy {
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 1024;
+
+    private final CountStrategy delegate;
+    private final long ttlNanos;
+    private final LRUCache<String, Entry> counts;
+
+    public CachedCountStrategy(CountStrategy delegate, long ttl, TimeUnit timeUnit) {
+        this(delegate, ttl, timeUnit, DEFAULT_MAXIMUM_SIZE);
+    }
+
+    public CachedCountStrategy(CountStrategy delegate, long ttl, TimeUnit timeUnit, int maximumSize) {
+        Objects.requireNonNull(delegate, "The delegate cannot be null");
+        Objects.requireNonNull(timeUnit, "The timeUnit cannot be null");
+
+        this.delegate = delegate;
+        this.ttlNanos = timeUnit.toNanos(ttl);
+        this.counts = new LRUCache<>(maximumSize);
+    }
+
+    @Override
+    public TotalCount count(Connection connection, SQLExecutor sqlExecutor, PagedSQLBuilder sqlBuilder,
+                            DatabaseType databaseType, String rawSQL, Object[] params,
+                            DomainModelDescriptor modelDescriptor) throws SQLException {
+        String cacheKey = String.format("%s#%s#%s", databaseType.getDatabaseProductName(), rawSQL,
+                Arrays.deepToString(params));
+        Entry entry = counts.get(cacheKey);
+        if (entry != null && System.nanoTime() - entry.createdAt <= ttlNanos) {
+            return entry.totalCount.withSource(TotalCount.Source.CACHED);
+        }
+
+        TotalCount totalCount = delegate.count(connection, sqlExecutor, sqlBuilder, databaseType,
+                rawSQL, params, modelDescriptor);
+        if (totalCount == null) {
+            counts.remove(cacheKey);
+        } else {
+            counts.put(cacheKey, new Entry(totalCount, System.nanoTime()));
+        }
+        return totalCount;
+    }
+
+    /**
+     * Evicts all cached counts, such as after a bulk writing.
+     */
+    public void clear() {
+        counts.clear();
+    }
+
+    private static class Entry {
+        private final TotalCount totalCount;
+        private final long createdAt;
+
+        private Entry(TotalCount totalCount, long createdAt) {
+            this.totalCount = totalCount;
+            this.createdAt = createdAt;
+        }
+    }
+}
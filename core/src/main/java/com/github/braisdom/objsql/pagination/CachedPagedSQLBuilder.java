@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql.pagination;
+
+import com.github.braisdom.objsql.DatabaseType;
+import com.github.braisdom.objsql.DomainModelDescriptor;
+import com.github.braisdom.objsql.util.LRUCache;
+
+import java.sql.SQLException;
+import java.util.Objects;
+
+/**
+ * Caches the SQL rewritten by the delegated builder for a database, the counting SQL
+ * and the parameterized querying SQL are parsed once for each raw SQL, the later pages
+ * need no parsing at all.
+ */
+public class CachedPagedSQLBuilder implements PagedSQLBuilder {
+
+    public static final int DEFAULT_MAXIMUM_SIZE = 512;
+
+    // Marks the raw SQL which cannot be rewritten
+    private static final String UNSUPPORTED_SQL = "";
+
+    private final PagedSQLBuilder delegate;
+    private final LRUCache<String, String> countSQLs;
+    private final LRUCache<String, String> querySQLs;
+
+    public CachedPagedSQLBuilder(PagedSQLBuilder delegate) {
+        this(delegate, DEFAULT_MAXIMUM_SIZE);
+    }
+
+    public CachedPagedSQLBuilder(PagedSQLBuilder delegate, int maximumSize) {
+        Objects.requireNonNull(delegate, "The delegate cannot be null");
+
+        this.delegate = delegate;
+        this.countSQLs = new LRUCache<>(maximumSize);
+        this.querySQLs = new LRUCache<>(maximumSize);
+    }
+
+    @Override
+    public String buildCountSQL(String rawSQL) throws SQLException {
+        String countSQL = countSQLs.get(rawSQL);
+        if (countSQL == null) {
+            countSQL = delegate.buildCountSQL(rawSQL);
+            countSQLs.put(rawSQL, countSQL);
+        }
+        return countSQL;
+    }
+
+    @Override
+    public String buildQuerySQL(Page page, String rawSQL, DomainModelDescriptor modelDescriptor) throws SQLException {
+        return delegate.buildQuerySQL(page, rawSQL, modelDescriptor);
+    }
+
+    @Override
+    public String buildParameterizedQuerySQL(String rawSQL, DomainModelDescriptor modelDescriptor) throws SQLException {
+        String cacheKey = String.format("%s#%s", modelDescriptor.getDomainModelClass().getName(), rawSQL);
+        String querySQL = querySQLs.get(cacheKey);
+        if (querySQL == null) {
+            querySQL = delegate.buildParameterizedQuerySQL(rawSQL, modelDescriptor);
+            querySQLs.put(cacheKey, querySQL == null ? UNSUPPORTED_SQL : querySQL);
+        }
+        return UNSUPPORTED_SQL.equals(querySQL) ? null : querySQL;
+    }
+
+    @Override
+    public String buildWindowCountSQL(String rawSQL) throws SQLException {
+        String cacheKey = String.format("window#%s", rawSQL);
+        String windowCountSQL = querySQLs.get(cacheKey);
+        if (windowCountSQL == null) {
+            windowCountSQL = delegate.buildWindowCountSQL(rawSQL);
+            querySQLs.put(cacheKey, windowCountSQL == null ? UNSUPPORTED_SQL : windowCountSQL);
+        }
+        return UNSUPPORTED_SQL.equals(windowCountSQL) ? null : windowCountSQL;
+    }
+
+    @Override
+    public Object[] getPageParams(Page page) {
+        return delegate.getPageParams(page);
+    }
+
+    @Override
+    public String buildKeysetQuerySQL(KeysetPage page, String rawSQL, DatabaseType databaseType,
+                                      DomainModelDescriptor modelDescriptor) throws SQLException {
+        String cacheKey = String.format("%s#%s#%s#%s#%d#%s", modelDescriptor.getDomainModelClass().getName(),
+                String.join(",", page.getKeyColumns()), page.isDescending() ? "desc" : "asc",
+                page.isFirst() ? "first" : "next", page.getPageSize(), rawSQL);
+        String querySQL = querySQLs.get(cacheKey);
+        if (querySQL == null) {
+            querySQL = delegate.buildKeysetQuerySQL(page, rawSQL, databaseType, modelDescriptor);
+            querySQLs.put(cacheKey, querySQL);
+        }
+        return querySQL;
+    }
+
+    @Override
+    public String getCountAlias() {
+        return delegate.getCountAlias();
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql.pagination;
+
+import com.github.braisdom.objsql.DatabaseType;
+import com.github.braisdom.objsql.DomainModelDescriptor;
+import com.github.braisdom.objsql.SQLExecutor;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Counts the rows up to a cap, the database stops scanning after <code>cap + 1</code>
+ * rows. If there are more rows than the cap, the count is reported as the cap with
+ * <code>TotalCount.isLowerBound()</code>, which can be displayed as "1000+".
+ */
+public class CappedCountStrategy implements CountStrategy {
+
+    private final int cap;
+
+    public CappedCountStrategy(int cap) {
+        if (cap <= 0) {
+            throw new IllegalArgumentException("The cap must be positive");
+        }
+        this.cap = cap;
+    }
+
+    @Override
+    public TotalCount count(Connection connection, SQLExecutor sqlExecutor, PagedSQLBuilder sqlBuilder,
+                            DatabaseType databaseType, String rawSQL, Object[] params,
+                            DomainModelDescriptor modelDescriptor) throws SQLException {
+        String countSQL = buildCappedCountSQL(sqlBuilder, rawSQL, modelDescriptor);
+        Long rowCount = ExactCountStrategy.queryCount(connection, sqlExecutor, sqlBuilder, countSQL,
+                params, modelDescriptor);
+        if (rowCount == null) {
+            return null;
+        }
+        return rowCount > cap ? new TotalCount(cap, TotalCount.Source.CAPPED, true)
+                : new TotalCount(rowCount, TotalCount.Source.CAPPED, false);
+    }
+
+    public int getCap() {
+        return cap;
+    }
+
+    protected String buildCappedCountSQL(PagedSQLBuilder sqlBuilder, String rawSQL,
+                                         DomainModelDescriptor modelDescriptor) throws SQLException {
+        // Wraps the original SQL, so that the limit will not be merged into the original one
+        String limitedSQL = sqlBuilder.buildQuerySQL(Page.create(0, cap + 1),
+                String.format("SELECT * FROM (%s) C", rawSQL), modelDescriptor);
+        return sqlBuilder.buildCountSQL(limitedSQL);
+    }
+}
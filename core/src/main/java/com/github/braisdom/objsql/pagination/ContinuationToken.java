@@ -0,0 +1,222 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql.pagination;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Encodes the last-seen sort keys and the sort direction of a keyset page as an opaque
+ * and URL safe string, which can be passed to the client for fetching the next page.
+ * Only the values of simple types are supported, the token will never be deserialized
+ * as Java objects.
+ *
+ * @see KeysetPage#after(String, int, String...)
+ */
+public final class ContinuationToken {
+
+    private static final int VERSION = 1;
+
+    private static final char NULL = 'N';
+    private static final char INTEGER = 'I';
+    private static final char LONG = 'J';
+    private static final char DOUBLE = 'D';
+    private static final char FLOAT = 'F';
+    private static final char BIG_DECIMAL = 'M';
+    private static final char BIG_INTEGER = 'G';
+    private static final char STRING = 'S';
+    private static final char BOOLEAN = 'Z';
+    private static final char TIMESTAMP = 'T';
+    private static final char SQL_DATE = 'd';
+    private static final char SQL_TIME = 't';
+    private static final char DATE = 'U';
+    private static final char LOCAL_DATE = 'L';
+    private static final char LOCAL_DATE_TIME = 'X';
+
+    private ContinuationToken() {
+    }
+
+    public static String encode(Object[] keys) {
+        return encode(keys, false);
+    }
+
+    public static String encode(Object[] keys, boolean descending) {
+        try {
+            ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+            DataOutputStream output = new DataOutputStream(byteStream);
+
+            output.writeByte(VERSION);
+            output.writeBoolean(descending);
+            output.writeShort(keys.length);
+            for (Object key : keys) {
+                writeKey(output, key);
+            }
+            output.flush();
+
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(byteStream.toByteArray());
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Decodes the keys from the token.
+     *
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public static Object[] decode(String token) {
+        try {
+            DataInputStream input = open(token);
+            input.readBoolean();
+            Object[] keys = new Object[input.readUnsignedShort()];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = readKey(input);
+            }
+            if (input.available() > 0) {
+                throw new IllegalArgumentException("Malformed continuation token: " + token);
+            }
+            return keys;
+        } catch (IOException | IllegalArgumentException | DateTimeException ex) {
+            throw new IllegalArgumentException("Malformed continuation token: " + token, ex);
+        }
+    }
+
+    /**
+     * Returns true if the token is encoded from a page sorted descending.
+     *
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public static boolean isDescending(String token) {
+        try {
+            return open(token).readBoolean();
+        } catch (IOException | IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Malformed continuation token: " + token, ex);
+        }
+    }
+
+    /**
+     * Returns the input positioned at the direction of keys.
+     */
+    private static DataInputStream open(String token) throws IOException {
+        byte[] bytes = Base64.getUrlDecoder().decode(token);
+        DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes));
+
+        if (input.readByte() != VERSION) {
+            throw new IllegalArgumentException("Unsupported continuation token: " + token);
+        }
+        return input;
+    }
+
+    private static void writeKey(DataOutputStream output, Object key) throws IOException {
+        if (key == null) {
+            output.writeChar(NULL);
+        } else if (key instanceof Integer || key instanceof Short || key instanceof Byte) {
+            output.writeChar(INTEGER);
+            output.writeInt(((Number) key).intValue());
+        } else if (key instanceof Long) {
+            output.writeChar(LONG);
+            output.writeLong((Long) key);
+        } else if (key instanceof Double) {
+            output.writeChar(DOUBLE);
+            output.writeDouble((Double) key);
+        } else if (key instanceof Float) {
+            output.writeChar(FLOAT);
+            output.writeFloat((Float) key);
+        } else if (key instanceof BigDecimal) {
+            output.writeChar(BIG_DECIMAL);
+            output.writeUTF(key.toString());
+        } else if (key instanceof BigInteger) {
+            output.writeChar(BIG_INTEGER);
+            output.writeUTF(key.toString());
+        } else if (key instanceof String) {
+            output.writeChar(STRING);
+            output.writeUTF((String) key);
+        } else if (key instanceof Boolean) {
+            output.writeChar(BOOLEAN);
+            output.writeBoolean((Boolean) key);
+        } else if (key instanceof Timestamp) {
+            output.writeChar(TIMESTAMP);
+            output.writeLong(((Timestamp) key).getTime());
+            output.writeInt(((Timestamp) key).getNanos());
+        } else if (key instanceof java.sql.Date) {
+            output.writeChar(SQL_DATE);
+            output.writeLong(((java.sql.Date) key).getTime());
+        } else if (key instanceof Time) {
+            output.writeChar(SQL_TIME);
+            output.writeLong(((Time) key).getTime());
+        } else if (key instanceof java.util.Date) {
+            output.writeChar(DATE);
+            output.writeLong(((java.util.Date) key).getTime());
+        } else if (key instanceof LocalDate) {
+            output.writeChar(LOCAL_DATE);
+            output.writeUTF(key.toString());
+        } else if (key instanceof LocalDateTime) {
+            output.writeChar(LOCAL_DATE_TIME);
+            output.writeUTF(key.toString());
+        } else {
+            throw new IllegalArgumentException(String.format("The %s cannot be a keyset key",
+                    key.getClass().getName()));
+        }
+    }
+
+    private static Object readKey(DataInputStream input) throws IOException {
+        char type = input.readChar();
+        switch (type) {
+            case NULL:
+                return null;
+            case INTEGER:
+                return input.readInt();
+            case LONG:
+                return input.readLong();
+            case DOUBLE:
+                return input.readDouble();
+            case FLOAT:
+                return input.readFloat();
+            case BIG_DECIMAL:
+                return new BigDecimal(input.readUTF());
+            case BIG_INTEGER:
+                return new BigInteger(input.readUTF());
+            case STRING:
+                return input.readUTF();
+            case BOOLEAN:
+                return input.readBoolean();
+            case TIMESTAMP:
+                Timestamp timestamp = new Timestamp(input.readLong());
+                timestamp.setNanos(input.readInt());
+                return timestamp;
+            case SQL_DATE:
+                return new java.sql.Date(input.readLong());
+            case SQL_TIME:
+                return new Time(input.readLong());
+            case DATE:
+                return new java.util.Date(input.readLong());
+            case LOCAL_DATE:
+                return LocalDate.parse(input.readUTF());
+            case LOCAL_DATE_TIME:
+                return LocalDateTime.parse(input.readUTF());
+            default:
+                throw new IllegalArgumentException("Unknown key type: " + type);
+        }
+    }
+}
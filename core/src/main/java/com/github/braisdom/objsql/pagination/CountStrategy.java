@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql.pagination;
+
+import com.github.braisdom.objsql.DatabaseType;
+import com.github.braisdom.objsql.DomainModelDescriptor;
+import com.github.braisdom.objsql.SQLExecutor;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Counts the total rows of a paged query, the exact count may cost more than the page
+ * itself for large tables, so it can be replaced by a cached, estimated or capped count.
+ * <pre>
+ *     Databases.installPaginator(new DefaultPaginator(false,
+ *             new CachedCountStrategy(new ExactCountStrategy(), 30, TimeUnit.SECONDS)));
+ * </pre>
+ *
+ * @see DefaultPaginator
+ */
+public interface CountStrategy {
+
+    /**
+     * Counts the rows of given query SQL.
+     *
+     * @param rawSQL the original query SQL
+     * @param params the parameters of original query SQL
+     * @return the total count, or null if the count cannot be queried
+     * @throws SQLException
+     */
+    TotalCount count(Connection connection, SQLExecutor sqlExecutor, PagedSQLBuilder sqlBuilder,
+                     DatabaseType databaseType, String rawSQL, Object[] params,
+                     DomainModelDescriptor modelDescriptor) throws SQLException;
+}
@@ -24,14 +24,30 @@ public class DefaultPagedList<T> implements PagedList<T> {
     private final Page page;
     private final int pageCount;
     private final List<T> rows;
+    private final String continuationToken;
+    private final TotalCount totalCount;
 
     public DefaultPagedList(List<T> rows, long totalSize,
                             Page page, int pageCount) {
+        this(rows, totalSize, page, pageCount, null);
+    }
+
+    public DefaultPagedList(List<T> rows, long totalSize,
+                            Page page, int pageCount, String continuationToken) {
+        this(rows, totalSize < 0 ? TotalCount.UNKNOWN : TotalCount.exact(totalSize),
+                page, pageCount, continuationToken);
+    }
+
+    public DefaultPagedList(List<T> rows, TotalCount totalCount,
+                            Page page, int pageCount, String continuationToken) {
         Objects.requireNonNull(rows, "The result cannot be null");
+        Objects.requireNonNull(totalCount, "The totalCount cannot be null");
         this.rows = rows;
-        this.totalSize = totalSize;
+        this.totalSize = totalCount.getValue();
+        this.totalCount = totalCount;
         this.page = page;
         this.pageCount = pageCount;
+        this.continuationToken = continuationToken;
     }
 
     public static PagedList createEmptyList(Page page) {
@@ -58,6 +74,16 @@ public class DefaultPagedList<T> implements PagedList<T> {
         return pageCount;
     }
 
+    @Override
+    public TotalCount getTotalCount() {
+        return totalCount;
+    }
+
+    @Override
+    public String getContinuationToken() {
+        return continuationToken;
+    }
+
     public Collection<T> getRows() {
         return rows;
     }
@@ -19,47 +19,442 @@ package com.github.braisdom.objsql.pagination;
 import com.github.braisdom.objsql.DatabaseType;
 import com.github.braisdom.objsql.Databases;
 import com.github.braisdom.objsql.DomainModelDescriptor;
+import com.github.braisdom.objsql.SQLExecutor;
+import com.github.braisdom.objsql.ShardedConnectionFactory;
+import com.github.braisdom.objsql.ShardedResultMerger;
 import com.github.braisdom.objsql.reflection.PropertyUtils;
 import com.github.braisdom.objsql.relation.Relationship;
 import com.github.braisdom.objsql.relation.RelationshipNetwork;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.statement.Statement;
+import net.sf.jsqlparser.statement.select.PlainSelect;
+import net.sf.jsqlparser.statement.select.Select;
 
+import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.stream.Collectors;
 
 public class DefaultPaginator<T> implements Paginator<T> {
 
+    private final boolean windowCounting;
+    private final CountStrategy countStrategy;
+    private final Executor countExecutor;
+
+    public DefaultPaginator() {
+        this(false);
+    }
+
+    public DefaultPaginator(boolean windowCounting) {
+        this(windowCounting, new ExactCountStrategy());
+    }
+
+    /**
+     * @param windowCounting true if the total count is queried with the rows by
+     *                       <code>COUNT(*) OVER ()</code> for the databases supporting
+     *                       window functions, which saves the round trip of counting.
+     * @param countStrategy  the strategy counting the rows when the window counting is
+     *                       disabled or unsupported
+     */
+    public DefaultPaginator(boolean windowCounting, CountStrategy countStrategy) {
+        this(windowCounting, countStrategy, null);
+    }
+
+    /**
+     * @param countExecutor the executor counting the rows on another connection while the
+     *                      rows of page are queried, so the latency will be the slower one of
+     *                      them instead of the sum. It requires two connections for a pagination,
+     *                      and it is ignored if a connection is bound to current thread, such as
+     *                      in <code>Databases.executeTransactionally</code>, because the count
+     *                      has to see the same data as the page. Null for counting sequentially.
+     */
+    public DefaultPaginator(boolean windowCounting, CountStrategy countStrategy, Executor countExecutor) {
+        Objects.requireNonNull(countStrategy, "The countStrategy cannot be null");
+
+        this.windowCounting = windowCounting;
+        this.countStrategy = countStrategy;
+        this.countExecutor = countExecutor;
+    }
+
     @Override
     public PagedList<T> paginate(Page page, Paginatable paginatable, DomainModelDescriptor modelDescriptor,
                                  Relationship... relationships) throws SQLException {
 
-        return Databases.execute(((connection, sqlExecutor) -> {
+        if (page instanceof KeysetPage) {
+            return paginateByKeyset((KeysetPage) page, paginatable, modelDescriptor, relationships);
+        }
+
+        ShardedConnectionFactory shardedConnectionFactory = Databases
+                .getShardedConnectionFactory(modelDescriptor.getDataSourceName());
+        if (shardedConnectionFactory != null) {
+            return paginateOnShards(shardedConnectionFactory, page, paginatable, modelDescriptor, true, relationships);
+        }
+
+        return Databases.executeReadOnly(((connection, sqlExecutor) -> {
             DatabaseMetaData databaseMetaData = connection.getMetaData();
             DatabaseType databaseType = DatabaseType.create(databaseMetaData.getDatabaseProductName(),
                     databaseMetaData.getDatabaseMajorVersion());
             PagedSQLBuilder sqlBuilder = Databases.getPagedSQLBuilderFactory()
                     .createPagedSQLBuilder(databaseType);
 
-            String rawSql = paginatable.getQuerySQL(databaseType);
-            String countSQL = sqlBuilder.buildCountSQL(rawSql);
-            String querySQL = sqlBuilder.buildQuerySQL(page, rawSql, modelDescriptor);
+            String rawSql = paginatable.getQuerySQL(connection, databaseType);
+            Object[] queryParams = paginatable.getQueryParams();
+            String windowCountSQL = windowCounting && databaseType.isWindowFunctionSupported()
+                    ? sqlBuilder.buildWindowCountSQL(rawSql) : null;
 
-            List countResult = sqlExecutor.query(connection, countSQL, modelDescriptor);
-            List queryResult = sqlExecutor.query(connection, querySQL, modelDescriptor);
+            if (windowCountSQL == null && countExecutor != null && Databases.getCurrentThreadConnection() == null) {
+                FutureTask<TotalCount> countFuture = new FutureTask<>(() ->
+                        countOnAnotherConnection(sqlBuilder, databaseType, rawSql, queryParams, modelDescriptor));
+                countExecutor.execute(countFuture);
 
-            if (countResult == null || countResult.size() == 0) {
+                List queryResult;
+                boolean queried = false;
+                try {
+                    queryResult = queryPage(connection, sqlExecutor, sqlBuilder, rawSql, queryParams,
+                            page, modelDescriptor);
+                    processRelationships(connection, queryResult, modelDescriptor, relationships);
+                    queried = true;
+                } finally {
+                    // The count is useless without the page, its connection should be released at once
+                    if (!queried) {
+                        countFuture.cancel(true);
+                    }
+                }
+
+                TotalCount totalCount = awaitCount(countFuture);
+                return totalCount == null ? DefaultPagedList.createEmptyList(page)
+                        : new DefaultPagedList(queryResult, totalCount, page,
+                        page.calculatePageCount(totalCount.getValue()), null);
+            }
+
+            TotalCount totalCount;
+            List queryResult;
+            if (windowCountSQL == null) {
+                totalCount = countStrategy.count(connection, sqlExecutor, sqlBuilder, databaseType,
+                        rawSql, queryParams, modelDescriptor);
+                queryResult = queryPage(connection, sqlExecutor, sqlBuilder, rawSql, queryParams,
+                        page, modelDescriptor);
+            } else {
+                queryResult = queryPage(connection, sqlExecutor, sqlBuilder, windowCountSQL, queryParams,
+                        page, modelDescriptor);
+                if (queryResult.size() > 0) {
+                    totalCount = new TotalCount(toLong(PropertyUtils.getRawAttribute(queryResult.get(0),
+                            sqlBuilder.getCountAlias())), TotalCount.Source.WINDOW, false);
+                    removeCountColumn(queryResult, sqlBuilder.getCountAlias());
+                } else if (page.getOffset() == 0) {
+                    totalCount = new TotalCount(0, TotalCount.Source.WINDOW, false);
+                } else {
+                    // The page is out of range, and the total count is unknown
+                    totalCount = countStrategy.count(connection, sqlExecutor, sqlBuilder, databaseType,
+                            rawSql, queryParams, modelDescriptor);
+                }
+            }
+
+            if (totalCount == null) {
                 return DefaultPagedList.createEmptyList(page);
             } else {
-                Object rowObject = countResult.get(0);
-                Object rawRowCount = PropertyUtils.getRawAttribute(rowObject, sqlBuilder.getCountAlias());
-                Long rowCount = rawRowCount instanceof Long ? (Long)rawRowCount : new Long(String.valueOf(rawRowCount));
+                processRelationships(connection, queryResult, modelDescriptor, relationships);
+                return new DefaultPagedList(queryResult, totalCount, page,
+                        page.calculatePageCount(totalCount.getValue()), null);
+            }
+        }));
+    }
 
-                if (relationships.length > 0 && queryResult.size() > 0) {
-                    new RelationshipNetwork(connection, modelDescriptor).process(queryResult, relationships);
-                }
+    /**
+     * Iterates the pages without counting the rows.
+     */
+    @Override
+    public PrefetchingIterator<T> iterate(Page firstPage, Paginatable paginatable,
+                                          DomainModelDescriptor<T> modelDescriptor, Relationship... relationships) {
+        Executor executor = Databases.getCurrentThreadConnection() == null
+                ? PrefetchingIterator.getDefaultExecutor() : null;
+        return new PrefetchingIterator<>(firstPage, page -> page instanceof KeysetPage
+                ? paginateByKeyset((KeysetPage) page, paginatable, modelDescriptor, relationships)
+                : paginateWithoutCount(page, paginatable, modelDescriptor, relationships),
+                executor, PrefetchingIterator.DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    protected PagedList<T> paginateWithoutCount(Page page, Paginatable paginatable, DomainModelDescriptor modelDescriptor,
+                                                Relationship... relationships) throws SQLException {
+        ShardedConnectionFactory shardedConnectionFactory = Databases
+                .getShardedConnectionFactory(modelDescriptor.getDataSourceName());
+        if (shardedConnectionFactory != null) {
+            return paginateOnShards(shardedConnectionFactory, page, paginatable, modelDescriptor, false, relationships);
+        }
+
+        return Databases.executeReadOnly(((connection, sqlExecutor) -> {
+            DatabaseMetaData databaseMetaData = connection.getMetaData();
+            DatabaseType databaseType = DatabaseType.create(databaseMetaData.getDatabaseProductName(),
+                    databaseMetaData.getDatabaseMajorVersion());
+            PagedSQLBuilder sqlBuilder = Databases.getPagedSQLBuilderFactory()
+                    .createPagedSQLBuilder(databaseType);
+
+            String rawSql = paginatable.getQuerySQL(connection, databaseType);
+            Object[] queryParams = paginatable.getQueryParams();
+            List queryResult = queryPage(connection, sqlExecutor, sqlBuilder, rawSql, queryParams,
+                    page, modelDescriptor);
+            processRelationships(connection, queryResult, modelDescriptor, relationships);
+            return new DefaultPagedList(queryResult, TotalCount.UNKNOWN, page, -1, null);
+        }));
+    }
+
+    /**
+     * Paginates the rows of all shards in parallel, each shard returns the rows until the end
+     * of page, then the rows are merged by the ORDER BY of query and the global offset is skipped.
+     * The total count is the sum of counts of shards, or the count of groups merged if the
+     * query is aggregated.
+     *
+     * @see ShardedResultMerger
+     */
+    protected PagedList<T> paginateOnShards(ShardedConnectionFactory shardedConnectionFactory, Page page,
+                                            Paginatable paginatable, DomainModelDescriptor modelDescriptor,
+                                            boolean counting, Relationship... relationships) throws SQLException {
+        List<ShardPage> shardPages = shardedConnectionFactory.executeOnShards(modelDescriptor.getDataSourceName(),
+                (Databases.DatabaseInvoke<Object, ShardPage>) (connection, sqlExecutor) -> {
+                    DatabaseMetaData databaseMetaData = connection.getMetaData();
+                    DatabaseType databaseType = DatabaseType.create(databaseMetaData.getDatabaseProductName(),
+                            databaseMetaData.getDatabaseMajorVersion());
+                    PagedSQLBuilder sqlBuilder = Databases.getPagedSQLBuilderFactory()
+                            .createPagedSQLBuilder(databaseType);
+
+                    String rawSql = paginatable.getQuerySQL(connection, databaseType);
+                    Object[] queryParams = paginatable.getQueryParams();
+                    ShardedResultMerger resultMerger = createResultMerger(rawSql, page, modelDescriptor);
+                    long shardRowCount = resultMerger.getShardRowCount();
+
+                    // The partial aggregations are queried entirely for merging
+                    List queryResult = shardRowCount < 0
+                            ? sqlExecutor.query(connection, rawSql, modelDescriptor, queryParams)
+                            : queryPage(connection, sqlExecutor, sqlBuilder, rawSql, queryParams,
+                            Page.create(0, (int) shardRowCount), modelDescriptor);
+
+                    TotalCount totalCount = counting && !resultMerger.isAggregating()
+                            ? countStrategy.count(connection, sqlExecutor, sqlBuilder, databaseType,
+                            rawSql, queryParams, modelDescriptor) : TotalCount.UNKNOWN;
+                    return new ShardPage(resultMerger, queryResult, totalCount);
+                });
 
-                return new DefaultPagedList(queryResult, rowCount, page, page.calculatePageCount(rowCount));
+        ShardedResultMerger resultMerger = shardPages.get(0).resultMerger;
+        List<List> shardRows = new ArrayList<>(shardPages.size());
+        shardPages.forEach(shardPage -> shardRows.add(shardPage.rows));
+
+        // The relationships are loaded for the rows of page only
+        String dataSourceName = modelDescriptor.getDataSourceName();
+        if (resultMerger.isAggregating()) {
+            List groups = resultMerger.limit(-1, -1).merge(shardRows);
+            int fromIndex = (int) Math.min(page.getOffset(), groups.size());
+            List queryResult = new ArrayList(groups.subList(fromIndex,
+                    Math.min(fromIndex + page.getPageSize(), groups.size())));
+            shardedConnectionFactory.processRelationships(dataSourceName, shardRows, queryResult,
+                    modelDescriptor, relationships);
+            return counting ? new DefaultPagedList(queryResult, TotalCount.exact(groups.size()), page,
+                    page.calculatePageCount(groups.size()), null)
+                    : new DefaultPagedList(queryResult, TotalCount.UNKNOWN, page, -1, null);
+        }
+
+        List queryResult = resultMerger.merge(shardRows);
+        shardedConnectionFactory.processRelationships(dataSourceName, shardRows, queryResult,
+                modelDescriptor, relationships);
+        if (!counting) {
+            return new DefaultPagedList(queryResult, TotalCount.UNKNOWN, page, -1, null);
+        }
+
+        TotalCount totalCount = null;
+        for (ShardPage shardPage : shardPages) {
+            if (shardPage.totalCount != null) {
+                totalCount = totalCount == null ? shardPage.totalCount : new TotalCount(
+                        totalCount.getValue() + shardPage.totalCount.getValue(), totalCount.getSource(),
+                        totalCount.isLowerBound() || shardPage.totalCount.isLowerBound());
             }
+        }
+        return totalCount == null ? DefaultPagedList.createEmptyList(page)
+                : new DefaultPagedList(queryResult, totalCount, page,
+                page.calculatePageCount(totalCount.getValue()), null);
+    }
+
+    private ShardedResultMerger createResultMerger(String rawSql, Page page,
+                                                   DomainModelDescriptor modelDescriptor) throws SQLException {
+        try {
+            Statement statement = CCJSqlParserUtil.parse(rawSql);
+            if (!(statement instanceof Select) || !(((Select) statement).getSelectBody() instanceof PlainSelect)) {
+                throw new UnsupportedOperationException("The UNION cannot be paginated across shards");
+            }
+
+            PlainSelect plainSelect = (PlainSelect) ((Select) statement).getSelectBody();
+            if (plainSelect.getHaving() != null) {
+                throw new UnsupportedOperationException("The HAVING cannot be merged across shards");
+            }
+
+            ShardedResultMerger resultMerger = new ShardedResultMerger(modelDescriptor)
+                    .project(plainSelect.getSelectItems().stream()
+                            .map(String::valueOf).collect(Collectors.joining(", ")))
+                    .limit(page.getOffset(), page.getPageSize());
+            if (plainSelect.getGroupBy() != null) {
+                plainSelect.getGroupBy().getGroupByExpressions()
+                        .forEach(expression -> resultMerger.groupBy(toColumnName(expression)));
+            }
+            if (plainSelect.getOrderByElements() != null) {
+                resultMerger.orderBy(plainSelect.getOrderByElements().stream()
+                        .map(element -> toColumnName(element.getExpression()) + (element.isAsc() ? "" : " DESC"))
+                        .collect(Collectors.joining(", ")));
+            }
+            return resultMerger;
+        } catch (JSQLParserException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
+    private String toColumnName(Expression expression) {
+        return expression instanceof Column ? ((Column) expression).getColumnName() : String.valueOf(expression);
+    }
+
+    private TotalCount countOnAnotherConnection(PagedSQLBuilder sqlBuilder, DatabaseType databaseType, String rawSql,
+                                                Object[] queryParams, DomainModelDescriptor modelDescriptor)
+            throws SQLException {
+        // The thread of executor has no connection bound, so a new connection will be taken
+        return Databases.executeReadOnly((connection, sqlExecutor) -> countStrategy.count(connection, sqlExecutor,
+                sqlBuilder, databaseType, rawSql, queryParams, modelDescriptor));
+    }
+
+    private TotalCount awaitCount(Future<TotalCount> countFuture) throws SQLException {
+        try {
+            return countFuture.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            countFuture.cancel(true);
+            throw new SQLException("Interrupted while counting the rows", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new SQLException(cause.getMessage(), cause);
+        }
+    }
+
+    private Object[] concatParams(Object[] queryParams, Object[] pagingParams) {
+        if (queryParams == null || queryParams.length == 0) {
+            return pagingParams;
+        }
+
+        Object[] params = new Object[queryParams.length + pagingParams.length];
+        System.arraycopy(queryParams, 0, params, 0, queryParams.length);
+        System.arraycopy(pagingParams, 0, params, queryParams.length, pagingParams.length);
+        return params;
+    }
+
+    private long toLong(Object rawRowCount) {
+        return rawRowCount instanceof Number ? ((Number) rawRowCount).longValue()
+                : Long.parseLong(String.valueOf(rawRowCount));
+    }
+
+    protected PagedList<T> paginateByKeyset(KeysetPage page, Paginatable paginatable, DomainModelDescriptor modelDescriptor,
+                                            Relationship... relationships) throws SQLException {
+        if (Databases.getShardedConnectionFactory(modelDescriptor.getDataSourceName()) != null) {
+            throw new UnsupportedOperationException("The keyset pagination is unsupported across shards, "
+                    + "paginates by offset instead");
+        }
+
+        return Databases.executeReadOnly(((connection, sqlExecutor) -> {
+            DatabaseMetaData databaseMetaData = connection.getMetaData();
+            DatabaseType databaseType = DatabaseType.create(databaseMetaData.getDatabaseProductName(),
+                    databaseMetaData.getDatabaseMajorVersion());
+            PagedSQLBuilder sqlBuilder = Databases.getPagedSQLBuilderFactory()
+                    .createPagedSQLBuilder(databaseType);
+
+            String rawSql = paginatable.getQuerySQL(connection, databaseType);
+            Object[] queryParams = paginatable.getQueryParams();
+            String querySQL = sqlBuilder.buildKeysetQuerySQL(page, rawSql, databaseType, modelDescriptor);
+            Object[] params = concatParams(queryParams,
+                    page.getKeysetParams(databaseType.isRowValueComparisonSupported()));
+
+            List queryResult = sqlExecutor.query(connection, querySQL, modelDescriptor, params);
+            boolean hasNext = queryResult.size() > page.getPageSize();
+            if (hasNext) {
+                queryResult = new ArrayList(queryResult.subList(0, page.getPageSize()));
+            }
+
+            processRelationships(connection, queryResult, modelDescriptor, relationships);
+
+            String continuationToken = hasNext ? ContinuationToken.encode(readKeys(page,
+                    queryResult.get(queryResult.size() - 1), modelDescriptor), page.isDescending()) : null;
+            return new DefaultPagedList(queryResult, TotalCount.UNKNOWN, page, -1, continuationToken);
         }));
     }
+
+    /**
+     * Queries the rows of the page with the paging parameters following the parameters of query,
+     * or with the page rendered into the SQL if the builder does not support the parameters.
+     */
+    private List queryPage(Connection connection, SQLExecutor sqlExecutor, PagedSQLBuilder sqlBuilder,
+                           String querySql, Object[] queryParams, Page page,
+                           DomainModelDescriptor modelDescriptor) throws SQLException {
+        String parameterizedSql = sqlBuilder.buildParameterizedQuerySQL(querySql, modelDescriptor);
+        if (parameterizedSql == null) {
+            return sqlExecutor.query(connection, sqlBuilder.buildQuerySQL(page, querySql, modelDescriptor),
+                    modelDescriptor, queryParams);
+        }
+        return sqlExecutor.query(connection, parameterizedSql, modelDescriptor,
+                concatParams(queryParams, sqlBuilder.getPageParams(page)));
+    }
+
+    private void processRelationships(Connection connection, List rows, DomainModelDescriptor modelDescriptor,
+                                      Relationship... relationships) throws SQLException {
+        if (relationships.length > 0 && rows.size() > 0) {
+            new RelationshipNetwork(connection, modelDescriptor).process(rows, relationships);
+        }
+    }
+
+    /**
+     * Removes the column of window count from the rows, which is not a column of
+     * the domain model.
+     */
+    private void removeCountColumn(List rows, String countAlias) {
+        for (Object row : rows) {
+            if (row instanceof Map) {
+                ((Map) row).remove(countAlias);
+            } else if (PropertyUtils.supportRawAttribute(row)) {
+                Map<String, Object> rawAttributes = PropertyUtils.getRawAttributes(row);
+                if (rawAttributes != null) {
+                    rawAttributes.remove(countAlias);
+                }
+            }
+        }
+    }
+
+    private Object[] readKeys(KeysetPage page, Object row, DomainModelDescriptor modelDescriptor) {
+        String[] keyColumns = page.getKeyColumns();
+        Object[] keys = new Object[keyColumns.length];
+        for (int i = 0; i < keyColumns.length; i++) {
+            String fieldName = modelDescriptor.getFieldName(keyColumns[i]);
+            keys[i] = fieldName == null ? PropertyUtils.getRawAttribute(row, keyColumns[i])
+                    : PropertyUtils.read(row, fieldName);
+        }
+        return keys;
+    }
+
+    private static final class ShardPage {
+        private final ShardedResultMerger resultMerger;
+        private final List rows;
+        private final TotalCount totalCount;
+
+        private ShardPage(ShardedResultMerger resultMerger, List rows, TotalCount totalCount) {
+            this.resultMerger = resultMerger;
+            this.rows = rows;
+            this.totalCount = totalCount;
+        }
+    }
 }
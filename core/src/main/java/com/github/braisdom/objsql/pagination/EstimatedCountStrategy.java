@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql.pagination;
+
+import com.github.braisdom.objsql.DatabaseType;
+import com.github.braisdom.objsql.DomainModelDescriptor;
+import com.github.braisdom.objsql.MapRowAdapter;
+import com.github.braisdom.objsql.SQLExecutor;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.schema.Table;
+import net.sf.jsqlparser.statement.Statement;
+import net.sf.jsqlparser.statement.select.PlainSelect;
+import net.sf.jsqlparser.statement.select.Select;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Estimates the rows by the statistics of database instead of counting them, which
+ * is fast but approximate. The rows of a whole table are read from the table statistics
+ * (<code>pg_class.reltuples</code> of PostgreSQL and <code>information_schema.TABLES.TABLE_ROWS</code>
+ * of MySQL), and the rows of a filtered query are read from the estimate of <code>EXPLAIN</code>.
+ * <p/>
+ * The other databases and the queries without estimate will be counted by the fallback strategy.
+ */
+public class EstimatedCountStrategy implements CountStrategy {
+
+    private static final Pattern POSTGRESQL_PLAN_ROWS = Pattern.compile("rows=(\\d+)");
+
+    private final CountStrategy fallback;
+
+    public EstimatedCountStrategy() {
+        this(new ExactCountStrategy());
+    }
+
+    public EstimatedCountStrategy(CountStrategy fallback) {
+        this.fallback = fallback;
+    }
+
+    @Override
+    public TotalCount count(Connection connection, SQLExecutor sqlExecutor, PagedSQLBuilder sqlBuilder,
+                            DatabaseType databaseType, String rawSQL, Object[] params,
+                            DomainModelDescriptor modelDescriptor) throws SQLException {
+        Long estimatedCount = null;
+        if (DatabaseType.PostgreSQL.getDatabaseProductName().equals(databaseType.getDatabaseProductName())) {
+            estimatedCount = estimatePostgreSQL(connection, sqlExecutor, rawSQL, params);
+        } else if (DatabaseType.MySQL.getDatabaseProductName().equals(databaseType.getDatabaseProductName())) {
+            estimatedCount = estimateMySQL(connection, sqlExecutor, rawSQL, params);
+        }
+
+        if (estimatedCount == null) {
+            return fallback.count(connection, sqlExecutor, sqlBuilder, databaseType, rawSQL, params, modelDescriptor);
+        }
+        return new TotalCount(estimatedCount, TotalCount.Source.ESTIMATED, false);
+    }
+
+    private Long estimatePostgreSQL(Connection connection, SQLExecutor sqlExecutor,
+                                    String rawSQL, Object[] params) throws SQLException {
+        String tableName = getWholeTableName(rawSQL);
+        if (tableName != null) {
+            // The reltuples is -1 if the table has never been analyzed, and the tables
+            // of same name in other schemas are excluded
+            List<Map<String, Object>> rows = sqlExecutor.query(connection,
+                    "SELECT c.reltuples AS estimated_rows FROM pg_class c "
+                            + "JOIN pg_namespace n ON n.oid = c.relnamespace "
+                            + "WHERE c.relname = ? AND n.nspname = current_schema()",
+                    new MapRowAdapter(), tableName);
+            Long estimatedRows = rows.size() > 0 ? toLong(rows.get(0).get("estimated_rows")) : null;
+            if (estimatedRows != null && estimatedRows >= 0) {
+                return estimatedRows;
+            }
+        }
+
+        List<Map<String, Object>> plans = sqlExecutor.query(connection, "EXPLAIN " + rawSQL,
+                new MapRowAdapter(), params);
+        if (plans.size() > 0) {
+            // The first line of plan is the top node, such as "Seq Scan on t  (cost=0.00..35.50 rows=2550 width=4)"
+            for (Object plan : plans.get(0).values()) {
+                Matcher matcher = POSTGRESQL_PLAN_ROWS.matcher(String.valueOf(plan));
+                if (matcher.find()) {
+                    return Long.valueOf(matcher.group(1));
+                }
+            }
+        }
+        return null;
+    }
+
+    private Long estimateMySQL(Connection connection, SQLExecutor sqlExecutor,
+                               String rawSQL, Object[] params) throws SQLException {
+        String tableName = getWholeTableName(rawSQL);
+        if (tableName != null) {
+            List<Map<String, Object>> rows = sqlExecutor.query(connection,
+                    "SELECT TABLE_ROWS AS estimated_rows FROM information_schema.TABLES "
+                            + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?",
+                    new MapRowAdapter(), tableName);
+            Long estimatedRows = rows.size() > 0 ? toLong(rows.get(0).get("estimated_rows")) : null;
+            if (estimatedRows != null) {
+                return estimatedRows;
+            }
+        }
+
+        // The rows of a join are the product of examined rows and filtered percentage of each table
+        List<Map<String, Object>> plans = sqlExecutor.query(connection, "EXPLAIN " + rawSQL,
+                new MapRowAdapter(), params);
+        Double estimatedRows = null;
+        for (Map<String, Object> plan : plans) {
+            Long examinedRows = toLong(plan.get("rows"));
+            if (examinedRows == null) {
+                continue;
+            }
+            Object filtered = plan.get("filtered");
+            double filteredRows = filtered == null ? examinedRows
+                    : examinedRows * Double.parseDouble(String.valueOf(filtered)) / 100;
+            estimatedRows = estimatedRows == null ? filteredRows : estimatedRows * filteredRows;
+        }
+        return estimatedRows == null ? null : Math.round(estimatedRows);
+    }
+
+    /**
+     * Returns the table name if the SQL queries all rows of a table, the table statistics
+     * can be used for the SQL.
+     */
+    protected String getWholeTableName(String rawSQL) throws SQLException {
+        try {
+            Statement statement = CCJSqlParserUtil.parse(rawSQL);
+            if (!(statement instanceof Select) || !(((Select) statement).getSelectBody() instanceof PlainSelect)) {
+                return null;
+            }
+
+            PlainSelect plainSelect = (PlainSelect) ((Select) statement).getSelectBody();
+            if (!(plainSelect.getFromItem() instanceof Table) || plainSelect.getWhere() != null
+                    || (plainSelect.getJoins() != null && plainSelect.getJoins().size() > 0)
+                    || plainSelect.getGroupBy() != null || plainSelect.getHaving() != null
+                    || plainSelect.getDistinct() != null || plainSelect.getLimit() != null
+                    || plainSelect.getOffset() != null || plainSelect.getFetch() != null
+                    || plainSelect.getTop() != null) {
+                return null;
+            }
+
+            String tableName = ((Table) plainSelect.getFromItem()).getName();
+            return tableName.replaceAll("[`\"\\[\\]]", "");
+        } catch (JSQLParserException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
+    private Long toLong(Object value) {
+        if (value == null) {
+            return null;
+        }
+        return value instanceof Number ? ((Number) value).longValue()
+                : Math.round(Double.parseDouble(String.valueOf(value)));
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql.pagination;
+
+import com.github.braisdom.objsql.DatabaseType;
+import com.github.braisdom.objsql.DomainModelDescriptor;
+import com.github.braisdom.objsql.SQLExecutor;
+import com.github.braisdom.objsql.reflection.PropertyUtils;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Counts the rows exactly by the SQL built by <code>PagedSQLBuilder.buildCountSQL</code>.
+ */
+public class ExactCountStrategy implements CountStrategy {
+
+    @Override
+    public TotalCount count(Connection connection, SQLExecutor sqlExecutor, PagedSQLBuilder sqlBuilder,
+                            DatabaseType databaseType, String rawSQL, Object[] params,
+                            DomainModelDescriptor modelDescriptor) throws SQLException {
+        Long rowCount = queryCount(connection, sqlExecutor, sqlBuilder, sqlBuilder.buildCountSQL(rawSQL),
+                params, modelDescriptor);
+        return rowCount == null ? null : TotalCount.exact(rowCount);
+    }
+
+    static Long queryCount(Connection connection, SQLExecutor sqlExecutor, PagedSQLBuilder sqlBuilder,
+                           String countSQL, Object[] params, DomainModelDescriptor modelDescriptor)
+            throws SQLException {
+        List countResult = sqlExecutor.query(connection, countSQL, modelDescriptor, params);
+        if (countResult == null || countResult.size() == 0) {
+            return null;
+        }
+        return toLong(PropertyUtils.getRawAttribute(countResult.get(0), sqlBuilder.getCountAlias()));
+    }
+
+    static Long toLong(Object rawRowCount) {
+        if (rawRowCount == null) {
+            return null;
+        }
+        return rawRowCount instanceof Number ? ((Number) rawRowCount).longValue()
+                : Long.valueOf(String.valueOf(rawRowCount));
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql.pagination;
+
+import com.github.braisdom.objsql.util.StringUtil;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.statement.Statement;
+import net.sf.jsqlparser.statement.select.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A page which seeks the rows after the last-seen sort keys instead of skipping
+ * the offset rows, the cost of a deep page is the same as the first page.
+ * <pre>
+ *     KeysetPage page = KeysetPage.after(token, 20, "created_at", "id");
+ *     PagedList&lt;Member&gt; members = Member.pagedQuery(page, "status = ?", 1);
+ *     String nextToken = members.getContinuationToken();
+ * </pre>
+ *
+ * The key columns are the column names of query result and must be unique
+ * together and not null. The keyset pagination does not count the rows, so the
+ * total size and the page count of <code>PagedList</code> will be -1.
+ */
+public class KeysetPage extends Page {
+
+    private final String[] keyColumns;
+    private final Object[] lastKeys;
+    private final boolean descending;
+
+    public KeysetPage(int pageSize, String[] keyColumns, Object[] lastKeys, boolean descending) {
+        super(0, pageSize);
+
+        Objects.requireNonNull(keyColumns, "The keyColumns cannot be null");
+        if (keyColumns.length == 0) {
+            throw new IllegalArgumentException("The keyColumns cannot be empty");
+        }
+        if (lastKeys != null && lastKeys.length != keyColumns.length) {
+            throw new IllegalArgumentException(String.format("The lastKeys requires %d values, but %d given",
+                    keyColumns.length, lastKeys.length));
+        }
+
+        this.keyColumns = keyColumns;
+        this.lastKeys = lastKeys;
+        this.descending = descending;
+    }
+
+    public static KeysetPage first(int pageSize, String... keyColumns) {
+        return new KeysetPage(pageSize, keyColumns, null, false);
+    }
+
+    public static KeysetPage after(Object[] lastKeys, int pageSize, String... keyColumns) {
+        return new KeysetPage(pageSize, keyColumns, lastKeys, false);
+    }
+
+    /**
+     * Creates a page after the continuation token returned by previous page, which
+     * keeps the sort direction of previous page, it will be the first page if the
+     * token is blank.
+     *
+     * @see PagedList#getContinuationToken()
+     */
+    public static KeysetPage after(String continuationToken, int pageSize, String... keyColumns) {
+        if (StringUtil.isBlank(continuationToken)) {
+            return first(pageSize, keyColumns);
+        }
+        return new KeysetPage(pageSize, keyColumns, ContinuationToken.decode(continuationToken),
+                ContinuationToken.isDescending(continuationToken));
+    }
+
+    /**
+     * Returns true if the rows of query can be paged by the keyset of given unique column
+     * in the same order, the query must project the column, and must be unordered or
+     * ordered by the column ascending only, because the keyset pages are ordered by the
+     * column instead of the ORDER BY of query.
+     */
+    public static boolean isApplicable(String rawSQL, String keyColumn) {
+        Statement statement;
+        try {
+            statement = CCJSqlParserUtil.parse(rawSQL);
+        } catch (JSQLParserException ex) {
+            return false;
+        }
+        if (!(statement instanceof Select) || !(((Select) statement).getSelectBody() instanceof PlainSelect)) {
+            return false;
+        }
+
+        PlainSelect plainSelect = (PlainSelect) ((Select) statement).getSelectBody();
+        if (plainSelect.getGroupBy() != null || plainSelect.getLimit() != null || plainSelect.getOffset() != null
+                || plainSelect.getFetch() != null || plainSelect.getTop() != null) {
+            return false;
+        }
+
+        List<OrderByElement> orderByElements = plainSelect.getOrderByElements();
+        if (orderByElements != null && !orderByElements.isEmpty() && (orderByElements.size() > 1
+                || !orderByElements.get(0).isAsc() || !isColumn(orderByElements.get(0).getExpression(), keyColumn))) {
+            return false;
+        }
+
+        for (SelectItem selectItem : plainSelect.getSelectItems()) {
+            if (selectItem instanceof AllColumns || selectItem instanceof AllTableColumns) {
+                return true;
+            }
+            SelectExpressionItem expressionItem = (SelectExpressionItem) selectItem;
+            String alias = expressionItem.getAlias() == null ? null : expressionItem.getAlias().getName();
+            if (alias == null ? isColumn(expressionItem.getExpression(), keyColumn)
+                    : unquote(alias).equalsIgnoreCase(unquote(keyColumn))
+                    && isColumn(expressionItem.getExpression(), keyColumn)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isColumn(Expression expression, String columnName) {
+        return expression instanceof Column
+                && unquote(((Column) expression).getColumnName()).equalsIgnoreCase(unquote(columnName));
+    }
+
+    private static String unquote(String name) {
+        return name.replaceAll("[`\"\\[\\]]", "");
+    }
+
+    /**
+     * Returns a page which sorts the rows descending by the key columns.
+     */
+    public KeysetPage descending() {
+        return new KeysetPage(getPageSize(), keyColumns, lastKeys, true);
+    }
+
+    public KeysetPage next(Object[] lastKeys) {
+        Objects.requireNonNull(lastKeys, "The lastKeys cannot be null");
+        return new KeysetPage(getPageSize(), keyColumns, lastKeys, descending);
+    }
+
+    public String[] getKeyColumns() {
+        return keyColumns;
+    }
+
+    public Object[] getLastKeys() {
+        return lastKeys;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    public boolean isFirst() {
+        return lastKeys == null;
+    }
+
+    /**
+     * Returns the condition which filters the rows after the last keys, such as
+     * <code>(k1, k2) &gt; (?, ?)</code>, or <code>(k1 &gt; ?) OR (k1 = ? AND k2 &gt; ?)</code>
+     * for the database without row value comparison.
+     */
+    public String getKeysetCondition(boolean rowValueComparisonSupported) {
+        String operator = descending ? "<" : ">";
+
+        if (keyColumns.length == 1) {
+            return String.format("%s %s ?", keyColumns[0], operator);
+        }
+
+        if (rowValueComparisonSupported) {
+            String[] placeholders = new String[keyColumns.length];
+            for (int i = 0; i < placeholders.length; i++) {
+                placeholders[i] = "?";
+            }
+            return String.format("(%s) %s (%s)", String.join(", ", keyColumns), operator,
+                    String.join(", ", placeholders));
+        }
+
+        List<String> conditions = new ArrayList<>();
+        for (int i = 0; i < keyColumns.length; i++) {
+            StringBuilder condition = new StringBuilder("(");
+            for (int t = 0; t < i; t++) {
+                condition.append(keyColumns[t]).append(" = ? AND ");
+            }
+            condition.append(keyColumns[i]).append(" ").append(operator).append(" ?)");
+            conditions.add(condition.toString());
+        }
+        return String.join(" OR ", conditions);
+    }
+
+    /**
+     * Returns the parameters of the keyset condition in order of placeholders.
+     */
+    public Object[] getKeysetParams(boolean rowValueComparisonSupported) {
+        if (isFirst()) {
+            return new Object[0];
+        }
+
+        if (keyColumns.length == 1 || rowValueComparisonSupported) {
+            return lastKeys;
+        }
+
+        List<Object> params = new ArrayList<>();
+        for (int i = 0; i < lastKeys.length; i++) {
+            for (int t = 0; t <= i; t++) {
+                params.add(lastKeys[t]);
+            }
+        }
+        return params.toArray();
+    }
+
+    public String getOrderBy() {
+        String direction = descending ? " DESC" : "";
+        List<String> orderByElements = new ArrayList<>();
+        for (String keyColumn : keyColumns) {
+            orderByElements.add(keyColumn + direction);
+        }
+        return String.join(", ", orderByElements);
+    }
+}
@@ -33,4 +33,24 @@ public interface PagedList<T> extends Iterable<T> {
     int size();
 
     T get(int index);
+
+    /**
+     * Returns the opaque token for fetching the next keyset page, or null if
+     * there's no more rows or the page is not a keyset page.
+     *
+     * @see KeysetPage#after(String, int, String...)
+     */
+    default String getContinuationToken() {
+        return null;
+    }
+
+    /**
+     * Returns the total count with the way it was produced, the count may be estimated
+     * or capped by the <code>CountStrategy</code> of paginator.
+     *
+     * @see CountStrategy
+     */
+    default TotalCount getTotalCount() {
+        return totalSize() < 0 ? TotalCount.UNKNOWN : TotalCount.exact(totalSize());
+    }
 }
@@ -16,18 +16,23 @@
  */
 package com.github.braisdom.objsql.pagination;
 
+import com.github.braisdom.objsql.DatabaseType;
 import com.github.braisdom.objsql.DomainModelDescriptor;
 import com.github.braisdom.objsql.pagination.impl.TableAlias;
 import net.sf.jsqlparser.JSQLParserException;
 import net.sf.jsqlparser.expression.Alias;
+import net.sf.jsqlparser.expression.AnalyticExpression;
 import net.sf.jsqlparser.expression.Function;
 import net.sf.jsqlparser.expression.operators.relational.ExpressionList;
 import net.sf.jsqlparser.parser.CCJSqlParserUtil;
 import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.schema.Table;
 import net.sf.jsqlparser.statement.Statement;
 import net.sf.jsqlparser.statement.select.*;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * It builds the relevant SQL required for paging。By default,
@@ -103,6 +108,130 @@ public interface PagedSQLBuilder {
         }
     }
 
+    /**
+     * Builds paged querying SQL by given SQL, whose offset and page size are placeholders,
+     * so the SQL can be reused for all pages of the query.
+     *
+     * @param rawSQL The original query sql.
+     * @return the paged SQL, or null if the builder pages by <code>buildQuerySQL</code> only,
+     * such as the builders implemented before the placeholders were supported
+     * @throws SQLException
+     * @see #getPageParams(Page)
+     */
+    default String buildParameterizedQuerySQL(String rawSQL, DomainModelDescriptor modelDescriptor) throws SQLException {
+        return null;
+    }
+
+    /**
+     * Returns the values of page placeholders in SQL built by <code>buildParameterizedQuerySQL</code>,
+     * which follow the parameters of original query SQL.
+     */
+    default Object[] getPageParams(Page page) {
+        return new Object[]{page.getOffset(), page.getPageSize()};
+    }
+
+    /**
+     * Builds querying SQL which carries the total count of rows in the column named
+     * <code>count_</code> by <code>COUNT(*) OVER ()</code>, so the rows and total count
+     * can be queried in one round trip, it requires the window function of database.
+     *
+     * @param rawSQL The original query sql.
+     * @return the querying SQL, or null if the original SQL cannot be rewritten, such
+     * as a SELECT DISTINCT or a UNION
+     * @throws SQLException
+     * @see com.github.braisdom.objsql.DatabaseType#isWindowFunctionSupported()
+     */
+    default String buildWindowCountSQL(String rawSQL) throws SQLException {
+        try {
+            Statement statement = CCJSqlParserUtil.parse(rawSQL);
+            Select originalSelect = (Select) statement;
+
+            if (!(originalSelect.getSelectBody() instanceof PlainSelect)) {
+                return null;
+            }
+
+            // The count will be calculated before DISTINCT or limit
+            PlainSelect plainSelect = (PlainSelect) originalSelect.getSelectBody();
+            if (plainSelect.getDistinct() != null || plainSelect.getLimit() != null
+                    || plainSelect.getOffset() != null || plainSelect.getFetch() != null
+                    || plainSelect.getTop() != null) {
+                return null;
+            }
+
+            List<SelectItem> selectItems = new ArrayList<>();
+            for (SelectItem selectItem : plainSelect.getSelectItems()) {
+                if (selectItem instanceof AllColumns) {
+                    // Some databases disallow other columns following the '*'
+                    if (!(plainSelect.getFromItem() instanceof Table)
+                            || (plainSelect.getJoins() != null && plainSelect.getJoins().size() > 0)) {
+                        return null;
+                    }
+
+                    Table table = (Table) plainSelect.getFromItem();
+                    selectItems.add(new AllTableColumns(table.getAlias() == null
+                            ? table : new Table(table.getAlias().getName())));
+                } else {
+                    selectItems.add(selectItem);
+                }
+            }
+
+            AnalyticExpression countOverFunction = new AnalyticExpression();
+            SelectExpressionItem countOverItem = new SelectExpressionItem();
+
+            countOverFunction.setName("COUNT");
+            countOverFunction.setAllColumns(true);
+            countOverItem.setExpression(countOverFunction);
+            countOverItem.setAlias(new Alias(COUNT_ALIAS));
+            selectItems.add(countOverItem);
+
+            plainSelect.setSelectItems(selectItems);
+            return originalSelect.toString();
+        } catch (JSQLParserException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Builds keyset querying SQL by given SQL, the rows after the last keys of page will be
+     * filtered by placeholders, and one more row will be fetched for detecting the next page.
+     *
+     * @param page the keyset page
+     * @param rawSQL the original query sql
+     * @param databaseType the database type
+     * @return
+     * @throws SQLException
+     * @see KeysetPage#getKeysetParams(boolean)
+     */
+    default String buildKeysetQuerySQL(KeysetPage page, String rawSQL, DatabaseType databaseType,
+                                       DomainModelDescriptor modelDescriptor) throws SQLException {
+        try {
+            Statement statement = CCJSqlParserUtil.parse(rawSQL);
+            SelectBody selectBody = ((Select) statement).getSelectBody();
+
+            // The rows are sorted by the keys, and the original ORDER BY is disallowed
+            // in sub query for some databases
+            if (selectBody instanceof PlainSelect) {
+                PlainSelect plainSelect = (PlainSelect) selectBody;
+                if (plainSelect.getLimit() == null && plainSelect.getOffset() == null
+                        && plainSelect.getFetch() == null && plainSelect.getTop() == null) {
+                    plainSelect.setOrderByElements(null);
+                }
+            }
+
+            StringBuilder keysetSQL = new StringBuilder();
+            keysetSQL.append("SELECT * FROM (").append(selectBody).append(") T");
+            if (!page.isFirst()) {
+                keysetSQL.append(" WHERE ")
+                        .append(page.getKeysetCondition(databaseType.isRowValueComparisonSupported()));
+            }
+            keysetSQL.append(" ORDER BY ").append(page.getOrderBy());
+
+            return buildQuerySQL(Page.create(0, page.getPageSize() + 1), keysetSQL.toString(), modelDescriptor);
+        } catch (JSQLParserException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+
     default String getCountAlias() {
         return COUNT_ALIAS;
     }
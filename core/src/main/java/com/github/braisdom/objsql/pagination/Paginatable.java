@@ -19,6 +19,9 @@ package com.github.braisdom.objsql.pagination;
 import com.github.braisdom.objsql.DatabaseType;
 import com.github.braisdom.objsql.DomainModelDescriptor;
 
+import java.sql.Connection;
+import java.sql.SQLException;
+
 /**
  * It describes a paginatable query object
  */
@@ -26,4 +29,20 @@ public interface Paginatable {
 
     String getQuerySQL(DatabaseType databaseType);
 
+    /**
+     * Returns the query SQL on the connection of pagination, the query needs the database
+     * to render the SQL, such as the partitioned tables, should not acquire another connection.
+     */
+    default String getQuerySQL(Connection connection, DatabaseType databaseType) throws SQLException {
+        return getQuerySQL(databaseType);
+    }
+
+    /**
+     * Returns the parameters bound to the placeholders of query SQL in order, they
+     * will be followed by the parameters of paging when the query is paginated.
+     */
+    default Object[] getQueryParams() {
+        return new Object[0];
+    }
+
 }
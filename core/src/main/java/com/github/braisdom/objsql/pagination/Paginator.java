@@ -17,10 +17,14 @@
 package com.github.braisdom.objsql.pagination;
 
 import com.github.braisdom.objsql.BeanModelDescriptor;
+import com.github.braisdom.objsql.DatabaseType;
+import com.github.braisdom.objsql.Databases;
 import com.github.braisdom.objsql.DomainModelDescriptor;
+import com.github.braisdom.objsql.annotations.PrimaryKey;
 import com.github.braisdom.objsql.relation.Relationship;
 
 import java.sql.SQLException;
+import java.util.concurrent.Executor;
 
 public interface Paginator<T> {
 
@@ -31,4 +35,42 @@ public interface Paginator<T> {
 
     PagedList<T> paginate(Page page, Paginatable paginatable, DomainModelDescriptor<T> modelDescriptor,
                           Relationship... relationships) throws SQLException;
+
+    default PrefetchingIterator<T> iterate(Paginatable paginatable, Class<T> clazz, int pageSize,
+                                           Relationship... relationships) {
+        return iterate(paginatable, new BeanModelDescriptor(clazz), pageSize, relationships);
+    }
+
+    /**
+     * Iterates all rows of the query with the following pages prefetched. The rows are paged
+     * by the keyset of primary key if the query projects the primary key and is unordered or
+     * ordered by the primary key only, or the rows are paged by offset in the order of query.
+     * The rows of sharded domain model are paged by offset, the keyset pages cannot be merged
+     * across shards.
+     *
+     * @see #iterate(Page, Paginatable, DomainModelDescriptor, Relationship...)
+     * @see KeysetPage#isApplicable(String, String)
+     */
+    default PrefetchingIterator<T> iterate(Paginatable paginatable, DomainModelDescriptor<T> modelDescriptor,
+                                           int pageSize, Relationship... relationships) {
+        PrimaryKey primaryKey = modelDescriptor.getPrimaryKey();
+        Page firstPage = primaryKey != null
+                && Databases.getShardedConnectionFactory(modelDescriptor.getDataSourceName()) == null
+                && KeysetPage.isApplicable(paginatable.getQuerySQL(DatabaseType.Ansi), primaryKey.name())
+                ? KeysetPage.first(pageSize, primaryKey.name()) : Page.create(0, pageSize);
+        return iterate(firstPage, paginatable, modelDescriptor, relationships);
+    }
+
+    /**
+     * Iterates all rows of the query from the first page, which can be a <code>KeysetPage</code>.
+     * The pages are fetched in background on other connections, except that a connection is bound
+     * to current thread, such as in <code>Databases.executeTransactionally</code>.
+     */
+    default PrefetchingIterator<T> iterate(Page firstPage, Paginatable paginatable,
+                                           DomainModelDescriptor<T> modelDescriptor, Relationship... relationships) {
+        Executor executor = Databases.getCurrentThreadConnection() == null
+                ? PrefetchingIterator.getDefaultExecutor() : null;
+        return new PrefetchingIterator<>(firstPage, page -> paginate(page, paginatable, modelDescriptor, relationships),
+                executor, PrefetchingIterator.DEFAULT_MAX_IN_FLIGHT);
+    }
 }
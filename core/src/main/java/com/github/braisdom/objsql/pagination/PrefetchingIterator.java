@@ -0,0 +1,236 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql.pagination;
+
+import com.github.braisdom.objsql.util.SuppressedException;
+
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Iterates the rows of all pages of a query, the following pages are fetched in
+ * background while the rows of current page are processed, so the latency of database
+ * is pipelined with the processing of application.
+ * <pre>
+ *     try (PrefetchingIterator&lt;Member&gt; members = paginator.iterate(query, Member.class, 500)) {
+ *         while (members.hasNext()) {
+ *             process(members.next());
+ *         }
+ *     }
+ * </pre>
+ *
+ * The offset pages are fetched at most <code>maxInFlight</code> pages ahead, and a keyset
+ * page can be fetched only one page ahead because it depends on the last keys of previous
+ * page. The iteration stops at the first page which has fewer rows than the page size,
+ * no total count is queried. The <code>SQLException</code> of fetching will be thrown
+ * as a <code>SuppressedException</code> by <code>hasNext</code> or <code>next</code>.
+ */
+public class PrefetchingIterator<T> implements Iterator<T>, AutoCloseable {
+
+    public static final int DEFAULT_MAX_IN_FLIGHT = 2;
+
+    private static volatile ExecutorService defaultExecutor;
+
+    /**
+     * Fetches the rows of given page.
+     */
+    @FunctionalInterface
+    public interface PageFetcher<T> {
+        PagedList<T> fetch(Page page) throws SQLException;
+    }
+
+    private final PageFetcher<T> pageFetcher;
+    private final Executor executor;
+    private final int maxInFlight;
+    private final Deque<Future<PagedList<T>>> inFlight = new ArrayDeque<>();
+
+    private Page nextPage;
+    private Iterator<T> current = Collections.emptyIterator();
+    private boolean closed;
+
+    /**
+     * @param firstPage   the first page, a <code>KeysetPage</code> iterates by the continuation token
+     * @param executor    the executor fetching pages in background, or null to fetch on the
+     *                    current thread when the page is required
+     * @param maxInFlight the maximum count of pages fetched ahead
+     */
+    public PrefetchingIterator(Page firstPage, PageFetcher<T> pageFetcher, Executor executor, int maxInFlight) {
+        Objects.requireNonNull(firstPage, "The firstPage cannot be null");
+        Objects.requireNonNull(pageFetcher, "The pageFetcher cannot be null");
+        if (firstPage.getPageSize() <= 0) {
+            throw new IllegalArgumentException("The pageSize must be positive");
+        }
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException("The maxInFlight must be positive");
+        }
+
+        this.nextPage = firstPage;
+        this.pageFetcher = pageFetcher;
+        this.executor = executor;
+        this.maxInFlight = executor == null ? 1 : maxInFlight;
+
+        fill();
+    }
+
+    /**
+     * Returns the shared executor of daemon threads for prefetching.
+     */
+    public static Executor getDefaultExecutor() {
+        if (defaultExecutor == null) {
+            synchronized (PrefetchingIterator.class) {
+                if (defaultExecutor == null) {
+                    AtomicInteger threadNumber = new AtomicInteger();
+                    defaultExecutor = Executors.newCachedThreadPool(runnable -> {
+                        Thread thread = new Thread(runnable, "objsql-prefetch-" + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+            }
+        }
+        return defaultExecutor;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!current.hasNext()) {
+            if (closed || inFlight.isEmpty()) {
+                return false;
+            }
+
+            PagedList<T> pagedList = await(inFlight.poll());
+            if (pagedList.getPage() instanceof KeysetPage) {
+                String continuationToken = pagedList.getContinuationToken();
+                nextPage = continuationToken == null ? null
+                        : ((KeysetPage) pagedList.getPage()).next(ContinuationToken.decode(continuationToken));
+            } else if (pagedList.size() < pagedList.getPage().getPageSize()) {
+                // The following pages are empty
+                nextPage = null;
+                cancelInFlight();
+            }
+
+            fill();
+            current = pagedList.iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return current.next();
+    }
+
+    /**
+     * Stops the iteration and cancels the pages in flight.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        nextPage = null;
+        cancelInFlight();
+    }
+
+    private void fill() {
+        while (nextPage != null && inFlight.size() < maxInFlight) {
+            Page page = nextPage;
+            inFlight.add(submit(page));
+
+            if (page instanceof KeysetPage) {
+                // The next keyset page is known after the page fetched
+                nextPage = null;
+            } else {
+                nextPage = Page.create(page.getPage() + 1, page.getPageSize());
+            }
+        }
+    }
+
+    private Future<PagedList<T>> submit(Page page) {
+        if (executor == null) {
+            return new LazyFuture(page);
+        }
+
+        FutureTask<PagedList<T>> futureTask = new FutureTask<>(() -> pageFetcher.fetch(page));
+        executor.execute(futureTask);
+        return futureTask;
+    }
+
+    private PagedList<T> await(Future<PagedList<T>> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            close();
+            throw SuppressedException.wrapException(new SQLException("Interrupted while fetching the page", ex));
+        } catch (ExecutionException ex) {
+            close();
+            throw SuppressedException.wrapException(ex.getCause());
+        }
+    }
+
+    private void cancelInFlight() {
+        for (Future<PagedList<T>> future : inFlight) {
+            future.cancel(true);
+        }
+        inFlight.clear();
+    }
+
+    /**
+     * Fetches the page on the current thread when it is required.
+     */
+    private class LazyFuture implements Future<PagedList<T>> {
+
+        private final Page page;
+
+        private LazyFuture(Page page) {
+            this.page = page;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return false;
+        }
+
+        @Override
+        public boolean isDone() {
+            return false;
+        }
+
+        @Override
+        public PagedList<T> get() throws ExecutionException {
+            try {
+                return pageFetcher.fetch(page);
+            } catch (SQLException | RuntimeException ex) {
+                throw new ExecutionException(ex);
+            }
+        }
+
+        @Override
+        public PagedList<T> get(long timeout, TimeUnit unit) throws ExecutionException {
+            return get();
+        }
+    }
+}
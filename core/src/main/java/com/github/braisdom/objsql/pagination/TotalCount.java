@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql.pagination;
+
+import java.util.Objects;
+
+/**
+ * The total count of rows of a paged query, which carries the way it was produced,
+ * since a count may be cached, estimated or capped instead of counted exactly.
+ *
+ * @see CountStrategy
+ */
+public final class TotalCount {
+
+    public static final TotalCount UNKNOWN = new TotalCount(-1, Source.NONE, false);
+
+    public enum Source {
+        /**
+         * Counted exactly by <code>SELECT COUNT(*)</code>.
+         */
+        EXACT,
+        /**
+         * Counted by <code>COUNT(*) OVER ()</code> with the rows of page.
+         */
+        WINDOW,
+        /**
+         * Read from the count cache, it may be stale within the TTL.
+         */
+        CACHED,
+        /**
+         * Estimated by the table statistics or query plan of database.
+         */
+        ESTIMATED,
+        /**
+         * Counted up to a cap, the value is a lower bound if it reaches the cap.
+         */
+        CAPPED,
+        /**
+         * Not counted, such as a keyset page.
+         */
+        NONE
+    }
+
+    private final long value;
+    private final Source source;
+    private final boolean lowerBound;
+
+    public TotalCount(long value, Source source, boolean lowerBound) {
+        Objects.requireNonNull(source, "The source cannot be null");
+
+        this.value = value;
+        this.source = source;
+        this.lowerBound = lowerBound;
+    }
+
+    public static TotalCount exact(long value) {
+        return new TotalCount(value, Source.EXACT, false);
+    }
+
+    public long getValue() {
+        return value;
+    }
+
+    public Source getSource() {
+        return source;
+    }
+
+    /**
+     * Returns true if there are at least <code>value</code> rows, but maybe more.
+     */
+    public boolean isLowerBound() {
+        return lowerBound;
+    }
+
+    public boolean isExact() {
+        return !lowerBound && (source == Source.EXACT || source == Source.WINDOW);
+    }
+
+    /**
+     * Returns the same count produced by another source.
+     */
+    public TotalCount withSource(Source source) {
+        return new TotalCount(value, source, lowerBound);
+    }
+
+    @Override
+    public String toString() {
+        return lowerBound ? value + "+" : String.valueOf(value);
+    }
+}
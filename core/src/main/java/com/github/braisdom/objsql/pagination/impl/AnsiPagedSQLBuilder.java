@@ -0,0 +1,43 @@
+package com.github.braisdom.objsql.pagination.impl;
+
+import com.github.braisdom.objsql.DomainModelDescriptor;
+import com.github.braisdom.objsql.pagination.PagedSQLBuilder;
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.expression.JdbcParameter;
+import net.sf.jsqlparser.parser.CCJSqlParserUtil;
+import net.sf.jsqlparser.statement.Statement;
+import net.sf.jsqlparser.statement.select.Fetch;
+import net.sf.jsqlparser.statement.select.Offset;
+import net.sf.jsqlparser.statement.select.PlainSelect;
+import net.sf.jsqlparser.statement.select.Select;
+
+import java.sql.SQLException;
+
+/**
+ * Pages the query by <code>OFFSET ? ROWS FETCH NEXT ? ROWS ONLY</code> of ANSI SQL.
+ */
+public class AnsiPagedSQLBuilder implements PagedSQLBuilder {
+
+    @Override
+    public String buildParameterizedQuerySQL(String rawSQL, DomainModelDescriptor modelDescriptor) throws SQLException {
+        try {
+            Statement statement = CCJSqlParserUtil.parse(rawSQL);
+            Select originalSelect = (Select) statement;
+
+            PlainSelect plainSelect = (PlainSelect) originalSelect.getSelectBody();
+            Offset offset = new Offset();
+            Fetch fetch = new Fetch();
+
+            offset.setOffsetJdbcParameter(new JdbcParameter());
+            offset.setOffsetParam("ROWS");
+            fetch.setFetchJdbcParameter(new JdbcParameter());
+
+            plainSelect.setOffset(offset);
+            plainSelect.setFetch(fetch);
+
+            return originalSelect.toString();
+        } catch (JSQLParserException e) {
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+}
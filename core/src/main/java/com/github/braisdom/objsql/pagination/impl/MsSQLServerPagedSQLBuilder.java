@@ -4,6 +4,7 @@ import com.github.braisdom.objsql.DomainModelDescriptor;
 import com.github.braisdom.objsql.pagination.Page;
 import com.github.braisdom.objsql.pagination.PagedSQLBuilder;
 import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.expression.JdbcParameter;
 import net.sf.jsqlparser.parser.CCJSqlParserUtil;
 import net.sf.jsqlparser.schema.Column;
 import net.sf.jsqlparser.statement.Statement;
@@ -16,16 +17,34 @@ public class MsSQLServerPagedSQLBuilder implements PagedSQLBuilder {
 
     @Override
     public String buildQuerySQL(Page page, String rawSQL, DomainModelDescriptor modelDescriptor) throws SQLException {
+        Offset offset = new Offset();
+        Fetch fetch = new Fetch();
+
+        offset.setOffset(page.getOffset());
+        fetch.setRowCount(page.getPageSize());
+
+        return buildQuerySQL(rawSQL, modelDescriptor, offset, fetch);
+    }
+
+    @Override
+    public String buildParameterizedQuerySQL(String rawSQL, DomainModelDescriptor modelDescriptor) throws SQLException {
+        Offset offset = new Offset();
+        Fetch fetch = new Fetch();
+
+        offset.setOffsetJdbcParameter(new JdbcParameter());
+        fetch.setFetchJdbcParameter(new JdbcParameter());
+
+        return buildQuerySQL(rawSQL, modelDescriptor, offset, fetch);
+    }
+
+    private String buildQuerySQL(String rawSQL, DomainModelDescriptor modelDescriptor,
+                                 Offset offset, Fetch fetch) throws SQLException {
         try {
             Statement statement = CCJSqlParserUtil.parse(rawSQL);
             Select originalSelect = (Select) statement;
             PlainSelect plainSelect = (PlainSelect) originalSelect.getSelectBody();
-            Offset offset = new Offset();
-            Fetch fetch = new Fetch();
 
-            offset.setOffset(page.getOffset());
             offset.setOffsetParam("ROWS");
-            fetch.setRowCount(page.getPageSize());
 
             if (plainSelect.getOrderByElements() == null || plainSelect.getOrderByElements().size() == 0) {
                 OrderByElement orderByElement = new OrderByElement();
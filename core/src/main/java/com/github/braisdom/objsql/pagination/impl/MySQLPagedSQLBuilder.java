@@ -4,6 +4,8 @@ import com.github.braisdom.objsql.DomainModelDescriptor;
 import com.github.braisdom.objsql.pagination.Page;
 import com.github.braisdom.objsql.pagination.PagedSQLBuilder;
 import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.JdbcParameter;
 import net.sf.jsqlparser.expression.LongValue;
 import net.sf.jsqlparser.parser.CCJSqlParserUtil;
 import net.sf.jsqlparser.statement.Statement;
@@ -17,6 +19,15 @@ public class MySQLPagedSQLBuilder implements PagedSQLBuilder {
 
     @Override
     public String buildQuerySQL(Page page, String rawSQL, DomainModelDescriptor modelDescriptor) throws SQLException {
+        return buildQuerySQL(rawSQL, new LongValue(page.getOffset()), new LongValue(page.getPageSize()));
+    }
+
+    @Override
+    public String buildParameterizedQuerySQL(String rawSQL, DomainModelDescriptor modelDescriptor) throws SQLException {
+        return buildQuerySQL(rawSQL, new JdbcParameter(), new JdbcParameter());
+    }
+
+    private String buildQuerySQL(String rawSQL, Expression offset, Expression rowCount) throws SQLException {
         try {
             Statement statement = CCJSqlParserUtil.parse(rawSQL);
             Select originalSelect = (Select) statement;
@@ -24,8 +35,8 @@ public class MySQLPagedSQLBuilder implements PagedSQLBuilder {
             PlainSelect plainSelect = (PlainSelect) originalSelect.getSelectBody();
             Limit limit = new Limit();
 
-            limit.setOffset(new LongValue(page.getOffset()));
-            limit.setRowCount(new LongValue(page.getPageSize()));
+            limit.setOffset(offset);
+            limit.setRowCount(rowCount);
 
             plainSelect.setLimit(limit);
             return originalSelect.toString();
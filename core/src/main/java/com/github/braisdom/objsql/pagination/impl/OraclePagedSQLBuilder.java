@@ -5,6 +5,8 @@ import com.github.braisdom.objsql.pagination.Page;
 import com.github.braisdom.objsql.pagination.PagedSQLBuilder;
 import net.sf.jsqlparser.JSQLParserException;
 import net.sf.jsqlparser.expression.Alias;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.JdbcParameter;
 import net.sf.jsqlparser.expression.LongValue;
 import net.sf.jsqlparser.expression.operators.relational.*;
 import net.sf.jsqlparser.parser.CCJSqlParserUtil;
@@ -22,6 +24,29 @@ public class OraclePagedSQLBuilder implements PagedSQLBuilder {
 
     @Override
     public String buildQuerySQL(Page page, String rawSQL, DomainModelDescriptor modelDescriptor) throws SQLException {
+        return buildQuerySQL(rawSQL, new LongValue(page.getOffset() + page.getPageSize()),
+                new LongValue(page.getOffset()));
+    }
+
+    @Override
+    public String buildParameterizedQuerySQL(String rawSQL, DomainModelDescriptor modelDescriptor) throws SQLException {
+        return buildQuerySQL(rawSQL, new JdbcParameter(), new JdbcParameter());
+    }
+
+    /**
+     * The maximum ROWNUM precedes the offset in the SQL.
+     */
+    @Override
+    public Object[] getPageParams(Page page) {
+        return new Object[]{page.getOffset() + page.getPageSize(), page.getOffset()};
+    }
+
+    @Override
+    public String getCountAlias() {
+        return COUNT_ALIAS.toUpperCase();
+    }
+
+    private String buildQuerySQL(String rawSQL, Expression maxRowNum, Expression offset) throws SQLException {
         try {
             Statement statement = CCJSqlParserUtil.parse(rawSQL);
             Select originalSelect = (Select) statement;
@@ -29,7 +54,7 @@ public class OraclePagedSQLBuilder implements PagedSQLBuilder {
             Select select = new Select();
             SubSelect subSelect = new SubSelect();
             PlainSelect plainSelect = new PlainSelect();
-            Select innerSelect = createInnerSelect(originalSelect, page);
+            Select innerSelect = createInnerSelect(originalSelect, maxRowNum);
 
             plainSelect.addSelectItems(new SelectExpressionItem(new Column("*")));
 
@@ -38,7 +63,7 @@ public class OraclePagedSQLBuilder implements PagedSQLBuilder {
 
             GreaterThanEquals greaterThanEquals = new GreaterThanEquals();
             greaterThanEquals.setLeftExpression(new Column("OFFSET_ROW_COUNT"));
-            greaterThanEquals.setRightExpression(new LongValue(page.getOffset()));
+            greaterThanEquals.setRightExpression(offset);
 
             plainSelect.setWhere(greaterThanEquals);
 
@@ -50,12 +75,7 @@ public class OraclePagedSQLBuilder implements PagedSQLBuilder {
         }
     }
 
-    @Override
-    public String getCountAlias() {
-        return COUNT_ALIAS.toUpperCase();
-    }
-
-    private Select createInnerSelect(Select originalSelect, Page page) {
+    private Select createInnerSelect(Select originalSelect, Expression maxRowNum) {
         Alias originalSelectAlias = new TableAlias("T");
         Select select = new Select();
         SubSelect subSelect = new SubSelect();
@@ -71,7 +91,7 @@ public class OraclePagedSQLBuilder implements PagedSQLBuilder {
 
         MinorThanEquals minorThanEquals = new MinorThanEquals();
         minorThanEquals.setLeftExpression(new Column("ROWNUM"));
-        minorThanEquals.setRightExpression(new LongValue(page.getOffset() + page.getPageSize()));
+        minorThanEquals.setRightExpression(maxRowNum);
 
         plainSelect.setWhere(minorThanEquals);
 
@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql.reflection;
+
+import org.apache.commons.beanutils.BeanUtilsBean;
+import org.apache.commons.beanutils.ConvertUtilsBean;
+
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * The accessor of a property whose getter and setter are compiled into functional
+ * objects, so that the repeated reading and writing in large result sets avoids
+ * the reflective invocation. It falls back to the reflective invocation
+ * if the getter or setter cannot be compiled.
+ */
+public final class PropertyAccessor {
+
+    private static final Map<Class<?>, Map<String, PropertyAccessor>> cache = new ConcurrentHashMap<>();
+
+    private final Class<?> beanClass;
+    private final PropertyDescriptor propertyDescriptor;
+    private final Class<?> wrappedPropertyType;
+    private final Function<Object, Object> getter;
+    private final BiConsumer<Object, Object> setter;
+
+    private PropertyAccessor(Class<?> beanClass, PropertyDescriptor propertyDescriptor) {
+        this.beanClass = beanClass;
+        this.propertyDescriptor = propertyDescriptor;
+        this.wrappedPropertyType = propertyDescriptor.getPropertyType() == null ? Object.class
+                : MethodType.methodType(propertyDescriptor.getPropertyType()).wrap().returnType();
+        this.getter = propertyDescriptor.getReadMethod() == null
+                ? null : compileGetter(propertyDescriptor.getReadMethod());
+        this.setter = propertyDescriptor.getWriteMethod() == null
+                ? null : compileSetter(propertyDescriptor.getWriteMethod());
+    }
+
+    public static PropertyAccessor of(Object bean, String propertyName) {
+        return of(ClassUtils.getRealClass(bean), propertyName);
+    }
+
+    public static PropertyAccessor of(Class<?> beanClass, String propertyName) {
+        Class<?> realClass = ClassUtils.getRealClass(beanClass);
+        return cache.computeIfAbsent(realClass, clazz -> new ConcurrentHashMap<>())
+                .computeIfAbsent(propertyName, name -> {
+                    PropertyDescriptor propertyDescriptor = PropertyUtils.getPropertyDescriptorByName(realClass, name);
+                    if (propertyDescriptor == null) {
+                        throw new ReflectionException(String.format("The %s has no property '%s'",
+                                realClass.getSimpleName(), name));
+                    }
+                    return new PropertyAccessor(realClass, propertyDescriptor);
+                });
+    }
+
+    public String getName() {
+        return propertyDescriptor.getName();
+    }
+
+    public Class<?> getPropertyType() {
+        return propertyDescriptor.getPropertyType();
+    }
+
+    public <T> T read(Object bean) {
+        if (getter == null) {
+            throw new ReflectionException(String.format("%s must be readable",
+                    PropertyUtils.getQualifiedPropertyName(beanClass, propertyDescriptor)));
+        }
+        return (T) getter.apply(bean);
+    }
+
+    /**
+     * Writes the value into the bean, the value will be converted as the property type
+     * like <code>PropertyUtils.write</code> if it is not assignable to the property type.
+     */
+    public void write(Object bean, Object value) {
+        if (setter == null) {
+            throw new ReflectionException(String.format("%s must be writable",
+                    PropertyUtils.getQualifiedPropertyName(beanClass, propertyDescriptor)));
+        }
+        if (value != null && !wrappedPropertyType.isInstance(value)) {
+            ConvertUtilsBean convertUtilsBean = BeanUtilsBean.getInstance().getConvertUtils();
+            value = convertUtilsBean.convert(value, propertyDescriptor.getPropertyType());
+        }
+        setter.accept(bean, value);
+    }
+
+    private static Function<Object, Object> compileGetter(Method readMethod) {
+        if (!isCompilable(readMethod)) {
+            return bean -> invoke(readMethod, bean);
+        }
+
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle methodHandle = lookup.unreflect(readMethod);
+            MethodType instantiatedType = MethodType.methodType(readMethod.getReturnType(),
+                    readMethod.getDeclaringClass()).wrap();
+            CallSite callSite = LambdaMetafactory.metafactory(lookup, "apply",
+                    MethodType.methodType(Function.class),
+                    MethodType.methodType(Object.class, Object.class), methodHandle, instantiatedType);
+            return (Function<Object, Object>) callSite.getTarget().invoke();
+        } catch (Throwable ex) {
+            return bean -> invoke(readMethod, bean);
+        }
+    }
+
+    private static BiConsumer<Object, Object> compileSetter(Method writeMethod) {
+        if (!isCompilable(writeMethod)) {
+            return (bean, value) -> invoke(writeMethod, bean, value);
+        }
+
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            MethodHandle methodHandle = lookup.unreflect(writeMethod);
+            MethodType instantiatedType = MethodType.methodType(void.class, writeMethod.getDeclaringClass(),
+                    MethodType.methodType(writeMethod.getParameterTypes()[0]).wrap().returnType());
+            CallSite callSite = LambdaMetafactory.metafactory(lookup, "accept",
+                    MethodType.methodType(BiConsumer.class),
+                    MethodType.methodType(void.class, Object.class, Object.class), methodHandle, instantiatedType);
+            return (BiConsumer<Object, Object>) callSite.getTarget().invoke();
+        } catch (Throwable ex) {
+            return (bean, value) -> invoke(writeMethod, bean, value);
+        }
+    }
+
+    /**
+     * The compiled function is defined in the class loader of ObjectiveSql, it requires
+     * the bean class is visible from that class loader.
+     */
+    private static boolean isCompilable(Method method) {
+        Class<?> declaringClass = method.getDeclaringClass();
+        if (!Modifier.isPublic(method.getModifiers()) || !Modifier.isPublic(declaringClass.getModifiers())) {
+            return false;
+        }
+
+        try {
+            ClassLoader classLoader = PropertyAccessor.class.getClassLoader();
+            return Class.forName(declaringClass.getName(), false, classLoader) == declaringClass;
+        } catch (ClassNotFoundException ex) {
+            return false;
+        }
+    }
+
+    private static Object invoke(Method method, Object bean, Object... args) {
+        try {
+            return method.invoke(bean, args);
+        } catch (IllegalAccessException | InvocationTargetException ex) {
+            throw new ReflectionException(ex.getMessage(), ex);
+        }
+    }
+
+    static void clearCache() {
+        cache.clear();
+    }
+}
@@ -81,6 +81,24 @@ public final class PropertyUtils {
         return destination;
     }
 
+    /**
+     * Returns a shallow copy of the bean, the accessible properties and the raw attributes
+     * are copied into a new instance.
+     */
+    public static <T> T copy(T source) {
+        T destination = ClassUtils.createNewInstanceLike(source);
+        getPropertyDescriptors(source).stream()
+                .filter(PropertyUtils::isFullyAccessible)
+                .forEach(propertyDescriptor -> copyValue(source, destination, propertyDescriptor));
+        if (supportRawAttribute(source)) {
+            Map<String, Object> rawAttributes = getRawAttributes(source);
+            if (rawAttributes != null) {
+                rawAttributes.forEach((name, value) -> writeRawAttribute(destination, name, value));
+            }
+        }
+        return destination;
+    }
+
     public static <T> Object copyValue(T source, T destination, PropertyDescriptor propertyDescriptor) {
         Object value = read(source, propertyDescriptor);
         write(destination, propertyDescriptor, value);
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql.relation;
+
+import com.github.braisdom.objsql.reflection.PropertyAccessor;
+import com.github.braisdom.objsql.reflection.PropertyUtils;
+import com.github.braisdom.objsql.util.WordUtil;
+
+import java.beans.PropertyDescriptor;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+public class AggregateProcessor implements RelationProcessor {
+
+    @Override
+    public void process(Context context, Relationship relationship) throws SQLException {
+        AggregatedRelationship aggregatedRelationship = (AggregatedRelationship) relationship;
+        RelationDescriptor descriptor = relationship.getDescriptor();
+        PropertyAccessor primaryAccessor = descriptor.getPrimaryAccessor();
+        String attributeName = aggregatedRelationship.getAttributeName();
+
+        List baseObjects = context.getObjects(descriptor.getBaseClass());
+        Object[] associatedKeys = RelationIndex.distinctValues(baseObjects, primaryAccessor);
+
+        Map<Object, Object> aggregatedValues = context.queryRelatedAggregates(descriptor.getRelatedClass(),
+                descriptor.getForeignKey(), associatedKeys, relationship.getRelationCondition(),
+                aggregatedRelationship.getAggregateExpression());
+
+        for (Object baseObject : baseObjects) {
+            Object primaryValue = normalizeKey(primaryAccessor.read(baseObject));
+            Object value = aggregatedValues.get(primaryValue);
+            if (value == null && AggregatedRelationship.COUNT.equals(aggregatedRelationship.getFunction())) {
+                value = 0L;
+            }
+            writeAggregatedValue(baseObject, attributeName, value);
+        }
+    }
+
+    /**
+     * Normalizes the integral key as Long, because the JDBC driver returns different
+     * types for the same column in the grouping query and the base query, such as
+     * <code>NUMBER</code> of Oracle, which is returned as BigDecimal.
+     */
+    public static Object normalizeKey(Object key) {
+        if (key instanceof Integer || key instanceof Long || key instanceof Short || key instanceof Byte) {
+            return ((Number) key).longValue();
+        } else if (key instanceof BigInteger && ((BigInteger) key).bitLength() < Long.SIZE) {
+            return ((BigInteger) key).longValue();
+        } else if (key instanceof BigDecimal) {
+            BigDecimal decimalKey = ((BigDecimal) key).stripTrailingZeros();
+            if (decimalKey.scale() <= 0 && decimalKey.toBigInteger().bitLength() < Long.SIZE) {
+                return decimalKey.longValue();
+            }
+        }
+        return key;
+    }
+
+    private void writeAggregatedValue(Object baseObject, String attributeName, Object value) {
+        String fieldName = WordUtil.camelize(attributeName, true);
+        PropertyDescriptor propertyDescriptor = PropertyUtils.getPropertyDescriptorByName(baseObject, fieldName);
+
+        if (propertyDescriptor != null && PropertyUtils.isWritable(propertyDescriptor)) {
+            PropertyUtils.write(baseObject, propertyDescriptor, value);
+        } else if (PropertyUtils.supportRawAttribute(baseObject)) {
+            PropertyUtils.writeRawAttribute(baseObject, attributeName, value);
+        } else {
+            throw new RelationalException(String.format("The %s has no field or raw attribute for '%s'",
+                    baseObject.getClass().getSimpleName(), attributeName));
+        }
+    }
+}
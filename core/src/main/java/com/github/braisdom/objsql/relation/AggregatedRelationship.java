@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql.relation;
+
+/**
+ * A relationship which loads an aggregated value of related rows for each base row,
+ * such as the count of orders for each member, without loading the related rows.
+ *
+ * @see Relationship#count(Relationship)
+ * @see Relationship#sum(Relationship, String)
+ */
+public class AggregatedRelationship extends Relationship {
+
+    public static final String COUNT = "COUNT";
+    public static final String SUM = "SUM";
+
+    private final String function;
+    private final String columnName;
+    private final String attributeName;
+
+    public AggregatedRelationship(Relationship relationship, String function,
+                                  String columnName, String attributeName) {
+        super(relationship.getDescriptor(), -1, null);
+
+        this.function = function;
+        this.columnName = columnName;
+        this.attributeName = attributeName;
+    }
+
+    public String getFunction() {
+        return function;
+    }
+
+    public String getColumnName() {
+        return columnName;
+    }
+
+    public String getAttributeName() {
+        return attributeName;
+    }
+
+    public String getAggregateExpression() {
+        return String.format("%s(%s)", function, columnName);
+    }
+
+    @Override
+    public boolean isAggregated() {
+        return true;
+    }
+
+    @Override
+    public RelationProcessor createProcessor() {
+        return new AggregateProcessor();
+    }
+}
@@ -16,38 +16,104 @@
  */
 package com.github.braisdom.objsql.relation;
 
+import com.github.braisdom.objsql.Databases;
+import com.github.braisdom.objsql.IdentityMap;
+import com.github.braisdom.objsql.Tables;
+import com.github.braisdom.objsql.cache.EntityCache;
+import com.github.braisdom.objsql.reflection.PropertyAccessor;
 import com.github.braisdom.objsql.reflection.PropertyUtils;
+import com.github.braisdom.objsql.util.StringUtil;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 public class BelongsToProcessor implements RelationProcessor {
 
     @Override
     public void process(Context context, Relationship relationship) throws SQLException {
-        String associatedFieldName = relationship.getRelationField().getName();
-        String primaryFieldName = relationship.getPrimaryAssociationFieldName();
-        String primaryKey = relationship.getPrimaryKey();
-        String foreignFieldName = relationship.getForeignFieldName();
-
-        Class relatedClass = relationship.getRelatedClass();
-        List baseObjects = context.getObjects(relationship.getBaseClass());
-
-        List associatedKeys = (List) baseObjects.stream()
-                .map(o -> PropertyUtils.read(o, foreignFieldName))
-                .distinct()
-                .collect(Collectors.toList());
-        List rawRelatedObjects = context.queryRelatedObjects(relatedClass,
-                primaryKey, associatedKeys.toArray(), relationship.getRelationCondition());
-        Map<Object, List> groupedRelatedObjects = (Map<Object, List>) rawRelatedObjects
-                .stream().collect(Collectors.groupingBy(o -> PropertyUtils.read(o, primaryFieldName)));
-
-        baseObjects.stream().forEach(o -> {
-            Object primaryValue = PropertyUtils.read(o, foreignFieldName);
-            List relatedObjects = groupedRelatedObjects.get(primaryValue);
-            Relationship.setRelationalObjects(relationship, o, associatedFieldName, relatedObjects);
-        });
+        RelationDescriptor descriptor = relationship.getDescriptor();
+        PropertyAccessor foreignAccessor = descriptor.getForeignAccessor();
+        PropertyAccessor associatedAccessor = descriptor.getRelationAccessor();
+
+        List baseObjects = context.getObjects(descriptor.getBaseClass());
+        Object[] associatedKeys = RelationIndex.distinctValues(baseObjects, foreignAccessor);
+
+        List rawRelatedObjects;
+        IdentityMap identityMap = Databases.getCurrentIdentityMap();
+        EntityCache entityCache = Tables.getEntityCache(descriptor.getRelatedClass());
+        if ((identityMap != null || entityCache != null)
+                && descriptor.isPrimaryKeyAssociated() && StringUtil.isBlank(relationship.getRelationCondition())) {
+            rawRelatedObjects = queryRelatedObjects(context, relationship, identityMap, entityCache, associatedKeys);
+        } else {
+            rawRelatedObjects = context.queryRelatedObjects(descriptor.getRelatedClass(),
+                    descriptor.getPrimaryKey(), associatedKeys, relationship.getRelationCondition());
+        }
+        RelationIndex relatedObjectIndex = RelationIndex.create(rawRelatedObjects, descriptor.getPrimaryAccessor());
+
+        for (Object baseObject : baseObjects) {
+            List relatedObjects = relatedObjectIndex.get(foreignAccessor.read(baseObject));
+            Relationship.setRelationalObjects(relationship, baseObject, associatedAccessor, relatedObjects);
+        }
+    }
+
+    /**
+     * Looks up the related objects in the identity map of transaction first, then the
+     * entity cache, only the missing ones will be queried. The objects of entity cache
+     * are copied, so the nested relations or the caller cannot change the objects shared
+     * among threads.
+     */
+    private List queryRelatedObjects(Context context, Relationship relationship, IdentityMap identityMap,
+                                     EntityCache entityCache, Object[] associatedKeys) throws SQLException {
+        RelationDescriptor descriptor = relationship.getDescriptor();
+        PropertyAccessor primaryAccessor = descriptor.getPrimaryAccessor();
+        Class relatedClass = descriptor.getRelatedClass();
+        boolean entityCacheWritable = entityCache != null && Databases.getCurrentThreadConnection() == null;
+
+        List relatedObjects = new ArrayList();
+        List<Object> missingKeys = new ArrayList<>();
+        Map<Object, Long> cacheVersions = new HashMap<>();
+        for (Object associatedKey : associatedKeys) {
+            Object relatedObject = identityMap == null ? null : identityMap.get(relatedClass, associatedKey);
+            if (relatedObject == null && entityCache != null) {
+                cacheVersions.put(AggregateProcessor.normalizeKey(associatedKey),
+                        entityCache.getVersion(relatedClass, associatedKey));
+                relatedObject = entityCache.get(relatedClass, associatedKey);
+                if (relatedObject == EntityCache.ABSENT) {
+                    continue;
+                }
+                relatedObject = relatedObject == null ? null : PropertyUtils.copy(relatedObject);
+            }
+            if (relatedObject == null) {
+                missingKeys.add(associatedKey);
+            } else {
+                relatedObjects.add(relatedObject);
+            }
+        }
+
+        if (missingKeys.size() > 0) {
+            List queriedObjects = context.queryRelatedObjects(relatedClass,
+                    descriptor.getPrimaryKey(), missingKeys.toArray(), null);
+            for (Object queriedObject : queriedObjects) {
+                Object primaryValue = primaryAccessor.read(queriedObject);
+                if (primaryValue == null) {
+                    continue;
+                }
+                if (identityMap != null) {
+                    identityMap.put(relatedClass, primaryValue, queriedObject);
+                }
+                Long cacheVersion = cacheVersions.get(AggregateProcessor.normalizeKey(primaryValue));
+                if (entityCacheWritable && cacheVersion != null) {
+                    entityCache.put(relatedClass, primaryValue, PropertyUtils.copy(queriedObject), cacheVersion);
+                }
+            }
+            relatedObjects.addAll(queriedObjects);
+        }
+
+        // The cached objects should be visible for the relations of related class
+        context.catchObjects(relatedClass, relatedObjects);
+        return relatedObjects;
     }
 }
@@ -0,0 +1,171 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql.relation;
+
+import com.github.braisdom.objsql.cache.EntityCache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bounded cache of related objects keyed by primary value, which is shared across
+ * queries for the BELONGS_TO relations, such as countries or currencies. It is disabled
+ * by default and enabled for each related model:
+ * <pre>
+ *     RelatedObjectCache.enable(Country.class, 500, 10, TimeUnit.MINUTES);
+ * </pre>
+ *
+ * It is the <code>EntityCache</code> of the related model, which is looked up by
+ * <code>Tables.getEntityCache</code> for the models not cached by the installed
+ * <code>EntityCache</code>, so the lookups by primary key read through it as well.
+ * The least recently used objects will be evicted when the cache is full, and the
+ * objects written by <code>DefaultPersistence</code> will be invalidated, again after
+ * the transaction completed.
+ *
+ * @see com.github.braisdom.objsql.Tables#getEntityCache(Class)
+ */
+public final class RelatedObjectCache implements EntityCache {
+
+    private static final Map<Class, RelatedObjectCache> caches = new ConcurrentHashMap<>();
+
+    private final int maximumSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<Object, Entry> entries;
+    private long version;
+
+    public RelatedObjectCache(int maximumSize, long ttl, TimeUnit timeUnit) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("The maximumSize must be positive");
+        }
+        Objects.requireNonNull(timeUnit, "The timeUnit cannot be null");
+
+        this.maximumSize = maximumSize;
+        this.ttlNanos = timeUnit.toNanos(ttl);
+        this.entries = new LinkedHashMap<Object, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Entry> eldest) {
+                return size() > RelatedObjectCache.this.maximumSize;
+            }
+        };
+    }
+
+    public static void enable(Class relatedClass, int maximumSize, long ttl, TimeUnit timeUnit) {
+        Objects.requireNonNull(relatedClass, "The relatedClass cannot be null");
+        caches.put(relatedClass, new RelatedObjectCache(maximumSize, ttl, timeUnit));
+    }
+
+    public static void disable(Class relatedClass) {
+        caches.remove(relatedClass);
+    }
+
+    /**
+     * Returns the cache of related model, or null if it is not enabled.
+     */
+    public static RelatedObjectCache get(Class relatedClass) {
+        return caches.isEmpty() ? null : caches.get(relatedClass);
+    }
+
+    public synchronized Object get(Object primaryValue) {
+        Object key = AggregateProcessor.normalizeKey(primaryValue);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+
+        if (System.nanoTime() - entry.createdAt > ttlNanos) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.value;
+    }
+
+    public synchronized void put(Object primaryValue, Object value) {
+        Objects.requireNonNull(primaryValue, "The primaryValue cannot be null");
+        Objects.requireNonNull(value, "The value cannot be null");
+
+        entries.put(AggregateProcessor.normalizeKey(primaryValue), new Entry(value, System.nanoTime()));
+    }
+
+    public synchronized void remove(Object primaryValue) {
+        if (primaryValue != null) {
+            version++;
+            entries.remove(AggregateProcessor.normalizeKey(primaryValue));
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        version++;
+        entries.clear();
+    }
+
+    @Override
+    public Object get(Class domainModelClass, Object primaryValue) {
+        return primaryValue == null ? null : get(primaryValue);
+    }
+
+    @Override
+    public void put(Class domainModelClass, Object primaryValue, Object domainObject) {
+        put(primaryValue, domainObject);
+    }
+
+    @Override
+    public void putAbsent(Class domainModelClass, Object primaryValue) {
+    }
+
+    /**
+     * Returns the version of the whole cache, which changes once any object is invalidated.
+     */
+    @Override
+    public synchronized long getVersion(Class domainModelClass, Object primaryValue) {
+        return version;
+    }
+
+    @Override
+    public synchronized void put(Class domainModelClass, Object primaryValue, Object domainObject, long version) {
+        if (this.version == version) {
+            put(primaryValue, domainObject);
+        }
+    }
+
+    @Override
+    public void invalidate(Class domainModelClass, Object primaryValue) {
+        remove(primaryValue);
+    }
+
+    @Override
+    public void invalidate(Class domainModelClass) {
+        clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static class Entry {
+        private final Object value;
+        private final long createdAt;
+
+        private Entry(Object value, long createdAt) {
+            this.value = value;
+            this.createdAt = createdAt;
+        }
+    }
+}
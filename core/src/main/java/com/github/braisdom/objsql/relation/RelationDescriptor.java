@@ -0,0 +1,239 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql.relation;
+
+import com.github.braisdom.objsql.Tables;
+import com.github.braisdom.objsql.annotations.PrimaryKey;
+import com.github.braisdom.objsql.annotations.Relation;
+import com.github.braisdom.objsql.reflection.PropertyAccessor;
+import com.github.braisdom.objsql.reflection.ReflectionException;
+import com.github.braisdom.objsql.util.StringUtil;
+import com.github.braisdom.objsql.util.WordUtil;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The immutable metadata of a relation field, which is resolved and validated once
+ * when the relationship is created (normally in the static initializer of domain model),
+ * the relation processing touches the precomputed keys and accessors only.
+ *
+ * @see Relationship#createRelation(Class, String)
+ */
+public final class RelationDescriptor {
+
+    private static final Map<Class, Map<String, RelationDescriptor>> registry = new ConcurrentHashMap<>();
+
+    private final Class baseClass;
+    private final Field relationField;
+    private final Relation relation;
+    private final Class relatedClass;
+    private final String primaryKey;
+    private final String foreignKey;
+    private final String primaryAssociationFieldName;
+    private final String foreignFieldName;
+    private final boolean primaryKeyAssociated;
+    private final PropertyAccessor relationAccessor;
+    private final PropertyAccessor primaryAccessor;
+    private final PropertyAccessor foreignAccessor;
+
+    private RelationDescriptor(Class baseClass, Field relationField, Relation relation) {
+        this.baseClass = baseClass;
+        this.relationField = relationField;
+        this.relation = relation;
+        this.relatedClass = resolveRelatedClass(baseClass, relationField);
+
+        boolean belongsTo = RelationType.BELONGS_TO.equals(relation.relationType());
+        Class primaryClass = belongsTo ? relatedClass : baseClass;
+        Class foreignClass = belongsTo ? baseClass : relatedClass;
+
+        this.primaryKey = resolvePrimaryKey(belongsTo);
+        this.foreignKey = resolveForeignKey(belongsTo);
+        this.primaryAssociationFieldName = resolvePrimaryAssociationFieldName(primaryClass);
+        this.foreignFieldName = resolveForeignFieldName(belongsTo);
+
+        PrimaryKey relatedPrimaryKey = Tables.getPrimaryKey(relatedClass);
+        this.primaryKeyAssociated = belongsTo && relatedPrimaryKey != null
+                && relatedPrimaryKey.name().equalsIgnoreCase(primaryKey);
+
+        this.relationAccessor = resolveAccessor(baseClass, relationField.getName());
+        this.primaryAccessor = resolveAccessor(primaryClass, primaryAssociationFieldName);
+        this.foreignAccessor = resolveAccessor(foreignClass, foreignFieldName);
+    }
+
+    /**
+     * Returns the descriptor of the relation field, it will be resolved at the first time
+     * and registered for the base class.
+     *
+     * @throws RelationalException if the relation is not valid
+     */
+    public static RelationDescriptor of(Class baseClass, Field relationField, Relation relation) {
+        return registry.computeIfAbsent(baseClass, clazz -> new ConcurrentHashMap<>())
+                .computeIfAbsent(relationField.getName(),
+                        fieldName -> new RelationDescriptor(baseClass, relationField, relation));
+    }
+
+    public Class getBaseClass() {
+        return baseClass;
+    }
+
+    public Field getRelationField() {
+        return relationField;
+    }
+
+    public Relation getRelation() {
+        return relation;
+    }
+
+    public Class getRelatedClass() {
+        return relatedClass;
+    }
+
+    public String getPrimaryKey() {
+        return primaryKey;
+    }
+
+    public String getForeignKey() {
+        return foreignKey;
+    }
+
+    public String getPrimaryAssociationFieldName() {
+        return primaryAssociationFieldName;
+    }
+
+    public String getForeignFieldName() {
+        return foreignFieldName;
+    }
+
+    /**
+     * Returns true if the BELONGS_TO relation associates the primary key of related class,
+     * that means the related objects can be identified by the association value.
+     */
+    public boolean isPrimaryKeyAssociated() {
+        return primaryKeyAssociated;
+    }
+
+    /**
+     * Returns the accessor of relation field in base class.
+     */
+    public PropertyAccessor getRelationAccessor() {
+        return relationAccessor;
+    }
+
+    /**
+     * Returns the accessor of primary association field, it belongs to the base class
+     * in HAS_MANY and HAS_ONE, and the related class in BELONGS_TO.
+     */
+    public PropertyAccessor getPrimaryAccessor() {
+        return primaryAccessor;
+    }
+
+    /**
+     * Returns the accessor of foreign field, it belongs to the related class
+     * in HAS_MANY and HAS_ONE, and the base class in BELONGS_TO.
+     */
+    public PropertyAccessor getForeignAccessor() {
+        return foreignAccessor;
+    }
+
+    private String resolvePrimaryKey(boolean belongsTo) {
+        if (!StringUtil.isBlank(relation.primaryKey())) {
+            return relation.primaryKey();
+        }
+
+        Class primaryKeyClass = belongsTo ? baseClass : relatedClass;
+        PrimaryKey primaryKey = Tables.getPrimaryKey(primaryKeyClass);
+        if (primaryKey == null) {
+            throw new RelationalException(String.format("The %s has no primary key for relation '%s'",
+                    primaryKeyClass.getSimpleName(), relationField.getName()));
+        }
+        return primaryKey.name();
+    }
+
+    private String resolveForeignKey(boolean belongsTo) {
+        if (!StringUtil.isBlank(relation.foreignKey())) {
+            return relation.foreignKey();
+        }
+
+        String rawForeignKey = belongsTo ? relatedClass.getSimpleName() : baseClass.getSimpleName();
+        return Tables.encodeDefaultKey(WordUtil.underscore(rawForeignKey));
+    }
+
+    private String resolvePrimaryAssociationFieldName(Class primaryClass) {
+        if (!StringUtil.isBlank(relation.primaryFieldName())) {
+            return relation.primaryFieldName();
+        }
+
+        Field primaryField = Tables.getPrimaryField(primaryClass);
+        if (primaryField == null) {
+            throw new RelationalException(String.format("The %s has no primary field for relation '%s'",
+                    primaryClass.getSimpleName(), relationField.getName()));
+        }
+        return primaryField.getName();
+    }
+
+    private String resolveForeignFieldName(boolean belongsTo) {
+        if (!StringUtil.isBlank(relation.foreignFieldName())) {
+            return relation.foreignFieldName();
+        }
+
+        String rawForeignFieldName = WordUtil.underscore(belongsTo
+                ? relatedClass.getSimpleName() : baseClass.getSimpleName());
+        return WordUtil.camelize(Tables.encodeDefaultKey(rawForeignFieldName), true);
+    }
+
+    private PropertyAccessor resolveAccessor(Class beanClass, String fieldName) {
+        try {
+            return PropertyAccessor.of(beanClass, fieldName);
+        } catch (ReflectionException ex) {
+            throw new RelationalException(String.format("The %s has no field '%s' for relation '%s'",
+                    beanClass.getSimpleName(), fieldName, relationField.getName()), ex);
+        }
+    }
+
+    private static Class resolveRelatedClass(Class baseClass, Field relationField) {
+        if (!Collection.class.isAssignableFrom(relationField.getType())) {
+            return relationField.getType();
+        }
+
+        if (!(relationField.getGenericType() instanceof ParameterizedType)) {
+            throw new RelationalException(String.format("The %s of %s has no generic type",
+                    relationField.getName(), baseClass.getSimpleName()));
+        }
+
+        ParameterizedType parameterizedType = (ParameterizedType) relationField.getGenericType();
+        Type[] genericTypes = parameterizedType.getActualTypeArguments();
+        if (genericTypes.length == 0) {
+            throw new RelationalException(String.format("The %s of %s has no generic type",
+                    relationField.getName(), baseClass.getSimpleName()));
+        }
+
+        if (genericTypes[0] instanceof Class) {
+            return (Class) genericTypes[0];
+        }
+
+        try {
+            return Class.forName(genericTypes[0].getTypeName(), false, baseClass.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new RelationalException(e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql.relation;
+
+import com.github.braisdom.objsql.reflection.PropertyAccessor;
+import com.github.braisdom.objsql.util.LongKeyedMap;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Groups the related objects by the value of association field. The integral keys are
+ * indexed by a <code>LongKeyedMap</code> without boxing, and the others by a <code>HashMap</code>.
+ */
+public final class RelationIndex {
+
+    private final LongKeyedMap<List> longKeyedObjects;
+    private final Map<Object, List> keyedObjects;
+
+    private RelationIndex(LongKeyedMap<List> longKeyedObjects, Map<Object, List> keyedObjects) {
+        this.longKeyedObjects = longKeyedObjects;
+        this.keyedObjects = keyedObjects;
+    }
+
+    public static RelationIndex create(List objects, PropertyAccessor accessor) {
+        if (objects == null || objects.isEmpty()) {
+            return new RelationIndex(null, new HashMap<>());
+        }
+
+        if (isIntegral(accessor.getPropertyType())) {
+            LongKeyedMap<List> longKeyedObjects = new LongKeyedMap<>(objects.size());
+            for (Object object : objects) {
+                Number key = accessor.read(object);
+                if (key != null) {
+                    longKeyedObjects.computeIfAbsent(key.longValue(), k -> new ArrayList()).add(object);
+                }
+            }
+            return new RelationIndex(longKeyedObjects, null);
+        } else {
+            Map<Object, List> keyedObjects = new HashMap<>(objects.size() * 2);
+            for (Object object : objects) {
+                Object key = accessor.read(object);
+                if (key != null) {
+                    keyedObjects.computeIfAbsent(key, k -> new ArrayList()).add(object);
+                }
+            }
+            return new RelationIndex(null, keyedObjects);
+        }
+    }
+
+    /**
+     * Returns the distinct and non-null values of the property in objects.
+     */
+    public static Object[] distinctValues(List objects, PropertyAccessor accessor) {
+        if (objects == null || objects.isEmpty()) {
+            return new Object[0];
+        }
+
+        List<Object> values = new ArrayList<>();
+        if (isIntegral(accessor.getPropertyType())) {
+            LongKeyedMap<Boolean> existingValues = new LongKeyedMap<>(objects.size());
+            for (Object object : objects) {
+                Number value = accessor.read(object);
+                if (value != null && existingValues.put(value.longValue(), Boolean.TRUE) == null) {
+                    values.add(value);
+                }
+            }
+        } else {
+            Map<Object, Boolean> existingValues = new HashMap<>(objects.size() * 2);
+            for (Object object : objects) {
+                Object value = accessor.read(object);
+                if (value != null && existingValues.put(value, Boolean.TRUE) == null) {
+                    values.add(value);
+                }
+            }
+        }
+        return values.toArray();
+    }
+
+    public List get(Object key) {
+        if (key == null) {
+            return null;
+        }
+
+        if (longKeyedObjects != null) {
+            return key instanceof Number ? longKeyedObjects.get(((Number) key).longValue()) : null;
+        } else {
+            return keyedObjects.get(key);
+        }
+    }
+
+    private static boolean isIntegral(Class<?> type) {
+        return Long.class.equals(type) || long.class.equals(type)
+                || Integer.class.equals(type) || int.class.equals(type)
+                || Short.class.equals(type) || short.class.equals(type)
+                || Byte.class.equals(type) || byte.class.equals(type);
+    }
+}
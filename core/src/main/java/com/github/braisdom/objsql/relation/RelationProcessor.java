@@ -18,14 +18,33 @@ package com.github.braisdom.objsql.relation;
 
 import java.sql.SQLException;
 import java.util.List;
+import java.util.Map;
 
 public interface RelationProcessor {
 
     interface Context {
-        List queryRelatedObjects(Class clazz, String associationColumn,
-                                 Object[] associatedValues, String condition) throws SQLException;
+        default List queryRelatedObjects(Class clazz, String associationColumn,
+                                         Object[] associatedValues, String condition) throws SQLException {
+            return queryRelatedObjects(clazz, associationColumn, associatedValues, condition, -1, null);
+        }
+
+        List queryRelatedObjects(Class clazz, String associationColumn, Object[] associatedValues,
+                                 String condition, int limit, String orderBy) throws SQLException;
+
+        /**
+         * Returns the aggregated values of related rows grouped by the association column,
+         * the key is the value of association column.
+         */
+        Map<Object, Object> queryRelatedAggregates(Class clazz, String associationColumn, Object[] associatedValues,
+                                                   String condition, String aggregateExpression) throws SQLException;
 
         List getObjects(Class clazz);
+
+        /**
+         * Replaces the objects of the class, which will be the base objects of
+         * the relations of the class.
+         */
+        void catchObjects(Class clazz, List objects);
     }
 
     void process(Context context, Relationship relationship) throws SQLException;
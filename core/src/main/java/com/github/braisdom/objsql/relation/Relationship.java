@@ -16,131 +16,101 @@
  */
 package com.github.braisdom.objsql.relation;
 
-import com.github.braisdom.objsql.DomainModelException;
-import com.github.braisdom.objsql.Tables;
-import com.github.braisdom.objsql.annotations.PrimaryKey;
 import com.github.braisdom.objsql.annotations.Relation;
-import com.github.braisdom.objsql.reflection.PropertyUtils;
-import com.github.braisdom.objsql.util.StringUtil;
+import com.github.braisdom.objsql.reflection.PropertyAccessor;
 import com.github.braisdom.objsql.util.WordUtil;
 
 import java.lang.reflect.Field;
-import java.lang.reflect.ParameterizedType;
-import java.lang.reflect.Type;
-import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
 
 public class Relationship {
 
-    private final Class baseClass;
-    private final Field relationField;
-    private final Relation relation;
+    private final RelationDescriptor descriptor;
+    private final int limit;
+    private final String orderBy;
 
     public Relationship(Class baseClass, Field relationField, Relation relation) {
-        Objects.requireNonNull(relationField, "The relationField cannot be null");
-        Objects.requireNonNull(relation, String.format("The %s has no relation annotation",
-                relationField.getName()));
+        this(resolveDescriptor(baseClass, relationField, relation), relation.limit(), relation.orderBy());
+    }
 
-        this.baseClass = baseClass;
-        this.relationField = relationField;
-        this.relation = relation;
+    protected Relationship(RelationDescriptor descriptor, int limit, String orderBy) {
+        this.descriptor = descriptor;
+        this.limit = limit;
+        this.orderBy = orderBy;
     }
 
-    public Class getBaseClass() {
-        return baseClass;
+    /**
+     * Returns a new relationship which loads the top <code>limit</code> related rows
+     * for each base row ordered by <code>orderBy</code>, it overrides the limit and
+     * orderBy declared in the <code>Relation</code> annotation.
+     *
+     * @param limit the maximum count of related rows for each base row
+     * @param orderBy the ORDER BY clause of related rows
+     * @return a new relationship
+     */
+    public Relationship limit(int limit, String orderBy) {
+        if (isBelongsTo()) {
+            throw new RelationalException(String.format("The %s[belongs_to] cannot be limited",
+                    getRelationField().getName()));
+        }
+        return new Relationship(descriptor, limit, orderBy);
     }
 
-    public Class getRelatedClass() {
-        if (Collection.class.isAssignableFrom(relationField.getType())) {
-            ParameterizedType parameterizedType = (ParameterizedType) relationField.getGenericType();
-            Type[] genericTypes = parameterizedType.getActualTypeArguments();
+    public RelationDescriptor getDescriptor() {
+        return descriptor;
+    }
 
-            if (genericTypes.length == 0) {
-                throw new RelationalException(String.format("The %s of %s has no generic type",
-                        relationField.getName(), getBaseClass().getSimpleName()));
-            }
+    public Class getBaseClass() {
+        return descriptor.getBaseClass();
+    }
 
-            try {
-                return Class.forName((genericTypes[0]).getTypeName());
-            } catch (ClassNotFoundException e) {
-                throw new RelationalException(e.getMessage(), e);
-            }
-        } else {
-            return relationField.getType();
-        }
+    public Class getRelatedClass() {
+        return descriptor.getRelatedClass();
     }
 
     public Field getRelationField() {
-        return relationField;
+        return descriptor.getRelationField();
     }
 
     public String getRelationCondition() {
-        return relation.condition();
+        return descriptor.getRelation().condition();
+    }
+
+    public int getRelationLimit() {
+        return limit;
+    }
+
+    public String getRelationOrderBy() {
+        return orderBy;
     }
 
     public String getPrimaryKey() {
-        if (StringUtil.isBlank(relation.primaryKey())) {
-            if (isBelongsTo()) {
-                PrimaryKey primaryKey = Tables.getPrimaryKey(getBaseClass());
-                if(primaryKey == null) {
-                    throw new DomainModelException(String.format("The %s has no primary key", getBaseClass().getSimpleName()));
-                }
-                return primaryKey.name();
-            } else {
-                PrimaryKey primaryKey = Tables.getPrimaryKey(getRelatedClass());
-                if(primaryKey == null) {
-                    throw new DomainModelException(String.format("The %s has no primary key", getRelatedClass().getSimpleName()));
-                }
-                return primaryKey.name();
-            }
-        } else {
-            return relation.primaryKey();
-        }
+        return descriptor.getPrimaryKey();
     }
 
     public String getForeignKey() {
-        if (StringUtil.isBlank(relation.foreignKey())) {
-            if (isBelongsTo()) {
-                String rawForeignKey = getRelatedClass().getSimpleName();
-                return Tables.encodeDefaultKey(WordUtil.underscore(rawForeignKey));
-            } else {
-                String rawForeignKey = baseClass.getSimpleName();
-                return Tables.encodeDefaultKey(WordUtil.underscore(rawForeignKey));
-            }
-        } else {
-            return relation.foreignKey();
-        }
+        return descriptor.getForeignKey();
     }
 
     public String getPrimaryAssociationFieldName() {
-        if (StringUtil.isBlank(relation.primaryFieldName())) {
-            if(isBelongsTo()) {
-                return Tables.getPrimaryField(getRelatedClass()).getName();
-            } else {
-                return Tables.getPrimaryField(getBaseClass()).getName();
-            }
-        } else {
-            return relation.primaryFieldName();
-        }
+        return descriptor.getPrimaryAssociationFieldName();
     }
 
     public String getForeignFieldName() {
-        if (StringUtil.isBlank(relation.foreignFieldName())) {
-            if (isBelongsTo()) {
-                String rawForeignFieldName = WordUtil.underscore(getRelatedClass().getSimpleName());
-                return WordUtil.camelize(Tables.encodeDefaultKey(rawForeignFieldName), true);
-            } else {
-                String rawForeignFieldName = WordUtil.underscore(getBaseClass().getSimpleName());
-                return WordUtil.camelize(Tables.encodeDefaultKey(rawForeignFieldName), true);
-            }
-        } else {
-            return relation.foreignFieldName();
-        }
+        return descriptor.getForeignFieldName();
     }
 
     public boolean isBelongsTo() {
-        return RelationType.BELONGS_TO.equals(relation.relationType());
+        return RelationType.BELONGS_TO.equals(descriptor.getRelation().relationType());
+    }
+
+    /**
+     * Returns true if the relationship loads an aggregated value of related rows
+     * instead of the related rows.
+     */
+    public boolean isAggregated() {
+        return false;
     }
 
     public RelationProcessor createProcessor() {
@@ -152,23 +122,87 @@ public class Relationship {
 
     public static void setRelationalObjects(Relationship relationship, Object row,
                                             String fieldName, List associatedObjects) {
+        setRelationalObjects(relationship, row, PropertyAccessor.of(row, fieldName), associatedObjects);
+    }
+
+    public static void setRelationalObjects(Relationship relationship, Object row,
+                                            PropertyAccessor accessor, List associatedObjects) {
         if(associatedObjects != null) {
             if (relationship.isBelongsTo()) {
                 if (associatedObjects.size() > 1) {
-                    throw new RelationalException(String.format("The %s[belongs_to] has too many relations", fieldName));
+                    throw new RelationalException(String.format("The %s[belongs_to] has too many relations",
+                            accessor.getName()));
                 }
 
                 if (associatedObjects.size() == 1) {
-                    PropertyUtils.write(row, fieldName, associatedObjects.get(0));
+                    accessor.write(row, associatedObjects.get(0));
                 } else {
-                    PropertyUtils.write(row, fieldName, null);
+                    accessor.write(row, null);
                 }
             } else {
-                PropertyUtils.write(row, fieldName, associatedObjects);
+                accessor.write(row, associatedObjects);
             }
         }
     }
 
+    /**
+     * Returns a relationship which counts the related rows for each base row, the count
+     * will be written into the field or raw attribute named '{relation field}_count'.
+     *
+     * @param relationship a HAS_MANY or HAS_ONE relationship
+     * @return a aggregated relationship
+     */
+    public static final Relationship count(Relationship relationship) {
+        return count(relationship, createAggregateName(relationship, AggregatedRelationship.COUNT));
+    }
+
+    public static final Relationship count(Relationship relationship, String attributeName) {
+        return aggregate(relationship, AggregatedRelationship.COUNT, "*", attributeName);
+    }
+
+    /**
+     * Returns a relationship which sums the column of related rows for each base row, the sum
+     * will be written into the field or raw attribute named '{relation field}_sum'.
+     *
+     * @param relationship a HAS_MANY or HAS_ONE relationship
+     * @param columnName the column name of related table
+     * @return a aggregated relationship
+     */
+    public static final Relationship sum(Relationship relationship, String columnName) {
+        return sum(relationship, columnName, createAggregateName(relationship, AggregatedRelationship.SUM));
+    }
+
+    public static final Relationship sum(Relationship relationship, String columnName, String attributeName) {
+        return aggregate(relationship, AggregatedRelationship.SUM, columnName, attributeName);
+    }
+
+    public static final Relationship aggregate(Relationship relationship, String function,
+                                               String columnName, String attributeName) {
+        Objects.requireNonNull(relationship, "The relationship cannot be null");
+        Objects.requireNonNull(function, "The function cannot be null");
+        Objects.requireNonNull(columnName, "The columnName cannot be null");
+        Objects.requireNonNull(attributeName, "The attributeName cannot be null");
+
+        if (relationship.isBelongsTo()) {
+            throw new RelationalException(String.format("The %s[belongs_to] cannot be aggregated",
+                    relationship.getRelationField().getName()));
+        }
+        return new AggregatedRelationship(relationship, function, columnName, attributeName);
+    }
+
+    private static String createAggregateName(Relationship relationship, String function) {
+        return String.format("%s_%s", WordUtil.underscore(relationship.getRelationField().getName()),
+                function.toLowerCase());
+    }
+
+    private static RelationDescriptor resolveDescriptor(Class baseClass, Field relationField, Relation relation) {
+        Objects.requireNonNull(relationField, "The relationField cannot be null");
+        Objects.requireNonNull(relation, String.format("The %s has no relation annotation",
+                relationField.getName()));
+
+        return RelationDescriptor.of(baseClass, relationField, relation);
+    }
+
     public static final Relationship createRelation(Class baseClass, String fieldName) {
         try {
             Field field = baseClass.getDeclaredField(fieldName);
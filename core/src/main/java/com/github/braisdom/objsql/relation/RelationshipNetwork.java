@@ -17,42 +17,90 @@
 package com.github.braisdom.objsql.relation;
 
 import com.github.braisdom.objsql.*;
+import com.github.braisdom.objsql.pagination.Page;
+import com.github.braisdom.objsql.pagination.PagedSQLBuilder;
 import com.github.braisdom.objsql.util.StringUtil;
 
 import java.sql.Connection;
+import java.sql.DatabaseMetaData;
 import java.sql.SQLException;
 import java.util.*;
 import java.util.stream.Collectors;
 
 public class RelationshipNetwork implements RelationProcessor.Context {
 
-    private static final String SELECT_RELATION_STATEMENT = "SELECT * FROM %s WHERE %s";
+    private static final String SELECT_RELATION_STATEMENT = "SELECT %s FROM %s WHERE %s";
+    private static final String SELECT_RANKED_RELATION_STATEMENT = "SELECT %s FROM (SELECT %s, ROW_NUMBER() " +
+            "OVER (PARTITION BY %s ORDER BY %s) AS %s FROM %s WHERE %s) T WHERE %s <= %d";
+    private static final String ROW_NUMBER_ALIAS = "row_number_";
+    private static final String SELECT_AGGREGATE_STATEMENT = "SELECT %s AS %s, %s AS %s FROM %s WHERE %s GROUP BY %s";
+    private static final String ASSOCIATION_KEY_ALIAS = "association_key";
+    private static final String AGGREGATE_VALUE_ALIAS = "aggregate_value";
+    private static final int UNION_QUERY_CHUNK_SIZE = 64;
 
     private final Connection connection;
     private final DomainModelDescriptor domainModelDescriptor;
-    private final Map<Class, List> relationObjectsMap;
+    private final Map<List<Object>, List> relationObjectsMap;
+    private final Map<Class, List> baseObjectsMap;
 
     public RelationshipNetwork(Connection connection, DomainModelDescriptor domainModelDescriptor) {
         this.connection = connection;
         this.domainModelDescriptor = domainModelDescriptor;
 
         this.relationObjectsMap = new HashMap<>();
+        this.baseObjectsMap = new HashMap<>();
     }
 
+    /**
+     * Returns the related objects, which are cached by the relationship, so the relationships
+     * of same class with different condition, limit or order will not share the objects.
+     */
     @Override
-    public List queryRelatedObjects(Class clazz, String associationColumn,
-                                    Object[] associatedValues, String condition) throws SQLException {
-        List cachedObjects = relationObjectsMap.get(clazz);
-        if (cachedObjects == null) {
-            cachedObjects = queryObjects(clazz, associationColumn, associatedValues, condition);
-            relationObjectsMap.put(clazz, cachedObjects);
+    public List queryRelatedObjects(Class clazz, String associationColumn, Object[] associatedValues,
+                                    String condition, int limit, String orderBy) throws SQLException {
+        List<Object> relationKey = Arrays.asList(clazz, associationColumn, condition, limit, orderBy);
+        List cachedObjects = relationObjectsMap.get(relationKey);
+        if (cachedObjects == null && associatedValues.length == 0) {
+            cachedObjects = new ArrayList();
+            relationObjectsMap.put(relationKey, cachedObjects);
+        } else if (cachedObjects == null) {
+            cachedObjects = queryObjects(clazz, associationColumn, associatedValues, condition, limit, orderBy);
+            relationObjectsMap.put(relationKey, cachedObjects);
         }
+        baseObjectsMap.put(clazz, cachedObjects);
         return cachedObjects;
     }
 
+    @Override
+    public Map<Object, Object> queryRelatedAggregates(Class clazz, String associationColumn, Object[] associatedValues,
+                                                      String condition, String aggregateExpression) throws SQLException {
+        if (associatedValues.length == 0) {
+            return new HashMap<>();
+        }
+
+        String relationTableName = getRelationTableName(clazz, null, condition);
+
+        SQLExecutor sqlExecutor = Databases.getSqlExecutor();
+        Quoter quoter = Databases.getQuoter();
+
+        String databaseProductName = connection.getMetaData().getDatabaseProductName();
+        String relationConditions = createRelationConditions(associationColumn,
+                quoter.quoteValues(databaseProductName, associatedValues), condition);
+        String aggregateSql = String.format(SELECT_AGGREGATE_STATEMENT, associationColumn, ASSOCIATION_KEY_ALIAS,
+                aggregateExpression, AGGREGATE_VALUE_ALIAS, relationTableName, relationConditions, associationColumn);
+
+        List<Map<String, Object>> rows = sqlExecutor.query(connection, aggregateSql, new MapRowAdapter());
+        Map<Object, Object> aggregatedValues = new HashMap<>();
+        for (Map<String, Object> row : rows) {
+            aggregatedValues.put(AggregateProcessor.normalizeKey(row.get(ASSOCIATION_KEY_ALIAS)),
+                    row.get(AGGREGATE_VALUE_ALIAS));
+        }
+        return aggregatedValues;
+    }
+
     @Override
     public List getObjects(Class clazz) {
-        return relationObjectsMap.get(clazz);
+        return baseObjectsMap.get(clazz);
     }
 
     public void process(List rows, Relationship[] relationships) throws SQLException {
@@ -71,6 +119,11 @@ public class RelationshipNetwork implements RelationProcessor.Context {
         relationProcessor.process(this, relationship);
         relationships.remove(relationship);
 
+        // The related rows will not be loaded for an aggregated relationship
+        if (relationship.isAggregated()) {
+            return;
+        }
+
         final Class childClass = relationship.getRelatedClass();
         Relationship[] childRelationships = relationships.stream()
                 .filter(r -> r.getBaseClass().equals(childClass)).toArray(Relationship[]::new);
@@ -81,7 +134,7 @@ public class RelationshipNetwork implements RelationProcessor.Context {
 
     protected List queryObjects(Class clazz, String associatedColumnName,
                                 Object[] associatedValues, String condition) throws SQLException {
-        String relationTableName = Tables.getTableName(clazz);
+        String relationTableName = getRelationTableName(clazz, null, condition);
 
         SQLExecutor sqlExecutor = Databases.getSqlExecutor();
         Quoter quoter = Databases.getQuoter();
@@ -92,12 +145,108 @@ public class RelationshipNetwork implements RelationProcessor.Context {
         String relationConditions = StringUtil.isBlank(condition)
                 ? String.format(" %s IN (%s) ", associatedColumnName, associatedValueString)
                 : String.format(" %s IN (%s) AND (%s)", associatedColumnName, associatedValueString, condition);
-        String relationTableQuerySql = String.format(SELECT_RELATION_STATEMENT, relationTableName, relationConditions);
+        String projection = Tables.getProjection(domainModelDescriptor.getRelatedModeDescriptor(clazz),
+                databaseProductName, null);
+        String relationTableQuerySql = String.format(SELECT_RELATION_STATEMENT, projection,
+                relationTableName, relationConditions);
 
         return sqlExecutor.query(connection, relationTableQuerySql, domainModelDescriptor.getRelatedModeDescriptor(clazz));
     }
 
-    protected void catchObjects(Class clazz, List objects) {
-        this.relationObjectsMap.put(clazz, objects);
+    protected List queryObjects(Class clazz, String associatedColumnName, Object[] associatedValues,
+                                String condition, int limit, String orderBy) throws SQLException {
+        if (limit < 0 && StringUtil.isBlank(orderBy)) {
+            return queryObjects(clazz, associatedColumnName, associatedValues, condition);
+        }
+
+        DomainModelDescriptor relatedModelDescriptor = domainModelDescriptor.getRelatedModeDescriptor(clazz);
+
+        SQLExecutor sqlExecutor = Databases.getSqlExecutor();
+        Quoter quoter = Databases.getQuoter();
+
+        DatabaseMetaData databaseMetaData = connection.getMetaData();
+        String databaseProductName = databaseMetaData.getDatabaseProductName();
+        DatabaseType databaseType = DatabaseType.create(databaseProductName,
+                databaseMetaData.getDatabaseMajorVersion());
+        String[] quotedValues = quoter.quoteValues(databaseProductName, associatedValues);
+        String rankedOrderBy = StringUtil.isBlank(orderBy) ? associatedColumnName : orderBy;
+        String projection = Tables.getProjection(relatedModelDescriptor, databaseProductName, null);
+        // The ranked rows are queried from the table aliased by T
+        boolean ranked = limit >= 0 && databaseType.isWindowFunctionSupported();
+        String relationTableName = getRelationTableName(clazz, ranked ? "T" : null, condition);
+
+        String relationTableQuerySql;
+        if (limit < 0) {
+            String relationConditions = createRelationConditions(associatedColumnName, quotedValues, condition);
+            relationTableQuerySql = String.format(SELECT_RELATION_STATEMENT, projection,
+                    relationTableName, relationConditions);
+        } else if (ranked) {
+            // The ranking column must not be projected into the related objects
+            String rankedProjection = relatedModelDescriptor.getColumns().length == 0 ? "*"
+                    : String.join(", ", quoter.quoteColumnNames(databaseProductName, relatedModelDescriptor.getColumns()));
+            String relationConditions = createRelationConditions(associatedColumnName, quotedValues, condition);
+            relationTableQuerySql = String.format(SELECT_RANKED_RELATION_STATEMENT, rankedProjection,
+                    Tables.getProjection(relatedModelDescriptor, databaseProductName, "T"), associatedColumnName,
+                    rankedOrderBy, ROW_NUMBER_ALIAS, relationTableName, relationConditions, ROW_NUMBER_ALIAS, limit);
+        } else {
+            // Falls back to a limited query for each associated value, which are concatenated
+            // with UNION ALL in chunks, for the database without window functions.
+            PagedSQLBuilder pagedSQLBuilder = Databases.getPagedSQLBuilderFactory()
+                    .createPagedSQLBuilder(databaseType);
+            Page page = Page.create(0, limit);
+            List relatedObjects = new ArrayList();
+            for (int offset = 0; offset < quotedValues.length; offset += UNION_QUERY_CHUNK_SIZE) {
+                List<String> limitedQuerySqls = new ArrayList<>();
+                for (int i = offset; i < Math.min(offset + UNION_QUERY_CHUNK_SIZE, quotedValues.length); i++) {
+                    String relationConditions = createRelationConditions(associatedColumnName,
+                            new String[]{quotedValues[i]}, condition);
+                    String querySql = String.format("%s ORDER BY %s", String.format(SELECT_RELATION_STATEMENT,
+                            projection, relationTableName, relationConditions), rankedOrderBy);
+                    limitedQuerySqls.add(String.format("SELECT * FROM (%s) T%d",
+                            pagedSQLBuilder.buildQuerySQL(page, querySql, relatedModelDescriptor), i));
+                }
+                String unionQuerySql = String.format("SELECT * FROM (%s) T",
+                        String.join(" UNION ALL ", limitedQuerySqls));
+                if (!StringUtil.isBlank(orderBy)) {
+                    unionQuerySql = String.format("%s ORDER BY %s", unionQuerySql, orderBy);
+                }
+                relatedObjects.addAll(sqlExecutor.query(connection, unionQuerySql, relatedModelDescriptor));
+            }
+            return relatedObjects;
+        }
+
+        if (!StringUtil.isBlank(orderBy)) {
+            relationTableQuerySql = String.format("%s ORDER BY %s", relationTableQuerySql, orderBy);
+        }
+
+        return sqlExecutor.query(connection, relationTableQuerySql, relatedModelDescriptor);
+    }
+
+    /**
+     * Returns the table of related class, or the partitions of table pruned by the condition
+     * if the table is partitioned by time.
+     *
+     * @see TimePartitioning#getTableExpression(Connection, String, String, String, Object...)
+     */
+    private String getRelationTableName(Class clazz, String alias, String condition) throws SQLException {
+        String relationTableName = Tables.getTableName(clazz);
+        TimePartitioning timePartitioning = domainModelDescriptor.getRelatedModeDescriptor(clazz)
+                .getTimePartitioning();
+        if (timePartitioning == null) {
+            return alias == null ? relationTableName : String.format("%s %s", relationTableName, alias);
+        }
+        return timePartitioning.getTableExpression(connection, relationTableName, alias, condition);
+    }
+
+    private String createRelationConditions(String associatedColumnName, String[] quotedValues, String condition) {
+        String associatedValueString = String.join(",", quotedValues);
+        return StringUtil.isBlank(condition)
+                ? String.format(" %s IN (%s) ", associatedColumnName, associatedValueString)
+                : String.format(" %s IN (%s) AND (%s)", associatedColumnName, associatedValueString, condition);
+    }
+
+    @Override
+    public void catchObjects(Class clazz, List objects) {
+        this.baseObjectsMap.put(clazz, objects);
     }
 }
@@ -119,6 +119,10 @@ public class DefaultColumn extends AbstractExpression implements Column {
                 columnAlias == null ? "" : "AS " + expressionContext.quoteColumn(columnAlias).trim());
     }
 
+    public String getColumnName() {
+        return columnName;
+    }
+
     protected Dataset getDataset() {
         return this.dataset;
     }
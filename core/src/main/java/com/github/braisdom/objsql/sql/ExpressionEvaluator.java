@@ -0,0 +1,577 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql.sql;
+
+import com.github.braisdom.objsql.TableRowAdapter;
+import com.github.braisdom.objsql.reflection.PropertyAccessor;
+import com.github.braisdom.objsql.reflection.PropertyUtils;
+import com.github.braisdom.objsql.relation.AggregateProcessor;
+import com.github.braisdom.objsql.sql.expression.*;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Compiles the expression trees into Java functions, which are evaluated against the rows
+ * in memory instead of the database, such as the rows of <code>ReplicatedTable</code>.
+ * The columns are resolved by the <code>TableRowAdapter</code>, the logical expressions
+ * follow the three-valued logic of SQL, in which any comparison with <code>NULL</code>
+ * is unknown, and the unknown is treated as false at last.
+ * <p/>
+ * The literals, columns, arithmetic, comparison, <code>AND/OR</code>, <code>IN</code>,
+ * <code>BETWEEN</code>, <code>LIKE</code>, <code>IS [NOT] NULL</code> and the aggregate
+ * functions <code>COUNT/SUM/AVG/MIN/MAX</code> are supported, the others cause an
+ * <code>UnsupportedOperationException</code>. The strings are compared by Java, the
+ * collation of database is not applied.
+ *
+ * @param <T> the row class
+ * @see Select#executeInMemory(Collection, TableRowAdapter)
+ */
+public class ExpressionEvaluator<T> {
+
+    private static final Set<String> AGGREGATE_FUNCTIONS = new HashSet<>(Arrays
+            .asList(new String[]{"COUNT", "SUM", "AVG", "MIN", "MAX"}));
+
+    private final TableRowAdapter<T> rowAdapter;
+
+    public ExpressionEvaluator(TableRowAdapter<T> rowAdapter) {
+        Objects.requireNonNull(rowAdapter, "The rowAdapter cannot be null");
+        this.rowAdapter = rowAdapter;
+    }
+
+    /**
+     * Evaluates an expression with a row or a group of rows, the group is null if the
+     * expression is evaluated for each row, and the row is the first of group if the
+     * expression is evaluated for a group.
+     */
+    @FunctionalInterface
+    interface Evaluation<T> {
+        Object evaluate(T row, List<T> group);
+    }
+
+    public Predicate<T> compilePredicate(Sqlizable expression) {
+        Evaluation<T> evaluation = compile(expression);
+        return row -> Boolean.TRUE.equals(evaluation.evaluate(row, null));
+    }
+
+    public Function<T, Object> compileFunction(Sqlizable expression) {
+        Evaluation<T> evaluation = compile(expression);
+        return row -> evaluation.evaluate(row, null);
+    }
+
+    /**
+     * Compiles the expressions of <code>ORDER BY</code>, the <code>NULL</code> is sorted
+     * before the others in ascending order, and after the others in descending order.
+     */
+    public Comparator<T> compileComparator(Expression... orderByExpressions) {
+        return compileComparator(row -> row, row -> null, orderByExpressions);
+    }
+
+    Predicate<List<T>> compileGroupPredicate(Sqlizable expression) {
+        Function<List<T>, Object> function = compileGroupFunction(expression);
+        return group -> Boolean.TRUE.equals(function.apply(group));
+    }
+
+    Function<List<T>, Object> compileGroupFunction(Sqlizable expression) {
+        Evaluation<T> evaluation = compile(expression);
+        return group -> evaluation.evaluate(getFirstRow(group), group);
+    }
+
+    Comparator<List<T>> compileGroupComparator(Expression... orderByExpressions) {
+        return compileComparator(ExpressionEvaluator::getFirstRow, group -> group, orderByExpressions);
+    }
+
+    private <R> Comparator<R> compileComparator(Function<R, T> rowFunction, Function<R, List<T>> groupFunction,
+                                                Expression[] orderByExpressions) {
+        Comparator<R> comparator = (element1, element2) -> 0;
+        for (Expression orderByExpression : orderByExpressions) {
+            Expression sortExpression = orderByExpression;
+            boolean descending = false;
+            if (orderByExpression instanceof ColumnExpression) {
+                ColumnExpression columnExpression = (ColumnExpression) orderByExpression;
+                String direction = getPlainText(columnExpression.getExpression());
+                if ("DESC".equals(direction) || "ASC".equals(direction)) {
+                    sortExpression = columnExpression.getColumn();
+                    descending = "DESC".equals(direction);
+                }
+            }
+
+            Evaluation<T> evaluation = compile(sortExpression);
+            Comparator<R> sortComparator = (element1, element2) -> {
+                Object value1 = evaluation.evaluate(rowFunction.apply(element1), groupFunction.apply(element1));
+                Object value2 = evaluation.evaluate(rowFunction.apply(element2), groupFunction.apply(element2));
+                if (value1 == null || value2 == null) {
+                    return value1 == value2 ? 0 : (value1 == null ? -1 : 1);
+                }
+                return compareValues(value1, value2);
+            };
+            comparator = comparator.thenComparing(descending ? sortComparator.reversed() : sortComparator);
+        }
+        return comparator;
+    }
+
+    /**
+     * Returns true if the expression contains an aggregate function, which can be
+     * evaluated only for a group of rows.
+     */
+    public static boolean isAggregate(Expression expression) {
+        if (expression instanceof SqlFunctionCall) {
+            SqlFunctionCall functionCall = (SqlFunctionCall) expression;
+            return AGGREGATE_FUNCTIONS.contains(functionCall.getName().toUpperCase())
+                    || Arrays.stream(functionCall.getExpressions()).anyMatch(ExpressionEvaluator::isAggregate);
+        } else if (expression instanceof ParenExpression) {
+            return isAggregate(((ParenExpression) expression).getExpression());
+        } else if (expression instanceof PolynaryExpression) {
+            return Arrays.stream(((PolynaryExpression) expression).getOperands())
+                    .anyMatch(operand -> operand instanceof Expression && isAggregate((Expression) operand));
+        }
+        return false;
+    }
+
+    Evaluation<T> compile(Sqlizable expression) {
+        if (expression instanceof LiteralExpression) {
+            Object literal = ((LiteralExpression) expression).getRawLiteral();
+            return (row, group) -> literal;
+        } else if (expression instanceof DefaultColumn) {
+            return compileColumn(((DefaultColumn) expression).getColumnName());
+        } else if (expression instanceof ParenExpression) {
+            return compile(((ParenExpression) expression).getExpression());
+        } else if (expression instanceof PolynaryExpression) {
+            return compilePolynary((PolynaryExpression) expression);
+        } else if (expression instanceof ColumnExpression) {
+            return compileColumnExpression((ColumnExpression) expression);
+        } else if (expression instanceof NullExpression) {
+            NullExpression nullExpression = (NullExpression) expression;
+            return compileNullTest(compile(nullExpression.getExpression()), nullExpression.isNegated());
+        } else if (expression instanceof EqualsExpression) {
+            EqualsExpression equalsExpression = (EqualsExpression) expression;
+            return compileComparison(equalsExpression.isNegated() ? PolynaryExpression.NE : PolynaryExpression.EQ,
+                    compile(equalsExpression.getLeft()), compile(equalsExpression.getRight()));
+        } else if (expression instanceof LikeException) {
+            LikeException likeExpression = (LikeException) expression;
+            return compileLike(compile(likeExpression.getLeft()), compile(likeExpression.getRight()),
+                    likeExpression.isNegated());
+        } else if (expression instanceof SqlFunctionCall) {
+            return compileFunctionCall((SqlFunctionCall) expression);
+        }
+        throw new UnsupportedOperationException(String.format("The %s cannot be evaluated in memory",
+                expression == null ? null : expression.getClass().getSimpleName()));
+    }
+
+    private Evaluation<T> compileColumn(String columnName) {
+        Class domainModelClass = rowAdapter.getDomainModelClass();
+        String fieldName = rowAdapter.getFieldName(columnName);
+
+        if (domainModelClass != null && Map.class.isAssignableFrom(domainModelClass)) {
+            String key = fieldName == null ? columnName : fieldName;
+            return (row, group) -> row == null ? null : ((Map) row).get(key);
+        } else if (fieldName != null) {
+            PropertyAccessor accessor = PropertyAccessor.of(domainModelClass, fieldName);
+            return (row, group) -> row == null ? null : accessor.read(row);
+        }
+        // The column without field, such as an alias of projection, is stored as raw attribute
+        return (row, group) -> row != null && PropertyUtils.supportRawAttribute(row)
+                ? PropertyUtils.getRawAttribute(row, columnName) : null;
+    }
+
+    private Evaluation<T> compilePolynary(PolynaryExpression expression) {
+        String operator = expression.getOperator();
+        List<Evaluation<T>> operands = new ArrayList<>();
+        for (Sqlizable operand : expression.getOperands()) {
+            operands.add(compile(operand));
+        }
+
+        if (PolynaryExpression.AND.equals(operator) || PolynaryExpression.OR.equals(operator)) {
+            // The result is decided by any false of AND or any true of OR, even though others are unknown
+            Boolean decisive = PolynaryExpression.OR.equals(operator);
+            return (row, group) -> {
+                boolean unknown = false;
+                for (Evaluation<T> operand : operands) {
+                    Object value = operand.evaluate(row, group);
+                    if (value == null) {
+                        unknown = true;
+                    } else if (decisive.equals(value)) {
+                        return decisive;
+                    }
+                }
+                return unknown ? null : !decisive;
+            };
+        } else if (operands.size() == 2 && isComparisonOperator(operator)) {
+            return compileComparison(operator, operands.get(0), operands.get(1));
+        }
+
+        return (row, group) -> {
+            Object result = operands.get(0).evaluate(row, group);
+            for (int i = 1; i < operands.size() && result != null; i++) {
+                result = calculate(operator, result, operands.get(i).evaluate(row, group));
+            }
+            return result;
+        };
+    }
+
+    private Evaluation<T> compileColumnExpression(ColumnExpression expression) {
+        Evaluation<T> column = compile(expression.getColumn());
+        Expression predicate = expression.getExpression();
+
+        if (predicate instanceof InExpression) {
+            InExpression inExpression = (InExpression) predicate;
+            List<Evaluation<T>> candidates = new ArrayList<>();
+            for (Expression candidate : inExpression.getExpressions()) {
+                candidates.add(compile(candidate));
+            }
+            boolean negated = inExpression.isNegated();
+            return (row, group) -> {
+                Object value = column.evaluate(row, group);
+                if (value == null) {
+                    return null;
+                }
+                boolean unknown = false;
+                for (Evaluation<T> candidate : candidates) {
+                    Object candidateValue = candidate.evaluate(row, group);
+                    if (candidateValue == null) {
+                        unknown = true;
+                    } else if (compareValues(value, candidateValue) == 0) {
+                        return !negated;
+                    }
+                }
+                return unknown ? null : negated;
+            };
+        } else if (predicate instanceof BetweenExpression) {
+            BetweenExpression betweenExpression = (BetweenExpression) predicate;
+            Evaluation<T> lower = compileComparison(PolynaryExpression.GE, column,
+                    compile(betweenExpression.getLeft()));
+            Evaluation<T> upper = compileComparison(PolynaryExpression.LE, column,
+                    compile(betweenExpression.getRight()));
+            boolean negated = betweenExpression.isNegated();
+            return (row, group) -> {
+                Object lowerResult = lower.evaluate(row, group);
+                Object upperResult = upper.evaluate(row, group);
+                if (Boolean.FALSE.equals(lowerResult) || Boolean.FALSE.equals(upperResult)) {
+                    return negated;
+                }
+                return lowerResult == null || upperResult == null ? null : !negated;
+            };
+        }
+
+        String plainText = getPlainText(predicate);
+        if ("IS NULL".equals(plainText) || "IS NOT NULL".equals(plainText)) {
+            return compileNullTest(column, "IS NOT NULL".equals(plainText));
+        }
+        throw new UnsupportedOperationException(String.format("The %s cannot be evaluated in memory",
+                predicate.getClass().getSimpleName()));
+    }
+
+    private Evaluation<T> compileNullTest(Evaluation<T> operand, boolean negated) {
+        return (row, group) -> (operand.evaluate(row, group) == null) != negated;
+    }
+
+    private Evaluation<T> compileComparison(String operator, Evaluation<T> left, Evaluation<T> right) {
+        return (row, group) -> {
+            Object leftValue = left.evaluate(row, group);
+            Object rightValue = right.evaluate(row, group);
+            if (leftValue == null || rightValue == null) {
+                return null;
+            }
+
+            int result = compareValues(leftValue, rightValue);
+            switch (operator) {
+                case PolynaryExpression.LT:
+                    return result < 0;
+                case PolynaryExpression.LE:
+                    return result <= 0;
+                case PolynaryExpression.GT:
+                    return result > 0;
+                case PolynaryExpression.GE:
+                    return result >= 0;
+                case PolynaryExpression.EQ:
+                    return result == 0;
+                default:
+                    return result != 0;
+            }
+        };
+    }
+
+    private Evaluation<T> compileLike(Evaluation<T> operand, Evaluation<T> pattern, boolean negated) {
+        Map<String, Pattern> compiledPatterns = new ConcurrentHashMap<>();
+        return (row, group) -> {
+            Object value = operand.evaluate(row, group);
+            Object patternValue = pattern.evaluate(row, group);
+            if (value == null || patternValue == null) {
+                return null;
+            }
+
+            Pattern regex = compiledPatterns.computeIfAbsent(String.valueOf(patternValue),
+                    ExpressionEvaluator::toRegex);
+            return regex.matcher(String.valueOf(value)).matches() != negated;
+        };
+    }
+
+    private Evaluation<T> compileFunctionCall(SqlFunctionCall functionCall) {
+        String name = functionCall.getName().toUpperCase();
+        Expression[] arguments = functionCall.getExpressions();
+
+        if (AGGREGATE_FUNCTIONS.contains(name)) {
+            // The COUNT(DISTINCT ...) is an anonymous subclass, which cannot be recognized
+            if (functionCall.getClass() != SqlFunctionCall.class || arguments.length != 1) {
+                throw new UnsupportedOperationException(String.format("The %s cannot be evaluated in memory",
+                        functionCall.getName()));
+            }
+            boolean countAll = "COUNT".equals(name) && "*".equals(getPlainText(arguments[0]));
+            Evaluation<T> argument = countAll ? (row, group) -> row : compile(arguments[0]);
+            return (row, group) -> {
+                if (group == null) {
+                    throw new IllegalStateException(String.format("The %s is only allowed in a group", name));
+                }
+                return aggregate(name, argument, group);
+            };
+        }
+
+        List<Evaluation<T>> compiledArguments = new ArrayList<>();
+        for (Expression argument : arguments) {
+            compiledArguments.add(compile(argument));
+        }
+        switch (name) {
+            case "COALESCE":
+                return (row, group) -> {
+                    for (Evaluation<T> argument : compiledArguments) {
+                        Object value = argument.evaluate(row, group);
+                        if (value != null) {
+                            return value;
+                        }
+                    }
+                    return null;
+                };
+            case "UPPER":
+            case "LOWER":
+                return (row, group) -> {
+                    Object value = compiledArguments.get(0).evaluate(row, group);
+                    if (value == null) {
+                        return null;
+                    }
+                    return "UPPER".equals(name) ? String.valueOf(value).toUpperCase()
+                            : String.valueOf(value).toLowerCase();
+                };
+            default:
+                throw new UnsupportedOperationException(String.format("The %s cannot be evaluated in memory",
+                        functionCall.getName()));
+        }
+    }
+
+    private Object aggregate(String name, Evaluation<T> argument, List<T> group) {
+        long count = 0;
+        Object result = null;
+        for (T row : group) {
+            Object value = argument.evaluate(row, null);
+            if (value == null) {
+                continue;
+            }
+            count++;
+            if ("SUM".equals(name) || "AVG".equals(name)) {
+                result = result == null ? value : sum(result, value);
+            } else if ("MIN".equals(name) && (result == null || compareValues(value, result) < 0)) {
+                result = value;
+            } else if ("MAX".equals(name) && (result == null || compareValues(value, result) > 0)) {
+                result = value;
+            }
+        }
+
+        switch (name) {
+            case "COUNT":
+                return count;
+            case "AVG":
+                return result == null ? null : toBigDecimal((Number) result)
+                        .divide(BigDecimal.valueOf(count), MathContext.DECIMAL64).doubleValue();
+            default:
+                return result;
+        }
+    }
+
+    /**
+     * Adds the values of SUM, the integral sum is promoted to <code>BigDecimal</code> once
+     * it overflows, as the databases return the SUM of integers as numeric.
+     */
+    private static Object sum(Object left, Object right) {
+        try {
+            return calculate(PolynaryExpression.PLUS, left, right);
+        } catch (ArithmeticException ex) {
+            return toBigDecimal((Number) left).add(toBigDecimal((Number) right));
+        }
+    }
+
+    static Object calculate(String operator, Object left, Object right) {
+        if (left == null || right == null) {
+            return null;
+        }
+        if (!(left instanceof Number) || !(right instanceof Number)) {
+            throw new IllegalArgumentException(String.format("Cannot calculate '%s %s %s'",
+                    left, operator.trim(), right));
+        }
+
+        Number leftNumber = (Number) left;
+        Number rightNumber = (Number) right;
+        if (isIntegral(leftNumber) && isIntegral(rightNumber)) {
+            long leftValue = leftNumber.longValue();
+            long rightValue = rightNumber.longValue();
+            switch (operator) {
+                case PolynaryExpression.PLUS:
+                    return Math.addExact(leftValue, rightValue);
+                case PolynaryExpression.MINUS:
+                    return Math.subtractExact(leftValue, rightValue);
+                case PolynaryExpression.MULTIPLY:
+                    return Math.multiplyExact(leftValue, rightValue);
+                case PolynaryExpression.DIVIDE:
+                    return leftValue / rightValue;
+                case PolynaryExpression.REM:
+                    return leftValue % rightValue;
+            }
+        } else if (leftNumber instanceof BigDecimal || rightNumber instanceof BigDecimal) {
+            BigDecimal leftValue = toBigDecimal(leftNumber);
+            BigDecimal rightValue = toBigDecimal(rightNumber);
+            switch (operator) {
+                case PolynaryExpression.PLUS:
+                    return leftValue.add(rightValue);
+                case PolynaryExpression.MINUS:
+                    return leftValue.subtract(rightValue);
+                case PolynaryExpression.MULTIPLY:
+                    return leftValue.multiply(rightValue);
+                case PolynaryExpression.DIVIDE:
+                    return leftValue.divide(rightValue, MathContext.DECIMAL64);
+                case PolynaryExpression.REM:
+                    return leftValue.remainder(rightValue);
+            }
+        } else {
+            double leftValue = leftNumber.doubleValue();
+            double rightValue = rightNumber.doubleValue();
+            switch (operator) {
+                case PolynaryExpression.PLUS:
+                    return leftValue + rightValue;
+                case PolynaryExpression.MINUS:
+                    return leftValue - rightValue;
+                case PolynaryExpression.MULTIPLY:
+                    return leftValue * rightValue;
+                case PolynaryExpression.DIVIDE:
+                    return leftValue / rightValue;
+                case PolynaryExpression.REM:
+                    return leftValue % rightValue;
+            }
+        }
+        throw new UnsupportedOperationException(String.format("The operator '%s' cannot be evaluated in memory",
+                operator.trim()));
+    }
+
+    /**
+     * Compares the values as the database does, the numbers are compared by value
+     * regardless of their types, the numeric strings compared with numbers are converted
+     * to numbers, and the dates are compared by time.
+     */
+    static int compareValues(Object left, Object right) {
+        if (left instanceof Number && right instanceof CharSequence) {
+            right = coerceNumber((CharSequence) right);
+        } else if (left instanceof CharSequence && right instanceof Number) {
+            left = coerceNumber((CharSequence) left);
+        }
+
+        if (left instanceof Number && right instanceof Number) {
+            if (isIntegral((Number) left) && isIntegral((Number) right)) {
+                return Long.compare(((Number) left).longValue(), ((Number) right).longValue());
+            }
+            return toBigDecimal((Number) left).compareTo(toBigDecimal((Number) right));
+        } else if (left instanceof Date && right instanceof Date) {
+            return Long.compare(((Date) left).getTime(), ((Date) right).getTime());
+        } else if (left instanceof CharSequence || left instanceof Character) {
+            return String.valueOf(left).compareTo(String.valueOf(right));
+        } else if (left instanceof Comparable && left.getClass().isInstance(right)) {
+            return ((Comparable) left).compareTo(right);
+        } else if (Objects.equals(AggregateProcessor.normalizeKey(left), AggregateProcessor.normalizeKey(right))) {
+            return 0;
+        }
+        throw new IllegalArgumentException(String.format("Cannot compare %s(%s) with %s(%s)",
+                left, left.getClass().getName(), right, right.getClass().getName()));
+    }
+
+    private static <T> T getFirstRow(List<T> group) {
+        // The group is empty if no rows are aggregated without GROUP BY
+        return group.isEmpty() ? null : group.get(0);
+    }
+
+    private static boolean isComparisonOperator(String operator) {
+        return PolynaryExpression.LT.equals(operator) || PolynaryExpression.LE.equals(operator)
+                || PolynaryExpression.GT.equals(operator) || PolynaryExpression.GE.equals(operator)
+                || PolynaryExpression.EQ.equals(operator) || PolynaryExpression.NE.equals(operator)
+                || PolynaryExpression.NE2.equals(operator);
+    }
+
+    private static boolean isIntegral(Number number) {
+        return number instanceof Integer || number instanceof Long
+                || number instanceof Short || number instanceof Byte;
+    }
+
+    /**
+     * Returns the number parsed from the string, or the string itself if it is not numeric.
+     */
+    private static Object coerceNumber(CharSequence value) {
+        try {
+            return new BigDecimal(value.toString().trim());
+        } catch (NumberFormatException ex) {
+            return value;
+        }
+    }
+
+    private static BigDecimal toBigDecimal(Number number) {
+        if (number instanceof BigDecimal) {
+            return (BigDecimal) number;
+        } else if (number instanceof BigInteger) {
+            return new BigDecimal((BigInteger) number);
+        } else if (isIntegral(number)) {
+            return BigDecimal.valueOf(number.longValue());
+        }
+        return BigDecimal.valueOf(number.doubleValue());
+    }
+
+    private static String getPlainText(Expression expression) {
+        if (expression instanceof PlainExpression) {
+            return String.valueOf(((PlainExpression) expression).getExpression()).trim().toUpperCase();
+        }
+        return null;
+    }
+
+    private static Pattern toRegex(String likePattern) {
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for (char character : likePattern.toCharArray()) {
+            if (character == '%' || character == '_') {
+                if (literal.length() > 0) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                regex.append(character == '%' ? ".*" : ".");
+            } else {
+                literal.append(character);
+            }
+        }
+        if (literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+}
@@ -18,6 +18,8 @@ package com.github.braisdom.objsql.sql;
 
 import com.github.braisdom.objsql.*;
 import com.github.braisdom.objsql.pagination.Paginatable;
+import com.github.braisdom.objsql.reflection.PropertyUtils;
+import com.github.braisdom.objsql.relation.AggregateProcessor;
 import com.github.braisdom.objsql.relation.Relationship;
 import com.github.braisdom.objsql.relation.RelationshipNetwork;
 import com.github.braisdom.objsql.sql.expression.JoinExpression;
@@ -25,7 +27,9 @@ import com.github.braisdom.objsql.util.FunctionWithThrowable;
 import com.github.braisdom.objsql.util.SuppressedException;
 
 import java.sql.SQLException;
+import java.time.Duration;
 import java.util.*;
+import java.util.function.Function;
 
 public class Select<T> extends AbstractExpression implements Dataset, Paginatable {
 
@@ -42,6 +46,9 @@ public class Select<T> extends AbstractExpression implements Dataset, Paginatabl
     protected int offset = -1;
     protected Dataset[] unionDatasets;
     protected Dataset[] unionAllDatasets;
+    protected Duration cacheTimeToLive;
+    protected boolean hedged;
+    protected Object shardValue;
 
     public Select() {
         // Do nothing
@@ -117,6 +124,18 @@ public class Select<T> extends AbstractExpression implements Dataset, Paginatabl
         return this;
     }
 
+    /**
+     * Accepts the logical expressions built by the comparisons, such as
+     * <code>sum(amount).gt($(25))</code>, which are expressions as well.
+     */
+    public Select having(LogicalExpression expression) {
+        if (!(expression instanceof Expression)) {
+            throw new IllegalArgumentException("The having expression must be an Expression");
+        }
+        this.havingExpression = (Expression) expression;
+        return this;
+    }
+
     public Select orderBy(Expression... expressions) {
         this.orderByExpressions = expressions;
         return this;
@@ -148,6 +167,39 @@ public class Select<T> extends AbstractExpression implements Dataset, Paginatabl
         return this;
     }
 
+    /**
+     * Caches the rows of the SELECT statement for given duration, the rows will be
+     * invalidated once any table touched is written.
+     *
+     * @see Query#cached(Duration)
+     */
+    public Select cached(Duration timeToLive) {
+        this.cacheTimeToLive = timeToLive;
+        return this;
+    }
+
+    /**
+     * Hedges the SELECT statement, which is duplicated to another replica if it is
+     * not answered in time.
+     *
+     * @see Query#hedged()
+     */
+    public Select hedged() {
+        this.hedged = true;
+        return this;
+    }
+
+    /**
+     * Pins the SELECT statement to the shard holding given shard value.
+     *
+     * @see Query#shard(Object)
+     */
+    public Select shard(Object shardValue) {
+        Objects.requireNonNull(shardValue, "The shardValue cannot be null");
+        this.shardValue = shardValue;
+        return this;
+    }
+
     public String prettyFormat(DatabaseType databaseType) throws SQLSyntaxException {
         String sql = toSql(new DefaultExpressionContext(databaseType));
         return SQLFormatter.format(sql);
@@ -160,8 +212,22 @@ public class Select<T> extends AbstractExpression implements Dataset, Paginatabl
     public List<T> execute(DomainModelDescriptor domainModelDescriptor, Relationship... relationships) throws SQLException {
         Objects.requireNonNull(domainModelDescriptor, "The domainModelDescriptor cannot be null");
         String dataSourceName = domainModelDescriptor.getDataSourceName();
+        ShardedConnectionFactory shardedConnectionFactory = Databases.getShardedConnectionFactory(dataSourceName);
+        if (shardedConnectionFactory != null) {
+            if (shardValue == null) {
+                return executeOnShards(shardedConnectionFactory, domainModelDescriptor, relationships);
+            }
+            dataSourceName = shardedConnectionFactory.route(dataSourceName, shardValue);
+        }
+
+        if (cacheTimeToLive != null && relationships.length == 0
+                && Databases.getCurrentThreadConnection() == null) {
+            return Databases.getQueryCache().execute(dataSourceName, domainModelDescriptor,
+                    databaseType -> toSql(new DefaultExpressionContext(databaseType)), new Object[0],
+                    Collections.emptySet(), cacheTimeToLive);
+        }
 
-        return Databases.execute(dataSourceName, (connection, sqlExecutor) -> {
+        Databases.DatabaseInvoke<T, List<T>> queryInvoke = (connection, sqlExecutor) -> {
             DatabaseType databaseType = DatabaseType.create(connection.getMetaData().getDatabaseProductName(),
                     connection.getMetaData().getDatabaseMajorVersion());
             String sql = toSql(new DefaultExpressionContext(databaseType));
@@ -172,6 +238,215 @@ public class Select<T> extends AbstractExpression implements Dataset, Paginatabl
             }
 
             return rows;
+        };
+
+        return hedged ? Databases.executeHedged(dataSourceName, queryInvoke)
+                : Databases.executeReadOnly(dataSourceName, queryInvoke);
+    }
+
+    /**
+     * Executes the SELECT statement on all shards in parallel, and merges the rows by the
+     * ORDER BY, GROUP BY and aggregations of the statement.
+     *
+     * @see ShardedResultMerger
+     */
+    protected List<T> executeOnShards(ShardedConnectionFactory shardedConnectionFactory,
+                                      DomainModelDescriptor domainModelDescriptor,
+                                      Relationship... relationships) throws SQLException {
+        if (havingExpression != null || unionDatasets != null || unionAllDatasets != null) {
+            throw new UnsupportedOperationException("The HAVING and UNION cannot be merged across shards");
+        }
+
+        ShardedResultMerger<T> resultMerger = new ShardedResultMerger<T>(domainModelDescriptor)
+                .limit(offset > 0 ? offset : -1, rowCount > 0 ? rowCount : -1);
+        for (Expression projection : projections) {
+            if (ExpressionEvaluator.isAggregate(projection)) {
+                // The anonymous function calls, such as COUNT(DISTINCT ...), cannot be re-aggregated
+                if (projection.getClass() != SqlFunctionCall.class || projection.getAlias() == null) {
+                    throw new UnsupportedOperationException("The aggregations must be aliased plain functions "
+                            + "for merging across shards");
+                }
+                resultMerger.aggregate(((SqlFunctionCall) projection).getName(), projection.getAlias());
+            }
+        }
+        if (groupByExpressions != null) {
+            for (Expression groupByExpression : groupByExpressions) {
+                if (!(groupByExpression instanceof DefaultColumn)) {
+                    throw new UnsupportedOperationException("The GROUP BY columns only can be merged across shards");
+                }
+                resultMerger.groupBy(((DefaultColumn) groupByExpression).getColumnName());
+            }
+        }
+        if (orderByExpressions != null && orderByExpressions.length > 0) {
+            if (Arrays.stream(orderByExpressions).anyMatch(ExpressionEvaluator::isAggregate)) {
+                throw new UnsupportedOperationException("The ORDER BY aggregations cannot be merged across shards, "
+                        + "the aliases of aggregations should be sorted instead");
+            }
+            resultMerger.orderBy(new ExpressionEvaluator<T>(domainModelDescriptor)
+                    .compileComparator(orderByExpressions));
+        }
+
+        int shardRowCount = (int) resultMerger.getShardRowCount();
+        List<List<T>> shardRows = shardedConnectionFactory.executeOnShards(domainModelDescriptor.getDataSourceName(),
+                (Databases.DatabaseInvoke<T, List<T>>) (connection, sqlExecutor) -> {
+                    DatabaseType databaseType = DatabaseType.create(connection.getMetaData().getDatabaseProductName(),
+                            connection.getMetaData().getDatabaseMajorVersion());
+                    String sql = toSql(new DefaultExpressionContext(databaseType), -1, shardRowCount);
+                    return (List<T>) sqlExecutor.query(connection, sql, domainModelDescriptor);
+                });
+
+        // The relationships are loaded for the rows kept by the merge only
+        List<T> rows = resultMerger.merge(shardRows);
+        shardedConnectionFactory.processRelationships(domainModelDescriptor.getDataSourceName(), shardRows, rows,
+                domainModelDescriptor, relationships);
+        return rows;
+    }
+
+    public List<T> executeInMemory(Collection<T> rows, Class<?> clazz) {
+        return executeInMemory(rows, new BeanModelDescriptor(clazz));
+    }
+
+    /**
+     * Executes the SELECT statement against the rows in memory instead of the database,
+     * such as the rows of a <code>ReplicatedTable</code>, the rows are filtered, grouped,
+     * sorted and limited as the database does. The rows are returned as they are if no
+     * projections, otherwise, the projected values are populated into new instances
+     * created by the <code>TableRowAdapter</code>.
+     * <p/>
+     * The SELECT statement must query a single dataset without joins and unions.
+     *
+     * @see ExpressionEvaluator
+     */
+    public List<T> executeInMemory(Collection<T> rows, TableRowAdapter rowAdapter) {
+        Objects.requireNonNull(rows, "The rows cannot be null");
+        Objects.requireNonNull(rowAdapter, "The rowAdapter cannot be null");
+
+        if (joinExpressions.size() > 0 || unionDatasets != null || unionAllDatasets != null
+                || (fromDatasets != null && fromDatasets.length > 1)) {
+            throw new UnsupportedOperationException("The SELECT with joins or unions cannot be executed in memory");
+        }
+
+        ExpressionEvaluator<T> evaluator = new ExpressionEvaluator<>(rowAdapter);
+        List<T> filteredRows = new ArrayList<>(rows);
+        if (whereExpression != null) {
+            filteredRows.removeIf(evaluator.compilePredicate(whereExpression).negate());
+        }
+
+        boolean grouped = groupByExpressions != null && groupByExpressions.length > 0;
+        if (grouped || projections.stream().anyMatch(ExpressionEvaluator::isAggregate)) {
+            return aggregateInMemory(evaluator, filteredRows, rowAdapter);
+        }
+
+        if (orderByExpressions != null && orderByExpressions.length > 0) {
+            filteredRows.sort(evaluator.compileComparator(orderByExpressions));
+        }
+        filteredRows = limitInMemory(filteredRows);
+
+        if (projections.size() == 0) {
+            return filteredRows;
+        }
+
+        Map<String, Function<T, Object>> projectionFunctions = new LinkedHashMap<>();
+        for (Expression projection : projections) {
+            projectionFunctions.put(getProjectionName(projection), evaluator.compileFunction(projection));
+        }
+
+        List<T> results = new ArrayList<>(filteredRows.size());
+        for (T row : filteredRows) {
+            T result = (T) rowAdapter.newInstance();
+            projectionFunctions.forEach((name, function) ->
+                    populateInMemory(rowAdapter, result, name, function.apply(row)));
+            results.add(result);
+        }
+        return results;
+    }
+
+    private List<T> aggregateInMemory(ExpressionEvaluator<T> evaluator, List<T> rows, TableRowAdapter rowAdapter) {
+        if (projections.size() == 0) {
+            throw new UnsupportedOperationException("The grouped SELECT must have projections");
+        }
+
+        Map<List<Object>, List<T>> groups = new LinkedHashMap<>();
+        if (groupByExpressions != null && groupByExpressions.length > 0) {
+            List<Function<T, Object>> keyFunctions = new ArrayList<>();
+            for (Expression groupByExpression : groupByExpressions) {
+                keyFunctions.add(evaluator.compileFunction(groupByExpression));
+            }
+            for (T row : rows) {
+                List<Object> key = new ArrayList<>(keyFunctions.size());
+                for (Function<T, Object> keyFunction : keyFunctions) {
+                    key.add(AggregateProcessor.normalizeKey(keyFunction.apply(row)));
+                }
+                groups.computeIfAbsent(key, k -> new ArrayList<>()).add(row);
+            }
+        } else {
+            // The aggregate functions without GROUP BY return a row even if no rows matched
+            groups.put(Collections.emptyList(), rows);
+        }
+
+        List<List<T>> groupList = new ArrayList<>(groups.values());
+        if (havingExpression != null) {
+            groupList.removeIf(evaluator.compileGroupPredicate(havingExpression).negate());
+        }
+        if (orderByExpressions != null && orderByExpressions.length > 0) {
+            groupList.sort(evaluator.compileGroupComparator(orderByExpressions));
+        }
+        groupList = limitInMemory(groupList);
+
+        Map<String, Function<List<T>, Object>> projectionFunctions = new LinkedHashMap<>();
+        for (Expression projection : projections) {
+            projectionFunctions.put(getProjectionName(projection), evaluator.compileGroupFunction(projection));
+        }
+
+        List<T> results = new ArrayList<>(groupList.size());
+        for (List<T> group : groupList) {
+            T result = (T) rowAdapter.newInstance();
+            projectionFunctions.forEach((name, function) ->
+                    populateInMemory(rowAdapter, result, name, function.apply(group)));
+            results.add(result);
+        }
+        return results;
+    }
+
+    private <E> List<E> limitInMemory(List<E> elements) {
+        int fromIndex = Math.min(Math.max(offset, 0), elements.size());
+        int toIndex = rowCount > 0 ? Math.min(fromIndex + rowCount, elements.size()) : elements.size();
+        return fromIndex == 0 && toIndex == elements.size() ? elements : elements.subList(fromIndex, toIndex);
+    }
+
+    private String getProjectionName(Expression projection) {
+        if (projection.getAlias() != null) {
+            return projection.getAlias();
+        } else if (projection instanceof DefaultColumn) {
+            return ((DefaultColumn) projection).getColumnName();
+        }
+        throw new UnsupportedOperationException("The projection executed in memory must be a column or aliased");
+    }
+
+    private void populateInMemory(TableRowAdapter rowAdapter, Object result, String name, Object value) {
+        String fieldName = rowAdapter.getFieldName(name);
+        if (fieldName != null) {
+            rowAdapter.setFieldValue(result, fieldName, value);
+        } else if (PropertyUtils.supportRawAttribute(result)) {
+            PropertyUtils.writeRawAttribute(result, name, value);
+        }
+    }
+
+    public ColumnarResult executeColumnar() throws SQLException {
+        return executeColumnar(Databases.getDefaultDataSourceName());
+    }
+
+    /**
+     * Executes the SELECT statement and returns the rows stored by column, which
+     * is designed for the analytic queries returning plenty of narrow rows.
+     *
+     * @see ColumnarResult
+     */
+    public ColumnarResult executeColumnar(String dataSourceName) throws SQLException {
+        return Databases.executeReadOnly(dataSourceName, (connection, sqlExecutor) -> {
+            DatabaseType databaseType = DatabaseType.create(connection.getMetaData().getDatabaseProductName(),
+                    connection.getMetaData().getDatabaseMajorVersion());
+            return sqlExecutor.queryColumnar(connection, toSql(new DefaultExpressionContext(databaseType)));
         });
     }
 
@@ -193,6 +468,10 @@ public class Select<T> extends AbstractExpression implements Dataset, Paginatabl
 
     @Override
     public String toSql(ExpressionContext expressionContext) throws SQLSyntaxException {
+        return toSql(expressionContext, offset, rowCount);
+    }
+
+    protected String toSql(ExpressionContext expressionContext, int offset, int rowCount) throws SQLSyntaxException {
         StringBuilder sql = new StringBuilder();
         sql.append("SELECT ");
 
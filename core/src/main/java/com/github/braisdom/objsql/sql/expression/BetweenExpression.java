@@ -58,6 +58,18 @@ public class BetweenExpression extends AbstractExpression {
         throw new UnsupportedArithmeticalException("Between expression cannot be remed");
     }
 
+    public boolean isNegated() {
+        return negated;
+    }
+
+    public Expression getLeft() {
+        return left;
+    }
+
+    public Expression getRight() {
+        return right;
+    }
+
     @Override
     public String toSql(ExpressionContext expressionContext)  throws SQLSyntaxException {
         return String.format(" %s BETWEEN %s AND %s ",
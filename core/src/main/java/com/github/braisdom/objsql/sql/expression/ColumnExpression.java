@@ -28,6 +28,14 @@ public class ColumnExpression extends AbstractExpression implements LogicalExpre
         this.expression = expression;
     }
 
+    public Column getColumn() {
+        return column;
+    }
+
+    public Expression getExpression() {
+        return expression;
+    }
+
     @Override
     public String toSql(ExpressionContext expressionContext) throws SQLSyntaxException {
         return String.format(" %s %s ", column.toSql(expressionContext).trim(),
@@ -47,6 +47,18 @@ public class EqualsExpression extends AbstractExpression {
         throw new UnsupportedOperationException("The equals expression cannot be aliased");
     }
 
+    public boolean isNegated() {
+        return negated;
+    }
+
+    public Expression getLeft() {
+        return leftExpression;
+    }
+
+    public Expression getRight() {
+        return rightExpression;
+    }
+
     @Override
     public String toSql(ExpressionContext expressionContext) throws SQLSyntaxException {
         if (negated) {
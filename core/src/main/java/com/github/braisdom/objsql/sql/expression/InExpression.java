@@ -25,6 +25,7 @@ import com.github.braisdom.objsql.util.SuppressedException;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 public class InExpression extends AbstractExpression {
@@ -63,6 +64,14 @@ public class InExpression extends AbstractExpression {
         throw new UnsupportedOperationException("The IN expression cannot be aliased");
     }
 
+    public boolean isNegated() {
+        return negated;
+    }
+
+    public List<Expression> getExpressions() {
+        return Collections.unmodifiableList(expressions);
+    }
+
     @Override
     public String toSql(ExpressionContext expressionContext) throws SQLSyntaxException {
         try {
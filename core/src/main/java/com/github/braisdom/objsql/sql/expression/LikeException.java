@@ -65,6 +65,18 @@ public class LikeException extends AbstractExpression implements LogicalExpressi
         throw new UnsupportedOperationException("The Like expression cannot be aliased");
     }
 
+    public boolean isNegated() {
+        return negated;
+    }
+
+    public Expression getLeft() {
+        return left;
+    }
+
+    public Expression getRight() {
+        return right;
+    }
+
     @Override
     public String toSql(ExpressionContext expressionContext) throws SQLSyntaxException {
         if (negated) {
@@ -30,6 +30,10 @@ public class LiteralExpression extends AbstractExpression {
         this.rawLiteral = rawLiteral;
     }
 
+    public Object getRawLiteral() {
+        return rawLiteral;
+    }
+
     @Override
     public String toSql(ExpressionContext expressionContext) throws SQLSyntaxException {
         if(rawLiteral == null) {
@@ -20,6 +20,14 @@ public class NullExpression extends AbstractExpression {
         throw new UnsupportedOperationException("The null expression cannot be aliased");
     }
 
+    public boolean isNegated() {
+        return negated;
+    }
+
+    public Expression getExpression() {
+        return expression;
+    }
+
     @Override
     public String toSql(ExpressionContext expressionContext) throws SQLSyntaxException {
         if (negated) {
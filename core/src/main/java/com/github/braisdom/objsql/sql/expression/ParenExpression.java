@@ -29,6 +29,10 @@ public class ParenExpression extends AbstractExpression {
         this.expression = expression;
     }
 
+    public Expression getExpression() {
+        return expression;
+    }
+
     @Override
     public String toSql(ExpressionContext expressionContext) throws SQLSyntaxException {
         return attachAlias(String.format("(%s)", expression.toSql(expressionContext)));
@@ -27,6 +27,10 @@ public class PlainExpression extends AbstractExpression {
         this.expression = expression;
     }
 
+    public Object getExpression() {
+        return expression;
+    }
+
     @Override
     public String toSql(ExpressionContext expressionContext) {
         return String.valueOf(expression);
@@ -82,6 +82,18 @@ public class PolynaryExpression extends AbstractExpression implements LogicalExp
         return new PolynaryExpression(OR, this, logicalExpression);
     }
 
+    public String getOperator() {
+        return operator;
+    }
+
+    public Sqlizable[] getOperands() {
+        Sqlizable[] operands = new Sqlizable[others.length + 2];
+        operands[0] = left;
+        operands[1] = right;
+        System.arraycopy(others, 0, operands, 2, others.length);
+        return operands;
+    }
+
     @Override
     public String toSql(ExpressionContext expressionContext) throws SQLSyntaxException {
         try {
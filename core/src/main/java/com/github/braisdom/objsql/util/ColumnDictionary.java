@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql.util;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An append-only dictionary of column names, which assigns each name a stable index,
+ * so the rows of a result set can share the names and store the values in arrays.
+ * The names are usually strings, but any key of a map, including null, is accepted.
+ *
+ * @see CompactMap
+ */
+public final class ColumnDictionary {
+
+    // Stands for the null name, which cannot be a key of ConcurrentHashMap
+    private static final Object NULL_NAME = new Object();
+
+    private final Map<Object, Integer> indexes = new ConcurrentHashMap<>();
+    private volatile Object[] names = new Object[0];
+
+    /**
+     * Returns the index of name, or -1 if the name is absent.
+     */
+    public int indexOf(Object name) {
+        Integer index = indexes.get(maskNull(name));
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Returns the index of name, the name will be appended if it is absent.
+     */
+    public int add(Object name) {
+        Object maskedName = maskNull(name);
+        Integer index = indexes.get(maskedName);
+        if (index != null) {
+            return index;
+        }
+
+        synchronized (this) {
+            index = indexes.get(maskedName);
+            if (index == null) {
+                index = names.length;
+                Object[] newNames = Arrays.copyOf(names, index + 1);
+                newNames[index] = name;
+                names = newNames;
+                indexes.put(maskedName, index);
+            }
+            return index;
+        }
+    }
+
+    public Object getName(int index) {
+        return names[index];
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    private static Object maskNull(Object name) {
+        return name == null ? NULL_NAME : name;
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql.util;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * A map whose keys are kept in a <code>ColumnDictionary</code> and values are kept in
+ * an array indexed by the dictionary, the rows of a result set sharing a dictionary
+ * need no entry nodes and key references of their own. It accepts any key including
+ * null, and it is serializable, cloneable and not thread-safe, as same as the
+ * <code>HashMap</code>.
+ */
+public class CompactMap extends AbstractMap<Object, Object> implements Cloneable, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    // Marks the slot of the key which is absent in this map
+    private static final Object ABSENT = new Object();
+
+    private static final Object[] EMPTY_VALUES = new Object[0];
+
+    // The dictionary is created at the first put unless a shared one is given
+    private transient ColumnDictionary dictionary;
+    private transient Object[] values = EMPTY_VALUES;
+    private transient int size;
+
+    public CompactMap() {
+    }
+
+    public CompactMap(ColumnDictionary dictionary) {
+        Objects.requireNonNull(dictionary, "The dictionary cannot be null");
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Replaces the dictionary by a shared one, such as the dictionary of a result set,
+     * it is allowed only when the map is empty.
+     */
+    public void shareDictionary(ColumnDictionary dictionary) {
+        Objects.requireNonNull(dictionary, "The dictionary cannot be null");
+        if (size > 0) {
+            throw new IllegalStateException("The dictionary can be shared only when the map is empty");
+        }
+        this.dictionary = dictionary;
+        this.values = EMPTY_VALUES;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return slotOf(key) >= 0;
+    }
+
+    @Override
+    public Object get(Object key) {
+        int slot = slotOf(key);
+        return slot < 0 ? null : values[slot];
+    }
+
+    @Override
+    public Object put(Object key, Object value) {
+        if (dictionary == null) {
+            dictionary = new ColumnDictionary();
+        }
+
+        int index = dictionary.add(key);
+        if (index >= values.length) {
+            int oldLength = values.length;
+            values = Arrays.copyOf(values, Math.max(dictionary.size(), index + 1));
+            Arrays.fill(values, oldLength, values.length, ABSENT);
+        }
+
+        Object oldValue = values[index];
+        values[index] = value;
+        if (oldValue == ABSENT) {
+            size++;
+            return null;
+        }
+        return oldValue;
+    }
+
+    @Override
+    public Object remove(Object key) {
+        int slot = slotOf(key);
+        if (slot < 0) {
+            return null;
+        }
+        return removeSlot(slot);
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(values, ABSENT);
+        size = 0;
+    }
+
+    @Override
+    public Set<Entry<Object, Object>> entrySet() {
+        return new AbstractSet<Entry<Object, Object>>() {
+            @Override
+            public Iterator<Entry<Object, Object>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Returns a shallow copy of the map, which shares the dictionary with this map.
+     */
+    @Override
+    public Object clone() {
+        try {
+            CompactMap compactMap = (CompactMap) super.clone();
+            compactMap.values = values.clone();
+            return compactMap;
+        } catch (CloneNotSupportedException ex) {
+            throw new InternalError(ex);
+        }
+    }
+
+    private int slotOf(Object key) {
+        if (dictionary == null) {
+            return -1;
+        }
+        int index = dictionary.indexOf(key);
+        return index < 0 || index >= values.length || values[index] == ABSENT ? -1 : index;
+    }
+
+    private Object removeSlot(int slot) {
+        Object oldValue = values[slot];
+        values[slot] = ABSENT;
+        size--;
+        return oldValue;
+    }
+
+    private void writeObject(ObjectOutputStream output) throws IOException {
+        output.defaultWriteObject();
+        output.writeInt(size);
+        for (Entry<Object, Object> entry : entrySet()) {
+            output.writeObject(entry.getKey());
+            output.writeObject(entry.getValue());
+        }
+    }
+
+    private void readObject(ObjectInputStream input) throws IOException, ClassNotFoundException {
+        input.defaultReadObject();
+        values = EMPTY_VALUES;
+        int entryCount = input.readInt();
+        for (int i = 0; i < entryCount; i++) {
+            put(input.readObject(), input.readObject());
+        }
+    }
+
+    private class EntryIterator implements Iterator<Entry<Object, Object>> {
+
+        private int nextSlot = findSlot(0);
+        private int lastSlot = -1;
+
+        @Override
+        public boolean hasNext() {
+            return nextSlot < values.length;
+        }
+
+        @Override
+        public Entry<Object, Object> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lastSlot = nextSlot;
+            nextSlot = findSlot(nextSlot + 1);
+            return new SlotEntry(lastSlot);
+        }
+
+        @Override
+        public void remove() {
+            if (lastSlot < 0) {
+                throw new IllegalStateException();
+            }
+            removeSlot(lastSlot);
+            lastSlot = -1;
+        }
+
+        private int findSlot(int from) {
+            int slot = from;
+            while (slot < values.length && values[slot] == ABSENT) {
+                slot++;
+            }
+            return slot;
+        }
+    }
+
+    private class SlotEntry implements Entry<Object, Object> {
+
+        private final int slot;
+
+        private SlotEntry(int slot) {
+            this.slot = slot;
+        }
+
+        @Override
+        public Object getKey() {
+            return dictionary.getName(slot);
+        }
+
+        @Override
+        public Object getValue() {
+            return values[slot];
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            Object oldValue = values[slot];
+            values[slot] = value;
+            return oldValue;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Entry)) {
+                return false;
+            }
+            Entry entry = (Entry) obj;
+            return Objects.equals(getKey(), entry.getKey()) && Objects.equals(getValue(), entry.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(getKey()) ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.braisdom.objsql.util;
+
+import java.util.Arrays;
+import java.util.function.LongFunction;
+
+/**
+ * A open addressing hash map with primitive long keys, it avoids boxing keys and
+ * allocating an entry for each mapping, and it is pre-sized by the expected size.
+ * The map is not thread safe.
+ *
+ * @param <V> the type of mapped values
+ */
+public final class LongKeyedMap<V> {
+
+    private static final int MIN_CAPACITY = 8;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+    private int mask;
+
+    public LongKeyedMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongKeyedMap(int expectedSize) {
+        int capacity = tableSizeFor(Math.max(expectedSize, MIN_CAPACITY / 2) * 2);
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+    }
+
+    public V get(long key) {
+        int index = indexOf(key);
+        return index < 0 ? null : (V) values[index];
+    }
+
+    public boolean containsKey(long key) {
+        return indexOf(key) >= 0;
+    }
+
+    /**
+     * Associates the value with the key, the null value is not permitted.
+     *
+     * @return the previous value associated with the key, or null
+     */
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("The value cannot be null");
+        }
+
+        int slot = slotOf(key);
+        Object previous = values[slot];
+        values[slot] = value;
+        if (previous == null) {
+            keys[slot] = key;
+            ensureCapacity(++size);
+        }
+        return (V) previous;
+    }
+
+    public V computeIfAbsent(long key, LongFunction<V> mappingFunction) {
+        int slot = slotOf(key);
+        Object value = values[slot];
+        if (value == null) {
+            value = mappingFunction.apply(key);
+            if (value != null) {
+                keys[slot] = key;
+                values[slot] = value;
+                ensureCapacity(++size);
+            }
+        }
+        return (V) value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    private int indexOf(long key) {
+        int slot = slotOf(key);
+        return values[slot] == null ? -1 : slot;
+    }
+
+    private int slotOf(long key) {
+        int slot = hash(key) & mask;
+        while (values[slot] != null && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void ensureCapacity(int size) {
+        // Keeps the load factor under 0.5 for short probe sequences
+        if (size * 2 > keys.length) {
+            long[] oldKeys = keys;
+            Object[] oldValues = values;
+            int capacity = keys.length * 2;
+
+            keys = new long[capacity];
+            values = new Object[capacity];
+            mask = capacity - 1;
+
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != null) {
+                    int slot = slotOf(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+    }
+
+    private static int hash(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    private static int tableSizeFor(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, MIN_CAPACITY) - 1) << 1;
+        return size < 0 ? 1 << 30 : size;
+    }
+}
@@ -0,0 +1,107 @@
+package com.github.braisdom.objsql;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import static org.mockito.Mockito.when;
+
+public class ColumnarResultTest {
+
+    @Test
+    public void testColumnarResult() throws SQLException {
+        ResultSet resultSet = Mockito.mock(ResultSet.class);
+        ResultSetMetaData metaData = Mockito.mock(ResultSetMetaData.class);
+
+        when(resultSet.getMetaData()).thenReturn(metaData);
+        when(metaData.getColumnCount()).thenReturn(3);
+        when(metaData.getColumnLabel(1)).thenReturn("id");
+        when(metaData.getColumnType(1)).thenReturn(Types.BIGINT);
+        when(metaData.isSigned(1)).thenReturn(true);
+        when(metaData.getColumnLabel(2)).thenReturn("amount");
+        when(metaData.getColumnType(2)).thenReturn(Types.DOUBLE);
+        when(metaData.getColumnLabel(3)).thenReturn("country");
+        when(metaData.getColumnType(3)).thenReturn(Types.VARCHAR);
+
+        when(resultSet.next()).thenReturn(true, true, true, false);
+        when(resultSet.getLong(1)).thenReturn(1L, 2L, 3L);
+        when(resultSet.getDouble(2)).thenReturn(1.5, 0.0, 2.5);
+        when(resultSet.wasNull()).thenReturn(false, false, false, true, false, false);
+        when(resultSet.getString(3)).thenReturn("CN", "US", "CN");
+
+        ColumnarResult result = ColumnarResult.create(resultSet);
+
+        Assert.assertEquals(result.getRowCount(), 3);
+        Assert.assertArrayEquals(result.getLongColumn("ID").getValues(), new long[]{1L, 2L, 3L});
+        Assert.assertTrue(result.getDoubleColumn("amount").isNull(1));
+        Assert.assertNull(result.getColumn("amount").getObject(1));
+        Assert.assertEquals(result.getDoubleColumn("amount").getDouble(2), 2.5, 0);
+        Assert.assertArrayEquals(result.getStringColumn("country").getDictionary(), new String[]{"CN", "US"});
+        Assert.assertArrayEquals(result.getStringColumn("country").getCodes(), new int[]{0, 1, 0});
+        Assert.assertEquals(result.getStringColumn("country").getString(2), "CN");
+    }
+
+    @Test
+    public void testDecimalColumns() throws SQLException {
+        ResultSet resultSet = Mockito.mock(ResultSet.class);
+        ResultSetMetaData metaData = Mockito.mock(ResultSetMetaData.class);
+
+        when(resultSet.getMetaData()).thenReturn(metaData);
+        when(metaData.getColumnCount()).thenReturn(3);
+        when(metaData.getColumnLabel(1)).thenReturn("quantity");
+        when(metaData.getColumnType(1)).thenReturn(Types.DECIMAL);
+        when(metaData.getPrecision(1)).thenReturn(10);
+        when(metaData.getScale(1)).thenReturn(0);
+        when(metaData.getColumnLabel(2)).thenReturn("price");
+        when(metaData.getColumnType(2)).thenReturn(Types.DECIMAL);
+        when(metaData.getPrecision(2)).thenReturn(10);
+        when(metaData.getScale(2)).thenReturn(2);
+        // The NUMBER of Oracle without precision
+        when(metaData.getColumnLabel(3)).thenReturn("amount");
+        when(metaData.getColumnType(3)).thenReturn(Types.NUMERIC);
+        when(metaData.getPrecision(3)).thenReturn(0);
+        when(metaData.getScale(3)).thenReturn(-127);
+
+        when(resultSet.next()).thenReturn(true, false);
+        when(resultSet.getLong(1)).thenReturn(3L);
+        when(resultSet.getObject(2)).thenReturn(new BigDecimal("0.10"));
+        when(resultSet.getObject(3)).thenReturn(new BigDecimal("12345678901234567890.5"));
+
+        ColumnarResult result = ColumnarResult.create(resultSet);
+
+        Assert.assertEquals(result.getLongColumn("quantity").getLong(0), 3L);
+        Assert.assertEquals(result.getColumn("price").getObject(0), new BigDecimal("0.10"));
+        Assert.assertEquals(result.getColumn("amount").getObject(0), new BigDecimal("12345678901234567890.5"));
+    }
+
+    @Test
+    public void testUnsignedIntegerColumn() throws SQLException {
+        ResultSet resultSet = Mockito.mock(ResultSet.class);
+        ResultSetMetaData metaData = Mockito.mock(ResultSetMetaData.class);
+
+        when(resultSet.getMetaData()).thenReturn(metaData);
+        when(metaData.getColumnCount()).thenReturn(2);
+        when(metaData.getColumnLabel(1)).thenReturn("visits");
+        when(metaData.getColumnType(1)).thenReturn(Types.INTEGER);
+        when(metaData.isSigned(1)).thenReturn(true);
+        // The INT UNSIGNED of MySQL
+        when(metaData.getColumnLabel(2)).thenReturn("views");
+        when(metaData.getColumnType(2)).thenReturn(Types.INTEGER);
+        when(metaData.isSigned(2)).thenReturn(false);
+
+        when(resultSet.next()).thenReturn(true, false);
+        when(resultSet.getInt(1)).thenReturn(7);
+        when(resultSet.getLong(2)).thenReturn(4294967295L);
+
+        ColumnarResult result = ColumnarResult.create(resultSet);
+
+        Assert.assertEquals(result.getIntColumn("visits").getInt(0), 7);
+        Assert.assertEquals(result.getLongColumn("views").getLong(0), 4294967295L);
+    }
+}
@@ -0,0 +1,46 @@
+package com.github.braisdom.objsql;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The installed extensions of <code>Databases</code>, which are restored after the test
+ * installing its own connection factory, query factory or sql executor, so the global
+ * state does not leak into other tests.
+ */
+public final class DatabasesSnapshot {
+
+    private final Map<Field, Object> values = new HashMap<>();
+
+    private DatabasesSnapshot() {
+    }
+
+    public static DatabasesSnapshot take() {
+        DatabasesSnapshot snapshot = new DatabasesSnapshot();
+        try {
+            for (Field field : Databases.class.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers) && !Modifier.isFinal(modifiers)
+                        && !ThreadLocal.class.equals(field.getType())) {
+                    field.setAccessible(true);
+                    snapshot.values.put(field, field.get(null));
+                }
+            }
+        } catch (IllegalAccessException ex) {
+            throw new IllegalStateException(ex.getMessage(), ex);
+        }
+        return snapshot;
+    }
+
+    public void restore() {
+        try {
+            for (Map.Entry<Field, Object> entry : values.entrySet()) {
+                entry.getKey().set(null, entry.getValue());
+            }
+        } catch (IllegalAccessException ex) {
+            throw new IllegalStateException(ex.getMessage(), ex);
+        }
+    }
+}
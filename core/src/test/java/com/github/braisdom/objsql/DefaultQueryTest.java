@@ -28,6 +28,8 @@ public class DefaultQueryTest {
         Assert.assertEquals(query.getQuerySQL(MySQL), "SELECT * FROM `domains` WHERE name = ?");
         Assert.assertEquals(query.getQuerySQL(PostgreSQL), "SELECT * FROM \"domains\" WHERE name = ?");
         Assert.assertEquals(query.getQuerySQL(Oracle), "SELECT * FROM \"DOMAINS\" WHERE name = ?");
+        Assert.assertArrayEquals(query.getQueryParams(), new Object[]{"12"});
+        Assert.assertArrayEquals(new DefaultQuery(Domain.class).getQueryParams(), new Object[0]);
     }
 
     @Test
@@ -50,6 +52,19 @@ public class DefaultQueryTest {
         Assert.assertEquals(query.getQuerySQL(Oracle), "SELECT * FROM \"DOMAINS\" GROUP BY name HAVING len(name) > 10 ORDER BY name DESC");
     }
 
+    @Test
+    public void testExplicitProjectionSQL() {
+        Query query = new DefaultQuery(ProjectedDomain.class);
+
+        Assert.assertEquals(query.getQuerySQL(MySQL), "SELECT `name`, `id` FROM `projected_domains`");
+        Assert.assertEquals(query.select("*").getQuerySQL(MySQL), "SELECT * FROM `projected_domains`");
+    }
+
+    @DomainModel(explicitProjection = true)
+    public static class ProjectedDomain {
+        private String name;
+    }
+
     @DomainModel
     public static class Domain {
         private String name;
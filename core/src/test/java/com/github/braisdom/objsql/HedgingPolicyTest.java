@@ -0,0 +1,85 @@
+package com.github.braisdom.objsql;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class HedgingPolicyTest {
+
+    private DatabasesSnapshot databasesSnapshot;
+
+    @Before
+    public void setUp() {
+        databasesSnapshot = DatabasesSnapshot.take();
+    }
+
+    @After
+    public void tearDown() {
+        databasesSnapshot.restore();
+    }
+
+    @Test
+    public void testHedgedRead() throws Exception {
+        CountDownLatch cancelled = new CountDownLatch(1);
+        Statement slowStatement = Mockito.mock(Statement.class);
+        Mockito.doAnswer(invocation -> {
+            cancelled.countDown();
+            return null;
+        }).when(slowStatement).cancel();
+        Connection slowConnection = Mockito.mock(Connection.class);
+        Mockito.when(slowConnection.createStatement()).thenReturn(slowStatement);
+        Connection fastConnection = Mockito.mock(Connection.class);
+        Mockito.when(fastConnection.createStatement()).thenReturn(Mockito.mock(Statement.class));
+
+        Databases.installConnectionFactory(dataSourceName ->
+                dataSourceName.equals("replica1") ? slowConnection : fastConnection);
+        ReplicaRouter replicaRouter = new ReplicaRouter().addReplicas("orders", "replica1", "replica2");
+        HedgingPolicy hedgingPolicy = new HedgingPolicy(0.95, 10, 10, TimeUnit.MILLISECONDS);
+
+        Thread callingThread = Thread.currentThread();
+        String result = hedgingPolicy.execute("orders", replicaRouter, (connection, sqlExecutor) -> {
+            Statement statement = connection.createStatement();
+            if (statement == slowStatement) {
+                // The first read runs on the calling thread
+                Assert.assertSame(Thread.currentThread(), callingThread);
+                // Sleeps until the read is cancelled by the hedged one
+                try {
+                    cancelled.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return "slow";
+            }
+            return "fast";
+        });
+
+        Assert.assertEquals(result, "fast");
+        Assert.assertTrue(cancelled.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(hedgingPolicy.getHedgedCount(), 1);
+        Assert.assertEquals(hedgingPolicy.getHedgeWinCount(), 1);
+        Mockito.verify(slowStatement).cancel();
+    }
+
+    @Test
+    public void testFastReadNotHedged() throws Exception {
+        Databases.installConnectionFactory(dataSourceName -> Mockito.mock(Connection.class));
+        ReplicaRouter replicaRouter = new ReplicaRouter().addReplicas("orders", "replica1", "replica2");
+        HedgingPolicy hedgingPolicy = new HedgingPolicy(0.95, 1, 1, TimeUnit.SECONDS);
+
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(hedgingPolicy.execute("orders", replicaRouter,
+                    (connection, sqlExecutor) -> "result"), "result");
+        }
+
+        Assert.assertEquals(hedgingPolicy.getHedgedCount(), 0);
+        Assert.assertEquals(replicaRouter.getInFlight("replica1"), 0);
+        Assert.assertEquals(replicaRouter.getInFlight("replica2"), 0);
+    }
+}
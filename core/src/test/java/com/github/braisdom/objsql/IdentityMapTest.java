@@ -0,0 +1,69 @@
+package com.github.braisdom.objsql;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.sql.Connection;
+
+public class IdentityMapTest {
+
+    private DatabasesSnapshot databasesSnapshot;
+
+    @Before
+    public void setUp() {
+        databasesSnapshot = DatabasesSnapshot.take();
+    }
+
+    @After
+    public void tearDown() {
+        databasesSnapshot.restore();
+    }
+
+    @Test
+    public void testNormalizedPrimaryValue() {
+        IdentityMap identityMap = new IdentityMap();
+
+        identityMap.put(String.class, 1, "first");
+        Assert.assertEquals(identityMap.get(String.class, 1L), "first");
+        Assert.assertNull(identityMap.get(Integer.class, 1));
+        Assert.assertNull(identityMap.get(String.class, null));
+
+        identityMap.evict(String.class, 1L);
+        Assert.assertNull(identityMap.get(String.class, 1));
+    }
+
+    @Test
+    public void testEvictClass() {
+        IdentityMap identityMap = new IdentityMap();
+
+        identityMap.put(String.class, 1, "first");
+        identityMap.put(String.class, 2, "second");
+        identityMap.put(Integer.class, 1, 100);
+        Assert.assertEquals(identityMap.size(), 3);
+
+        identityMap.evict(String.class);
+        Assert.assertEquals(identityMap.size(), 1);
+        Assert.assertEquals(identityMap.get(Integer.class, 1), 100);
+    }
+
+    @Test
+    public void testTransactionScope() throws Exception {
+        Connection connection = Mockito.mock(Connection.class);
+        Databases.installConnectionFactory(dataSourceName -> connection);
+
+        Assert.assertNull(Databases.getCurrentIdentityMap());
+        IdentityMap identityMap = Databases.executeTransactionally((conn, sqlExecutor) -> {
+            IdentityMap currentIdentityMap = Databases.getCurrentIdentityMap();
+            currentIdentityMap.put(String.class, 1, "first");
+            IdentityMap.evictCurrent(String.class, 1);
+            Assert.assertNull(currentIdentityMap.get(String.class, 1));
+            return currentIdentityMap;
+        });
+
+        Assert.assertNotNull(identityMap);
+        Assert.assertNull(Databases.getCurrentIdentityMap());
+    }
+}
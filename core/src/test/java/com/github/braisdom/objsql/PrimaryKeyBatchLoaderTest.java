@@ -0,0 +1,100 @@
+package com.github.braisdom.objsql;
+
+import com.github.braisdom.objsql.annotations.DomainModel;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+
+public class PrimaryKeyBatchLoaderTest {
+
+    private DatabasesSnapshot databasesSnapshot;
+
+    @Before
+    public void setUp() {
+        databasesSnapshot = DatabasesSnapshot.take();
+    }
+
+    @After
+    public void tearDown() {
+        databasesSnapshot.restore();
+    }
+
+    @Test
+    public void testCoalesceConcurrentLookups() throws Exception {
+        Query<Member> query = installMemberQuery();
+        PrimaryKeyBatchLoader<Member> loader = PrimaryKeyBatchLoader.enable(Member.class, 64,
+                200, TimeUnit.MILLISECONDS);
+
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            CountDownLatch startLatch = new CountDownLatch(1);
+            List<Future<Member>> futures = new ArrayList<>();
+            for (long id : new long[]{1L, 2L, 3L, 1L}) {
+                futures.add(executorService.submit(() -> {
+                    startLatch.await();
+                    return Tables.queryByPrimaryKey(Member.class, id);
+                }));
+            }
+            startLatch.countDown();
+
+            Assert.assertEquals(futures.get(0).get().getName(), "Alice");
+            Assert.assertEquals(futures.get(1).get().getName(), "Bob");
+            Assert.assertNull(futures.get(2).get());
+            Assert.assertEquals(futures.get(3).get().getName(), "Alice");
+            // The threads looked up the same primary value do not share the domain object
+            Assert.assertNotSame(futures.get(0).get(), futures.get(3).get());
+            Assert.assertEquals(loader.getLoadCount(), 4);
+            Assert.assertEquals(loader.getBatchCount(), 1);
+            Mockito.verify(query, Mockito.times(1)).execute();
+        } finally {
+            executorService.shutdown();
+            PrimaryKeyBatchLoader.disable(Member.class);
+        }
+    }
+
+    @Test
+    public void testDispatchFullBatch() throws Exception {
+        installMemberQuery();
+        PrimaryKeyBatchLoader<Member> loader = PrimaryKeyBatchLoader.enable(Member.class, 2,
+                1, TimeUnit.MINUTES);
+
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        try {
+            Future<Member> future1 = executorService.submit(() -> Tables.queryByPrimaryKey(Member.class, 1L));
+            Future<Member> future2 = executorService.submit(() -> Tables.queryByPrimaryKey(Member.class, 2L));
+
+            // The full batch is queried without waiting for the window
+            Assert.assertEquals(future1.get(10, TimeUnit.SECONDS).getName(), "Alice");
+            Assert.assertEquals(future2.get(10, TimeUnit.SECONDS).getName(), "Bob");
+            Assert.assertEquals(loader.getBatchCount(), 1);
+        } finally {
+            executorService.shutdown();
+            PrimaryKeyBatchLoader.disable(Member.class);
+        }
+    }
+
+    private Query<Member> installMemberQuery() throws Exception {
+        Query<Member> query = Mockito.mock(Query.class);
+        Mockito.when(query.execute()).thenReturn(Arrays.asList(
+                new Member().setId(1L).setName("Alice"), new Member().setId(2L).setName("Bob")));
+        Databases.installQueryFacotry(new QueryFactory() {
+            @Override
+            public <T> Query<T> createQuery(Class<T> clazz) {
+                return Member.class.equals(clazz) ? (Query<T>) query : new DefaultQuery<>(clazz);
+            }
+        });
+        return query;
+    }
+
+    @DomainModel(batchLoading = true)
+    public static class Member {
+        private String name;
+    }
+}
@@ -0,0 +1,94 @@
+package com.github.braisdom.objsql;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+public class ReplicaRouterTest {
+
+    private DatabasesSnapshot databasesSnapshot;
+
+    @Before
+    public void setUp() {
+        databasesSnapshot = DatabasesSnapshot.take();
+    }
+
+    @After
+    public void tearDown() {
+        databasesSnapshot.restore();
+    }
+
+    @Test
+    public void testRoundRobin() {
+        ReplicaRouter replicaRouter = new ReplicaRouter().addReplicas("orders", "replica1", "replica2");
+
+        Assert.assertEquals(replicaRouter.acquire("orders"), "replica1");
+        Assert.assertEquals(replicaRouter.acquire("orders"), "replica2");
+        Assert.assertEquals(replicaRouter.acquire("orders"), "replica1");
+        Assert.assertEquals(replicaRouter.acquire("members"), "members");
+    }
+
+    @Test
+    public void testLeastInFlight() {
+        ReplicaRouter replicaRouter = new ReplicaRouter(ReplicaRouter.Strategy.LEAST_IN_FLIGHT)
+                .addReplicas("orders", "replica1", "replica2");
+
+        String busyReplica = replicaRouter.acquire("orders");
+        String idleReplica = busyReplica.equals("replica1") ? "replica2" : "replica1";
+        Assert.assertEquals(replicaRouter.acquire("orders"), idleReplica);
+        Assert.assertEquals(replicaRouter.getInFlight(busyReplica), 1);
+
+        replicaRouter.release(busyReplica);
+        Assert.assertEquals(replicaRouter.acquire("orders"), busyReplica);
+    }
+
+    @Test
+    public void testReadYourWrites() throws Exception {
+        List<String> dataSourceNames = Collections.synchronizedList(new ArrayList<>());
+        Connection connection = Mockito.mock(Connection.class);
+        Databases.installConnectionFactory(dataSourceName -> {
+            dataSourceNames.add(dataSourceName);
+            return connection;
+        });
+        Databases.installReplicaRouter(new ReplicaRouter().addReplicas("orders", "orders-replica")
+                .readYourWrites(1, TimeUnit.MINUTES));
+
+        Databases.executeReadOnly("orders", (conn, sqlExecutor) -> null);
+        Databases.execute("orders", (conn, sqlExecutor) -> null);
+        Databases.executeReadOnly("orders", (conn, sqlExecutor) -> null);
+        Databases.executeWrite("orders", (conn, sqlExecutor) -> null);
+        Databases.executeReadOnly("orders", (conn, sqlExecutor) -> null);
+        Thread otherThread = new Thread(() -> {
+            try {
+                Databases.executeReadOnly("orders", (conn, sqlExecutor) -> null);
+            } catch (SQLException ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        otherThread.start();
+        otherThread.join();
+        Databases.executeTransactionally("orders", (conn, sqlExecutor) ->
+                Databases.executeReadOnly("orders", (transactionalConn, executor) -> null));
+
+        // The execute without writing does not keep the reads on the primary
+        Assert.assertEquals(dataSourceNames.get(0), "orders-replica");
+        Assert.assertEquals(dataSourceNames.get(1), "orders");
+        Assert.assertEquals(dataSourceNames.get(2), "orders-replica");
+        Assert.assertEquals(dataSourceNames.get(3), "orders");
+        Assert.assertEquals(dataSourceNames.get(4), "orders");
+        // Only the writing thread reads its own writes
+        Assert.assertEquals(dataSourceNames.get(5), "orders-replica");
+        // The read in transaction uses the connection of transaction
+        Assert.assertEquals(dataSourceNames.size(), 7);
+        Assert.assertEquals(Databases.getReplicaRouter().getInFlight("orders-replica"), 0);
+    }
+}
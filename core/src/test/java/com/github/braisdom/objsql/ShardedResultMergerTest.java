@@ -0,0 +1,134 @@
+package com.github.braisdom.objsql;
+
+import com.github.braisdom.objsql.annotations.DomainModel;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.util.*;
+
+public class ShardedResultMergerTest {
+
+    private DatabasesSnapshot databasesSnapshot;
+
+    @Before
+    public void setUp() {
+        databasesSnapshot = DatabasesSnapshot.take();
+    }
+
+    @After
+    public void tearDown() {
+        databasesSnapshot.restore();
+    }
+
+    @Test
+    public void testMergeSorted() {
+        List<List<Map<String, Object>>> shardRows = Arrays.asList(
+                Arrays.asList(row("amount", 9), row("amount", 5), row("amount", 1)),
+                Arrays.asList(row("amount", 8), row("amount", 7)),
+                Collections.emptyList());
+
+        List<Map<String, Object>> rows = new ShardedResultMerger<>(new MapRowAdapter())
+                .orderBy("amount DESC").limit(1, 3).merge(shardRows);
+
+        Assert.assertEquals(rows.size(), 3);
+        Assert.assertEquals(rows.get(0).get("amount"), 8);
+        Assert.assertEquals(rows.get(1).get("amount"), 7);
+        Assert.assertEquals(rows.get(2).get("amount"), 5);
+    }
+
+    @Test
+    public void testReaggregate() {
+        List<List<Map<String, Object>>> shardRows = Arrays.asList(
+                Arrays.asList(row("name", "Jack", "order_count", 2L, "max_amount", 10),
+                        row("name", "Tom", "order_count", 1L, "max_amount", 3)),
+                Arrays.asList(row("name", "Jack", "order_count", 3L, "max_amount", 7)));
+
+        ShardedResultMerger<Map<String, Object>> resultMerger = new ShardedResultMerger<>(new MapRowAdapter())
+                .project("name, COUNT(*) AS order_count, MAX(amount) max_amount")
+                .groupBy("name").orderBy("order_count DESC");
+        List<Map<String, Object>> rows = resultMerger.merge(shardRows);
+
+        Assert.assertEquals(resultMerger.getShardRowCount(), -1);
+        Assert.assertEquals(rows.size(), 2);
+        Assert.assertEquals(rows.get(0).get("name"), "Jack");
+        Assert.assertEquals(rows.get(0).get("order_count"), 5L);
+        Assert.assertEquals(rows.get(0).get("max_amount"), 10);
+        Assert.assertEquals(rows.get(1).get("order_count"), 1L);
+    }
+
+    @Test
+    public void testMergeMixedNumbers() {
+        List<List<Map<String, Object>>> shardRows = Arrays.asList(
+                Arrays.asList(row("amount", 9), row("amount", 2)),
+                Arrays.asList(row("amount", 5L), row("amount", new BigDecimal("1.5"))));
+
+        List<Map<String, Object>> rows = new ShardedResultMerger<>(new MapRowAdapter())
+                .orderBy("amount DESC").merge(shardRows);
+
+        Assert.assertEquals(rows.get(0).get("amount"), 9);
+        Assert.assertEquals(rows.get(1).get("amount"), 5L);
+        Assert.assertEquals(rows.get(2).get("amount"), 2);
+        Assert.assertEquals(rows.get(3).get("amount"), new BigDecimal("1.5"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testGroupByExpressionUnsupported() {
+        new ShardedResultMerger<>(new MapRowAdapter()).groupBy("YEAR(created_at)");
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testGroupByQualifiedColumnUnsupported() {
+        new ShardedResultMerger<>(new MapRowAdapter()).groupBy(ShardedResultMerger
+                .splitTopLevel("name, o.member_id").toArray(new String[0]));
+    }
+
+    @Test(expected = PersistenceException.class)
+    public void testWriteOtherShardInTransaction() throws Exception {
+        Connection connection = Mockito.mock(Connection.class);
+        Databases.installConnectionFactory(new ShardedConnectionFactory(dataSourceName -> connection)
+                .addShards("orders", ShardedConnectionFactory.Strategy.range(100L), "orders-0", "orders-1"));
+        Order order = new Order();
+        order.setMemberId(150L);
+
+        // The order belongs to orders-1, but the transaction is bound to orders-0
+        Databases.executeTransactionally("orders-0", (conn, sqlExecutor) ->
+                new DefaultPersistence<>(Order.class).insert(order, true));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testAverageUnsupported() {
+        new ShardedResultMerger<>(new MapRowAdapter()).project("AVG(amount) AS average_amount");
+    }
+
+    @Test
+    public void testRoute() throws Exception {
+        Connection connection = Mockito.mock(Connection.class);
+        ShardedConnectionFactory connectionFactory = new ShardedConnectionFactory(dataSourceName -> connection)
+                .addShards("orders", ShardedConnectionFactory.Strategy.hash(), "orders-0", "orders-1")
+                .addShards("events", ShardedConnectionFactory.Strategy.range(100L), "events-0", "events-1");
+
+        Assert.assertEquals(connectionFactory.route("orders", 3), connectionFactory.route("orders", 3L));
+        Assert.assertEquals(connectionFactory.route("events", 99L), "events-0");
+        Assert.assertEquals(connectionFactory.route("events", 100L), "events-1");
+        Assert.assertEquals(connectionFactory.route("members", 1L), "members");
+        Assert.assertEquals(connectionFactory.getShardNames("orders").size(), 2);
+    }
+
+    private Map<String, Object> row(Object... keyValues) {
+        Map<String, Object> row = new HashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            row.put((String) keyValues[i], keyValues[i + 1]);
+        }
+        return row;
+    }
+
+    @DomainModel(dataSource = "orders", shardKey = "memberId")
+    public static class Order {
+        private Long memberId;
+    }
+}
@@ -0,0 +1,89 @@
+package com.github.braisdom.objsql;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+public class TimePartitioningTest {
+
+    private final TimePartitioning timePartitioning = new TimePartitioning("createdAt", "created_at",
+            TimePartitioning.Interval.MONTH);
+    private final List<String> partitionNames = Arrays.asList("events_202608", "events_202609",
+            "events_202610", "events_202611");
+
+    @After
+    public void tearDown() {
+        TimePartitioning.invalidatePartitions();
+    }
+
+    @Test
+    public void testPartitionName() {
+        Assert.assertEquals(timePartitioning.getPartitionName("events",
+                LocalDateTime.of(2026, 10, 19, 8, 30)), "events_202610");
+        Assert.assertEquals(new TimePartitioning("createdAt", "created_at", TimePartitioning.Interval.DAY)
+                .getPartitionName("events", LocalDate.of(2026, 10, 1)), "events_20261001");
+    }
+
+    @Test
+    public void testPrune() {
+        Assert.assertEquals(timePartitioning.prune(partitionNames, "created_at >= ? AND name = ?",
+                LocalDate.of(2026, 10, 1), "click"), Arrays.asList("events_202610", "events_202611"));
+        Assert.assertEquals(timePartitioning.prune(partitionNames,
+                "name = ? AND created_at BETWEEN ? AND ?", "click",
+                LocalDate.of(2026, 9, 15), LocalDate.of(2026, 10, 2)), Arrays.asList("events_202609", "events_202610"));
+        Assert.assertEquals(timePartitioning.prune(partitionNames, "'2026-08-31' > created_at"),
+                Arrays.asList("events_202608"));
+        // The disjunctions are not pruned
+        Assert.assertEquals(timePartitioning.prune(partitionNames, "created_at > ? OR id = 1",
+                LocalDate.of(2026, 11, 1)), partitionNames);
+    }
+
+    @Test
+    public void testListPartitions() throws Exception {
+        ResultSet tables = Mockito.mock(ResultSet.class);
+        Mockito.when(tables.next()).thenReturn(true, true, true, false);
+        Mockito.when(tables.getString("TABLE_NAME")).thenReturn("events_202610", "events_archive", "events_202609");
+        DatabaseMetaData metaData = Mockito.mock(DatabaseMetaData.class);
+        Mockito.when(metaData.getSearchStringEscape()).thenReturn("\\");
+        Mockito.when(metaData.getTables(Mockito.any(), Mockito.any(), Mockito.eq("events\\_%"),
+                Mockito.any())).thenReturn(tables);
+        Connection connection = Mockito.mock(Connection.class);
+        Mockito.when(connection.getMetaData()).thenReturn(metaData);
+
+        Assert.assertEquals(timePartitioning.listPartitions(connection, "events"),
+                Arrays.asList("events_202609", "events_202610"));
+    }
+
+    @Test
+    public void testListQualifiedPartitions() throws Exception {
+        ResultSet tables = Mockito.mock(ResultSet.class);
+        Mockito.when(tables.next()).thenReturn(true, true, false);
+        Mockito.when(tables.getString("TABLE_NAME")).thenReturn("events_202610", "events_202609");
+        DatabaseMetaData metaData = Mockito.mock(DatabaseMetaData.class);
+        Mockito.when(metaData.getURL()).thenReturn("jdbc:postgresql://localhost/objsql");
+        Mockito.when(metaData.getDatabaseProductName()).thenReturn("PostgreSQL");
+        Mockito.when(metaData.supportsSchemasInTableDefinitions()).thenReturn(true);
+        Mockito.when(metaData.getTables(Mockito.any(), Mockito.eq("archive"), Mockito.eq("events_%"),
+                Mockito.any())).thenReturn(tables);
+        Connection connection = Mockito.mock(Connection.class);
+        Mockito.when(connection.getMetaData()).thenReturn(metaData);
+
+        Assert.assertEquals(timePartitioning.listPartitions(connection, "archive.events"),
+                Arrays.asList("archive.events_202609", "archive.events_202610"));
+        Assert.assertEquals(timePartitioning.getTableExpression(connection, "archive.events", null,
+                "created_at >= ?", LocalDate.of(2026, 10, 1)), "\"archive\".\"events_202610\" \"events\"");
+
+        // The partitions discovered are cached
+        Mockito.verify(metaData, Mockito.times(1)).getTables(Mockito.any(), Mockito.eq("archive"),
+                Mockito.eq("events_%"), Mockito.any());
+    }
+}
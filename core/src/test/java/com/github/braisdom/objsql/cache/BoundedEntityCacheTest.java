@@ -0,0 +1,100 @@
+package com.github.braisdom.objsql.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class BoundedEntityCacheTest {
+
+    @Test
+    public void testLeastRecentlyUsedEviction() {
+        BoundedEntityCache cache = new BoundedEntityCache(2, Eviction.LRU, 1, TimeUnit.MINUTES);
+
+        cache.put(String.class, 1, "CN");
+        cache.put(String.class, 2L, "US");
+        Assert.assertEquals(cache.get(String.class, 1L), "CN");
+
+        cache.put(String.class, 3, "JP");
+        Assert.assertEquals(cache.size(), 2);
+        Assert.assertNull(cache.get(String.class, 2));
+        Assert.assertEquals(cache.get(String.class, 3), "JP");
+        Assert.assertEquals(cache.getEvictionCount(), 1);
+    }
+
+    @Test
+    public void testFrequentKeysSurviveScanning() {
+        BoundedEntityCache cache = new BoundedEntityCache(100, Eviction.TINY_LFU, 1, TimeUnit.MINUTES);
+
+        for (int i = 0; i < 50; i++) {
+            cache.put(String.class, i, "hot-" + i);
+        }
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 50; i++) {
+                cache.get(String.class, i);
+            }
+        }
+        for (int i = 1000; i < 2000; i++) {
+            cache.put(String.class, i, "cold-" + i);
+        }
+
+        for (int i = 0; i < 50; i++) {
+            Assert.assertEquals(cache.get(String.class, i), "hot-" + i);
+        }
+        Assert.assertTrue(cache.size() <= 100);
+    }
+
+    @Test
+    public void testTimeToLive() throws InterruptedException {
+        BoundedEntityCache cache = new BoundedEntityCache(10, 1, TimeUnit.MINUTES)
+                .setTimeToLive(Integer.class, 1, TimeUnit.MILLISECONDS);
+
+        cache.put(String.class, 1, "CN");
+        cache.put(Integer.class, 1, 86);
+        Thread.sleep(5);
+
+        Assert.assertEquals(cache.get(String.class, 1), "CN");
+        Assert.assertNull(cache.get(Integer.class, 1));
+        Assert.assertEquals(cache.size(), 1);
+    }
+
+    @Test
+    public void testAbsentAndInvalidation() {
+        BoundedEntityCache cache = new BoundedEntityCache(10, 1, TimeUnit.MINUTES);
+
+        cache.putAbsent(String.class, 1);
+        Assert.assertNull(cache.get(String.class, 1));
+
+        cache.cacheAbsent(1, TimeUnit.MINUTES);
+        cache.putAbsent(String.class, 1);
+        Assert.assertSame(cache.get(String.class, 1), EntityCache.ABSENT);
+
+        cache.put(String.class, 2, "US");
+        cache.invalidate(String.class, 1);
+        Assert.assertNull(cache.get(String.class, 1));
+
+        cache.invalidate(String.class);
+        Assert.assertNull(cache.get(String.class, 2));
+        Assert.assertEquals(cache.size(), 0);
+        Assert.assertEquals(cache.getHitCount(), 1);
+    }
+
+    @Test
+    public void testStalePutSkipped() {
+        BoundedEntityCache cache = new BoundedEntityCache(10, 1, TimeUnit.MINUTES);
+
+        long version = cache.getVersion(String.class, 1);
+        cache.invalidate(String.class, 1L);
+        cache.put(String.class, 1, "CN", version);
+        Assert.assertNull(cache.get(String.class, 1));
+
+        version = cache.getVersion(String.class, 2);
+        cache.invalidate(String.class);
+        cache.put(String.class, 2, "US", version);
+        Assert.assertNull(cache.get(String.class, 2));
+
+        version = cache.getVersion(String.class, 3);
+        cache.put(String.class, 3, "JP", version);
+        Assert.assertEquals(cache.get(String.class, 3), "JP");
+    }
+}
@@ -0,0 +1,90 @@
+package com.github.braisdom.objsql.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class QueryCacheTest {
+
+    private static final String DATA_SOURCE = "default";
+
+    @Test
+    public void testKeyedBySQLAndParams() {
+        QueryCache cache = new QueryCache(10);
+        String sql = "SELECT * FROM members WHERE id = ?";
+
+        cache.put(DATA_SOURCE, String.class, sql, new Object[]{1}, Arrays.asList("a", "b"),
+                Collections.singleton("members"), Duration.ofMinutes(1));
+
+        List<String> rows = cache.get(DATA_SOURCE, String.class, sql, new Object[]{1});
+        Assert.assertEquals(rows, Arrays.asList("a", "b"));
+        Assert.assertNull(cache.get(DATA_SOURCE, String.class, sql, new Object[]{2}));
+        Assert.assertNull(cache.get("another", String.class, sql, new Object[]{1}));
+        Assert.assertNull(cache.get(DATA_SOURCE, Integer.class, sql, new Object[]{1}));
+
+        rows.clear();
+        Assert.assertEquals(cache.get(DATA_SOURCE, String.class, sql, new Object[]{1}).size(), 2);
+        Assert.assertEquals(cache.getHitCount(), 2);
+        Assert.assertEquals(cache.getMissCount(), 3);
+    }
+
+    @Test
+    public void testTableInvalidation() {
+        QueryCache cache = new QueryCache(10);
+        String sql = "SELECT * FROM `orders` WHERE member_id IN (SELECT id FROM \"shop\".\"members\")";
+        Set<String> tableNames = new HashSet<>();
+
+        Assert.assertTrue(cache.parseTableNames(sql, tableNames));
+        cache.put(DATA_SOURCE, String.class, sql, null, Collections.singletonList("a"),
+                tableNames, Duration.ofMinutes(1));
+        cache.put(DATA_SOURCE, String.class, "SELECT * FROM products", null,
+                Collections.singletonList("b"), Collections.singleton("products"), Duration.ofMinutes(1));
+
+        cache.invalidateTable("MEMBERS");
+        Assert.assertNull(cache.get(DATA_SOURCE, String.class, sql, null));
+        Assert.assertNotNull(cache.get(DATA_SOURCE, String.class, "SELECT * FROM products", null));
+
+        cache.invalidateTable("orders");
+        Assert.assertEquals(cache.size(), 1);
+    }
+
+    @Test
+    public void testBoundedSize() {
+        QueryCache cache = new QueryCache(2, Eviction.LRU);
+
+        for (int i = 0; i < 5; i++) {
+            cache.put(DATA_SOURCE, String.class, "SELECT * FROM members", new Object[]{i},
+                    Collections.emptyList(), Collections.singleton("members"), Duration.ofMinutes(1));
+        }
+
+        Assert.assertEquals(cache.size(), 2);
+        Assert.assertEquals(cache.getEvictionCount(), 3);
+
+        cache.invalidateTable("members");
+        Assert.assertEquals(cache.size(), 0);
+    }
+
+    @Test
+    public void testStalePutSkipped() {
+        QueryCache cache = new QueryCache();
+        String sql = "SELECT * FROM members";
+        Set<String> tableNames = Collections.singleton("members");
+
+        long generation = cache.getGeneration(tableNames);
+        cache.invalidateTable("`members`");
+        cache.put(DATA_SOURCE, String.class, sql, null, Collections.singletonList("a"),
+                tableNames, Duration.ofMinutes(1), generation);
+        Assert.assertNull(cache.get(DATA_SOURCE, String.class, sql, null));
+
+        cache.invalidateTable("products");
+        cache.put(DATA_SOURCE, String.class, sql, null, Collections.singletonList("a"),
+                tableNames, Duration.ofMinutes(1), cache.getGeneration(tableNames));
+        Assert.assertNotNull(cache.get(DATA_SOURCE, String.class, sql, null));
+    }
+}
@@ -0,0 +1,55 @@
+package com.github.braisdom.objsql.cache;
+
+import com.github.braisdom.objsql.Databases;
+import com.github.braisdom.objsql.DefaultQuery;
+import com.github.braisdom.objsql.Query;
+import com.github.braisdom.objsql.QueryFactory;
+import com.github.braisdom.objsql.annotations.DomainModel;
+import com.github.braisdom.objsql.annotations.Queryable;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+public class ReplicatedTableTest {
+
+    @Test
+    public void testLookupFromSnapshot() throws SQLException {
+        Query<Currency> query = Mockito.mock(Query.class);
+        Mockito.when(query.execute()).thenReturn(Arrays.asList(
+                new Currency().setId(1L).setCode("CNY").setRegion("Asia"),
+                new Currency().setId(2L).setCode("JPY").setRegion("Asia"),
+                new Currency().setId(3L).setCode("EUR").setRegion("Europe")));
+        Databases.installQueryFacotry(new QueryFactory() {
+            @Override
+            public <T> Query<T> createQuery(Class<T> clazz) {
+                return Currency.class.equals(clazz) ? (Query<T>) query : new DefaultQuery<>(clazz);
+            }
+        });
+
+        Assert.assertEquals(Currency.queryByCode("JPY").getId(), Long.valueOf(2));
+        Assert.assertEquals(Currency.queryByPrimaryKey(3L).getCode(), "EUR");
+        Assert.assertNull(Currency.queryByCode("USD"));
+
+        List<Currency> asianCurrencies = ReplicatedTable.get(Currency.class).findAll("region", "Asia");
+        Assert.assertEquals(asianCurrencies.size(), 2);
+        Mockito.verify(query, Mockito.times(1)).execute();
+
+        ReplicatedTable.invalidate(Currency.class);
+        Assert.assertEquals(Currency.queryByPrimaryKey(1L).getCode(), "CNY");
+        Mockito.verify(query, Mockito.times(2)).execute();
+
+        ReplicatedTable.disable(Currency.class);
+    }
+
+    @DomainModel(replicated = true)
+    public static class Currency {
+        @Queryable
+        private String code;
+
+        private String region;
+    }
+}
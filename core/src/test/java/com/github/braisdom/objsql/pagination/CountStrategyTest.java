@@ -0,0 +1,58 @@
+package com.github.braisdom.objsql.pagination;
+
+import com.github.braisdom.objsql.BeanModelDescriptor;
+import com.github.braisdom.objsql.DatabaseType;
+import com.github.braisdom.objsql.Databases;
+import com.github.braisdom.objsql.DefaultQueryTest;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class CountStrategyTest {
+
+    @Test
+    public void testCachedCount() throws SQLException {
+        AtomicInteger countTimes = new AtomicInteger();
+        CountStrategy exactStrategy = (connection, sqlExecutor, sqlBuilder, databaseType, rawSQL, params,
+                                       modelDescriptor) -> TotalCount.exact(countTimes.incrementAndGet() * 10);
+        CachedCountStrategy cachedStrategy = new CachedCountStrategy(exactStrategy, 1, TimeUnit.MINUTES);
+
+        TotalCount totalCount = cachedStrategy.count(null, null, null, DatabaseType.MySQL,
+                "SELECT * FROM members WHERE status = ?", new Object[]{1}, null);
+        TotalCount cachedCount = cachedStrategy.count(null, null, null, DatabaseType.MySQL,
+                "SELECT * FROM members WHERE status = ?", new Object[]{1}, null);
+        TotalCount otherCount = cachedStrategy.count(null, null, null, DatabaseType.MySQL,
+                "SELECT * FROM members WHERE status = ?", new Object[]{2}, null);
+
+        Assert.assertEquals(totalCount.getSource(), TotalCount.Source.EXACT);
+        Assert.assertEquals(cachedCount.getSource(), TotalCount.Source.CACHED);
+        Assert.assertEquals(cachedCount.getValue(), 10);
+        Assert.assertEquals(otherCount.getValue(), 20);
+        Assert.assertEquals(countTimes.get(), 2);
+    }
+
+    @Test
+    public void testCappedCount() throws SQLException {
+        PagedSQLBuilder sqlBuilder = Databases.getPagedSQLBuilderFactory()
+                .createPagedSQLBuilder(DatabaseType.MySQL);
+        CappedCountStrategy cappedStrategy = new CappedCountStrategy(1000);
+
+        Assert.assertEquals(cappedStrategy.buildCappedCountSQL(sqlBuilder, "SELECT * FROM members WHERE status = ?",
+                new BeanModelDescriptor(DefaultQueryTest.Domain.class)),
+                "SELECT COUNT(*) AS count_ FROM (SELECT * FROM (SELECT * FROM members WHERE status = ?) C " +
+                        "LIMIT 0, 1001) T");
+        Assert.assertEquals(new TotalCount(1000, TotalCount.Source.CAPPED, true).toString(), "1000+");
+    }
+
+    @Test
+    public void testWholeTableName() throws SQLException {
+        EstimatedCountStrategy estimatedStrategy = new EstimatedCountStrategy();
+
+        Assert.assertEquals(estimatedStrategy.getWholeTableName("SELECT * FROM `members`"), "members");
+        Assert.assertNull(estimatedStrategy.getWholeTableName("SELECT * FROM members WHERE status = 1"));
+        Assert.assertNull(estimatedStrategy.getWholeTableName("SELECT DISTINCT name FROM members"));
+    }
+}
@@ -0,0 +1,225 @@
+package com.github.braisdom.objsql.pagination;
+
+import com.github.braisdom.objsql.BeanModelDescriptor;
+import com.github.braisdom.objsql.Databases;
+import com.github.braisdom.objsql.DatabasesSnapshot;
+import com.github.braisdom.objsql.DefaultQueryTest;
+import com.github.braisdom.objsql.DomainModelDescriptor;
+import com.github.braisdom.objsql.SQLExecutor;
+import com.github.braisdom.objsql.ShardedConnectionFactory;
+import com.github.braisdom.objsql.TableRowAdapter;
+import com.github.braisdom.objsql.annotations.DomainModel;
+import com.github.braisdom.objsql.reflection.PropertyUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class DefaultPaginatorTest {
+
+    private DatabasesSnapshot databasesSnapshot;
+    private List<String> executedSqls;
+    private Connection connection;
+
+    @Before
+    public void setUp() throws SQLException {
+        databasesSnapshot = DatabasesSnapshot.take();
+        executedSqls = Collections.synchronizedList(new ArrayList<>());
+
+        connection = Mockito.mock(Connection.class);
+        DatabaseMetaData databaseMetaData = Mockito.mock(DatabaseMetaData.class);
+        Mockito.when(connection.getMetaData()).thenReturn(databaseMetaData);
+        Mockito.when(databaseMetaData.getDatabaseProductName()).thenReturn("PostgreSQL");
+        Mockito.when(databaseMetaData.getDatabaseMajorVersion()).thenReturn(12);
+        Databases.installConnectionFactory(dataSourceName -> connection);
+    }
+
+    @After
+    public void tearDown() {
+        databasesSnapshot.restore();
+    }
+
+    @Test
+    public void testWindowCountColumnRemoved() throws SQLException {
+        installSqlExecutor(42L);
+
+        PagedList pagedList = new DefaultPaginator(true).paginate(Page.create(0, 10),
+                databaseType -> "SELECT * FROM domains", new BeanModelDescriptor(DefaultQueryTest.Domain.class));
+
+        Assert.assertEquals(executedSqls.size(), 1);
+        Assert.assertEquals(pagedList.totalSize(), 42L);
+        Assert.assertEquals(pagedList.size(), 1);
+        Assert.assertFalse(PropertyUtils.getRawAttributes(pagedList.get(0))
+                .containsKey(PagedSQLBuilder.COUNT_ALIAS));
+    }
+
+    @Test
+    public void testCountSequentially() throws SQLException {
+        installSqlExecutor(null);
+        CountStrategy countStrategy = (connection, sqlExecutor, sqlBuilder, databaseType, rawSQL, params,
+                                       modelDescriptor) -> TotalCount.exact(7);
+
+        PagedList pagedList = new DefaultPaginator(false, countStrategy).paginate(Page.create(0, 10),
+                databaseType -> "SELECT * FROM domains", new BeanModelDescriptor(DefaultQueryTest.Domain.class));
+
+        Assert.assertEquals(executedSqls.size(), 1);
+        Assert.assertEquals(executedSqls.get(0), "SELECT * FROM domains OFFSET ? ROWS FETCH NEXT ? ROW ONLY");
+        Assert.assertEquals(pagedList.totalSize(), 7L);
+        Assert.assertEquals(pagedList.getPageCount(), 1);
+        Assert.assertEquals(pagedList.size(), 1);
+    }
+
+    @Test
+    public void testPagedByQuerySQL() throws SQLException {
+        installSqlExecutor(null);
+        Databases.installPagedSQLBuilderFactory(databaseType -> new PagedSQLBuilder() {
+            @Override
+            public String buildQuerySQL(Page page, String rawSQL, DomainModelDescriptor modelDescriptor) {
+                return String.format("%s LIMIT %d OFFSET %d", rawSQL, page.getPageSize(), page.getOffset());
+            }
+        });
+        CountStrategy countStrategy = (connection, sqlExecutor, sqlBuilder, databaseType, rawSQL, params,
+                                       modelDescriptor) -> TotalCount.exact(30);
+
+        new DefaultPaginator(false, countStrategy).paginate(Page.create(2, 10),
+                databaseType -> "SELECT * FROM domains", new BeanModelDescriptor(DefaultQueryTest.Domain.class));
+
+        // The builder without the parameterized SQL pages by the SQL it builds
+        Assert.assertEquals(executedSqls, Collections.singletonList("SELECT * FROM domains LIMIT 10 OFFSET 20"));
+    }
+
+    @Test
+    public void testIterateInOrderOfQuery() {
+        installSqlExecutor(null);
+        DefaultPaginator<DefaultQueryTest.Domain> paginator = new DefaultPaginator<>();
+
+        paginator.iterate(databaseType -> "SELECT * FROM domains",
+                new BeanModelDescriptor<>(DefaultQueryTest.Domain.class), 10).forEachRemaining(domain -> {});
+        paginator.iterate(databaseType -> "SELECT * FROM domains ORDER BY name DESC",
+                new BeanModelDescriptor<>(DefaultQueryTest.Domain.class), 10).forEachRemaining(domain -> {});
+
+        // The ordered query is paged by offset instead of the keyset of primary key
+        Assert.assertEquals(executedSqls.get(0), "SELECT * FROM (SELECT * FROM domains) T ORDER BY id "
+                + "OFFSET 0 ROWS FETCH NEXT 11 ROW ONLY");
+        Assert.assertEquals(executedSqls.get(1), "SELECT * FROM domains ORDER BY name DESC "
+                + "OFFSET ? ROWS FETCH NEXT ? ROW ONLY");
+    }
+
+    @Test
+    public void testIterateOnShards() {
+        installSqlExecutor(null);
+        Databases.installConnectionFactory(new ShardedConnectionFactory(dataSourceName -> connection)
+                .addShards("orders", ShardedConnectionFactory.Strategy.hash(), "orders-0", "orders-1"));
+
+        List rows = new ArrayList();
+        PrefetchingIterator iterator = new DefaultPaginator<Order>().iterate(databaseType -> "SELECT * FROM orders",
+                new BeanModelDescriptor<>(Order.class), 10);
+        iterator.forEachRemaining(rows::add);
+
+        // The sharded model is paged by offset instead of the keyset of primary key
+        Assert.assertEquals(rows.size(), 2);
+        Assert.assertFalse(executedSqls.isEmpty());
+        Assert.assertEquals(new HashSet<>(executedSqls),
+                Collections.singleton("SELECT * FROM orders OFFSET ? ROWS FETCH NEXT ? ROW ONLY"));
+    }
+
+    @Test
+    public void testCountConcurrently() throws SQLException {
+        installSqlExecutor(null);
+        Set<Thread> countThreads = Collections.synchronizedSet(new HashSet<>());
+        CountStrategy countStrategy = (connection, sqlExecutor, sqlBuilder, databaseType, rawSQL, params,
+                                       modelDescriptor) -> {
+            countThreads.add(Thread.currentThread());
+            return TotalCount.exact(25);
+        };
+        ExecutorService countExecutor = Executors.newSingleThreadExecutor();
+        try {
+            PagedList pagedList = new DefaultPaginator(false, countStrategy, countExecutor).paginate(
+                    Page.create(0, 10), databaseType -> "SELECT * FROM domains",
+                    new BeanModelDescriptor(DefaultQueryTest.Domain.class));
+
+            Assert.assertEquals(pagedList.totalSize(), 25L);
+            Assert.assertEquals(pagedList.getPageCount(), 3);
+            Assert.assertEquals(pagedList.size(), 1);
+            Assert.assertFalse(countThreads.contains(Thread.currentThread()));
+        } finally {
+            countExecutor.shutdown();
+        }
+    }
+
+    @Test
+    public void testCountCancelledOnPageFailure() throws Exception {
+        CountDownLatch countStarted = new CountDownLatch(1);
+        CountDownLatch countInterrupted = new CountDownLatch(1);
+        Databases.installSqlExecutor(new SQLExecutor() {
+            @Override
+            public List query(Connection connection, String sql, TableRowAdapter tableRowAdapter,
+                              Object... params) throws SQLException {
+                try {
+                    countStarted.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new SQLException("The page failed");
+            }
+        });
+        CountStrategy countStrategy = (connection, sqlExecutor, sqlBuilder, databaseType, rawSQL, params,
+                                       modelDescriptor) -> {
+            countStarted.countDown();
+            try {
+                Thread.sleep(10000);
+            } catch (InterruptedException ex) {
+                countInterrupted.countDown();
+            }
+            return TotalCount.exact(25);
+        };
+        ExecutorService countExecutor = Executors.newSingleThreadExecutor();
+        try {
+            new DefaultPaginator(false, countStrategy, countExecutor).paginate(Page.create(0, 10),
+                    databaseType -> "SELECT * FROM domains", new BeanModelDescriptor(DefaultQueryTest.Domain.class));
+            Assert.fail("The failure of page should be thrown");
+        } catch (SQLException ex) {
+            Assert.assertEquals(ex.getMessage(), "The page failed");
+        } finally {
+            countExecutor.shutdown();
+        }
+
+        Assert.assertTrue(countInterrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    private void installSqlExecutor(Long windowCount) {
+        Databases.installSqlExecutor(new SQLExecutor() {
+            @Override
+            public List query(Connection connection, String sql, TableRowAdapter tableRowAdapter,
+                              Object... params) {
+                executedSqls.add(sql);
+                DefaultQueryTest.Domain domain = new DefaultQueryTest.Domain();
+                if (windowCount != null) {
+                    PropertyUtils.writeRawAttribute(domain, PagedSQLBuilder.COUNT_ALIAS, windowCount);
+                }
+                List rows = new ArrayList();
+                rows.add(domain);
+                return rows;
+            }
+        });
+    }
+
+    @DomainModel(dataSource = "orders")
+    public static class Order {
+        private Long memberId;
+    }
+}
@@ -52,4 +52,95 @@ public class PagedSQLBuilderTest {
                 "FROM members t1 LEFT JOIN orders t2 ON t2.member_id = t1.id " +
                 "GROUP BY t1.id, t1.`no`, t1.name, t2.member_id LIMIT 0, 30");
     }
+
+    @Test
+    public void testKeysetPagination() throws SQLException {
+        PagedSQLBuilder mysqlBuilder = Databases.getPagedSQLBuilderFactory()
+                .createPagedSQLBuilder(DatabaseType.MySQL);
+        PagedSQLBuilder ansiBuilder = Databases.getPagedSQLBuilderFactory()
+                .createPagedSQLBuilder(DatabaseType.Ansi);
+        String rawQuerySQL = "SELECT * FROM members WHERE status = 1 ORDER BY name";
+        KeysetPage firstPage = KeysetPage.first(20, "created_at", "id");
+        KeysetPage nextPage = KeysetPage.after(ContinuationToken.encode(new Object[]{"2020-01-01", 10L}),
+                20, "created_at", "id");
+
+        Assert.assertEquals(mysqlBuilder.buildKeysetQuerySQL(firstPage, rawQuerySQL, DatabaseType.MySQL,
+                new BeanModelDescriptor(DefaultQueryTest.Domain.class)),
+                "SELECT * FROM (SELECT * FROM members WHERE status = 1) T ORDER BY created_at, id LIMIT 0, 21");
+        Assert.assertEquals(mysqlBuilder.buildKeysetQuerySQL(nextPage, rawQuerySQL, DatabaseType.MySQL,
+                new BeanModelDescriptor(DefaultQueryTest.Domain.class)),
+                "SELECT * FROM (SELECT * FROM members WHERE status = 1) T WHERE (created_at, id) > (?, ?) " +
+                        "ORDER BY created_at, id LIMIT 0, 21");
+        Assert.assertEquals(ansiBuilder.buildKeysetQuerySQL(nextPage.descending(), rawQuerySQL, DatabaseType.Ansi,
+                new BeanModelDescriptor(DefaultQueryTest.Domain.class)),
+                "SELECT * FROM (SELECT * FROM members WHERE status = 1) T WHERE (created_at < ?) OR " +
+                        "(created_at = ? AND id < ?) ORDER BY created_at DESC, id DESC OFFSET 0 ROWS FETCH NEXT 21 ROW ONLY");
+
+        Assert.assertArrayEquals(nextPage.getKeysetParams(true), new Object[]{"2020-01-01", 10L});
+        Assert.assertArrayEquals(nextPage.getKeysetParams(false), new Object[]{"2020-01-01", "2020-01-01", 10L});
+    }
+
+    @Test
+    public void testKeysetApplicable() {
+        Assert.assertTrue(KeysetPage.isApplicable("SELECT * FROM members WHERE status = 1", "id"));
+        Assert.assertTrue(KeysetPage.isApplicable("SELECT \"id\", \"name\" FROM members ORDER BY \"id\"", "id"));
+        // The keyset pages would lose the order of query, or the key is not in the rows
+        Assert.assertFalse(KeysetPage.isApplicable("SELECT * FROM members ORDER BY created_at DESC", "id"));
+        Assert.assertFalse(KeysetPage.isApplicable("SELECT * FROM members ORDER BY id DESC", "id"));
+        Assert.assertFalse(KeysetPage.isApplicable("SELECT name FROM members", "id"));
+        Assert.assertFalse(KeysetPage.isApplicable("SELECT member_id AS id FROM members", "id"));
+    }
+
+    @Test
+    public void testBuilderCachedByVersion() {
+        PagedSQLBuilderFactory builderFactory = Databases.getPagedSQLBuilderFactory();
+
+        Assert.assertSame(builderFactory.createPagedSQLBuilder(DatabaseType.create("MySQL", 5)),
+                builderFactory.createPagedSQLBuilder(DatabaseType.MySQL));
+        Assert.assertNotSame(builderFactory.createPagedSQLBuilder(DatabaseType.MySQL8),
+                builderFactory.createPagedSQLBuilder(DatabaseType.MySQL));
+    }
+
+    @Test
+    public void testContinuationTokenDirection() {
+        String descendingToken = ContinuationToken.encode(new Object[]{"2020-01-01", 10L}, true);
+        KeysetPage descendingPage = KeysetPage.after(descendingToken, 20, "created_at", "id");
+
+        Assert.assertTrue(descendingPage.isDescending());
+        Assert.assertArrayEquals(descendingPage.getLastKeys(), new Object[]{"2020-01-01", 10L});
+        Assert.assertFalse(KeysetPage.after(ContinuationToken.encode(new Object[]{10L}), 20, "id").isDescending());
+    }
+
+    @Test
+    public void testParameterizedPagination() throws SQLException {
+        PagedSQLBuilder sqlBuilder = Databases.getPagedSQLBuilderFactory()
+                .createPagedSQLBuilder(DatabaseType.MySQL);
+        String rawQuerySQL = "SELECT * FROM members WHERE status = ?";
+
+        String querySQL = sqlBuilder.buildParameterizedQuerySQL(rawQuerySQL,
+                new BeanModelDescriptor(DefaultQueryTest.Domain.class));
+
+        Assert.assertEquals(querySQL, "SELECT * FROM members WHERE status = ? LIMIT ?, ?");
+        Assert.assertSame(querySQL, sqlBuilder.buildParameterizedQuerySQL(rawQuerySQL,
+                new BeanModelDescriptor(DefaultQueryTest.Domain.class)));
+        Assert.assertArrayEquals(sqlBuilder.getPageParams(Page.create(2, 30)), new Object[]{60L, 30});
+        Assert.assertSame(sqlBuilder, Databases.getPagedSQLBuilderFactory()
+                .createPagedSQLBuilder(DatabaseType.MySQL));
+    }
+
+    @Test
+    public void testWindowCountPagination() throws SQLException {
+        PagedSQLBuilder sqlBuilder = Databases.getPagedSQLBuilderFactory()
+                .createPagedSQLBuilder(DatabaseType.PostgreSQL);
+
+        Assert.assertEquals(sqlBuilder.buildWindowCountSQL("SELECT * FROM members m WHERE m.status = 1"),
+                "SELECT m.*, COUNT(*) OVER () AS count_ FROM members m WHERE m.status = 1");
+        Assert.assertEquals(sqlBuilder.buildWindowCountSQL("SELECT t1.id, COUNT(*) AS order_count FROM members t1 " +
+                        "LEFT JOIN orders t2 ON t2.member_id = t1.id GROUP BY t1.id"),
+                "SELECT t1.id, COUNT(*) AS order_count, COUNT(*) OVER () AS count_ FROM members t1 " +
+                        "LEFT JOIN orders t2 ON t2.member_id = t1.id GROUP BY t1.id");
+        Assert.assertNull(sqlBuilder.buildWindowCountSQL("SELECT DISTINCT name FROM members"));
+        Assert.assertNull(sqlBuilder.buildWindowCountSQL("SELECT * FROM members t1 " +
+                "LEFT JOIN orders t2 ON t2.member_id = t1.id"));
+    }
 }
@@ -0,0 +1,56 @@
+package com.github.braisdom.objsql.pagination;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class PrefetchingIteratorTest {
+
+    @Test
+    public void testOffsetIteration() {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        List<Integer> fetchedPages = new ArrayList<>();
+        PrefetchingIterator<Integer> iterator = new PrefetchingIterator<>(Page.create(0, 3), page -> {
+            synchronized (fetchedPages) {
+                fetchedPages.add(page.getPage());
+            }
+            List<Integer> rows = new ArrayList<>();
+            for (long i = page.getOffset(); i < Math.min(page.getOffset() + page.getPageSize(), 7); i++) {
+                rows.add((int) i);
+            }
+            return new DefaultPagedList<>(rows, TotalCount.UNKNOWN, page, -1, null);
+        }, executor, 2);
+
+        List<Integer> rows = new ArrayList<>();
+        iterator.forEachRemaining(rows::add);
+        executor.shutdown();
+
+        Assert.assertEquals(rows.size(), 7);
+        Assert.assertEquals(rows.get(6), Integer.valueOf(6));
+        Assert.assertTrue(fetchedPages.contains(2));
+    }
+
+    @Test
+    public void testKeysetIteration() {
+        PrefetchingIterator<Integer> iterator = new PrefetchingIterator<>(KeysetPage.first(2, "id"), page -> {
+            KeysetPage keysetPage = (KeysetPage) page;
+            int lastKey = keysetPage.isFirst() ? 0 : (Integer) keysetPage.getLastKeys()[0];
+            List<Integer> rows = new ArrayList<>();
+            for (int i = lastKey + 1; i <= Math.min(lastKey + 2, 5); i++) {
+                rows.add(i);
+            }
+            String token = lastKey + 2 < 5 ? ContinuationToken.encode(new Object[]{lastKey + 2}) : null;
+            return new DefaultPagedList<>(rows, TotalCount.UNKNOWN, page, -1, token);
+        }, null, 2);
+
+        List<Integer> rows = new ArrayList<>();
+        iterator.forEachRemaining(rows::add);
+
+        Assert.assertEquals(rows.size(), 5);
+        Assert.assertEquals(rows.get(4), Integer.valueOf(5));
+    }
+}
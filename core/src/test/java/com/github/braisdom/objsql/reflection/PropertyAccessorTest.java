@@ -0,0 +1,50 @@
+package com.github.braisdom.objsql.reflection;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PropertyAccessorTest {
+
+    @Test
+    public void testWriteConvertedValue() {
+        Member member = new Member();
+
+        PropertyAccessor.of(Member.class, "id").write(member, 10);
+        PropertyAccessor.of(Member.class, "age").write(member, 20L);
+        PropertyAccessor.of(Member.class, "name").write(member, "Alice");
+
+        Assert.assertEquals(member.getId(), Long.valueOf(10L));
+        Assert.assertEquals(member.getAge(), 20);
+        Assert.assertEquals(PropertyAccessor.of(Member.class, "name").read(member), "Alice");
+    }
+
+    public static class Member {
+        private Long id;
+        private int age;
+        private String name;
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+
+        public int getAge() {
+            return age;
+        }
+
+        public void setAge(int age) {
+            this.age = age;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.github.braisdom.objsql.relation;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+public class AggregateProcessorTest {
+
+    @Test
+    public void testNormalizeIntegralKey() {
+        Assert.assertEquals(AggregateProcessor.normalizeKey(1), 1L);
+        Assert.assertEquals(AggregateProcessor.normalizeKey((short) 1), 1L);
+        Assert.assertEquals(AggregateProcessor.normalizeKey(new BigDecimal("12")), 12L);
+        Assert.assertEquals(AggregateProcessor.normalizeKey(new BigDecimal("12.00")), 12L);
+        Assert.assertEquals(AggregateProcessor.normalizeKey(new BigDecimal("1E+2")), 100L);
+        Assert.assertEquals(AggregateProcessor.normalizeKey(BigInteger.valueOf(12)), 12L);
+    }
+
+    @Test
+    public void testNotNormalizeFractionalKey() {
+        Assert.assertEquals(AggregateProcessor.normalizeKey(new BigDecimal("12.5")), new BigDecimal("12.5"));
+        Assert.assertEquals(AggregateProcessor.normalizeKey("12"), "12");
+
+        BigInteger hugeKey = BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.ONE);
+        Assert.assertEquals(AggregateProcessor.normalizeKey(hugeKey), hugeKey);
+    }
+}
@@ -0,0 +1,47 @@
+package com.github.braisdom.objsql.relation;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class RelatedObjectCacheTest {
+
+    @Test
+    public void testLeastRecentlyUsedEviction() {
+        RelatedObjectCache cache = new RelatedObjectCache(2, 1, TimeUnit.MINUTES);
+
+        cache.put(1, "CN");
+        cache.put(2L, "US");
+        Assert.assertEquals(cache.get(1L), "CN");
+
+        cache.put(3, "JP");
+        Assert.assertEquals(cache.size(), 2);
+        Assert.assertNull(cache.get(2));
+        Assert.assertEquals(cache.get(1), "CN");
+        Assert.assertEquals(cache.get(3), "JP");
+    }
+
+    @Test
+    public void testExpiration() throws InterruptedException {
+        RelatedObjectCache cache = new RelatedObjectCache(2, 1, TimeUnit.MILLISECONDS);
+
+        cache.put("CNY", "Yuan");
+        Thread.sleep(5);
+        Assert.assertNull(cache.get("CNY"));
+        Assert.assertEquals(cache.size(), 0);
+    }
+
+    @Test
+    public void testStalePutSkipped() {
+        RelatedObjectCache cache = new RelatedObjectCache(2, 1, TimeUnit.MINUTES);
+
+        long version = cache.getVersion(String.class, 1);
+        cache.invalidate(String.class, 1);
+        cache.put(String.class, 1, "CN", version);
+        Assert.assertNull(cache.get(String.class, 1));
+
+        cache.put(String.class, 1, "CN", cache.getVersion(String.class, 1));
+        Assert.assertEquals(cache.get(String.class, 1), "CN");
+    }
+}
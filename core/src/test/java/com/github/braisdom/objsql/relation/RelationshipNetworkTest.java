@@ -0,0 +1,103 @@
+package com.github.braisdom.objsql.relation;
+
+import com.github.braisdom.objsql.BeanModelDescriptor;
+import com.github.braisdom.objsql.Databases;
+import com.github.braisdom.objsql.SQLExecutor;
+import com.github.braisdom.objsql.TableRowAdapter;
+import com.github.braisdom.objsql.annotations.DomainModel;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class RelationshipNetworkTest {
+
+    private SQLExecutor originalSqlExecutor;
+    private List<String> executedSqls;
+
+    @Before
+    public void setUp() {
+        originalSqlExecutor = Databases.getSqlExecutor();
+        executedSqls = new ArrayList<>();
+        Databases.installSqlExecutor(new SQLExecutor() {
+            @Override
+            public List query(Connection connection, String sql, TableRowAdapter tableRowAdapter,
+                              Object... params) {
+                executedSqls.add(sql);
+                return new ArrayList();
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        Databases.installSqlExecutor(originalSqlExecutor);
+    }
+
+    @Test
+    public void testRankedQueryNotProjectRowNumber() throws SQLException {
+        RelationshipNetwork network = createNetwork("MySQL", 8);
+
+        network.queryRelatedObjects(Order.class, "member_id", new Object[]{1, 2}, null, 5, "id DESC");
+
+        Assert.assertEquals(executedSqls.size(), 1);
+        String sql = executedSqls.get(0);
+        Assert.assertTrue(sql.contains("ROW_NUMBER() OVER (PARTITION BY member_id ORDER BY id DESC)"));
+        Assert.assertFalse(sql.startsWith("SELECT * "));
+        Assert.assertFalse(sql.substring(0, sql.indexOf(" FROM ")).contains("row_number_"));
+    }
+
+    @Test
+    public void testUnionQueryChunked() throws SQLException {
+        RelationshipNetwork network = createNetwork("SQLite", 3);
+        Object[] memberIds = new Object[100];
+        for (int i = 0; i < memberIds.length; i++) {
+            memberIds[i] = i;
+        }
+
+        network.queryRelatedObjects(Order.class, "member_id", memberIds, null, 5, null);
+
+        Assert.assertEquals(executedSqls.size(), 2);
+        Assert.assertEquals(executedSqls.get(0).split(" UNION ALL ").length, 64);
+        Assert.assertEquals(executedSqls.get(1).split(" UNION ALL ").length, 36);
+    }
+
+    @Test
+    public void testRelatedObjectsCachedByRelationship() throws SQLException {
+        RelationshipNetwork network = createNetwork("MySQL", 8);
+
+        network.queryRelatedObjects(Order.class, "member_id", new Object[]{1}, null, 5, "id DESC");
+        network.queryRelatedObjects(Order.class, "member_id", new Object[]{1}, "amount > 100");
+        network.queryRelatedObjects(Order.class, "member_id", new Object[]{1}, "amount > 100");
+
+        Assert.assertEquals(executedSqls.size(), 2);
+        Assert.assertTrue(executedSqls.get(1).contains("amount > 100"));
+    }
+
+    private RelationshipNetwork createNetwork(String databaseProductName, int majorVersion) throws SQLException {
+        Connection connection = Mockito.mock(Connection.class);
+        DatabaseMetaData databaseMetaData = Mockito.mock(DatabaseMetaData.class);
+        Mockito.when(connection.getMetaData()).thenReturn(databaseMetaData);
+        Mockito.when(databaseMetaData.getDatabaseProductName()).thenReturn(databaseProductName);
+        Mockito.when(databaseMetaData.getDatabaseMajorVersion()).thenReturn(majorVersion);
+        return new RelationshipNetwork(connection, new BeanModelDescriptor(Member.class));
+    }
+
+    @DomainModel
+    public static class Member {
+        private String name;
+    }
+
+    @DomainModel
+    public static class Order {
+        private Long memberId;
+        private Double amount;
+    }
+}
@@ -0,0 +1,95 @@
+package com.github.braisdom.objsql.sql;
+
+import com.github.braisdom.objsql.MapRowAdapter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static com.github.braisdom.objsql.sql.Expressions.$;
+import static com.github.braisdom.objsql.sql.function.Ansi.count;
+import static com.github.braisdom.objsql.sql.function.Ansi.sum;
+import static org.mockito.Mockito.mock;
+
+public class ExpressionEvaluatorTest {
+
+    private final Dataset dataset = mock(Dataset.class);
+    private final Column name = Expressions.column(dataset, "name");
+    private final Column region = Expressions.column(dataset, "region");
+    private final Column amount = Expressions.column(dataset, "amount");
+
+    @Test
+    public void testPredicate() {
+        ExpressionEvaluator<Map<String, Object>> evaluator = new ExpressionEvaluator<>(new MapRowAdapter());
+        Map<String, Object> row = createRow("alice", "east", 10);
+
+        Assert.assertTrue(evaluator.compilePredicate(amount.gt($(5L)).and(name.like($("al%")))).test(row));
+        Assert.assertTrue(evaluator.compilePredicate(amount.between(5, 10)).test(row));
+        Assert.assertTrue(evaluator.compilePredicate(region.in("east", "west")).test(row));
+        Assert.assertFalse(evaluator.compilePredicate(region.notIn("east", "west")).test(row));
+        Assert.assertEquals(evaluator.compileFunction(amount.times($(2)).plus($(1))).apply(row), 21L);
+
+        // The comparison with NULL is unknown, which is neither true nor false
+        Map<String, Object> nullRow = createRow("bob", null, null);
+        Assert.assertFalse(evaluator.compilePredicate(amount.gt($(5))).test(nullRow));
+        Assert.assertFalse(evaluator.compilePredicate(amount.le($(5))).test(nullRow));
+        Assert.assertTrue(evaluator.compilePredicate(amount.isNull().and(name.eq($("bob")))).test(nullRow));
+        Assert.assertTrue(evaluator.compilePredicate(amount.gt($(5)).or(region.isNull())).test(nullRow));
+    }
+
+    @Test
+    public void testExecuteInMemory() {
+        List<Map<String, Object>> rows = Arrays.asList(createRow("alice", "east", 10),
+                createRow("bob", "west", 30), createRow("carol", "east", 20), createRow("dave", null, 5));
+
+        Select<Map<String, Object>> select = new Select<>(dataset);
+        select.where(amount.ge($(10))).orderBy(amount.desc()).rowCount(2);
+        List<Map<String, Object>> topRows = select.executeInMemory(rows, new MapRowAdapter());
+        Assert.assertEquals(topRows.stream().map(row -> row.get("name")).collect(Collectors.toList()),
+                Arrays.asList("bob", "carol"));
+
+        Select<Map<String, Object>> aggregateSelect = new Select<>(dataset);
+        aggregateSelect.project(region, count().as("total"), sum(amount).as("amount_sum"))
+                .where(region.isNotNull())
+                .groupBy(region)
+                .having(sum(amount).gt($(25)))
+                .orderBy(region.asc());
+        List<Map<String, Object>> aggregatedRows = aggregateSelect.executeInMemory(rows, new MapRowAdapter());
+        Assert.assertEquals(aggregatedRows.size(), 2);
+        Assert.assertEquals(aggregatedRows.get(0).get("region"), "east");
+        Assert.assertEquals(aggregatedRows.get(0).get("total"), 2L);
+        Assert.assertEquals(aggregatedRows.get(0).get("amount_sum"), 30L);
+        Assert.assertEquals(aggregatedRows.get(1).get("region"), "west");
+
+        Select<Map<String, Object>> emptySelect = new Select<>(dataset);
+        emptySelect.project(count().as("total")).where(amount.gt($(100)));
+        List<Map<String, Object>> emptyRows = emptySelect.executeInMemory(rows, new MapRowAdapter());
+        Assert.assertEquals(emptyRows.get(0).get("total"), 0L);
+    }
+
+    @Test
+    public void testNumericCoercion() {
+        Assert.assertEquals(ExpressionEvaluator.compareValues("10", 9), 1);
+        Assert.assertEquals(ExpressionEvaluator.compareValues(10L, " 10.0 "), 0);
+
+        Map<String, Object> firstRow = createRow("alice", "east", null);
+        firstRow.put("amount", Long.MAX_VALUE);
+        Map<String, Object> secondRow = createRow("bob", "east", 1);
+        Select<Map<String, Object>> select = new Select<>(dataset);
+        select.project(sum(amount).as("amount_sum"));
+        List<Map<String, Object>> rows = select.executeInMemory(Arrays.asList(firstRow, secondRow),
+                new MapRowAdapter());
+        Assert.assertEquals(rows.get(0).get("amount_sum"),
+                BigDecimal.valueOf(Long.MAX_VALUE).add(BigDecimal.ONE));
+    }
+
+    private Map<String, Object> createRow(String name, String region, Integer amount) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("name", name);
+        row.put("region", region);
+        row.put("amount", amount);
+        return row;
+    }
+}
@@ -0,0 +1,78 @@
+package com.github.braisdom.objsql.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+public class CompactMapTest {
+
+    @Test
+    public void testSharedDictionary() {
+        ColumnDictionary dictionary = new ColumnDictionary();
+        CompactMap row1 = new CompactMap(dictionary);
+        CompactMap row2 = new CompactMap(dictionary);
+
+        row1.put("id", 1);
+        row1.put("name", "Alice");
+        row2.put("id", 2);
+        row2.put("name", null);
+
+        Assert.assertEquals(dictionary.size(), 2);
+        Assert.assertEquals(row1.get("name"), "Alice");
+        Assert.assertTrue(row2.containsKey("name"));
+        Assert.assertNull(row2.get("name"));
+        Assert.assertFalse(row2.containsKey("age"));
+        Assert.assertEquals(row2.size(), 2);
+
+        Map<Object, Object> expected = new HashMap<>();
+        expected.put("id", 1);
+        expected.put("name", "Alice");
+        Assert.assertEquals(row1, expected);
+    }
+
+    @Test
+    public void testRemove() {
+        CompactMap row = new CompactMap();
+        row.put("id", 1);
+        row.put("name", "Alice");
+
+        Assert.assertEquals(row.remove("id"), 1);
+        Assert.assertEquals(row.size(), 1);
+        Assert.assertNull(row.get("id"));
+        Assert.assertEquals(row.keySet().iterator().next(), "name");
+
+        row.clear();
+        Assert.assertTrue(row.isEmpty());
+    }
+
+    @Test
+    public void testHashMapCompatibility() throws Exception {
+        CompactMap row = new CompactMap();
+        row.put(null, "nothing");
+        row.put(1, "one");
+        row.put("name", "Alice");
+
+        Assert.assertEquals(row.get(null), "nothing");
+        Assert.assertEquals(row.get(1), "one");
+        Assert.assertEquals(row.size(), 3);
+
+        CompactMap clonedRow = (CompactMap) row.clone();
+        clonedRow.put("name", "Bob");
+        Assert.assertEquals(row.get("name"), "Alice");
+        Assert.assertEquals(clonedRow.get("name"), "Bob");
+
+        ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(byteStream)) {
+            output.writeObject(row);
+        }
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(byteStream.toByteArray()))) {
+            Assert.assertEquals(input.readObject(), row);
+        }
+    }
+}
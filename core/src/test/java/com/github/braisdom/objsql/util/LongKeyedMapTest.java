@@ -0,0 +1,40 @@
+package com.github.braisdom.objsql.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class LongKeyedMapTest {
+
+    @Test
+    public void testPutAndGet() {
+        LongKeyedMap<String> map = new LongKeyedMap<>(2);
+
+        for (long i = -1000; i < 1000; i++) {
+            Assert.assertNull(map.put(i * 31, String.valueOf(i)));
+        }
+
+        Assert.assertEquals(map.size(), 2000);
+        Assert.assertEquals(map.get(-31000), "-1000");
+        Assert.assertEquals(map.get(0), "0");
+        Assert.assertEquals(map.put(0, "zero"), "0");
+        Assert.assertEquals(map.get(0), "zero");
+        Assert.assertNull(map.get(1));
+        Assert.assertFalse(map.containsKey(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testComputeIfAbsent() {
+        LongKeyedMap<List<Long>> map = new LongKeyedMap<>();
+
+        for (long i = 0; i < 100; i++) {
+            map.computeIfAbsent(i % 7, key -> new ArrayList<>()).add(i);
+        }
+
+        Assert.assertEquals(map.size(), 7);
+        Assert.assertEquals(map.get(0).size(), 15);
+        Assert.assertEquals(map.get(6).size(), 14);
+    }
+}
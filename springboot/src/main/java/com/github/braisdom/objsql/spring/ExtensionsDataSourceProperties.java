@@ -1,14 +1,18 @@
 package com.github.braisdom.objsql.spring;
 
+import com.github.braisdom.objsql.ReplicaRouter;
 import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 @ConfigurationProperties(prefix = "spring.datasource")
 public class ExtensionsDataSourceProperties {
     private Map<String, DataSourceProperties> extensions = new LinkedHashMap();
+    private Replication replication = new Replication();
 
     public Map<String, DataSourceProperties> getExtensions() {
         return extensions;
@@ -17,4 +21,53 @@ public class ExtensionsDataSourceProperties {
     public void setExtensions(Map<String, DataSourceProperties> extensions) {
         this.extensions = extensions;
     }
+
+    public Replication getReplication() {
+        return replication;
+    }
+
+    public void setReplication(Replication replication) {
+        this.replication = replication;
+    }
+
+    /**
+     * Declares the replicas of data sources, the replicas are the names of extensions,
+     * and the default data source is named <code>default</code>:
+     * <pre>
+     *     spring.datasource.replication.replicas.default=replica1,replica2
+     *     spring.datasource.replication.strategy=LEAST_IN_FLIGHT
+     *     spring.datasource.replication.read-your-writes=2s
+     * </pre>
+     */
+    public static class Replication {
+        public static final String DEFAULT_DATA_SOURCE_KEY = "default";
+
+        private Map<String, List<String>> replicas = new LinkedHashMap<>();
+        private ReplicaRouter.Strategy strategy = ReplicaRouter.Strategy.ROUND_ROBIN;
+        private Duration readYourWrites = Duration.ZERO;
+
+        public Map<String, List<String>> getReplicas() {
+            return replicas;
+        }
+
+        public void setReplicas(Map<String, List<String>> replicas) {
+            this.replicas = replicas;
+        }
+
+        public ReplicaRouter.Strategy getStrategy() {
+            return strategy;
+        }
+
+        public void setStrategy(ReplicaRouter.Strategy strategy) {
+            this.strategy = strategy;
+        }
+
+        public Duration getReadYourWrites() {
+            return readYourWrites;
+        }
+
+        public void setReadYourWrites(Duration readYourWrites) {
+            this.readYourWrites = readYourWrites;
+        }
+    }
 }
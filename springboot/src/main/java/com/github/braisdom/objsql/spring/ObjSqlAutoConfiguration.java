@@ -2,6 +2,7 @@ package com.github.braisdom.objsql.spring;
 
 import com.github.braisdom.objsql.ConnectionFactory;
 import com.github.braisdom.objsql.Databases;
+import com.github.braisdom.objsql.ReplicaRouter;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
@@ -14,7 +15,9 @@ import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 @EnableConfigurationProperties(ExtensionsDataSourceProperties.class)
@@ -50,7 +53,31 @@ public class ObjSqlAutoConfiguration {
             connectionFactory.dataSourceMap.put(entry.getKey(), extensionDataSource);
         }
         Databases.installConnectionFactory(connectionFactory);
+
+        ExtensionsDataSourceProperties.Replication replication = dataSourceProperties.getReplication();
+        if (!replication.getReplicas().isEmpty()) {
+            Databases.installReplicaRouter(createReplicaRouter(replication, connectionFactory.dataSourceMap));
+        }
         return connectionFactory;
     }
 
+    ReplicaRouter createReplicaRouter(ExtensionsDataSourceProperties.Replication replication,
+                                      Map<String, DataSource> dataSourceMap) {
+        ReplicaRouter replicaRouter = new ReplicaRouter(replication.getStrategy())
+                .readYourWrites(replication.getReadYourWrites().toNanos(), TimeUnit.NANOSECONDS);
+
+        for (Map.Entry<String, List<String>> entry : replication.getReplicas().entrySet()) {
+            String dataSourceName = ExtensionsDataSourceProperties.Replication.DEFAULT_DATA_SOURCE_KEY
+                    .equals(entry.getKey()) ? ConnectionFactory.DEFAULT_DATA_SOURCE_NAME : entry.getKey();
+            for (String replicaName : entry.getValue()) {
+                if (!dataSourceMap.containsKey(replicaName)) {
+                    throw new IllegalArgumentException(String.format("Cannot find data source for replica '%s'",
+                            replicaName));
+                }
+            }
+            replicaRouter.addReplicas(dataSourceName, entry.getValue().toArray(new String[0]));
+        }
+        return replicaRouter;
+    }
+
 }
@@ -0,0 +1,42 @@
+package com.github.braisdom.objsql.spring;
+
+import com.github.braisdom.objsql.ReplicaRouter;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class ExtensionsDataSourcePropertiesTest {
+
+    @Test
+    public void testReplicationDefaults() {
+        ExtensionsDataSourceProperties.Replication replication = new ExtensionsDataSourceProperties.Replication();
+
+        Assert.assertTrue(replication.getReplicas().isEmpty());
+        Assert.assertEquals(replication.getStrategy(), ReplicaRouter.Strategy.ROUND_ROBIN);
+        Assert.assertEquals(replication.getReadYourWrites(), Duration.ZERO);
+    }
+
+    @Test
+    public void testBindReplication() {
+        Map<String, String> properties = new HashMap<>();
+        properties.put("spring.datasource.replication.replicas.default", "replica1,replica2");
+        properties.put("spring.datasource.replication.replicas.orders", "orders-replica");
+        properties.put("spring.datasource.replication.strategy", "LEAST_IN_FLIGHT");
+        properties.put("spring.datasource.replication.read-your-writes", "2s");
+
+        ExtensionsDataSourceProperties dataSourceProperties = new Binder(new MapConfigurationPropertySource(properties))
+                .bind("spring.datasource", ExtensionsDataSourceProperties.class).get();
+        ExtensionsDataSourceProperties.Replication replication = dataSourceProperties.getReplication();
+
+        Assert.assertEquals(replication.getReplicas().get("default"), Arrays.asList("replica1", "replica2"));
+        Assert.assertEquals(replication.getReplicas().get("orders"), Arrays.asList("orders-replica"));
+        Assert.assertEquals(replication.getStrategy(), ReplicaRouter.Strategy.LEAST_IN_FLIGHT);
+        Assert.assertEquals(replication.getReadYourWrites(), Duration.ofSeconds(2));
+    }
+}
@@ -0,0 +1,49 @@
+package com.github.braisdom.objsql.spring;
+
+import com.github.braisdom.objsql.ConnectionFactory;
+import com.github.braisdom.objsql.ReplicaRouter;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class ObjSqlAutoConfigurationTest {
+
+    @Test
+    public void testCreateReplicaRouter() {
+        ExtensionsDataSourceProperties.Replication replication = new ExtensionsDataSourceProperties.Replication();
+        replication.getReplicas().put("default", Arrays.asList("replica1", "replica2"));
+        replication.getReplicas().put("orders", Collections.singletonList("orders-replica"));
+        replication.setReadYourWrites(Duration.ofMinutes(1));
+
+        Map<String, DataSource> dataSourceMap = new HashMap<>();
+        dataSourceMap.put("replica1", Mockito.mock(DataSource.class));
+        dataSourceMap.put("replica2", Mockito.mock(DataSource.class));
+        dataSourceMap.put("orders-replica", Mockito.mock(DataSource.class));
+
+        ReplicaRouter replicaRouter = new ObjSqlAutoConfiguration().createReplicaRouter(replication, dataSourceMap);
+
+        // The replicas declared as default belong to the default data source
+        Assert.assertEquals(replicaRouter.acquire(ConnectionFactory.DEFAULT_DATA_SOURCE_NAME), "replica1");
+        Assert.assertEquals(replicaRouter.acquire(ConnectionFactory.DEFAULT_DATA_SOURCE_NAME), "replica2");
+        Assert.assertEquals(replicaRouter.acquire("orders"), "orders-replica");
+        Assert.assertEquals(replicaRouter.acquire("members"), "members");
+
+        replicaRouter.markWritten("orders");
+        Assert.assertEquals(replicaRouter.acquire("orders"), "orders");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownReplica() {
+        ExtensionsDataSourceProperties.Replication replication = new ExtensionsDataSourceProperties.Replication();
+        replication.getReplicas().put("default", Collections.singletonList("replica1"));
+
+        new ObjSqlAutoConfiguration().createReplicaRouter(replication, new HashMap<>());
+    }
+}